@@ -16,10 +16,15 @@ statement
     | ADD STORAGEENGINE storageEngineSpec #addStorageEngineStatement
     | SHOW CLUSTER INFO #showClusterInfoStatement
     | SHOW REGISTER PYTHON TASK #showRegisterTaskStatement
-    | REGISTER udfType PYTHON TASK className=stringLiteral IN filePath=stringLiteral AS name=stringLiteral#registerTaskStatement
+    | REGISTER VECTORIZED? udfType PYTHON TASK className=stringLiteral IN filePath=stringLiteral AS name=stringLiteral#registerTaskStatement
     | DROP PYTHON TASK name=stringLiteral #dropTaskStatement
     | COMMIT TRANSFORM JOB filePath=stringLiteral #commitTransformJobStatement
     | SHOW TRANSFORM JOB STATUS jobId=INT #showJobStatusStatement
+    | KILL QUERY queryId=INT #killQueryStatement
+    | EXPLAIN ANALYZE? queryClause #explainStatement
+    | CREATE CONTINUOUS QUERY name=stringLiteral AS selectClause fromClause GROUP BY DURATION #createContinuousQueryStatement
+    | DROP CONTINUOUS QUERY name=stringLiteral #dropContinuousQueryStatement
+    | SHOW CONTINUOUS QUERY #showContinuousQueryStatement
     ;
 
 queryClause
@@ -115,12 +120,16 @@ specialClause
     : limitClause
     | groupByLevelClause
     | groupByClause limitClause?
-    | groupByTimeClause limitClause?
+    | groupByTimeClause orderByClause? limitClause?
     | orderByClause limitClause?
     ;
 
 orderByClause
-    : ORDER BY (TIME | TIMESTAMP | path) (DESC | ASC)?
+    : ORDER BY orderItem (COMMA orderItem)*
+    ;
+
+orderItem
+    : (TIME | TIMESTAMP | path | functionName LR_BRACKET path RR_BRACKET) (DESC | ASC)?
     ;
 
 groupByClause
@@ -265,10 +274,17 @@ nodeName
     | TRANSFORM
     | JOB
     | STATUS
+    | KILL
+    | QUERY
+    | EXPLAIN
+    | ANALYZE
+    | CREATE
+    | CONTINUOUS
     | AS
     | UDAF
     | UDTF
     | UDSF
+    | VECTORIZED
     | WITH
     | TIME_OFFSET
     ;
@@ -524,6 +540,30 @@ STATUS
     : S T A T U S
     ;
 
+KILL
+    : K I L L
+    ;
+
+QUERY
+    : Q U E R Y
+    ;
+
+EXPLAIN
+    : E X P L A I N
+    ;
+
+ANALYZE
+    : A N A L Y Z E
+    ;
+
+CREATE
+    : C R E A T E
+    ;
+
+CONTINUOUS
+    : C O N T I N U O U S
+    ;
+
 AS
     : A S
     ;
@@ -540,6 +580,10 @@ UDSF
     : U D S F
     ;
 
+VECTORIZED
+    : V E C T O R I Z E D
+    ;
+
 WITH
     : W I T H
     ;
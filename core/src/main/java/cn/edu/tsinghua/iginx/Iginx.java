@@ -26,8 +26,13 @@ import cn.edu.tsinghua.iginx.rest.RestServer;
 import cn.edu.tsinghua.iginx.thrift.IService;
 import org.apache.thrift.TProcessor;
 import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
@@ -52,15 +57,51 @@ public class Iginx {
 
     private void startServer() throws TTransportException {
         TProcessor processor = new IService.Processor<IService.Iface>(IginxWorker.getInstance());
-        TServerSocket serverTransport = new TServerSocket(ConfigDescriptor.getInstance().getConfig().getPort());
-        TThreadPoolServer.Args args = new TThreadPoolServer.Args(serverTransport).processor(processor)
-            .minWorkerThreads(20);
-        args.protocolFactory(new TBinaryProtocol.Factory());
-        TServer server = new TThreadPoolServer(args);
-        logger.info("iginx starts successfully!");
+        TServer server;
+        switch (config.getThriftServerType()) {
+            case "threadPool":
+                server = createThreadPoolServer(processor);
+                break;
+            case "threadedSelector":
+                server = createThreadedSelectorServer(processor);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported thrift server type: " + config.getThriftServerType());
+        }
+        logger.info("iginx starts successfully with {} server and {} protocol!", config.getThriftServerType(), config.getThriftProtocol());
         System.out.print("\n\niginx is now in service......\n\n");
         server.serve();
     }
 
+    private TServer createThreadPoolServer(TProcessor processor) throws TTransportException {
+        TServerSocket serverTransport = new TServerSocket(config.getPort());
+        TThreadPoolServer.Args args = new TThreadPoolServer.Args(serverTransport).processor(processor)
+            .minWorkerThreads(20);
+        args.protocolFactory(createProtocolFactory());
+        return new TThreadPoolServer(args);
+    }
+
+    // 连接由少量 selector 线程负责读写，请求交给固定大小的线程池执行，空闲连接不再占用线程
+    private TServer createThreadedSelectorServer(TProcessor processor) throws TTransportException {
+        TNonblockingServerSocket serverTransport = new TNonblockingServerSocket(config.getPort());
+        TThreadedSelectorServer.Args args = new TThreadedSelectorServer.Args(serverTransport).processor(processor)
+            .selectorThreads(config.getThriftSelectorThreads())
+            .workerThreads(config.getThriftWorkerThreads());
+        args.transportFactory(new TFramedTransport.Factory());
+        args.protocolFactory(createProtocolFactory());
+        args.maxReadBufferBytes = config.getThriftMaxReadBufferBytes();
+        return new TThreadedSelectorServer(args);
+    }
+
+    private TProtocolFactory createProtocolFactory() {
+        switch (config.getThriftProtocol()) {
+            case "binary":
+                return new TBinaryProtocol.Factory();
+            case "compact":
+                return new TCompactProtocol.Factory();
+            default:
+                throw new IllegalArgumentException("unsupported thrift protocol: " + config.getThriftProtocol());
+        }
+    }
 
 }
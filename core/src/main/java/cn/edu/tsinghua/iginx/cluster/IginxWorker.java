@@ -424,7 +424,7 @@ public class IginxWorker implements IService.Iface {
         StatementExecutor executor = StatementExecutor.getInstance();
         RequestContext ctx = contextBuilder.build(req);
         executor.execute(ctx);
-        queryManager.registerQuery(ctx.getId(), ctx);
+        ctx.getResult().setUseColumnDataSet(req.isSetEnableColumnDataSet() && req.isEnableColumnDataSet());
         return ctx.getResult().getExecuteStatementResp(req.getFetchSize());
     }
 
@@ -517,7 +517,7 @@ public class IginxWorker implements IService.Iface {
         }
 
         metaManager.addTransformTask(new TransformTaskMeta(name, className, fileName,
-            new HashSet<>(Collections.singletonList(config.getIp())), req.getType()));
+            new HashSet<>(Collections.singletonList(config.getIp())), req.getType(), req.isVectorized()));
         return RpcUtils.SUCCESS;
     }
 
@@ -24,6 +24,16 @@ public class Config {
 
     private int port = 6888;
 
+    private String thriftServerType = "threadPool";
+
+    private String thriftProtocol = "binary";
+
+    private int thriftSelectorThreads = 2;
+
+    private int thriftWorkerThreads = 64;
+
+    private long thriftMaxReadBufferBytes = 256 * 1024 * 1024L;
+
     private String username = "root";
 
     private String password = "root";
@@ -53,6 +63,8 @@ public class Config {
 
     private int statisticsLogInterval = 5000;
 
+    private boolean enableMetrics = true;
+
     private boolean enableEnvParameter = false;
 
     private String restIp = "127.0.0.1";
@@ -69,6 +81,8 @@ public class Config {
 
     private String fileDataDir = "";
 
+    private int fileMetaCompactThreshold = 10000;
+
     private String etcdEndpoints = "http://localhost:2379";
 
     private boolean enableMQTT = false;
@@ -99,6 +113,40 @@ public class Config {
 
     private int maxCachedPhysicalTaskPerStorage = 500;
 
+    private long queryTimeout = 0;
+
+    private int storageTaskQueueCapacity = 1000;
+
+    private long storageTaskQueueOfferTimeout = 10000;
+
+    private int readTaskWeight = 1;
+
+    private int writeTaskWeight = 1;
+
+    private int maxConcurrentStatementsPerSession = 0;
+
+    private boolean enableWriteCoalescing = false;
+
+    private long writeCoalescingMaxPoints = 100000;
+
+    private long writeCoalescingLingerMs = 0;
+
+    private long maxSortMemorySize = 67108864;
+
+    private String sortSpillDir = "";
+
+    private int unionPrefetchSize = 1024;
+
+    private int unionPrefetchThreadPoolSize = 16;
+
+    private boolean enableQueryCache = false;
+
+    private long queryCacheMaxSize = 268435456;
+
+    private long queryCacheMaxEntrySize = 16777216;
+
+    private long queryCacheTtl = 0;
+
     private double cachedTimeseriesProb = 0.01;
 
     private int retryCount = 10;
@@ -117,6 +165,8 @@ public class Config {
 
     private boolean useStreamExecutor = true;
 
+    private boolean useBatchExecutor = false;
+
     private boolean enableMemoryControl = true;
 
     private String systemResourceMetrics = "default";
@@ -139,6 +189,8 @@ public class Config {
 
     private int transformMaxRetryTimes = 3;
 
+    private int transformMaxInFlightBatches = 4;
+
     private boolean needInitBasicUDFFunctions = true;
 
     private String udfList = "";
@@ -167,6 +219,46 @@ public class Config {
         this.port = port;
     }
 
+    public String getThriftServerType() {
+        return thriftServerType;
+    }
+
+    public void setThriftServerType(String thriftServerType) {
+        this.thriftServerType = thriftServerType;
+    }
+
+    public String getThriftProtocol() {
+        return thriftProtocol;
+    }
+
+    public void setThriftProtocol(String thriftProtocol) {
+        this.thriftProtocol = thriftProtocol;
+    }
+
+    public int getThriftSelectorThreads() {
+        return thriftSelectorThreads;
+    }
+
+    public void setThriftSelectorThreads(int thriftSelectorThreads) {
+        this.thriftSelectorThreads = thriftSelectorThreads;
+    }
+
+    public int getThriftWorkerThreads() {
+        return thriftWorkerThreads;
+    }
+
+    public void setThriftWorkerThreads(int thriftWorkerThreads) {
+        this.thriftWorkerThreads = thriftWorkerThreads;
+    }
+
+    public long getThriftMaxReadBufferBytes() {
+        return thriftMaxReadBufferBytes;
+    }
+
+    public void setThriftMaxReadBufferBytes(long thriftMaxReadBufferBytes) {
+        this.thriftMaxReadBufferBytes = thriftMaxReadBufferBytes;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -271,6 +363,14 @@ public class Config {
         this.statisticsLogInterval = statisticsLogInterval;
     }
 
+    public boolean isEnableMetrics() {
+        return enableMetrics;
+    }
+
+    public void setEnableMetrics(boolean enableMetrics) {
+        this.enableMetrics = enableMetrics;
+    }
+
     public boolean isEnableEnvParameter() {
         return enableEnvParameter;
     }
@@ -327,6 +427,14 @@ public class Config {
         this.fileDataDir = fileDataDir;
     }
 
+    public int getFileMetaCompactThreshold() {
+        return fileMetaCompactThreshold;
+    }
+
+    public void setFileMetaCompactThreshold(int fileMetaCompactThreshold) {
+        this.fileMetaCompactThreshold = fileMetaCompactThreshold;
+    }
+
     public long getDisorderMargin() {
         return disorderMargin;
     }
@@ -455,6 +563,142 @@ public class Config {
         this.maxCachedPhysicalTaskPerStorage = maxCachedPhysicalTaskPerStorage;
     }
 
+    public long getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(long queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public int getStorageTaskQueueCapacity() {
+        return storageTaskQueueCapacity;
+    }
+
+    public void setStorageTaskQueueCapacity(int storageTaskQueueCapacity) {
+        this.storageTaskQueueCapacity = storageTaskQueueCapacity;
+    }
+
+    public long getStorageTaskQueueOfferTimeout() {
+        return storageTaskQueueOfferTimeout;
+    }
+
+    public void setStorageTaskQueueOfferTimeout(long storageTaskQueueOfferTimeout) {
+        this.storageTaskQueueOfferTimeout = storageTaskQueueOfferTimeout;
+    }
+
+    public int getReadTaskWeight() {
+        return readTaskWeight;
+    }
+
+    public void setReadTaskWeight(int readTaskWeight) {
+        this.readTaskWeight = readTaskWeight;
+    }
+
+    public int getWriteTaskWeight() {
+        return writeTaskWeight;
+    }
+
+    public void setWriteTaskWeight(int writeTaskWeight) {
+        this.writeTaskWeight = writeTaskWeight;
+    }
+
+    public int getMaxConcurrentStatementsPerSession() {
+        return maxConcurrentStatementsPerSession;
+    }
+
+    public void setMaxConcurrentStatementsPerSession(int maxConcurrentStatementsPerSession) {
+        this.maxConcurrentStatementsPerSession = maxConcurrentStatementsPerSession;
+    }
+
+    public boolean isEnableWriteCoalescing() {
+        return enableWriteCoalescing;
+    }
+
+    public void setEnableWriteCoalescing(boolean enableWriteCoalescing) {
+        this.enableWriteCoalescing = enableWriteCoalescing;
+    }
+
+    public long getWriteCoalescingMaxPoints() {
+        return writeCoalescingMaxPoints;
+    }
+
+    public void setWriteCoalescingMaxPoints(long writeCoalescingMaxPoints) {
+        this.writeCoalescingMaxPoints = writeCoalescingMaxPoints;
+    }
+
+    public long getWriteCoalescingLingerMs() {
+        return writeCoalescingLingerMs;
+    }
+
+    public void setWriteCoalescingLingerMs(long writeCoalescingLingerMs) {
+        this.writeCoalescingLingerMs = writeCoalescingLingerMs;
+    }
+
+    public long getMaxSortMemorySize() {
+        return maxSortMemorySize;
+    }
+
+    public void setMaxSortMemorySize(long maxSortMemorySize) {
+        this.maxSortMemorySize = maxSortMemorySize;
+    }
+
+    public String getSortSpillDir() {
+        return sortSpillDir;
+    }
+
+    public void setSortSpillDir(String sortSpillDir) {
+        this.sortSpillDir = sortSpillDir;
+    }
+
+    public int getUnionPrefetchSize() {
+        return unionPrefetchSize;
+    }
+
+    public void setUnionPrefetchSize(int unionPrefetchSize) {
+        this.unionPrefetchSize = unionPrefetchSize;
+    }
+
+    public int getUnionPrefetchThreadPoolSize() {
+        return unionPrefetchThreadPoolSize;
+    }
+
+    public void setUnionPrefetchThreadPoolSize(int unionPrefetchThreadPoolSize) {
+        this.unionPrefetchThreadPoolSize = unionPrefetchThreadPoolSize;
+    }
+
+    public boolean isEnableQueryCache() {
+        return enableQueryCache;
+    }
+
+    public void setEnableQueryCache(boolean enableQueryCache) {
+        this.enableQueryCache = enableQueryCache;
+    }
+
+    public long getQueryCacheMaxSize() {
+        return queryCacheMaxSize;
+    }
+
+    public void setQueryCacheMaxSize(long queryCacheMaxSize) {
+        this.queryCacheMaxSize = queryCacheMaxSize;
+    }
+
+    public long getQueryCacheMaxEntrySize() {
+        return queryCacheMaxEntrySize;
+    }
+
+    public void setQueryCacheMaxEntrySize(long queryCacheMaxEntrySize) {
+        this.queryCacheMaxEntrySize = queryCacheMaxEntrySize;
+    }
+
+    public long getQueryCacheTtl() {
+        return queryCacheTtl;
+    }
+
+    public void setQueryCacheTtl(long queryCacheTtl) {
+        this.queryCacheTtl = queryCacheTtl;
+    }
+
     public double getCachedTimeseriesProb() {
         return cachedTimeseriesProb;
     }
@@ -527,6 +771,14 @@ public class Config {
         this.useStreamExecutor = useStreamExecutor;
     }
 
+    public boolean isUseBatchExecutor() {
+        return useBatchExecutor;
+    }
+
+    public void setUseBatchExecutor(boolean useBatchExecutor) {
+        this.useBatchExecutor = useBatchExecutor;
+    }
+
     public boolean isEnableMemoryControl() {
         return enableMemoryControl;
     }
@@ -615,6 +867,14 @@ public class Config {
         this.transformMaxRetryTimes = transformMaxRetryTimes;
     }
 
+    public int getTransformMaxInFlightBatches() {
+        return transformMaxInFlightBatches;
+    }
+
+    public void setTransformMaxInFlightBatches(int transformMaxInFlightBatches) {
+        this.transformMaxInFlightBatches = transformMaxInFlightBatches;
+    }
+
     public boolean isNeedInitBasicUDFFunctions() {
         return needInitBasicUDFFunctions;
     }
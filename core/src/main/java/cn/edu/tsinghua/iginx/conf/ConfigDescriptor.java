@@ -54,6 +54,11 @@ public class ConfigDescriptor {
 
             config.setIp(properties.getProperty("ip", "0.0.0.0"));
             config.setPort(Integer.parseInt(properties.getProperty("port", "6888")));
+            config.setThriftServerType(properties.getProperty("thriftServerType", "threadPool"));
+            config.setThriftProtocol(properties.getProperty("thriftProtocol", "binary"));
+            config.setThriftSelectorThreads(Integer.parseInt(properties.getProperty("thriftSelectorThreads", "2")));
+            config.setThriftWorkerThreads(Integer.parseInt(properties.getProperty("thriftWorkerThreads", "64")));
+            config.setThriftMaxReadBufferBytes(Long.parseLong(properties.getProperty("thriftMaxReadBufferBytes", "268435456")));
             config.setUsername(properties.getProperty("username", "root"));
             config.setPassword(properties.getProperty("password", "root"));
             config.setZookeeperConnectionString(properties.getProperty("zookeeperConnectionString",
@@ -75,6 +80,7 @@ public class ConfigDescriptor {
 
             config.setStatisticsCollectorClassName(properties.getProperty("statisticsCollectorClassName", ""));
             config.setStatisticsLogInterval(Integer.parseInt(properties.getProperty("statisticsLogInterval", "5000")));
+            config.setEnableMetrics(Boolean.parseBoolean(properties.getProperty("enableMetrics", "true")));
 
             config.setRestIp(properties.getProperty("restIp", "127.0.0.1"));
             config.setRestPort(Integer.parseInt(properties.getProperty("restPort", "6666")));
@@ -87,6 +93,7 @@ public class ConfigDescriptor {
 
             config.setMetaStorage(properties.getProperty("metaStorage", "zookeeper"));
             config.setFileDataDir(properties.getProperty("fileDataDir", ""));
+            config.setFileMetaCompactThreshold(Integer.parseInt(properties.getProperty("fileMetaCompactThreshold", "10000")));
             config.setEtcdEndpoints(properties.getProperty("etcdEndpoints", "http://localhost:2379"));
 
             config.setEnableMQTT(Boolean.parseBoolean(properties.getProperty("enable_mqtt", "false")));
@@ -107,6 +114,23 @@ public class ConfigDescriptor {
             config.setPhysicalTaskThreadPoolSizePerStorage(Integer.parseInt(properties.getProperty("physicalTaskThreadPoolSizePerStorage", "100")));
 
             config.setMaxCachedPhysicalTaskPerStorage(Integer.parseInt(properties.getProperty("maxCachedPhysicalTaskPerStorage", "500")));
+            config.setQueryTimeout(Long.parseLong(properties.getProperty("queryTimeout", "0")));
+            config.setStorageTaskQueueCapacity(Integer.parseInt(properties.getProperty("storageTaskQueueCapacity", "1000")));
+            config.setStorageTaskQueueOfferTimeout(Long.parseLong(properties.getProperty("storageTaskQueueOfferTimeout", "10000")));
+            config.setReadTaskWeight(Integer.parseInt(properties.getProperty("readTaskWeight", "1")));
+            config.setWriteTaskWeight(Integer.parseInt(properties.getProperty("writeTaskWeight", "1")));
+            config.setMaxConcurrentStatementsPerSession(Integer.parseInt(properties.getProperty("maxConcurrentStatementsPerSession", "0")));
+            config.setEnableWriteCoalescing(Boolean.parseBoolean(properties.getProperty("enableWriteCoalescing", "false")));
+            config.setWriteCoalescingMaxPoints(Long.parseLong(properties.getProperty("writeCoalescingMaxPoints", "100000")));
+            config.setWriteCoalescingLingerMs(Long.parseLong(properties.getProperty("writeCoalescingLingerMs", "0")));
+            config.setMaxSortMemorySize(Long.parseLong(properties.getProperty("maxSortMemorySize", "67108864")));
+            config.setSortSpillDir(properties.getProperty("sortSpillDir", ""));
+            config.setUnionPrefetchSize(Integer.parseInt(properties.getProperty("unionPrefetchSize", "1024")));
+            config.setUnionPrefetchThreadPoolSize(Integer.parseInt(properties.getProperty("unionPrefetchThreadPoolSize", "16")));
+            config.setEnableQueryCache(Boolean.parseBoolean(properties.getProperty("enableQueryCache", "false")));
+            config.setQueryCacheMaxSize(Long.parseLong(properties.getProperty("queryCacheMaxSize", "268435456")));
+            config.setQueryCacheMaxEntrySize(Long.parseLong(properties.getProperty("queryCacheMaxEntrySize", "16777216")));
+            config.setQueryCacheTtl(Long.parseLong(properties.getProperty("queryCacheTtl", "0")));
 
             config.setCachedTimeseriesProb(Double.parseDouble(properties.getProperty("cachedTimeseriesProb", "0.01")));
             config.setRetryCount(Integer.parseInt(properties.getProperty("retryCount", "10")));
@@ -118,6 +142,7 @@ public class ConfigDescriptor {
 
             config.setEnablePushDown(Boolean.parseBoolean(properties.getProperty("enablePushDown", "true")));
             config.setUseStreamExecutor(Boolean.parseBoolean(properties.getProperty("useStreamExecutor", "true")));
+            config.setUseBatchExecutor(Boolean.parseBoolean(properties.getProperty("useBatchExecutor", "false")));
 
             config.setEnableMemoryControl(Boolean.parseBoolean(properties.getProperty("enable_memory_control", "true")));
             config.setSystemResourceMetrics(properties.getProperty("system_resource_metrics", "default"));
@@ -131,6 +156,7 @@ public class ConfigDescriptor {
             config.setPythonCMD(properties.getProperty("pythonCMD", "python3"));
             config.setTransformTaskThreadPoolSize(Integer.parseInt(properties.getProperty("transformTaskThreadPoolSize", "10")));
             config.setTransformMaxRetryTimes(Integer.parseInt(properties.getProperty("transformMaxRetryTimes", "3")));
+            config.setTransformMaxInFlightBatches(Integer.parseInt(properties.getProperty("transformMaxInFlightBatches", "4")));
 
             config.setNeedInitBasicUDFFunctions(Boolean.parseBoolean(properties.getProperty("needInitBasicUDFFunctions", "true")));
             config.setUdfList(properties.getProperty("udfList", ""));
@@ -142,6 +168,11 @@ public class ConfigDescriptor {
     private void loadPropsFromEnv() {
         config.setIp(EnvUtils.loadEnv("ip", config.getIp()));
         config.setPort(EnvUtils.loadEnv("port", config.getPort()));
+        config.setThriftServerType(EnvUtils.loadEnv("thriftServerType", config.getThriftServerType()));
+        config.setThriftProtocol(EnvUtils.loadEnv("thriftProtocol", config.getThriftProtocol()));
+        config.setThriftSelectorThreads(EnvUtils.loadEnv("thriftSelectorThreads", config.getThriftSelectorThreads()));
+        config.setThriftWorkerThreads(EnvUtils.loadEnv("thriftWorkerThreads", config.getThriftWorkerThreads()));
+        config.setThriftMaxReadBufferBytes(EnvUtils.loadEnv("thriftMaxReadBufferBytes", config.getThriftMaxReadBufferBytes()));
         config.setUsername(EnvUtils.loadEnv("username", config.getUsername()));
         config.setPassword(EnvUtils.loadEnv("password", config.getPassword()));
         config.setZookeeperConnectionString(EnvUtils.loadEnv("zookeeperConnectionString", config.getZookeeperConnectionString()));
@@ -155,6 +186,7 @@ public class ConfigDescriptor {
         config.setStorageUnitNum(EnvUtils.loadEnv("storageUnitNum", config.getStorageUnitNum()));
         config.setStatisticsCollectorClassName(EnvUtils.loadEnv("statisticsCollectorClassName", config.getStatisticsCollectorClassName()));
         config.setStatisticsLogInterval(EnvUtils.loadEnv("statisticsLogInterval", config.getStatisticsLogInterval()));
+        config.setEnableMetrics(EnvUtils.loadEnv("enableMetrics", config.isEnableMetrics()));
         config.setRestIp(EnvUtils.loadEnv("restIp", config.getRestIp()));
         config.setRestPort(EnvUtils.loadEnv("restPort", config.getRestPort()));
         config.setDisorderMargin(EnvUtils.loadEnv("disorderMargin", config.getDisorderMargin()));
@@ -163,6 +195,7 @@ public class ConfigDescriptor {
         config.setEnableRestService(EnvUtils.loadEnv("enableRestService", config.isEnableRestService()));
         config.setMetaStorage(EnvUtils.loadEnv("metaStorage", config.getMetaStorage()));
         config.setFileDataDir(EnvUtils.loadEnv("fileDataDir", config.getFileDataDir()));
+        config.setFileMetaCompactThreshold(EnvUtils.loadEnv("fileMetaCompactThreshold", config.getFileMetaCompactThreshold()));
         config.setEtcdEndpoints(EnvUtils.loadEnv("etcdEndpoints", config.getEtcdEndpoints()));
         config.setEnableMQTT(EnvUtils.loadEnv("enable_mqtt", config.isEnableMQTT()));
         config.setMqttHost(EnvUtils.loadEnv("mqtt_host", config.getMqttHost()));
@@ -176,6 +209,23 @@ public class ConfigDescriptor {
         config.setMemoryTaskThreadPoolSize(EnvUtils.loadEnv("memoryTaskThreadPoolSize", config.getMemoryTaskThreadPoolSize()));
         config.setPhysicalTaskThreadPoolSizePerStorage(EnvUtils.loadEnv("physicalTaskThreadPoolSizePerStorage", config.getPhysicalTaskThreadPoolSizePerStorage()));
         config.setMaxCachedPhysicalTaskPerStorage(EnvUtils.loadEnv("maxCachedPhysicalTaskPerStorage", config.getMaxCachedPhysicalTaskPerStorage()));
+        config.setQueryTimeout(EnvUtils.loadEnv("queryTimeout", config.getQueryTimeout()));
+        config.setStorageTaskQueueCapacity(EnvUtils.loadEnv("storageTaskQueueCapacity", config.getStorageTaskQueueCapacity()));
+        config.setStorageTaskQueueOfferTimeout(EnvUtils.loadEnv("storageTaskQueueOfferTimeout", config.getStorageTaskQueueOfferTimeout()));
+        config.setReadTaskWeight(EnvUtils.loadEnv("readTaskWeight", config.getReadTaskWeight()));
+        config.setWriteTaskWeight(EnvUtils.loadEnv("writeTaskWeight", config.getWriteTaskWeight()));
+        config.setMaxConcurrentStatementsPerSession(EnvUtils.loadEnv("maxConcurrentStatementsPerSession", config.getMaxConcurrentStatementsPerSession()));
+        config.setEnableWriteCoalescing(EnvUtils.loadEnv("enableWriteCoalescing", config.isEnableWriteCoalescing()));
+        config.setWriteCoalescingMaxPoints(EnvUtils.loadEnv("writeCoalescingMaxPoints", config.getWriteCoalescingMaxPoints()));
+        config.setWriteCoalescingLingerMs(EnvUtils.loadEnv("writeCoalescingLingerMs", config.getWriteCoalescingLingerMs()));
+        config.setMaxSortMemorySize(EnvUtils.loadEnv("maxSortMemorySize", config.getMaxSortMemorySize()));
+        config.setSortSpillDir(EnvUtils.loadEnv("sortSpillDir", config.getSortSpillDir()));
+        config.setUnionPrefetchSize(EnvUtils.loadEnv("unionPrefetchSize", config.getUnionPrefetchSize()));
+        config.setUnionPrefetchThreadPoolSize(EnvUtils.loadEnv("unionPrefetchThreadPoolSize", config.getUnionPrefetchThreadPoolSize()));
+        config.setEnableQueryCache(EnvUtils.loadEnv("enableQueryCache", config.isEnableQueryCache()));
+        config.setQueryCacheMaxSize(EnvUtils.loadEnv("queryCacheMaxSize", config.getQueryCacheMaxSize()));
+        config.setQueryCacheMaxEntrySize(EnvUtils.loadEnv("queryCacheMaxEntrySize", config.getQueryCacheMaxEntrySize()));
+        config.setQueryCacheTtl(EnvUtils.loadEnv("queryCacheTtl", config.getQueryCacheTtl()));
         config.setCachedTimeseriesProb(EnvUtils.loadEnv("cachedTimeseriesProb", config.getCachedTimeseriesProb()));
         config.setRetryCount(EnvUtils.loadEnv("retryCount", config.getRetryCount()));
         config.setRetryWait(EnvUtils.loadEnv("retryWait", config.getRetryWait()));
@@ -185,6 +235,7 @@ public class ConfigDescriptor {
         config.setStorageGroupValueLimit(EnvUtils.loadEnv("storageGroupValueLimit", config.getStorageGroupValueLimit()));
         config.setEnablePushDown(EnvUtils.loadEnv("enablePushDown", config.isEnablePushDown()));
         config.setUseStreamExecutor(EnvUtils.loadEnv("useStreamExecutor", config.isUseStreamExecutor()));
+        config.setUseBatchExecutor(EnvUtils.loadEnv("useBatchExecutor", config.isUseBatchExecutor()));
         config.setEnableMemoryControl(EnvUtils.loadEnv("enable_memory_control", config.isEnableMemoryControl()));
         config.setSystemResourceMetrics(EnvUtils.loadEnv("system_resource_metrics", config.getSystemResourceMetrics()));
         config.setHeapMemoryThreshold(EnvUtils.loadEnv("heap_memory_threshold", config.getHeapMemoryThreshold()));
@@ -196,6 +247,7 @@ public class ConfigDescriptor {
         config.setPythonCMD(EnvUtils.loadEnv("pythonCMD", config.getPythonCMD()));
         config.setTransformTaskThreadPoolSize(EnvUtils.loadEnv("transformTaskThreadPoolSize", config.getTransformTaskThreadPoolSize()));
         config.setTransformMaxRetryTimes(EnvUtils.loadEnv("transformMaxRetryTimes", config.getTransformMaxRetryTimes()));
+        config.setTransformMaxInFlightBatches(EnvUtils.loadEnv("transformMaxInFlightBatches", config.getTransformMaxInFlightBatches()));
         config.setNeedInitBasicUDFFunctions(EnvUtils.loadEnv("needInitBasicUDFFunctions", config.isNeedInitBasicUDFFunctions()));
         config.setUdfList(EnvUtils.loadEnv("udfList", config.getUdfList()));
     }
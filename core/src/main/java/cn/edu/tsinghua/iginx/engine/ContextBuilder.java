@@ -1,6 +1,7 @@
 package cn.edu.tsinghua.iginx.engine;
 
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
 import cn.edu.tsinghua.iginx.engine.shared.operator.tag.AndTagFilter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.tag.BaseTagFilter;
@@ -13,7 +14,6 @@ import cn.edu.tsinghua.iginx.utils.ByteUtils;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -65,28 +65,17 @@ public class ContextBuilder {
                                               byte[] timestamps, List<ByteBuffer> valueList, List<ByteBuffer> bitmapList,
                                               List<Map<String, String>> tagsList) {
         long[] timeArray = ByteUtils.getLongArrayFromByteArray(timestamps);
-        List<Long> times = new ArrayList<>();
-        Arrays.stream(timeArray).forEach(times::add);
 
         List<Bitmap> bitmaps;
-        Object[] values;
         if (rawDataType == RawDataType.Row || rawDataType == RawDataType.NonAlignedRow) {
-            bitmaps = bitmapList.stream().map(x -> new Bitmap(paths.size(), x.array())).collect(Collectors.toList());
-            values = ByteUtils.getRowValuesByDataType(valueList, types, bitmapList);
+            bitmaps = bitmapList.stream().map(x -> new Bitmap(paths.size(), ByteUtils.getBytesFromByteBuffer(x))).collect(Collectors.toList());
         } else {
-            bitmaps = bitmapList.stream().map(x -> new Bitmap(times.size(), x.array())).collect(Collectors.toList());
-            values = ByteUtils.getColumnValuesByDataType(valueList, types, bitmapList, times.size());
+            bitmaps = bitmapList.stream().map(x -> new Bitmap(timeArray.length, ByteUtils.getBytesFromByteBuffer(x))).collect(Collectors.toList());
         }
 
-        InsertStatement statement = new InsertStatement(
-            rawDataType,
-            paths,
-            times,
-            values,
-            types,
-            bitmaps,
-            tagsList
-        );
+        // 值直接引用请求中的编码缓冲区，由存储端按需读取
+        RawData rawData = new RawData(paths, tagsList, timeArray, valueList, types, bitmaps, rawDataType);
+        InsertStatement statement = new InsertStatement(rawData);
         return new RequestContext(sessionId, statement);
     }
 
@@ -144,7 +133,11 @@ public class ContextBuilder {
     }
 
     public RequestContext build(ExecuteStatementReq req) {
-        return new RequestContext(req.getSessionId(), req.getStatement(), true);
+        RequestContext ctx = new RequestContext(req.getSessionId(), req.getStatement(), true);
+        if (req.isSetTimeout()) {
+            ctx.setTimeout(req.getTimeout());
+        }
+        return ctx;
     }
 
     public RequestContext build(LastQueryReq req) {
@@ -36,6 +36,11 @@ public class StatementBuilder {
         typeMap.put(StatementType.DROP_TASK, SqlType.DropTask);
         typeMap.put(StatementType.COMMIT_TRANSFORM_JOB, SqlType.CommitTransformJob);
         typeMap.put(StatementType.SHOW_JOB_STATUS, SqlType.ShowJobStatus);
+        typeMap.put(StatementType.KILL_QUERY, SqlType.KillQuery);
+        typeMap.put(StatementType.EXPLAIN, SqlType.Query);
+        typeMap.put(StatementType.CREATE_CONTINUOUS_QUERY, SqlType.CreateContinuousQuery);
+        typeMap.put(StatementType.DROP_CONTINUOUS_QUERY, SqlType.DropContinuousQuery);
+        typeMap.put(StatementType.SHOW_CONTINUOUS_QUERY, SqlType.Query);
     }
 
     private static final StatementBuilder instance = new StatementBuilder();
@@ -2,12 +2,15 @@ package cn.edu.tsinghua.iginx.engine;
 
 import cn.edu.tsinghua.iginx.conf.Config;
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.continuous.ContinuousQueryManager;
+import cn.edu.tsinghua.iginx.engine.explain.PlanPrinter;
 import cn.edu.tsinghua.iginx.engine.logical.constraint.ConstraintChecker;
 import cn.edu.tsinghua.iginx.engine.logical.constraint.ConstraintCheckerManager;
 import cn.edu.tsinghua.iginx.engine.logical.generator.*;
 import cn.edu.tsinghua.iginx.engine.physical.PhysicalEngine;
 import cn.edu.tsinghua.iginx.engine.physical.PhysicalEngineImpl;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.task.PhysicalTask;
 import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
 import cn.edu.tsinghua.iginx.engine.shared.Result;
 import cn.edu.tsinghua.iginx.engine.shared.constraint.ConstraintManager;
@@ -20,9 +23,11 @@ import cn.edu.tsinghua.iginx.engine.shared.processor.*;
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
 import cn.edu.tsinghua.iginx.exceptions.SQLParserException;
 import cn.edu.tsinghua.iginx.exceptions.StatusCode;
+import cn.edu.tsinghua.iginx.query.QueryManager;
 import cn.edu.tsinghua.iginx.resource.ResourceManager;
 import cn.edu.tsinghua.iginx.sql.statement.*;
 import cn.edu.tsinghua.iginx.statistics.IStatisticsCollector;
+import cn.edu.tsinghua.iginx.statistics.MetricsCollector;
 import cn.edu.tsinghua.iginx.thrift.AggregateType;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.thrift.Status;
@@ -53,6 +58,10 @@ public class StatementExecutor {
 
     private final static ResourceManager resourceManager = ResourceManager.getInstance();
 
+    private final static QueryManager queryManager = QueryManager.getInstance();
+
+    private final static ContinuousQueryManager continuousQueryManager = ContinuousQueryManager.getInstance();
+
     private final static Map<StatementType, List<LogicalGenerator>> generatorMap = new HashMap<>();
 
     private final static List<LogicalGenerator> queryGeneratorList = new ArrayList<>();
@@ -93,19 +102,16 @@ public class StatementExecutor {
                     loadClass(statisticsCollectorClassName);
                 IStatisticsCollector statisticsCollector = ((Class<? extends IStatisticsCollector>) statisticsCollectorClass)
                     .getConstructor().newInstance();
-                registerPreParseProcessor(statisticsCollector.getPreParseProcessor());
-                registerPostParseProcessor(statisticsCollector.getPostParseProcessor());
-                registerPreLogicalProcessor(statisticsCollector.getPreLogicalProcessor());
-                registerPostLogicalProcessor(statisticsCollector.getPostLogicalProcessor());
-                registerPrePhysicalProcessor(statisticsCollector.getPrePhysicalProcessor());
-                registerPostPhysicalProcessor(statisticsCollector.getPostPhysicalProcessor());
-                registerPreExecuteProcessor(statisticsCollector.getPreExecuteProcessor());
-                registerPostExecuteProcessor(statisticsCollector.getPostExecuteProcessor());
+                registerStatisticsCollector(statisticsCollector);
                 statisticsCollector.startBroadcasting();
             }
         } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
             logger.error("initial statistics collector error: ", e);
         }
+
+        if (config.isEnableMetrics()) {
+            registerStatisticsCollector(new MetricsCollector());
+        }
     }
 
     public static StatementExecutor getInstance() {
@@ -133,6 +139,17 @@ public class StatementExecutor {
         }
     }
 
+    private void registerStatisticsCollector(IStatisticsCollector statisticsCollector) {
+        registerPreParseProcessor(statisticsCollector.getPreParseProcessor());
+        registerPostParseProcessor(statisticsCollector.getPostParseProcessor());
+        registerPreLogicalProcessor(statisticsCollector.getPreLogicalProcessor());
+        registerPostLogicalProcessor(statisticsCollector.getPostLogicalProcessor());
+        registerPrePhysicalProcessor(statisticsCollector.getPrePhysicalProcessor());
+        registerPostPhysicalProcessor(statisticsCollector.getPostPhysicalProcessor());
+        registerPreExecuteProcessor(statisticsCollector.getPreExecuteProcessor());
+        registerPostExecuteProcessor(statisticsCollector.getPostExecuteProcessor());
+    }
+
     public void registerPreParseProcessor(PreParseProcessor processor) {
         if (processor != null) preParseProcessors.add(processor);
     }
@@ -170,13 +187,27 @@ public class StatementExecutor {
             ctx.setResult(new Result(RpcUtils.SERVICE_UNAVAILABLE));
             return;
         }
-        before(ctx, preExecuteProcessors);
-        if (ctx.isFromSQL()) {
-            executeSQL(ctx);
-        } else {
-            executeStatement(ctx);
+        if (!resourceManager.admit(ctx)) {
+            ctx.setResult(new Result(RpcUtils.status(StatusCode.SERVICE_UNAVAILABLE,
+                "too many concurrent statements in session " + ctx.getSessionId())));
+            return;
+        }
+        // 执行期间登记语句，使其可以被终止；流式查询在结果读取完毕后由客户端释放
+        queryManager.registerQuery(ctx.getId(), ctx);
+        try {
+            before(ctx, preExecuteProcessors);
+            if (ctx.isFromSQL()) {
+                executeSQL(ctx);
+            } else {
+                executeStatement(ctx);
+            }
+            after(ctx, postExecuteProcessors);
+        } finally {
+            if (!ctx.isUseStream()) {
+                queryManager.releaseQuery(ctx.getId());
+            }
+            resourceManager.release(ctx);
         }
-        after(ctx, postExecuteProcessors);
     }
 
     public void executeSQL(RequestContext ctx) {
@@ -211,6 +242,12 @@ public class StatementExecutor {
                     case SHOW_TIME_SERIES:
                         process(ctx);
                         return;
+                    case EXPLAIN:
+                        processExplain(ctx);
+                        return;
+                    case SHOW_CONTINUOUS_QUERY:
+                        setResultFromRowStream(ctx, continuousQueryManager.toTable());
+                        return;
                     case INSERT_FROM_SELECT:
                         processInsertFromSelect(ctx);
                     case COUNT_POINTS:
@@ -235,14 +272,23 @@ public class StatementExecutor {
     }
 
     private void process(RequestContext ctx) throws ExecutionException, PhysicalException {
-        List<LogicalGenerator> generatorList = generatorMap.get(ctx.getStatement().getType());
+        Statement statement = ctx.getStatement();
+        if (statement.getType() == StatementType.SELECT) {
+            // 能由持续查询回答的降采样查询不再扫描原始数据
+            RowStream stream = continuousQueryManager.answer((SelectStatement) statement);
+            if (stream != null) {
+                setResult(ctx, stream);
+                return;
+            }
+        }
+        List<LogicalGenerator> generatorList = generatorMap.get(statement.getType());
         for (LogicalGenerator generator : generatorList) {
             before(ctx, preLogicalProcessors);
             Operator root = generator.generate(ctx);
             after(ctx, postLogicalProcessors);
             if (constraintManager.check(root) && checker.check(root)) {
                 before(ctx, prePhysicalProcessors);
-                RowStream stream = engine.execute(root);
+                RowStream stream = continuousQueryManager.executeWrite(statement, () -> engine.execute(ctx, root));
                 after(ctx, postPhysicalProcessors);
                 setResult(ctx, stream);
                 return;
@@ -251,6 +297,47 @@ public class StatementExecutor {
         throw new ExecutionException("Execute Error: can not construct a legal logical tree.");
     }
 
+    /**
+     * 输出查询的逻辑计划与物理计划；ANALYZE 时执行查询并丢弃结果，附带每个物理任务与算子的执行统计
+     */
+    private void processExplain(RequestContext ctx) throws ExecutionException, PhysicalException {
+        ExplainStatement statement = (ExplainStatement) ctx.getStatement();
+        PlanPrinter printer = new PlanPrinter(statement.isAnalyze());
+        // 生成逻辑计划时从上下文中读取查询语句
+        ctx.setStatement(statement.getSubSelectStatement());
+        try {
+            for (LogicalGenerator generator : queryGeneratorList) {
+                before(ctx, preLogicalProcessors);
+                Operator root = generator.generate(ctx);
+                after(ctx, postLogicalProcessors);
+                if (!constraintManager.check(root) || !checker.check(root)) {
+                    continue;
+                }
+                printer.printLogicalPlan(root);
+                before(ctx, prePhysicalProcessors);
+                PhysicalTask task = engine.plan(root);
+                if (statement.isAnalyze()) {
+                    PlanPrinter.getTasks(task).forEach(PhysicalTask::enableProfile);
+                    RowStream stream = engine.execute(ctx, task);
+                    try {
+                        while (stream.hasNext()) {
+                            stream.next();
+                        }
+                    } finally {
+                        stream.close();
+                    }
+                }
+                after(ctx, postPhysicalProcessors);
+                printer.printPhysicalPlan(task);
+                setResultFromRowStream(ctx, printer.toTable());
+                return;
+            }
+        } finally {
+            ctx.setStatement(statement);
+        }
+        throw new ExecutionException("Execute Error: can not construct a legal logical tree.");
+    }
+
     private void processInsertFromSelect(RequestContext ctx) throws ExecutionException, PhysicalException {
         InsertFromSelectStatement statement = (InsertFromSelectStatement) ctx.getStatement();
 
@@ -0,0 +1,587 @@
+package cn.edu.tsinghua.iginx.engine.continuous;
+
+import cn.edu.tsinghua.iginx.engine.continuous.PartialAggregate.Component;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
+import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.metadata.entity.ContinuousQueryMeta;
+import cn.edu.tsinghua.iginx.sql.statement.Expression;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.PARAM_PATHS;
+
+/**
+ * 持续查询：按固定的时间窗口维护若干聚合函数的部分结果，窗口从时间 0 开始对齐。
+ * 部分结果以降采样序列的形式保存在 {@link #getRoot()} 之下，每个分量一棵子树，例如 avg(a.b) 在窗口 t 上的部分结果
+ * 保存为 root.count.a.b 与 root.sum.a.b 在 t 时刻的值。序列带有 {@link #OWNER_TAG} 标签，
+ * 每个 IginX 节点只增量修改自己写入的部分，从原始数据重新计算的部分属于 {@link #BASE_OWNER}，回答查询时合并所有部分
+ */
+public class ContinuousQuery {
+
+    public enum Status {
+        BUILDING,
+        READY,
+        FAILED
+    }
+
+    // 所有持续查询的部分结果所在的前缀
+    static final String ROLLUP_PREFIX = "__continuous_query__";
+
+    static final String OWNER_TAG = "__owner__";
+
+    static final String BASE_OWNER = "base";
+
+    // 需要从原始数据重新计算的窗口，值为标记时生成的随机数
+    private static final String INVALID = "invalid";
+
+    // 存在时表示已经从原始数据完成构建
+    private static final String BUILT = "built";
+
+    private static final Map<String, Value> ALL_PATHS = Collections.singletonMap(PARAM_PATHS, new Value("*"));
+
+    private final String name;
+
+    private final long precision;
+
+    private final List<Pair<String, String>> expressions = new ArrayList<>();
+
+    private final List<PartialAggregate> aggregates = new ArrayList<>();
+
+    private final List<Map<String, Value>> params = new ArrayList<>();
+
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private final String root;
+
+    // 本节点的写入在访问存储前持有读锁，构建的最后阶段持有写锁，保证构建完成前开始的写入都只标记窗口
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 串行化本节点对部分结果的读改写与修复
+    private final Lock maintenanceLock = new ReentrantLock();
+
+    private Status status = Status.BUILDING;
+
+    private String message = "";
+
+    // 本节点正在构建
+    private boolean building = false;
+
+    public ContinuousQuery(String name, List<Expression> expressions, long precision) {
+        this(name, precision, expressions.stream().map(e -> new Pair<>(e.getFuncName(), e.getPathName())).collect(Collectors.toList()));
+    }
+
+    public ContinuousQuery(ContinuousQueryMeta meta) {
+        this(meta.getName(), meta.getPrecision(), meta.getExpressions());
+    }
+
+    /**
+     * @param expressions 聚合函数与路径
+     */
+    private ContinuousQuery(String name, long precision, List<Pair<String, String>> expressions) {
+        if (precision <= 0) {
+            throw new IllegalArgumentException("precision of continuous query should be positive.");
+        }
+        if (name.contains(".") || name.contains("*")) {
+            throw new IllegalArgumentException("name of continuous query should not contain '.' or '*'.");
+        }
+        this.name = name;
+        this.precision = precision;
+        this.root = ROLLUP_PREFIX + "." + name;
+        for (Pair<String, String> expression : expressions) {
+            String identifier = expression.k.trim().toLowerCase();
+            PartialAggregate aggregate = PartialAggregate.of(identifier);
+            if (aggregate == null) {
+                throw new IllegalArgumentException("continuous query only supports avg, count, sum, max and min, but got " + expression.k + ".");
+            }
+            String path = expression.v;
+            Pair<String, String> pair = new Pair<>(identifier, path);
+            if (indexOf(identifier, path) != -1) {
+                continue;
+            }
+            this.expressions.add(pair);
+            this.aggregates.add(aggregate);
+            this.params.add(Collections.singletonMap(PARAM_PATHS, new Value(path)));
+            this.patterns.add(Pattern.compile(StringUtils.reformatPath(path) + ".*"));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPrecision() {
+        return precision;
+    }
+
+    public List<Pair<String, String>> getExpressions() {
+        return expressions;
+    }
+
+    public ContinuousQueryMeta toMeta() {
+        List<Pair<String, String>> list = new ArrayList<>();
+        expressions.forEach(e -> list.add(new Pair<>(e.k, e.v)));
+        return new ContinuousQueryMeta(name, precision, list);
+    }
+
+    /**
+     * 原始数据的路径
+     */
+    public List<String> getPaths() {
+        List<String> paths = new ArrayList<>();
+        for (Pair<String, String> expression : expressions) {
+            if (!paths.contains(expression.v)) {
+                paths.add(expression.v);
+            }
+        }
+        return paths;
+    }
+
+    String getRoot() {
+        return root;
+    }
+
+    String getInvalidPath() {
+        return root + "." + INVALID;
+    }
+
+    String getBuiltPath() {
+        return root + "." + BUILT;
+    }
+
+    /**
+     * 原始路径对应的部分结果的路径，每个分量一条
+     */
+    List<String> getRollupPaths(String path) {
+        List<String> paths = new ArrayList<>();
+        for (Component component : Component.values()) {
+            paths.add(root + "." + component.getIdentifier() + "." + path);
+        }
+        return paths;
+    }
+
+    /**
+     * 所有部分结果的路径，不包括标记
+     */
+    List<String> getRollupPaths() {
+        return getRollupPaths("*");
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    synchronized boolean isBuilding() {
+        return building;
+    }
+
+    synchronized void startBuilding() {
+        status = Status.BUILDING;
+        message = "";
+        building = true;
+    }
+
+    synchronized void ready() {
+        status = Status.READY;
+        building = false;
+    }
+
+    synchronized void fail(String message) {
+        status = Status.FAILED;
+        this.message = message == null ? "" : message;
+        building = false;
+    }
+
+    ReadWriteLock getLock() {
+        return lock;
+    }
+
+    Lock getMaintenanceLock() {
+        return maintenanceLock;
+    }
+
+    long getWindow(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, precision);
+    }
+
+    /**
+     * 序列（带标签的完整名称）是否可能被某个表达式选中，部分结果本身不会被选中
+     */
+    boolean matches(String series) {
+        if (series.startsWith(ROLLUP_PREFIX)) {
+            return false;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(series).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 删除的路径是否可能与某个表达式选中的序列重叠，只比较通配符之前的部分
+     */
+    boolean overlaps(String path) {
+        String prefix = getPrefix(path);
+        for (Pair<String, String> expression : expressions) {
+            String expressionPrefix = getPrefix(expression.v);
+            if (prefix.startsWith(expressionPrefix) || expressionPrefix.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getPrefix(String path) {
+        int index = path.indexOf('*');
+        return index == -1 ? path : path.substring(0, index);
+    }
+
+    private int indexOf(String identifier, String path) {
+        for (int i = 0; i < expressions.size(); i++) {
+            Pair<String, String> expression = expressions.get(i);
+            if (expression.k.equals(identifier) && expression.v.equals(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 序列需要维护的分量
+     */
+    private Set<Component> getComponents(Field field) {
+        Set<Component> components = EnumSet.noneOf(Component.class);
+        if (!matches(field.getFullName())) {
+            return components;
+        }
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(field.getFullName()).matches()) {
+                components.addAll(aggregates.get(i).getComponents());
+            }
+        }
+        if (!DataTypeUtils.isNumber(field.getType())) {
+            components.remove(Component.SUM);
+        }
+        return components;
+    }
+
+    /**
+     * 复用系统函数计算原始数据在每个窗口、每条序列上的部分结果
+     */
+    Rollup compute(Header header, List<Row> rows) throws PhysicalException {
+        Component[] components = Component.values();
+        List<List<Integer>> columns = new ArrayList<>();
+        for (int i = 0; i < components.length; i++) {
+            columns.add(new ArrayList<>());
+        }
+        for (int i = 0; i < header.getFieldSize(); i++) {
+            for (Component component : getComponents(header.getField(i))) {
+                columns.get(component.ordinal()).add(i);
+            }
+        }
+        Header[] headers = new Header[components.length];
+        for (int i = 0; i < components.length; i++) {
+            List<Field> fields = new ArrayList<>();
+            columns.get(i).forEach(column -> fields.add(header.getField(column)));
+            headers[i] = new Header(Field.TIME, fields);
+        }
+
+        TreeMap<Long, List<Row>> groups = new TreeMap<>();
+        for (Row row : rows) {
+            groups.computeIfAbsent(getWindow(row.getTimestamp()), k -> new ArrayList<>()).add(row);
+        }
+        Rollup rollup = new Rollup();
+        for (Map.Entry<Long, List<Row>> group : groups.entrySet()) {
+            Object[][] partials = new Object[header.getFieldSize()][];
+            for (Component component : components) {
+                List<Integer> indices = columns.get(component.ordinal());
+                if (indices.isEmpty()) {
+                    continue;
+                }
+                Row result = accumulate(component.getFunction(), headers[component.ordinal()], indices, group.getValue());
+                for (int k = 0; k < indices.size(); k++) {
+                    int column = indices.get(k);
+                    if (partials[column] == null) {
+                        partials[column] = new Object[components.length];
+                    }
+                    partials[column][component.ordinal()] = result.getValue(k);
+                }
+            }
+            for (int column = 0; column < partials.length; column++) {
+                Object[] partial = partials[column];
+                if (partial != null && (long) partial[Component.COUNT.ordinal()] > 0) {
+                    rollup.merge(group.getKey(), header.getField(column), partial);
+                }
+            }
+        }
+        return rollup;
+    }
+
+    private static Row accumulate(SetMappingFunction function, Header header, List<Integer> indices, List<Row> rows) throws PhysicalException {
+        try {
+            Accumulator accumulator = function.createAccumulator(header, ALL_PATHS);
+            for (Row row : rows) {
+                Object[] values = new Object[indices.size()];
+                for (int i = 0; i < indices.size(); i++) {
+                    values[i] = row.getValue(indices.get(i));
+                }
+                accumulator.accumulate(new Row(header, row.getTimestamp(), values));
+            }
+            return accumulator.finish();
+        } catch (Exception e) {
+            throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+        }
+    }
+
+    /**
+     * 将部分结果转换为写入存储的行，每条序列只写入出现过的分量
+     */
+    Pair<Header, List<Row>> toStorage(Rollup rollup, String owner) {
+        List<Field> fields = new ArrayList<>();
+        List<String> fieldSeries = new ArrayList<>();
+        List<Component> fieldComponents = new ArrayList<>();
+        for (String series : new TreeSet<>(rollup.getSeries().keySet())) {
+            Field field = rollup.getSeries().get(series);
+            Map<String, String> tags = field.getTags() == null ? new HashMap<>() : new HashMap<>(field.getTags());
+            tags.put(OWNER_TAG, owner);
+            for (Component component : Component.values()) {
+                boolean present = rollup.getWindows().values().stream().anyMatch(windowPartials -> {
+                    Object[] partial = windowPartials.get(series);
+                    return partial != null && partial[component.ordinal()] != null;
+                });
+                if (present) {
+                    fields.add(new Field(root + "." + component.getIdentifier() + "." + field.getName(), component.getDataType(field.getType()), tags));
+                    fieldSeries.add(series);
+                    fieldComponents.add(component);
+                }
+            }
+        }
+        Header header = new Header(Field.TIME, fields);
+        List<Row> rows = new ArrayList<>();
+        rollup.getWindows().forEach((window, windowPartials) -> {
+            Object[] values = new Object[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                Object[] partial = windowPartials.get(fieldSeries.get(i));
+                values[i] = partial == null ? null : partial[fieldComponents.get(i).ordinal()];
+            }
+            rows.add(new Row(header, window, values));
+        });
+        return new Pair<>(header, rows);
+    }
+
+    /**
+     * 读取存储中的部分结果并合并，owner 为空时合并所有节点写入的部分
+     */
+    Rollup fromStorage(RowStream stream, String owner) throws PhysicalException {
+        Header header = stream.getHeader();
+        String prefix = root + ".";
+        int size = header.getFieldSize();
+        String[] names = new String[size];
+        String[] owners = new String[size];
+        Component[] components = new Component[size];
+        Map<String, String> seriesNames = new HashMap<>();
+        Map<String, Map<String, String>> seriesTags = new HashMap<>();
+        // 序列的数据类型由最能反映原始类型的分量推断：max、min 与原始类型相同，sum 只区分整数与浮点数，只有 count 时无法区分
+        Map<String, Component> typeComponents = new HashMap<>();
+        Map<String, DataType> types = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Field field = header.getField(i);
+            if (!field.getName().startsWith(prefix) || field.getTags() == null) {
+                continue;
+            }
+            Map<String, String> tags = new HashMap<>(field.getTags());
+            String fieldOwner = tags.remove(OWNER_TAG);
+            if (fieldOwner == null || (owner != null && !owner.equals(fieldOwner))) {
+                continue;
+            }
+            String rest = field.getName().substring(prefix.length());
+            int index = rest.indexOf('.');
+            Component component = index == -1 ? null : Component.of(rest.substring(0, index));
+            if (component == null) {
+                continue;
+            }
+            String seriesName = rest.substring(index + 1);
+            String series = new Field(seriesName, field.getType(), tags).getFullName();
+            names[i] = series;
+            owners[i] = fieldOwner;
+            components[i] = component;
+            seriesNames.put(series, seriesName);
+            seriesTags.put(series, tags);
+            Component current = typeComponents.get(series);
+            if (current == null || current.ordinal() < component.ordinal()) {
+                typeComponents.put(series, component);
+                types.put(series, field.getType());
+            }
+        }
+        Map<String, Field> fields = new HashMap<>();
+        seriesNames.forEach((series, seriesName) -> fields.put(series, new Field(seriesName, types.get(series), seriesTags.get(series))));
+
+        Rollup rollup = new Rollup();
+        while (stream.hasNext()) {
+            Row row = stream.next();
+            // 同一行中不同节点的分量分别组成部分结果后再合并
+            Map<String, Map<String, Object[]>> partials = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                Object value = row.getValue(i);
+                if (names[i] == null || value == null) {
+                    continue;
+                }
+                partials.computeIfAbsent(owners[i], k -> new HashMap<>())
+                    .computeIfAbsent(names[i], k -> new Object[Component.values().length])[components[i].ordinal()] = value;
+            }
+            for (Map<String, Object[]> ownerPartials : partials.values()) {
+                for (Map.Entry<String, Object[]> entry : ownerPartials.entrySet()) {
+                    rollup.merge(row.getTimestamp(), fields.get(entry.getKey()), entry.getValue());
+                }
+            }
+        }
+        return rollup;
+    }
+
+    /**
+     * 查询的窗口以 bias 为起点、长度为 queryPrecision，只有在所有表达式都被覆盖、窗口与持续查询的窗口对齐时才能回答
+     *
+     * @param functions 查询中的表达式，依次为函数名与路径
+     */
+    boolean covers(List<Pair<String, String>> functions, long bias, long startTime, long endTime, long queryPrecision) {
+        if (queryPrecision % precision != 0 || Math.floorMod(bias, precision) != 0 || Math.floorMod(startTime, precision) != 0
+            || (endTime != Long.MAX_VALUE && Math.floorMod(endTime, precision) != 0) || startTime >= endTime) {
+            return false;
+        }
+        for (Pair<String, String> function : functions) {
+            if (indexOf(function.k, function.v) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 回答查询需要读取的部分结果的路径
+     */
+    List<String> getRollupPaths(List<Pair<String, String>> functions) {
+        List<String> paths = new ArrayList<>();
+        for (Pair<String, String> function : functions) {
+            PartialAggregate aggregate = aggregates.get(indexOf(function.k, function.v));
+            for (Component component : aggregate.getComponents()) {
+                String path = root + "." + component.getIdentifier() + "." + function.v;
+                if (!paths.contains(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * 用部分结果回答降采样查询，部分结果缺少需要的分量时返回 null
+     *
+     * @param functions 查询中的表达式，依次为函数名与路径
+     */
+    RowStream query(List<Pair<String, String>> functions, long bias, long startTime, long endTime, long queryPrecision, Rollup rollup) throws PhysicalException {
+        if (!covers(functions, bias, startTime, endTime, queryPrecision)) {
+            return null;
+        }
+        // 将持续查询的窗口合并为查询的窗口
+        Rollup merged = new Rollup();
+        rollup.getWindows().subMap(startTime, endTime).forEach((window, windowPartials) -> {
+            long queryWindow = bias + Math.floorDiv(window - bias, queryPrecision) * queryPrecision;
+            windowPartials.forEach((series, partial) -> merged.merge(queryWindow, rollup.getSeries().get(series), partial));
+        });
+
+        // 窗口内没有值的序列输出函数在空集合上的结果，与直接计算降采样一致
+        TreeSet<Long> windows = new TreeSet<>();
+        List<Field> fields = new ArrayList<>();
+        List<Object> emptyValues = new ArrayList<>();
+        List<List<String>> columns = new ArrayList<>();
+        List<PartialAggregate> columnAggregates = new ArrayList<>();
+        for (Pair<String, String> function : functions) {
+            int index = indexOf(function.k, function.v);
+            PartialAggregate aggregate = aggregates.get(index);
+            TreeSet<String> seriesSet = new TreeSet<>();
+            merged.getWindows().forEach((window, windowPartials) -> windowPartials.keySet().forEach(series -> {
+                if (patterns.get(index).matcher(series).matches()) {
+                    windows.add(window);
+                    seriesSet.add(series);
+                }
+            }));
+            for (String series : seriesSet) {
+                Header header = new Header(Field.TIME, Collections.singletonList(merged.getSeries().get(series)));
+                Row empty = transform(aggregate.getFunction(), header, params.get(index));
+                fields.add(empty.getHeader().getField(0));
+                emptyValues.add(empty.getValue(0));
+            }
+            columns.add(new ArrayList<>(seriesSet));
+            columnAggregates.add(aggregate);
+        }
+        if (windows.isEmpty()) {
+            return Table.EMPTY_TABLE;
+        }
+        Header header = new Header(Field.TIME, fields);
+        List<Row> rows = new ArrayList<>();
+        for (long window : windows) {
+            Object[] values = new Object[fields.size()];
+            int column = 0;
+            Map<String, Object[]> windowPartials = merged.getWindows().getOrDefault(window, Collections.emptyMap());
+            for (int i = 0; i < columns.size(); i++) {
+                PartialAggregate aggregate = columnAggregates.get(i);
+                for (String series : columns.get(i)) {
+                    Object[] partial = windowPartials.get(series);
+                    if (partial == null) {
+                        values[column] = emptyValues.get(column);
+                    } else {
+                        for (Component component : aggregate.getComponents()) {
+                            if (partial[component.ordinal()] == null) {
+                                return null;
+                            }
+                        }
+                        values[column] = aggregate.finish(partial);
+                    }
+                    column++;
+                }
+            }
+            rows.add(new Row(header, window, values));
+        }
+        return new Table(header, rows);
+    }
+
+    private static Row transform(SetMappingFunction function, Header header, Map<String, Value> params) throws PhysicalException {
+        try {
+            return function.transform(new Table(header, Collections.emptyList()), params);
+        } catch (Exception e) {
+            throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+        }
+    }
+
+}
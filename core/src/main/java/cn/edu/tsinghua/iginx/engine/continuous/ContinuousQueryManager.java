@@ -0,0 +1,930 @@
+package cn.edu.tsinghua.iginx.engine.continuous;
+
+import cn.edu.tsinghua.iginx.engine.continuous.ContinuousQuery.Status;
+import cn.edu.tsinghua.iginx.engine.continuous.PartialAggregate.Component;
+import cn.edu.tsinghua.iginx.engine.logical.generator.DeleteGenerator;
+import cn.edu.tsinghua.iginx.engine.logical.generator.InsertGenerator;
+import cn.edu.tsinghua.iginx.engine.logical.generator.LogicalGenerator;
+import cn.edu.tsinghua.iginx.engine.logical.generator.QueryGenerator;
+import cn.edu.tsinghua.iginx.engine.physical.PhysicalEngineImpl;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.metadata.DefaultMetaManager;
+import cn.edu.tsinghua.iginx.metadata.IMetaManager;
+import cn.edu.tsinghua.iginx.metadata.entity.ContinuousQueryMeta;
+import cn.edu.tsinghua.iginx.sql.statement.DeleteStatement;
+import cn.edu.tsinghua.iginx.sql.statement.Expression;
+import cn.edu.tsinghua.iginx.sql.statement.InsertStatement;
+import cn.edu.tsinghua.iginx.sql.statement.SelectStatement;
+import cn.edu.tsinghua.iginx.sql.statement.Statement;
+import cn.edu.tsinghua.iginx.sql.statement.StatementType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 管理持续查询：部分结果以降采样序列的形式保存在存储中，写入后由写入所在的节点增量修改属于自己的部分，
+ * 删除或写入失败时只标记并从原始数据重新计算受影响的窗口，回答降采样查询时读取并合并所有节点的部分。
+ * 持续查询的定义保存在元数据存储中，由创建它的节点完成构建
+ */
+public class ContinuousQueryManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContinuousQueryManager.class);
+
+    // 从原始数据计算时每次合并的行数
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    // 定期修复被标记的窗口的间隔，覆盖修复失败或由其他节点标记的窗口
+    private static final long REPAIR_INTERVAL_SECONDS = 60;
+
+    private final Map<String, ContinuousQuery> continuousQueries = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "continuous-query-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final IMetaManager metaManager = DefaultMetaManager.getInstance();
+
+    private final Random random = new Random();
+
+    // 构建期间发生删除的持续查询，构建完成后需要重新构建
+    private final Set<ContinuousQuery> staleBuilds = ConcurrentHashMap.newKeySet();
+
+    private ContinuousQueryManager() {
+        // 其他节点创建或删除的持续查询同步到本节点，部分结果由创建它的节点构建
+        metaManager.registerContinuousQueryChangeHook((name, meta) -> {
+            if (meta == null) {
+                unregister(name);
+            } else {
+                load(meta, false);
+            }
+        });
+        // 部分结果已经保存在存储中，只有上次没有完成构建时才重新构建
+        metaManager.getContinuousQueries().forEach(meta -> load(meta, true));
+        builder.scheduleWithFixedDelay(this::repairAll, REPAIR_INTERVAL_SECONDS, REPAIR_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void load(ContinuousQueryMeta meta, boolean recover) {
+        ContinuousQuery continuousQuery;
+        try {
+            continuousQuery = new ContinuousQuery(meta);
+        } catch (IllegalArgumentException e) {
+            logger.error("load continuous query {} failure.", meta.getName(), e);
+            return;
+        }
+        if (register(continuousQuery) && recover) {
+            builder.submit(() -> recover(continuousQuery));
+        }
+    }
+
+    public static ContinuousQueryManager getInstance() {
+        return ContinuousQueryManagerHolder.INSTANCE;
+    }
+
+    private static class ContinuousQueryManagerHolder {
+        private static final ContinuousQueryManager INSTANCE = new ContinuousQueryManager();
+    }
+
+    /**
+     * 执行写入或删除的回调
+     */
+    @FunctionalInterface
+    public interface WriteAction {
+        RowStream execute() throws PhysicalException;
+    }
+
+    public void create(String name, List<Expression> expressions, long precision) throws ExecutionException {
+        ContinuousQuery continuousQuery;
+        try {
+            continuousQuery = new ContinuousQuery(name, expressions, precision);
+        } catch (IllegalArgumentException e) {
+            throw new ExecutionException(e.getMessage());
+        }
+        if (continuousQueries.containsKey(name) || metaManager.getContinuousQueries().stream().anyMatch(e -> e.getName().equals(name))) {
+            throw new ExecutionException(String.format("Execute Error: continuous query [%s] already exists.", name));
+        }
+        if (!metaManager.addContinuousQuery(continuousQuery.toMeta())) {
+            throw new ExecutionException(String.format("Execute Error: persist continuous query [%s] failure.", name));
+        }
+        // 元数据存储的回调可能已经完成注册
+        register(continuousQuery);
+        ContinuousQuery registered = continuousQueries.get(name);
+        if (registered != null) {
+            registered.startBuilding();
+            builder.submit(() -> build(registered));
+        }
+        logger.info("create continuous query {} with precision {}.", name, precision);
+    }
+
+    public void drop(String name) throws ExecutionException {
+        if (!continuousQueries.containsKey(name)) {
+            throw new ExecutionException(String.format("Execute Error: continuous query [%s] does not exist.", name));
+        }
+        if (!metaManager.dropContinuousQuery(name)) {
+            throw new ExecutionException(String.format("Execute Error: drop continuous query [%s] failure.", name));
+        }
+        ContinuousQuery continuousQuery = unregister(name);
+        if (continuousQuery != null) {
+            try {
+                deleteAll(Collections.singletonList(continuousQuery.getRoot() + ".*"));
+            } catch (PhysicalException e) {
+                logger.error("delete rollups of continuous query {} failure.", name, e);
+            }
+        }
+    }
+
+    private synchronized boolean register(ContinuousQuery continuousQuery) {
+        return continuousQueries.putIfAbsent(continuousQuery.getName(), continuousQuery) == null;
+    }
+
+    private synchronized ContinuousQuery unregister(String name) {
+        ContinuousQuery continuousQuery = continuousQueries.remove(name);
+        if (continuousQuery != null) {
+            logger.info("drop continuous query {}.", name);
+        }
+        return continuousQuery;
+    }
+
+    private boolean isRegistered(ContinuousQuery continuousQuery) {
+        return continuousQueries.get(continuousQuery.getName()) == continuousQuery;
+    }
+
+    public List<ContinuousQuery> getContinuousQueries() {
+        List<ContinuousQuery> result = new ArrayList<>(continuousQueries.values());
+        result.sort(Comparator.comparing(ContinuousQuery::getName));
+        return result;
+    }
+
+    public RowStream toTable() {
+        Header header = new Header(Arrays.asList(
+            new Field("name", DataType.BINARY),
+            new Field("precision", DataType.LONG),
+            new Field("expressions", DataType.BINARY),
+            new Field("status", DataType.BINARY)
+        ));
+        List<Row> rows = new ArrayList<>();
+        for (ContinuousQuery continuousQuery : getContinuousQueries()) {
+            String expressions = continuousQuery.getExpressions().stream()
+                .map(e -> e.k + "(" + e.v + ")").collect(Collectors.joining(", "));
+            String status = continuousQuery.getStatus().toString();
+            if (!continuousQuery.getMessage().isEmpty()) {
+                status += ": " + continuousQuery.getMessage();
+            }
+            rows.add(new Row(header, new Object[]{
+                continuousQuery.getName().getBytes(),
+                continuousQuery.getPrecision(),
+                expressions.getBytes(),
+                status.getBytes()
+            }));
+        }
+        return new Table(header, rows);
+    }
+
+    /**
+     * 尝试用持续查询回答降采样查询，无法回答时返回 null
+     */
+    public RowStream answer(SelectStatement statement) throws PhysicalException {
+        if (continuousQueries.isEmpty() || statement.getQueryType() != SelectStatement.QueryType.DownSampleQuery
+            || statement.getSubStatement() != null || statement.getTagFilter() != null || !statement.getLayers().isEmpty()
+            || !statement.getOrderByPaths().isEmpty() || statement.getLimit() != Integer.MAX_VALUE || statement.getOffset() != 0
+            || !statement.getAliasMap().isEmpty()) {
+            return null;
+        }
+        long[] range = new long[]{statement.getStartTime(), statement.getEndTime()};
+        if (statement.getFilter() != null && !intersectTimeRange(statement.getFilter(), range)) {
+            return null;
+        }
+        // 与 QueryGenerator 相同的顺序
+        List<Pair<String, String>> functions = new ArrayList<>();
+        statement.getSelectedFuncsAndExpressions().forEach((k, v) -> v.forEach(expression ->
+            functions.add(new Pair<>(k.toLowerCase(), expression.getPathName()))));
+        for (ContinuousQuery continuousQuery : getContinuousQueries()) {
+            if (!continuousQuery.covers(functions, statement.getStartTime(), range[0], range[1], statement.getPrecision())
+                || !isBuilt(continuousQuery)) {
+                continue;
+            }
+            // 被标记的窗口在修复前可能不完整
+            if (!readInvalidWindows(continuousQuery, range[0], range[1]).isEmpty()) {
+                continue;
+            }
+            Rollup rollup;
+            RowStream rollupStream = select(continuousQuery.getRollupPaths(functions), range[0], range[1]);
+            try {
+                rollup = continuousQuery.fromStorage(rollupStream, null);
+            } finally {
+                rollupStream.close();
+            }
+            RowStream stream = continuousQuery.query(functions, statement.getStartTime(), range[0], range[1], statement.getPrecision(), rollup);
+            if (stream != null) {
+                logger.info("answer downsample query with continuous query {}.", continuousQuery.getName());
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将只包含时间条件的合取过滤条件与 [range[0], range[1]) 求交，条件中有其他内容时返回 false
+     */
+    private static boolean intersectTimeRange(Filter filter, long[] range) {
+        switch (filter.getType()) {
+            case And:
+                for (Filter child : ((AndFilter) filter).getChildren()) {
+                    if (!intersectTimeRange(child, range)) {
+                        return false;
+                    }
+                }
+                return true;
+            case Time:
+                TimeFilter timeFilter = (TimeFilter) filter;
+                long value = timeFilter.getValue();
+                switch (timeFilter.getOp()) {
+                    case GE:
+                        range[0] = Math.max(range[0], value);
+                        return true;
+                    case G:
+                        range[0] = Math.max(range[0], value + 1);
+                        return true;
+                    case L:
+                        range[1] = Math.min(range[1], value);
+                        return true;
+                    case LE:
+                        range[1] = Math.min(range[1], value + 1);
+                        return true;
+                    case E:
+                        range[0] = Math.max(range[0], value);
+                        range[1] = Math.min(range[1], value + 1);
+                        return true;
+                    default:
+                        return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * 执行写入或删除，并维护受影响的持续查询
+     */
+    public RowStream executeWrite(Statement statement, WriteAction action) throws PhysicalException {
+        if (continuousQueries.isEmpty()) {
+            return action.execute();
+        }
+        if (statement.getType() == StatementType.INSERT) {
+            return executeInsert((InsertStatement) statement, action);
+        }
+        if (statement.getType() == StatementType.DELETE) {
+            return executeDelete((DeleteStatement) statement, action);
+        }
+        return action.execute();
+    }
+
+    private RowStream executeInsert(InsertStatement statement, WriteAction action) throws PhysicalException {
+        RawData data = statement.getRawData();
+        List<String> series = new ArrayList<>();
+        for (int i = 0; i < data.getPaths().size(); i++) {
+            Map<String, String> tags = data.getTagsList() != null && i < data.getTagsList().size() ? data.getTagsList().get(i) : null;
+            series.add(new Field(data.getPaths().get(i), data.getDataTypeList().get(i), tags).getFullName());
+        }
+        List<ContinuousQuery> affected = new ArrayList<>();
+        for (ContinuousQuery continuousQuery : getContinuousQueries()) {
+            if (series.stream().anyMatch(continuousQuery::matches)) {
+                affected.add(continuousQuery);
+            }
+        }
+        if (affected.isEmpty()) {
+            return action.execute();
+        }
+
+        // 持有读锁直到写入被合并或标记，保证构建完成前开始的写入都会被构建之后的修复重新计算
+        List<Lock> locks = new ArrayList<>();
+        try {
+            for (ContinuousQuery continuousQuery : affected) {
+                Lock lock = continuousQuery.getLock().readLock();
+                lock.lock();
+                locks.add(lock);
+            }
+            RowStream stream;
+            try {
+                stream = action.execute();
+            } catch (PhysicalException | RuntimeException e) {
+                // 写入可能部分成功，只重新计算本次写入涉及的窗口
+                for (ContinuousQuery continuousQuery : affected) {
+                    invalidateAndRepair(continuousQuery, getWindows(continuousQuery, toRows(data, getColumns(continuousQuery, series)).v));
+                }
+                throw e;
+            }
+            for (ContinuousQuery continuousQuery : affected) {
+                Pair<Header, List<Row>> rows = toRows(data, getColumns(continuousQuery, series));
+                try {
+                    apply(continuousQuery, rows.k, rows.v);
+                } catch (Exception e) {
+                    logger.error("maintain continuous query {} failure, recompute the written windows.", continuousQuery.getName(), e);
+                    invalidateAndRepair(continuousQuery, getWindows(continuousQuery, rows.v));
+                }
+            }
+            return stream;
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    private static List<Integer> getColumns(ContinuousQuery continuousQuery, List<String> series) {
+        List<Integer> columns = new ArrayList<>();
+        for (int i = 0; i < series.size(); i++) {
+            if (continuousQuery.matches(series.get(i))) {
+                columns.add(i);
+            }
+        }
+        return columns;
+    }
+
+    private static TreeSet<Long> getWindows(ContinuousQuery continuousQuery, List<Row> rows) {
+        TreeSet<Long> windows = new TreeSet<>();
+        rows.forEach(row -> windows.add(continuousQuery.getWindow(row.getTimestamp())));
+        return windows;
+    }
+
+    private RowStream executeDelete(DeleteStatement statement, WriteAction action) throws PhysicalException {
+        List<ContinuousQuery> affected = new ArrayList<>();
+        for (ContinuousQuery continuousQuery : getContinuousQueries()) {
+            if (statement.getPaths().stream().anyMatch(continuousQuery::overlaps)) {
+                affected.add(continuousQuery);
+            }
+        }
+        if (affected.isEmpty()) {
+            return action.execute();
+        }
+        List<TimeRange> timeRanges = statement.isDeleteAll() ? Collections.singletonList(new TimeRange(0, Long.MAX_VALUE)) : statement.getTimeRanges();
+        RowStream stream;
+        try {
+            stream = action.execute();
+        } catch (PhysicalException | RuntimeException e) {
+            // 删除可能部分成功，重新计算范围内已有部分结果的窗口
+            for (ContinuousQuery continuousQuery : affected) {
+                try {
+                    invalidateAndRepair(continuousQuery, readWindows(continuousQuery, timeRanges));
+                } catch (Exception ex) {
+                    logger.error("mark windows of continuous query {} failure.", continuousQuery.getName(), ex);
+                }
+            }
+            throw e;
+        }
+        for (ContinuousQuery continuousQuery : affected) {
+            try {
+                applyDelete(continuousQuery, statement.getPaths(), timeRanges);
+            } catch (Exception e) {
+                logger.error("maintain continuous query {} failure, recompute the deleted windows.", continuousQuery.getName(), e);
+                try {
+                    invalidateAndRepair(continuousQuery, readWindows(continuousQuery, timeRanges));
+                } catch (Exception ex) {
+                    logger.error("mark windows of continuous query {} failure.", continuousQuery.getName(), ex);
+                }
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * 将写入的原始数据中的若干列转换为行，值数组既可能与时间戳等长，也可能只包含位图中标记的非空值
+     */
+    private static Pair<Header, List<Row>> toRows(RawData data, List<Integer> columns) {
+        List<Field> fields = new ArrayList<>();
+        for (int column : columns) {
+            Map<String, String> tags = data.getTagsList() != null && column < data.getTagsList().size() ? data.getTagsList().get(column) : null;
+            fields.add(new Field(data.getPaths().get(column), data.getDataTypeList().get(column), tags));
+        }
+        Header header = new Header(Field.TIME, fields);
+        int timeSize = data.getTimeSize();
+        Object[][] values = new Object[timeSize][columns.size()];
+        boolean[] hasValue = new boolean[timeSize];
+        if (data.isColumnData()) {
+            for (int j = 0; j < columns.size(); j++) {
+                int column = columns.get(j);
+                Bitmap bitmap = data.getBitmaps().get(column);
+                boolean full = !data.isBuffered() && ((Object[]) data.getValuesList()[column]).length == timeSize;
+                for (int i = 0, index = 0; i < timeSize; i++) {
+                    if (bitmap.get(i)) {
+                        Object value = data.getValue(column, full ? i : index++);
+                        values[i][j] = value;
+                        hasValue[i] |= value != null;
+                    }
+                }
+            }
+        } else {
+            int pathNum = data.getPaths().size();
+            for (int i = 0; i < timeSize; i++) {
+                Bitmap bitmap = data.getBitmaps().get(i);
+                boolean full = !data.isBuffered() && ((Object[]) data.getValuesList()[i]).length == pathNum;
+                for (int column = 0, index = 0, j = 0; column < pathNum; column++) {
+                    if (!bitmap.get(column)) {
+                        continue;
+                    }
+                    int valueIndex = full ? column : index++;
+                    while (j < columns.size() && columns.get(j) < column) {
+                        j++;
+                    }
+                    if (j < columns.size() && columns.get(j) == column) {
+                        Object value = data.getValue(i, valueIndex);
+                        values[i][j] = value;
+                        hasValue[i] |= value != null;
+                    }
+                }
+            }
+        }
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < timeSize; i++) {
+            if (hasValue[i]) {
+                rows.add(new Row(header, data.getTimestamp(i), values[i]));
+            }
+        }
+        return new Pair<>(header, rows);
+    }
+
+
+    /**
+     * 将本节点的写入合并到本节点的部分结果中，构建完成前或窗口已被标记时只标记窗口
+     */
+    private void apply(ContinuousQuery continuousQuery, Header header, List<Row> rows) throws PhysicalException {
+        Rollup delta = continuousQuery.compute(header, rows);
+        if (delta.isEmpty()) {
+            return;
+        }
+        TreeSet<Long> windows = new TreeSet<>(delta.getWindows().keySet());
+        if (!isBuilt(continuousQuery)) {
+            invalidate(continuousQuery, windows);
+            return;
+        }
+        Lock lock = continuousQuery.getMaintenanceLock();
+        lock.lock();
+        try {
+            TreeSet<Long> invalid = new TreeSet<>(readInvalidWindows(continuousQuery, windows.first(), windows.last() + continuousQuery.getPrecision()).keySet());
+            invalid.retainAll(windows);
+            delta.remove(invalid);
+            mergeInto(continuousQuery, delta, getOwner());
+            // 修复可能已经读取过这些窗口，重新标记使它们被再次计算
+            invalidate(continuousQuery, invalid);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除被删除序列在删除范围所涉及窗口上的部分结果，只被部分删除的两端窗口从原始数据重新计算
+     */
+    private void applyDelete(ContinuousQuery continuousQuery, List<String> paths, List<TimeRange> timeRanges) throws PhysicalException {
+        List<String> rollupPaths = new ArrayList<>();
+        paths.forEach(path -> rollupPaths.addAll(continuousQuery.getRollupPaths(path)));
+        List<long[]> ranges = new ArrayList<>();
+        TreeSet<Long> edges = new TreeSet<>();
+        for (TimeRange timeRange : timeRanges) {
+            long[] range = toRange(timeRange);
+            if (range[0] >= range[1]) {
+                continue;
+            }
+            long[] windowRange = align(continuousQuery, range);
+            ranges.add(windowRange);
+            if (windowRange[0] != range[0]) {
+                edges.add(windowRange[0]);
+            }
+            if (windowRange[1] != range[1]) {
+                edges.add(continuousQuery.getWindow(range[1] - 1));
+            }
+        }
+        Lock lock = continuousQuery.getMaintenanceLock();
+        lock.lock();
+        try {
+            // 构建可能已经读取了被删除的数据
+            if (continuousQuery.isBuilding()) {
+                staleBuilds.add(continuousQuery);
+            }
+            for (long[] range : ranges) {
+                delete(rollupPaths, range[0], range[1]);
+            }
+            invalidate(continuousQuery, edges);
+            if (isBuilt(continuousQuery)) {
+                repair(continuousQuery, edges);
+                // 删除全部序列时构建完成的标记也被删除
+                if (paths.stream().anyMatch(path -> Pattern.compile(StringUtils.reformatPath(path)).matcher(continuousQuery.getBuiltPath()).matches())) {
+                    markBuilt(continuousQuery);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除的时间范围，转换为 [begin, end)
+     */
+    private static long[] toRange(TimeRange timeRange) {
+        long begin = timeRange.getBeginTime();
+        if (!timeRange.isIncludeBeginTime() && begin != Long.MAX_VALUE) {
+            begin++;
+        }
+        long end = timeRange.getEndTime();
+        if (timeRange.isIncludeEndTime() && end != Long.MAX_VALUE) {
+            end++;
+        }
+        return new long[]{begin, end};
+    }
+
+    /**
+     * 覆盖 [range[0], range[1]) 的窗口范围
+     */
+    private static long[] align(ContinuousQuery continuousQuery, long[] range) {
+        long last = continuousQuery.getWindow(range[1] - 1);
+        long end = range[1] == Long.MAX_VALUE || last > Long.MAX_VALUE - continuousQuery.getPrecision() ? Long.MAX_VALUE : last + continuousQuery.getPrecision();
+        return new long[]{continuousQuery.getWindow(range[0]), end};
+    }
+
+    /**
+     * 删除范围所涉及的窗口中已有部分结果的窗口
+     */
+    private TreeSet<Long> readWindows(ContinuousQuery continuousQuery, List<TimeRange> timeRanges) throws PhysicalException {
+        TreeSet<Long> windows = new TreeSet<>();
+        for (TimeRange timeRange : timeRanges) {
+            long[] range = toRange(timeRange);
+            if (range[0] >= range[1]) {
+                continue;
+            }
+            range = align(continuousQuery, range);
+            // 每条序列在有值的窗口上都有 count 分量
+            RowStream stream = select(Collections.singletonList(continuousQuery.getRoot() + "." + Component.COUNT.getIdentifier() + ".*"), range[0], range[1]);
+            try {
+                while (stream.hasNext()) {
+                    windows.add(stream.next().getTimestamp());
+                }
+            } finally {
+                stream.close();
+            }
+        }
+        return windows;
+    }
+
+    private String getOwner() {
+        return String.valueOf(metaManager.getIginxId());
+    }
+
+    /**
+     * 其他节点创建的持续查询由存储中的标记判断是否已经完成构建
+     */
+    private boolean isBuilt(ContinuousQuery continuousQuery) throws PhysicalException {
+        Status status = continuousQuery.getStatus();
+        if (status == Status.READY) {
+            return true;
+        }
+        if (status == Status.FAILED || continuousQuery.isBuilding()) {
+            return false;
+        }
+        if (exists(continuousQuery.getBuiltPath())) {
+            continuousQuery.ready();
+            return true;
+        }
+        return false;
+    }
+
+    private void recover(ContinuousQuery continuousQuery) {
+        try {
+            if (exists(continuousQuery.getBuiltPath())) {
+                // 被标记的窗口由定期修复重新计算
+                continuousQuery.ready();
+                return;
+            }
+        } catch (PhysicalException e) {
+            logger.error("recover continuous query {} failure.", continuousQuery.getName(), e);
+            return;
+        }
+        continuousQuery.startBuilding();
+        build(continuousQuery);
+    }
+
+    /**
+     * 从原始数据构建部分结果，构建期间的写入只标记窗口，完成构建后修复这些窗口
+     */
+    private void build(ContinuousQuery continuousQuery) {
+        if (!isRegistered(continuousQuery)) {
+            return;
+        }
+        staleBuilds.remove(continuousQuery);
+        try {
+            deleteAll(continuousQuery.getRollupPaths());
+            deleteAll(Collections.singletonList(continuousQuery.getBuiltPath()));
+            if (!scan(continuousQuery, 0, Long.MAX_VALUE)) {
+                return;
+            }
+            Lock lock = continuousQuery.getLock().writeLock();
+            lock.lock();
+            try {
+                if (!isRegistered(continuousQuery)) {
+                    return;
+                }
+                if (staleBuilds.remove(continuousQuery)) {
+                    logger.info("data of continuous query {} is deleted during building, rebuild it.", continuousQuery.getName());
+                    builder.submit(() -> build(continuousQuery));
+                    return;
+                }
+                markBuilt(continuousQuery);
+                continuousQuery.ready();
+            } finally {
+                lock.unlock();
+            }
+            logger.info("continuous query {} is ready.", continuousQuery.getName());
+            repair(continuousQuery, readInvalidWindows(continuousQuery, 0, Long.MAX_VALUE).keySet());
+        } catch (Exception e) {
+            logger.error("build continuous query {} failure.", continuousQuery.getName(), e);
+            continuousQuery.fail(e.getMessage());
+        }
+    }
+
+    private void repairAll() {
+        for (ContinuousQuery continuousQuery : getContinuousQueries()) {
+            try {
+                if (isBuilt(continuousQuery)) {
+                    repair(continuousQuery, readInvalidWindows(continuousQuery, 0, Long.MAX_VALUE).keySet());
+                }
+            } catch (Exception e) {
+                logger.error("repair continuous query {} failure.", continuousQuery.getName(), e);
+            }
+        }
+    }
+
+    private void invalidateAndRepair(ContinuousQuery continuousQuery, Collection<Long> windows) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        try {
+            invalidate(continuousQuery, windows);
+        } catch (Exception e) {
+            // 无法保证部分结果正确，本节点不再使用它回答查询
+            logger.error("mark windows of continuous query {} failure.", continuousQuery.getName(), e);
+            continuousQuery.fail(e.getMessage());
+            return;
+        }
+        builder.submit(() -> {
+            try {
+                if (isRegistered(continuousQuery) && isBuilt(continuousQuery)) {
+                    repair(continuousQuery, windows);
+                }
+            } catch (Exception e) {
+                logger.error("repair continuous query {} failure.", continuousQuery.getName(), e);
+            }
+        });
+    }
+
+    /**
+     * 从原始数据重新计算若干窗口：删除所有节点在这些窗口上的部分结果后重新扫描，最后删除修复期间没有被重新标记的标记
+     */
+    private void repair(ContinuousQuery continuousQuery, Collection<Long> windowSet) throws PhysicalException {
+        if (windowSet.isEmpty()) {
+            return;
+        }
+        TreeSet<Long> windows = new TreeSet<>(windowSet);
+        long precision = continuousQuery.getPrecision();
+        Lock lock = continuousQuery.getMaintenanceLock();
+        lock.lock();
+        try {
+            long endTime = windows.last() + precision;
+            Map<Long, Long> tokens = readInvalidWindows(continuousQuery, windows.first(), endTime);
+            // 相邻的窗口合并为一次扫描
+            long start = windows.first();
+            long end = start + precision;
+            for (long window : windows.tailSet(start, false)) {
+                if (window != end) {
+                    if (!rescan(continuousQuery, start, end)) {
+                        return;
+                    }
+                    start = window;
+                }
+                end = window + precision;
+            }
+            if (!rescan(continuousQuery, start, end)) {
+                return;
+            }
+            Map<Long, Long> current = readInvalidWindows(continuousQuery, windows.first(), endTime);
+            for (long window : windows) {
+                Long token = tokens.get(window);
+                if (token != null && token.equals(current.get(window))) {
+                    delete(Collections.singletonList(continuousQuery.getInvalidPath()), window, window + 1);
+                }
+            }
+            logger.info("recompute {} windows of continuous query {}.", windows.size(), continuousQuery.getName());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean rescan(ContinuousQuery continuousQuery, long startTime, long endTime) throws PhysicalException {
+        delete(continuousQuery.getRollupPaths(), startTime, endTime);
+        return scan(continuousQuery, startTime, endTime);
+    }
+
+    /**
+     * 从原始数据计算 [startTime, endTime) 内的部分结果并写入 base，返回 false 表示持续查询已被删除
+     */
+    private boolean scan(ContinuousQuery continuousQuery, long startTime, long endTime) throws PhysicalException {
+        RowStream stream = select(continuousQuery.getPaths(), startTime, endTime);
+        try {
+            Header header = stream.getHeader();
+            Rollup pending = new Rollup();
+            // 早于该窗口的部分结果已经写入
+            long written = Long.MIN_VALUE;
+            List<Row> batch = new ArrayList<>();
+            while (stream.hasNext()) {
+                batch.add(stream.next());
+                if (batch.size() >= LOAD_BATCH_SIZE) {
+                    if (!isRegistered(continuousQuery)) {
+                        return false;
+                    }
+                    pending.merge(continuousQuery.compute(header, batch));
+                    // 原始数据通常按时间返回，早于最后一行所在窗口的窗口已经完整；其余情况与已写入的部分结果合并
+                    mergeInto(continuousQuery, pending.pollBefore(written), ContinuousQuery.BASE_OWNER);
+                    long window = continuousQuery.getWindow(batch.get(batch.size() - 1).getTimestamp());
+                    if (window > written) {
+                        write(continuousQuery, pending.pollBefore(window), ContinuousQuery.BASE_OWNER);
+                        written = window;
+                    }
+                    batch = new ArrayList<>();
+                }
+            }
+            pending.merge(continuousQuery.compute(header, batch));
+            mergeInto(continuousQuery, pending.pollBefore(written), ContinuousQuery.BASE_OWNER);
+            write(continuousQuery, pending, ContinuousQuery.BASE_OWNER);
+            return true;
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * 将 delta 合并到 owner 在相同窗口上已有的部分结果中
+     */
+    private void mergeInto(ContinuousQuery continuousQuery, Rollup delta, String owner) throws PhysicalException {
+        if (delta.isEmpty()) {
+            return;
+        }
+        Set<String> paths = new LinkedHashSet<>();
+        delta.getSeries().values().forEach(field -> paths.addAll(continuousQuery.getRollupPaths(field.getName())));
+        Rollup rollup;
+        RowStream stream = select(new ArrayList<>(paths), delta.getWindows().firstKey(), delta.getWindows().lastKey() + continuousQuery.getPrecision());
+        try {
+            rollup = continuousQuery.fromStorage(stream, owner);
+        } finally {
+            stream.close();
+        }
+        rollup.retain(delta.getWindows().keySet());
+        rollup.merge(delta);
+        write(continuousQuery, rollup, owner);
+    }
+
+    private void write(ContinuousQuery continuousQuery, Rollup rollup, String owner) throws PhysicalException {
+        if (rollup.isEmpty()) {
+            return;
+        }
+        Pair<Header, List<Row>> rows = continuousQuery.toStorage(rollup, owner);
+        insert(rows.k, rows.v);
+    }
+
+    private void markBuilt(ContinuousQuery continuousQuery) throws PhysicalException {
+        Header header = new Header(Field.TIME, Collections.singletonList(new Field(continuousQuery.getBuiltPath(), DataType.BOOLEAN)));
+        insert(header, Collections.singletonList(new Row(header, 0L, new Object[]{true})));
+    }
+
+    /**
+     * 标记需要从原始数据重新计算的窗口，每次标记写入新的随机数，修复据此判断修复期间是否被再次标记
+     */
+    private void invalidate(ContinuousQuery continuousQuery, Collection<Long> windows) throws PhysicalException {
+        if (windows.isEmpty()) {
+            return;
+        }
+        Header header = new Header(Field.TIME, Collections.singletonList(new Field(continuousQuery.getInvalidPath(), DataType.LONG)));
+        List<Row> rows = new ArrayList<>();
+        for (long window : windows) {
+            rows.add(new Row(header, window, new Object[]{random.nextLong()}));
+        }
+        insert(header, rows);
+    }
+
+    /**
+     * 读取 [startTime, endTime) 内被标记的窗口与标记的值
+     */
+    private Map<Long, Long> readInvalidWindows(ContinuousQuery continuousQuery, long startTime, long endTime) throws PhysicalException {
+        Map<Long, Long> windows = new TreeMap<>();
+        RowStream stream = select(Collections.singletonList(continuousQuery.getInvalidPath()), startTime, endTime);
+        try {
+            int index = stream.getHeader().indexOf(continuousQuery.getInvalidPath());
+            if (index == -1) {
+                return windows;
+            }
+            while (stream.hasNext()) {
+                Row row = stream.next();
+                Object value = row.getValue(index);
+                if (value != null) {
+                    windows.put(row.getTimestamp(), (Long) value);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+        return windows;
+    }
+
+    private boolean exists(String path) throws PhysicalException {
+        RowStream stream = select(Collections.singletonList(path), 0, 1);
+        try {
+            return stream.getHeader().indexOf(path) != -1 && stream.hasNext();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private RowStream select(List<String> paths, long startTime, long endTime) throws PhysicalException {
+        RequestContext ctx = new RequestContext(0, new SelectStatement(new ArrayList<>(paths), startTime, endTime), true);
+        Operator root = QueryGenerator.getInstance().generate(ctx);
+        if (root == null) {
+            return Table.EMPTY_TABLE;
+        }
+        return PhysicalEngineImpl.getInstance().execute(ctx, root);
+    }
+
+    private void insert(Header header, List<Row> rows) throws PhysicalException {
+        if (header.getFieldSize() == 0 || rows.isEmpty()) {
+            return;
+        }
+        List<String> paths = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        List<Map<String, String>> tagsList = new ArrayList<>();
+        Object[] values = new Object[header.getFieldSize()];
+        for (int i = 0; i < header.getFieldSize(); i++) {
+            Field field = header.getField(i);
+            paths.add(field.getName());
+            types.add(field.getType());
+            tagsList.add(field.getTags() == null ? new HashMap<>() : field.getTags());
+            Object[] column = new Object[rows.size()];
+            for (int j = 0; j < rows.size(); j++) {
+                column[j] = rows.get(j).getValue(i);
+            }
+            values[i] = column;
+        }
+        List<Long> times = rows.stream().map(Row::getTimestamp).collect(Collectors.toList());
+        InsertStatement statement = new InsertStatement(RawDataType.NonAlignedColumn, paths, times, values, types, new ArrayList<>(), tagsList);
+        statement.sortData();
+        execute(new RequestContext(0, statement), InsertGenerator.getInstance());
+    }
+
+    private void delete(List<String> paths, long startTime, long endTime) throws PhysicalException {
+        execute(new RequestContext(0, new DeleteStatement(new ArrayList<>(paths), startTime, endTime)), DeleteGenerator.getInstance());
+    }
+
+    private void deleteAll(List<String> paths) throws PhysicalException {
+        execute(new RequestContext(0, new DeleteStatement(new ArrayList<>(paths))), DeleteGenerator.getInstance());
+    }
+
+    private static void execute(RequestContext ctx, LogicalGenerator generator) throws PhysicalException {
+        Operator root = generator.generate(ctx);
+        if (root != null) {
+            PhysicalEngineImpl.getInstance().execute(ctx, root);
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package cn.edu.tsinghua.iginx.engine.continuous;
+
+import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Count;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Max;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Min;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Sum;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 持续查询支持的聚合函数，每个函数的结果由若干可以合并的分量得到
+ */
+enum PartialAggregate {
+
+    AVG(Avg.getInstance(), Component.COUNT, Component.SUM) {
+        @Override
+        Object finish(Object[] partial) {
+            return ((Number) partial[Component.SUM.ordinal()]).doubleValue() / (long) partial[Component.COUNT.ordinal()];
+        }
+    },
+
+    COUNT(Count.getInstance(), Component.COUNT),
+
+    SUM(Sum.getInstance(), Component.COUNT, Component.SUM),
+
+    MAX(Max.getInstance(), Component.COUNT, Component.MAX),
+
+    MIN(Min.getInstance(), Component.COUNT, Component.MIN);
+
+    /**
+     * 部分结果的分量，由对应的系统函数在每个窗口上计算，同一条序列在不同批次、不同节点上的分量可以合并。
+     * 部分结果是以分量的序号为下标的数组，count 为空表示序列在窗口内没有值
+     */
+    enum Component {
+
+        COUNT(Count.getInstance()),
+
+        SUM(Sum.getInstance()),
+
+        MAX(Max.getInstance()),
+
+        MIN(Min.getInstance());
+
+        private final SetMappingFunction function;
+
+        Component(SetMappingFunction function) {
+            this.function = function;
+        }
+
+        static Component of(String identifier) {
+            for (Component component : values()) {
+                if (component.getIdentifier().equals(identifier)) {
+                    return component;
+                }
+            }
+            return null;
+        }
+
+        String getIdentifier() {
+            return function.getIdentifier();
+        }
+
+        SetMappingFunction getFunction() {
+            return function;
+        }
+
+        /**
+         * 分量的数据类型，type 为序列的数据类型
+         */
+        DataType getDataType(DataType type) {
+            switch (this) {
+                case COUNT:
+                    return DataType.LONG;
+                case SUM:
+                    return type == DataType.INTEGER || type == DataType.LONG ? DataType.LONG : DataType.DOUBLE;
+                default:
+                    return type;
+            }
+        }
+
+        /**
+         * 合并同一条序列的两个分量，type 为序列的数据类型
+         */
+        Object merge(Object current, Object value, DataType type) {
+            if (current == null) {
+                return value;
+            }
+            if (value == null) {
+                return current;
+            }
+            switch (this) {
+                case COUNT:
+                    return (long) current + (long) value;
+                case SUM:
+                    if (current instanceof Long && value instanceof Long) {
+                        return (long) current + (long) value;
+                    }
+                    return ((Number) current).doubleValue() + ((Number) value).doubleValue();
+                case MAX:
+                    return ValueUtils.compare(current, value, type) < 0 ? value : current;
+                case MIN:
+                    return ValueUtils.compare(current, value, type) > 0 ? value : current;
+                default:
+                    throw new IllegalStateException("unexpected partial aggregate component " + this);
+            }
+        }
+    }
+
+    private final SetMappingFunction function;
+
+    private final List<Component> components;
+
+    PartialAggregate(SetMappingFunction function, Component... components) {
+        this.function = function;
+        this.components = Arrays.asList(components);
+    }
+
+    static PartialAggregate of(String identifier) {
+        for (PartialAggregate aggregate : values()) {
+            if (aggregate.function.getIdentifier().equals(identifier)) {
+                return aggregate;
+            }
+        }
+        return null;
+    }
+
+    SetMappingFunction getFunction() {
+        return function;
+    }
+
+    List<Component> getComponents() {
+        return components;
+    }
+
+    /**
+     * 由部分结果计算函数的结果，默认为最后一个分量
+     */
+    Object finish(Object[] partial) {
+        return partial[components.get(components.size() - 1).ordinal()];
+    }
+
+}
@@ -0,0 +1,76 @@
+package cn.edu.tsinghua.iginx.engine.continuous;
+
+import cn.edu.tsinghua.iginx.engine.continuous.PartialAggregate.Component;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 持续查询在若干窗口上的部分结果：窗口起始时间 -> 序列（带标签的完整名称）-> 部分结果
+ */
+class Rollup {
+
+    // 序列的完整名称 -> 原始序列
+    private final Map<String, Field> series = new HashMap<>();
+
+    private final TreeMap<Long, Map<String, Object[]>> windows = new TreeMap<>();
+
+    Map<String, Field> getSeries() {
+        return series;
+    }
+
+    TreeMap<Long, Map<String, Object[]>> getWindows() {
+        return windows;
+    }
+
+    boolean isEmpty() {
+        return windows.isEmpty();
+    }
+
+    /**
+     * 将一条序列在一个窗口上的部分结果合并进来
+     */
+    void merge(long window, Field field, Object[] partial) {
+        Field current = series.putIfAbsent(field.getFullName(), field);
+        Field target = current == null ? field : current;
+        Map<String, Object[]> windowPartials = windows.computeIfAbsent(window, k -> new HashMap<>());
+        Object[] targetPartial = windowPartials.get(field.getFullName());
+        if (targetPartial == null) {
+            windowPartials.put(field.getFullName(), partial.clone());
+            return;
+        }
+        for (Component component : Component.values()) {
+            int index = component.ordinal();
+            targetPartial[index] = component.merge(targetPartial[index], partial[index], target.getType());
+        }
+    }
+
+    void merge(Rollup rollup) {
+        rollup.windows.forEach((window, windowPartials) -> windowPartials.forEach((name, partial) ->
+            merge(window, rollup.series.get(name), partial)));
+    }
+
+    /**
+     * 取出早于 window 的窗口
+     */
+    Rollup pollBefore(long window) {
+        Rollup rollup = new Rollup();
+        Map<Long, Map<String, Object[]>> head = windows.headMap(window);
+        head.forEach((key, windowPartials) -> windowPartials.forEach((name, partial) ->
+            rollup.merge(key, series.get(name), partial)));
+        head.clear();
+        return rollup;
+    }
+
+    void retain(Collection<Long> windowSet) {
+        windows.keySet().retainAll(windowSet);
+    }
+
+    void remove(Collection<Long> windowSet) {
+        windows.keySet().removeAll(windowSet);
+    }
+
+}
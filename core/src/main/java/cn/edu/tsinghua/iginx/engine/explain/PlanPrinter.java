@@ -0,0 +1,302 @@
+package cn.edu.tsinghua.iginx.engine.explain;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.profile.StreamProfile;
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
+import cn.edu.tsinghua.iginx.engine.physical.task.BinaryMemoryPhysicalTask;
+import cn.edu.tsinghua.iginx.engine.physical.task.MultipleMemoryPhysicalTask;
+import cn.edu.tsinghua.iginx.engine.physical.task.PhysicalTask;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.physical.task.TaskType;
+import cn.edu.tsinghua.iginx.engine.physical.task.UnaryMemoryPhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.operator.*;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.OperatorSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+import cn.edu.tsinghua.iginx.engine.shared.source.SourceType;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.PARAM_PATHS;
+
+/**
+ * 将逻辑计划与物理任务树输出为结果集，每行为计划中的一个节点。
+ * 开启 analyze 时附带每个物理任务与算子的执行统计，其中耗时包含其上游算子被拉取数据的时间
+ */
+public class PlanPrinter {
+
+    private static final String INDENT = "  ";
+
+    private static final String OPERATOR_PREFIX = "-> ";
+
+    private final boolean analyze;
+
+    private final Header header;
+
+    private final List<Row> rows = new ArrayList<>();
+
+    public PlanPrinter(boolean analyze) {
+        this.analyze = analyze;
+        List<Field> fields = new ArrayList<>();
+        fields.add(new Field("plan", DataType.BINARY));
+        if (analyze) {
+            fields.add(new Field("rows_in", DataType.LONG));
+            fields.add(new Field("rows_out", DataType.LONG));
+            fields.add(new Field("time_us", DataType.LONG));
+            fields.add(new Field("queue_wait_us", DataType.LONG));
+            fields.add(new Field("backend_time_us", DataType.LONG));
+            fields.add(new Field("bytes", DataType.LONG));
+        }
+        this.header = new Header(fields);
+    }
+
+    /**
+     * 物理任务树中的全部任务
+     */
+    public static List<PhysicalTask> getTasks(PhysicalTask root) {
+        List<PhysicalTask> tasks = new ArrayList<>();
+        collectTasks(root, tasks);
+        return tasks;
+    }
+
+    private static void collectTasks(PhysicalTask task, List<PhysicalTask> tasks) {
+        if (task == null) {
+            return;
+        }
+        tasks.add(task);
+        for (PhysicalTask parentTask : getParentTasks(task)) {
+            collectTasks(parentTask, tasks);
+        }
+    }
+
+    private static List<PhysicalTask> getParentTasks(PhysicalTask task) {
+        switch (task.getType()) {
+            case UnaryMemory:
+                return Collections.singletonList(((UnaryMemoryPhysicalTask) task).getParentTask());
+            case BinaryMemory:
+                BinaryMemoryPhysicalTask binaryTask = (BinaryMemoryPhysicalTask) task;
+                List<PhysicalTask> parentTasks = new ArrayList<>();
+                parentTasks.add(binaryTask.getParentTaskA());
+                parentTasks.add(binaryTask.getParentTaskB());
+                return parentTasks;
+            case MultipleMemory:
+                return ((MultipleMemoryPhysicalTask) task).getParentTasks();
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    public void printLogicalPlan(Operator root) {
+        addLine("Logical Plan:", 0);
+        printOperator(root, 1);
+    }
+
+    private void printOperator(Operator operator, int depth) {
+        addLine(describe(operator), depth);
+        for (Source source : getSources(operator)) {
+            if (source.getType() == SourceType.Operator) {
+                printOperator(((OperatorSource) source).getOperator(), depth + 1);
+            }
+        }
+    }
+
+    public void printPhysicalPlan(PhysicalTask root) {
+        addLine("Physical Plan:", 0);
+        printTask(root, 1);
+    }
+
+    private void printTask(PhysicalTask task, int depth) {
+        List<PhysicalTask> parentTasks = getParentTasks(task);
+        List<Operator> operators = task.getOperators();
+        TaskProfile profile = task.getProfile();
+        if (!analyze || profile == null) {
+            addLine(describe(task), depth);
+        } else {
+            long rowsIn = 0;
+            for (PhysicalTask parentTask : parentTasks) {
+                StreamProfile output = getOutputProfile(parentTask);
+                rowsIn += output == null ? 0 : output.getRowCount();
+            }
+            StreamProfile output = getOutputProfile(task);
+            StreamProfile backend = profile.getBackendProfile();
+            addLine(describe(task), depth,
+                parentTasks.isEmpty() ? null : rowsIn,
+                output == null ? null : output.getRowCount(),
+                toMicros(profile.getExecuteNanos() + (output == null ? 0 : output.getNanos())),
+                toMicros(profile.getQueueWaitNanos()),
+                backend == null ? null : toMicros(backend.getNanos()),
+                output == null ? null : output.getByteCount());
+        }
+        // 任务内的算子按执行顺序的逆序输出，最外层的算子在前
+        for (int i = operators.size() - 1; i >= 0; i--) {
+            Operator operator = operators.get(i);
+            StreamProfile operatorProfile = profile == null ? null : profile.getOperatorProfile(operator);
+            String line = OPERATOR_PREFIX + describe(operator);
+            if (!analyze || operatorProfile == null) {
+                addLine(line, depth + 1);
+            } else {
+                addLine(line, depth + 1, null, operatorProfile.getRowCount(), toMicros(operatorProfile.getNanos()),
+                    null, null, operatorProfile.getByteCount());
+            }
+        }
+        for (PhysicalTask parentTask : parentTasks) {
+            printTask(parentTask, depth + 1);
+        }
+    }
+
+    /**
+     * 任务输出行流的统计：存储任务为后端返回的行流，内存任务为最后一个算子的输出
+     */
+    private StreamProfile getOutputProfile(PhysicalTask task) {
+        TaskProfile profile = task.getProfile();
+        if (profile == null) {
+            return null;
+        }
+        if (task.getType() == TaskType.Storage) {
+            return profile.getBackendProfile();
+        }
+        List<Operator> operators = task.getOperators();
+        return operators.isEmpty() ? null : profile.getOperatorProfile(operators.get(operators.size() - 1));
+    }
+
+    public Table toTable() {
+        return new Table(header, rows);
+    }
+
+    private void addLine(String text, int depth, Object... stats) {
+        Object[] values = new Object[header.getFieldSize()];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append(INDENT);
+        }
+        values[0] = builder.append(text).toString().getBytes();
+        for (int i = 0; i < stats.length && i + 1 < values.length; i++) {
+            values[i + 1] = stats[i];
+        }
+        rows.add(new Row(header, values));
+    }
+
+    private static Long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static List<Source> getSources(Operator operator) {
+        if (OperatorType.isUnaryOperator(operator.getType())) {
+            return Collections.singletonList(((UnaryOperator) operator).getSource());
+        } else if (OperatorType.isBinaryOperator(operator.getType())) {
+            BinaryOperator binaryOperator = (BinaryOperator) operator;
+            List<Source> sources = new ArrayList<>();
+            sources.add(binaryOperator.getSourceA());
+            sources.add(binaryOperator.getSourceB());
+            return sources;
+        } else if (OperatorType.isMultipleOperator(operator.getType())) {
+            return ((MultipleOperator) operator).getSources();
+        }
+        return Collections.emptyList();
+    }
+
+    static String describe(PhysicalTask task) {
+        if (task.getType() != TaskType.Storage) {
+            return task.getType() + "Task";
+        }
+        StoragePhysicalTask storageTask = (StoragePhysicalTask) task;
+        String storageUnit = storageTask.getStorageUnit() != null ? storageTask.getStorageUnit()
+            : storageTask.getTargetFragment().getMasterStorageUnitId();
+        return "StorageTask(storageUnit=" + storageUnit + ", fragment=" + describe(storageTask.getTargetFragment()) + ")";
+    }
+
+    static String describe(Operator operator) {
+        StringBuilder builder = new StringBuilder(operator.getType().toString()).append("(");
+        List<String> attributes = new ArrayList<>();
+        switch (operator.getType()) {
+            case Project:
+                Project project = (Project) operator;
+                attributes.add("patterns=" + project.getPatterns());
+                if (project.getTagFilter() != null) {
+                    attributes.add("tagFilter=" + project.getTagFilter());
+                }
+                break;
+            case Select:
+                Select select = (Select) operator;
+                attributes.add("filter=" + select.getFilter());
+                if (select.getTagFilter() != null) {
+                    attributes.add("tagFilter=" + select.getTagFilter());
+                }
+                break;
+            case Sort:
+                Sort sort = (Sort) operator;
+                attributes.add("sortBy=" + sort.getSortByCols());
+                attributes.add("sortTypes=" + sort.getSortTypes());
+                if (sort.getLimit() >= 0) {
+                    attributes.add("limit=" + sort.getLimit());
+                }
+                break;
+            case Limit:
+                Limit limit = (Limit) operator;
+                attributes.add("limit=" + limit.getLimit());
+                attributes.add("offset=" + limit.getOffset());
+                if (limit.isTail()) {
+                    attributes.add("tail");
+                }
+                break;
+            case Downsample:
+                Downsample downsample = (Downsample) operator;
+                attributes.add("precision=" + downsample.getPrecision());
+                attributes.add("functions=" + describe(downsample.getFunctionCallList()));
+                TimeRange timeRange = downsample.getTimeRange();
+                attributes.add("timeRange=[" + timeRange.getBeginTime() + ", " + timeRange.getEndTime() + ")");
+                break;
+            case RowTransform:
+                attributes.add("function=" + describe(((RowTransform) operator).getFunctionCall()));
+                break;
+            case SetTransform:
+                attributes.add("functions=" + describe(((SetTransform) operator).getFunctionCallList()));
+                break;
+            case MappingTransform:
+                attributes.add("function=" + describe(((MappingTransform) operator).getFunctionCall()));
+                break;
+            case Rename:
+                attributes.add("aliasMap=" + ((Rename) operator).getAliasMap());
+                break;
+            case Join:
+                attributes.add("joinBy=" + ((Join) operator).getJoinBy());
+                break;
+            default:
+                break;
+        }
+        if (OperatorType.isUnaryOperator(operator.getType())) {
+            Source source = ((UnaryOperator) operator).getSource();
+            if (source.getType() == SourceType.Fragment) {
+                attributes.add("fragment=" + describe(((FragmentSource) source).getFragment()));
+            }
+        }
+        return builder.append(String.join(", ", attributes)).append(")").toString();
+    }
+
+    private static String describe(FragmentMeta fragment) {
+        return fragment.getTsInterval() + " [" + fragment.getTimeInterval().getStartTime() + ", "
+            + fragment.getTimeInterval().getEndTime() + ")";
+    }
+
+    private static String describe(List<FunctionCall> functionCalls) {
+        return functionCalls.stream().map(PlanPrinter::describe).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String describe(FunctionCall functionCall) {
+        Value paths = functionCall.getParams().get(PARAM_PATHS);
+        String identifier = functionCall.getFunction().getIdentifier();
+        return paths == null ? identifier : identifier + "(" + paths.getBinaryVAsString() + ")";
+    }
+}
@@ -1,10 +1,9 @@
 package cn.edu.tsinghua.iginx.engine.logical.generator;
 
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
-import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.logical.utils.DataViewUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
-import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
 import cn.edu.tsinghua.iginx.engine.shared.operator.CombineNonQuery;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
@@ -22,7 +21,6 @@ import cn.edu.tsinghua.iginx.policy.PolicyManager;
 import cn.edu.tsinghua.iginx.sql.statement.InsertStatement;
 import cn.edu.tsinghua.iginx.sql.statement.Statement;
 import cn.edu.tsinghua.iginx.utils.Pair;
-import cn.edu.tsinghua.iginx.utils.SortUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,65 +70,15 @@ public class InsertGenerator extends AbstractGenerator {
         }
 
         RawData rawData = insertStatement.getRawData();
+        List<FragmentMeta> fragmentList = new ArrayList<>();
+        fragments.values().forEach(fragmentList::addAll);
         List<Insert> insertList = new ArrayList<>();
-        fragments.forEach((k, v) -> v.forEach(fragmentMeta -> {
-            DataView section = getDataSection(fragmentMeta, rawData);
-            if (section != null) {
-                insertList.add(new Insert(new FragmentSource(fragmentMeta), section));
-            }
-        }));
+        for (Pair<FragmentMeta, DataView> section : DataViewUtils.partition(rawData, fragmentList)) {
+            insertList.add(new Insert(new FragmentSource(section.k), section.v));
+        }
 
         List<Source> sources = new ArrayList<>();
         insertList.forEach(operator -> sources.add(new OperatorSource(operator)));
         return new CombineNonQuery(sources);
     }
-
-    private DataView getDataSection(FragmentMeta meta, RawData rawData) {
-        TimeInterval timeInterval = meta.getTimeInterval();
-        TimeSeriesInterval tsInterval = meta.getTsInterval();
-        List<Long> insertTimes = rawData.getTimestamps();
-        List<String> paths = rawData.getPaths();
-
-        // time overlap doesn't exist.
-        if (timeInterval.getStartTime() > insertTimes.get(insertTimes.size() - 1) ||
-            timeInterval.getEndTime() < insertTimes.get(0)) {
-            return null;
-        }
-
-        // path overlap doesn't exist.
-        if (tsInterval.getStartTimeSeries() != null &&
-            tsInterval.getStartTimeSeries().compareTo(paths.get(paths.size() - 1)) > 0)
-            return null;
-        if (tsInterval.getEndTimeSeries() != null &&
-            tsInterval.getEndTimeSeries().compareTo(paths.get(0)) < 0) {
-            return null;
-        }
-
-        int startTimeIndex = 0;
-        while (timeInterval.getStartTime() > insertTimes.get(startTimeIndex))
-            startTimeIndex++;
-        int endTimeIndex = startTimeIndex;
-        while (endTimeIndex < insertTimes.size() && timeInterval.getEndTime() > insertTimes.get(endTimeIndex))
-            endTimeIndex++;
-
-
-        int startPathIndex = 0;
-        if (tsInterval.getStartTimeSeries() != null) {
-            while (tsInterval.getStartTimeSeries().compareTo(paths.get(startPathIndex)) > 0)
-                startPathIndex++;
-        }
-        int endPathIndex = startPathIndex;
-        if (tsInterval.getEndTimeSeries() != null) {
-            while (endPathIndex < paths.size() && tsInterval.getEndTimeSeries().compareTo(paths.get(endPathIndex)) > 0)
-                endPathIndex++;
-        } else {
-            endPathIndex = paths.size();
-        }
-
-        if (rawData.isRowData()) {
-            return new RowDataView(rawData, startPathIndex, endPathIndex, startTimeIndex, endTimeIndex);
-        } else {
-            return new ColumnDataView(rawData, startPathIndex, endPathIndex, startTimeIndex, endTimeIndex);
-        }
-    }
 }
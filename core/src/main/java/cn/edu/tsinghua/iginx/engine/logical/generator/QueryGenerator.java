@@ -9,6 +9,7 @@ import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
 import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionUtils;
+import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.function.manager.FunctionManager;
 import cn.edu.tsinghua.iginx.engine.shared.operator.*;
 import cn.edu.tsinghua.iginx.engine.shared.operator.tag.TagFilter;
@@ -78,59 +79,74 @@ public class QueryGenerator extends AbstractGenerator {
 
         List<Operator> queryList = new ArrayList<>();
         if (selectStatement.getQueryType() == SelectStatement.QueryType.DownSampleQuery) {
-            // DownSample Query
-            Operator finalRoot = root;
+            // DownSample Query，所有函数共享同一次扫描
+            List<FunctionCall> functionCallList = new ArrayList<>();
             selectStatement.getSelectedFuncsAndExpressions().forEach((k, v) -> v.forEach(expression -> {
                 Map<String, Value> params = new HashMap<>();
                 params.put(PARAM_PATHS, new Value(expression.getPathName()));
                 if (!selectStatement.getLayers().isEmpty()) {
                     params.put(PARAM_LEVELS, new Value(selectStatement.getLayers().stream().map(String::valueOf).collect(Collectors.joining(","))));
                 }
-                Operator copySelect = finalRoot.copy();
-
-                queryList.add(
-                    new Downsample(
-                        new OperatorSource(copySelect),
-                        selectStatement.getPrecision(),
-                        new FunctionCall(functionManager.getFunction(k), params),
-                        new TimeRange(selectStatement.getStartTime(), selectStatement.getEndTime())
-                    )
-                );
+                functionCallList.add(new FunctionCall(functionManager.getFunction(k), params));
             }));
+            queryList.add(
+                new Downsample(
+                    new OperatorSource(root),
+                    selectStatement.getPrecision(),
+                    functionCallList,
+                    new TimeRange(selectStatement.getStartTime(), selectStatement.getEndTime())
+                )
+            );
         } else if (selectStatement.getQueryType() == SelectStatement.QueryType.AggregateQuery) {
             // Aggregate Query
             Operator finalRoot = root;
+            // 集合映射函数共享同一次扫描，合并为一个 SetTransform，放在第一个集合映射函数的位置上
+            List<FunctionCall> setFunctionCallList = new ArrayList<>();
+            int[] setTransformIndex = new int[]{-1};
             selectStatement.getSelectedFuncsAndExpressions().forEach((k, v) -> v.forEach(expression -> {
                 Map<String, Value> params = new HashMap<>();
                 params.put(PARAM_PATHS, new Value(expression.getPathName()));
                 if (!selectStatement.getLayers().isEmpty()) {
                     params.put(PARAM_LEVELS, new Value(selectStatement.getLayers().stream().map(String::valueOf).collect(Collectors.joining(","))));
                 }
-                Operator copySelect = finalRoot.copy();
                 logger.info("function: " + k + ", wrapped path: " + v);
-                if (FunctionUtils.isRowToRowFunction(k)) {
+                if (FunctionUtils.isRowToRowFunction(k) && functionManager.getFunction(k).getMappingType() == MappingType.Mapping) {
+                    // 向量化的 UDTF 一次处理整个行流
                     queryList.add(
-                        new RowTransform(
-                            new OperatorSource(copySelect),
+                        new MappingTransform(
+                            new OperatorSource(finalRoot.copy()),
                             new FunctionCall(functionManager.getFunction(k), params)
                         )
                     );
-                } else if (FunctionUtils.isSetToSetFunction(k)) {
+                } else if (FunctionUtils.isRowToRowFunction(k)) {
                     queryList.add(
-                        new MappingTransform(
-                            new OperatorSource(copySelect),
+                        new RowTransform(
+                            new OperatorSource(finalRoot.copy()),
                             new FunctionCall(functionManager.getFunction(k), params)
                         )
                     );
-                } else {
+                } else if (FunctionUtils.isSetToSetFunction(k)) {
                     queryList.add(
-                        new SetTransform(
-                            new OperatorSource(copySelect),
+                        new MappingTransform(
+                            new OperatorSource(finalRoot.copy()),
                             new FunctionCall(functionManager.getFunction(k), params)
                         )
                     );
+                } else {
+                    if (setTransformIndex[0] == -1) {
+                        setTransformIndex[0] = queryList.size();
+                    }
+                    setFunctionCallList.add(new FunctionCall(functionManager.getFunction(k), params));
                 }
             }));
+            if (!setFunctionCallList.isEmpty()) {
+                queryList.add(setTransformIndex[0],
+                    new SetTransform(
+                        new OperatorSource(finalRoot.copy()),
+                        setFunctionCallList
+                    )
+                );
+            }
         } else if (selectStatement.getQueryType() == SelectStatement.QueryType.LastFirstQuery) {
             Operator finalRoot = root;
             selectStatement.getSelectedFuncsAndExpressions().forEach((k, v) -> v.forEach(expression -> {
@@ -164,11 +180,16 @@ public class QueryGenerator extends AbstractGenerator {
             }
         }
 
-        if (!selectStatement.getOrderByPath().equals("")) {
+        if (!selectStatement.getOrderByPaths().isEmpty()) {
+            List<Sort.SortType> sortTypes = new ArrayList<>();
+            selectStatement.getAscendingList().forEach(ascending -> sortTypes.add(ascending ? Sort.SortType.ASC : Sort.SortType.DESC));
+            // 排序后紧跟 Limit 时只需要保留前 limit + offset 行
+            long sortLimit = selectStatement.getLimit() == Integer.MAX_VALUE ? -1 : (long) selectStatement.getLimit() + selectStatement.getOffset();
             root = new Sort(
                 new OperatorSource(root),
-                selectStatement.getOrderByPath(),
-                selectStatement.isAscending() ? Sort.SortType.ASC : Sort.SortType.DESC
+                selectStatement.getOrderByPaths(),
+                sortTypes,
+                sortLimit
             );
         }
 
@@ -0,0 +1,228 @@
+package cn.edu.tsinghua.iginx.engine.logical.optimizer;
+
+import cn.edu.tsinghua.iginx.engine.shared.Constants;
+import cn.edu.tsinghua.iginx.engine.shared.operator.*;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.NotFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.OrFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.OperatorSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+import cn.edu.tsinghua.iginx.engine.shared.source.SourceType;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将 Limit 沿着按时间有序且不改变行顺序的算子（Project、只含时间条件的 Select、按时间升序的 Sort、Join、Union）
+ * 下推到各个分片的扫描之上。每个分片只需要返回前 limit + offset 行，原有的 Limit 仍保留在上层。
+ * 内存中的 Project 会丢弃全为空的行，因此只有分片扫描的列都被上层 Project 保留时才下推。
+ * 对于 ORDER BY time DESC LIMIT，各个分片只需要返回按时间排列的最后 limit + offset 行，下推的是截取末尾的 Limit。
+ */
+public class LimitPushDownOptimizer implements Optimizer {
+
+    private final static Logger logger = LoggerFactory.getLogger(LimitPushDownOptimizer.class);
+
+    private static LimitPushDownOptimizer instance;
+
+    private LimitPushDownOptimizer() {
+    }
+
+    public static LimitPushDownOptimizer getInstance() {
+        if (instance == null) {
+            synchronized (LimitPushDownOptimizer.class) {
+                if (instance == null) {
+                    instance = new LimitPushDownOptimizer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public Operator optimize(Operator root) {
+        // only optimize query
+        if (root.getType() == OperatorType.CombineNonQuery || root.getType() == OperatorType.ShowTimeSeries) {
+            return root;
+        }
+        visit(root);
+        return root;
+    }
+
+    private void visit(Operator operator) {
+        // 先处理子查询中的 Limit，上层 Limit 下推时遇到它们会停止
+        for (Operator child : getChildren(operator)) {
+            visit(child);
+        }
+        if (operator.getType() != OperatorType.Limit) {
+            return;
+        }
+        Limit limit = (Limit) operator;
+        long rowCount = (long) limit.getLimit() + limit.getOffset();
+        if (rowCount > Integer.MAX_VALUE || limit.getSource().getType() != SourceType.Operator) {
+            return;
+        }
+        Operator source = ((OperatorSource) limit.getSource()).getOperator();
+        boolean tail = false;
+        Sort descSort = null;
+        if (isSortByTimeDesc(source) && ((Sort) source).getSource().getType() == SourceType.Operator) {
+            // 按时间降序排列后截取前若干行，等价于截取按时间升序排列的最后若干行，下推到排序之下
+            tail = true;
+            descSort = (Sort) source;
+            source = ((OperatorSource) descSort.getSource()).getOperator();
+        }
+        if (isScan(source) || !canPushDown(source, tail, new ArrayList<>())) {
+            return;
+        }
+        Operator pushed = pushDown(source, (int) rowCount, tail, new ArrayList<>());
+        if (tail) {
+            descSort.setSource(new OperatorSource(pushed));
+        } else {
+            limit.setSource(new OperatorSource(pushed));
+        }
+        logger.info("push down {} limit {} to fragment scans.", tail ? "tail" : "head", rowCount);
+    }
+
+    private boolean isSortByTimeDesc(Operator operator) {
+        if (operator.getType() != OperatorType.Sort) {
+            return false;
+        }
+        Sort sort = (Sort) operator;
+        return sort.getSortByCols().size() == 1 && sort.getSortByCols().get(0).equals(Constants.TIMESTAMP)
+            && sort.getSortTypes().get(0) == Sort.SortType.DESC;
+    }
+
+    private List<Operator> getChildren(Operator operator) {
+        List<Operator> children = new ArrayList<>();
+        List<Source> sources = new ArrayList<>();
+        if (OperatorType.isUnaryOperator(operator.getType())) {
+            sources.add(((UnaryOperator) operator).getSource());
+        } else if (OperatorType.isBinaryOperator(operator.getType())) {
+            sources.add(((BinaryOperator) operator).getSourceA());
+            sources.add(((BinaryOperator) operator).getSourceB());
+        } else if (OperatorType.isMultipleOperator(operator.getType())) {
+            sources.addAll(((MultipleOperator) operator).getSources());
+        }
+        for (Source source : sources) {
+            if (source.getType() == SourceType.Operator) {
+                children.add(((OperatorSource) source).getOperator());
+            }
+        }
+        return children;
+    }
+
+    /**
+     * 判断是否为分片扫描：直接读取分片的 Project，或者已经被下推到其上的 Select
+     */
+    private boolean isScan(Operator operator) {
+        if (operator.getType() == OperatorType.Select) {
+            Source source = ((Select) operator).getSource();
+            return source.getType() == SourceType.Operator && isScan(((OperatorSource) source).getOperator());
+        }
+        return operator.getType() == OperatorType.Project && ((Project) operator).getSource().getType() == SourceType.Fragment;
+    }
+
+    private Project getScanProject(Operator operator) {
+        while (operator.getType() == OperatorType.Select) {
+            operator = ((OperatorSource) ((Select) operator).getSource()).getOperator();
+        }
+        return (Project) operator;
+    }
+
+    private boolean canPushDown(Operator operator, boolean tail, List<List<String>> projectPatterns) {
+        if (isScan(operator)) {
+            List<String> patterns = getScanProject(operator).getPatterns();
+            for (List<String> upperPatterns : projectPatterns) {
+                if (!upperPatterns.containsAll(patterns)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        switch (operator.getType()) {
+            case Project:
+                Project project = (Project) operator;
+                projectPatterns.add(project.getPatterns());
+                boolean result = canPushDown(((OperatorSource) project.getSource()).getOperator(), tail, projectPatterns);
+                projectPatterns.remove(projectPatterns.size() - 1);
+                return result;
+            case Select:
+                Select select = (Select) operator;
+                if (select.getTagFilter() != null || !isTimeOnlyFilter(select.getFilter())) {
+                    return false;
+                }
+                return canPushDown(((OperatorSource) select.getSource()).getOperator(), tail, projectPatterns);
+            case Sort:
+                Sort sort = (Sort) operator;
+                return sort.isSortByTimeAsc() && canPushDown(((OperatorSource) sort.getSource()).getOperator(), tail, projectPatterns);
+            case Join:
+                Join join = (Join) operator;
+                // 按序号连接时行从头开始对齐，两侧各自的最后若干行无法对齐
+                if (!join.getJoinBy().equals(Constants.TIMESTAMP) && (tail || !join.getJoinBy().equals(Constants.ORDINAL))) {
+                    return false;
+                }
+                return canPushDown(((OperatorSource) join.getSourceA()).getOperator(), tail, projectPatterns)
+                    && canPushDown(((OperatorSource) join.getSourceB()).getOperator(), tail, projectPatterns);
+            case Union:
+                Union union = (Union) operator;
+                return canPushDown(((OperatorSource) union.getSourceA()).getOperator(), tail, projectPatterns)
+                    && canPushDown(((OperatorSource) union.getSourceB()).getOperator(), tail, projectPatterns);
+            default:
+                return false;
+        }
+    }
+
+    private Operator pushDown(Operator operator, int rowCount, boolean tail, List<Filter> timeFilters) {
+        if (isScan(operator)) {
+            // 上层的时间条件需要在分片内先生效，再截取前若干行
+            Operator scan = operator;
+            if (!timeFilters.isEmpty()) {
+                TimeInterval interval = ((FragmentSource) getScanProject(operator).getSource()).getFragment().getTimeInterval();
+                List<Filter> filters = new ArrayList<>();
+                timeFilters.forEach(filter -> filters.add(filter.copy()));
+                filters.add(new TimeFilter(Op.GE, interval.getStartTime()));
+                filters.add(new TimeFilter(Op.L, interval.getEndTime()));
+                scan = new Select(new OperatorSource(scan), new AndFilter(filters), null);
+            }
+            return new Limit(new OperatorSource(scan), rowCount, 0, tail);
+        }
+        if (OperatorType.isBinaryOperator(operator.getType())) {
+            BinaryOperator binaryOperator = (BinaryOperator) operator;
+            binaryOperator.setSourceA(new OperatorSource(pushDown(((OperatorSource) binaryOperator.getSourceA()).getOperator(), rowCount, tail, timeFilters)));
+            binaryOperator.setSourceB(new OperatorSource(pushDown(((OperatorSource) binaryOperator.getSourceB()).getOperator(), rowCount, tail, timeFilters)));
+            return operator;
+        }
+        UnaryOperator unaryOperator = (UnaryOperator) operator;
+        if (operator.getType() == OperatorType.Select) {
+            timeFilters.add(((Select) operator).getFilter());
+        }
+        unaryOperator.setSource(new OperatorSource(pushDown(((OperatorSource) unaryOperator.getSource()).getOperator(), rowCount, tail, timeFilters)));
+        if (operator.getType() == OperatorType.Select) {
+            timeFilters.remove(timeFilters.size() - 1);
+        }
+        return operator;
+    }
+
+    private boolean isTimeOnlyFilter(Filter filter) {
+        switch (filter.getType()) {
+            case Time:
+            case Bool:
+                return true;
+            case And:
+                return ((AndFilter) filter).getChildren().stream().allMatch(this::isTimeOnlyFilter);
+            case Or:
+                return ((OrFilter) filter).getChildren().stream().allMatch(this::isTimeOnlyFilter);
+            case Not:
+                return isTimeOnlyFilter(((NotFilter) filter).getChild());
+            default:
+                return false;
+        }
+    }
+
+}
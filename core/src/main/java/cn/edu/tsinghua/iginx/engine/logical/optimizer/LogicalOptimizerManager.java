@@ -15,6 +15,8 @@ public class LogicalOptimizerManager {
 
     private final static String FILTER_FRAGMENT = "filter_fragment";
 
+    private final static String LIMIT_PUSH_DOWN = "limit_push_down";
+
     private LogicalOptimizerManager() {
     }
 
@@ -35,6 +37,8 @@ public class LogicalOptimizerManager {
                 return FilterPushDownOptimizer.getInstance();
             case FILTER_FRAGMENT:
                 return FilterFragmentOptimizer.getInstance();
+            case LIMIT_PUSH_DOWN:
+                return LimitPushDownOptimizer.getInstance();
             default:
                 throw new IllegalArgumentException(String.format("unknown logical optimizer: %s", name));
         }
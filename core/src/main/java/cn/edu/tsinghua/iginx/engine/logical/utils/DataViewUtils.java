@@ -0,0 +1,108 @@
+package cn.edu.tsinghua.iginx.engine.logical.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeSeriesInterval;
+import cn.edu.tsinghua.iginx.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DataViewUtils {
+
+    /**
+     * 将写入的数据一次性划分到各个分片上。先对全部分片的时间边界与序列边界排序去重，
+     * 再分别与有序的时间戳、序列归并一次，得到每个边界在数据中的下标，每个分片只需二分查找自己的边界。
+     * 与分片没有交集的数据不生成视图，返回结果保持分片的顺序
+     */
+    public static List<Pair<FragmentMeta, DataView>> partition(RawData rawData, List<FragmentMeta> fragments) {
+        List<Pair<FragmentMeta, DataView>> sections = new ArrayList<>();
+        if (fragments.isEmpty() || rawData.getTimeSize() == 0 || rawData.getPaths().isEmpty()) {
+            return sections;
+        }
+
+        long[] timeBoundaries = new long[fragments.size() * 2];
+        List<String> pathBoundaryList = new ArrayList<>(fragments.size() * 2);
+        for (int i = 0; i < fragments.size(); i++) {
+            TimeInterval timeInterval = fragments.get(i).getTimeInterval();
+            timeBoundaries[2 * i] = timeInterval.getStartTime();
+            timeBoundaries[2 * i + 1] = timeInterval.getEndTime();
+            TimeSeriesInterval tsInterval = fragments.get(i).getTsInterval();
+            if (tsInterval.getStartTimeSeries() != null) {
+                pathBoundaryList.add(tsInterval.getStartTimeSeries());
+            }
+            if (tsInterval.getEndTimeSeries() != null) {
+                pathBoundaryList.add(tsInterval.getEndTimeSeries());
+            }
+        }
+        timeBoundaries = distinct(timeBoundaries);
+        String[] pathBoundaries = distinct(pathBoundaryList.toArray(new String[0]));
+
+        // 第 i 个边界对应第一个不小于它的时间戳或序列的下标
+        int timeSize = rawData.getTimeSize();
+        int[] timeIndexes = new int[timeBoundaries.length];
+        for (int i = 0, index = 0; i < timeBoundaries.length; i++) {
+            while (index < timeSize && rawData.getTimestamp(index) < timeBoundaries[i]) {
+                index++;
+            }
+            timeIndexes[i] = index;
+        }
+        List<String> paths = rawData.getPaths();
+        int[] pathIndexes = new int[pathBoundaries.length];
+        for (int i = 0, index = 0; i < pathBoundaries.length; i++) {
+            while (index < paths.size() && paths.get(index).compareTo(pathBoundaries[i]) < 0) {
+                index++;
+            }
+            pathIndexes[i] = index;
+        }
+
+        for (FragmentMeta fragment : fragments) {
+            TimeInterval timeInterval = fragment.getTimeInterval();
+            int startTimeIndex = timeIndexes[Arrays.binarySearch(timeBoundaries, timeInterval.getStartTime())];
+            int endTimeIndex = timeIndexes[Arrays.binarySearch(timeBoundaries, timeInterval.getEndTime())];
+            TimeSeriesInterval tsInterval = fragment.getTsInterval();
+            int startPathIndex = tsInterval.getStartTimeSeries() == null ? 0 :
+                pathIndexes[Arrays.binarySearch(pathBoundaries, tsInterval.getStartTimeSeries())];
+            int endPathIndex = tsInterval.getEndTimeSeries() == null ? paths.size() :
+                pathIndexes[Arrays.binarySearch(pathBoundaries, tsInterval.getEndTimeSeries())];
+            if (startTimeIndex >= endTimeIndex || startPathIndex >= endPathIndex) {
+                continue;
+            }
+            DataView section;
+            if (rawData.isRowData()) {
+                section = new RowDataView(rawData, startPathIndex, endPathIndex, startTimeIndex, endTimeIndex);
+            } else {
+                section = new ColumnDataView(rawData, startPathIndex, endPathIndex, startTimeIndex, endTimeIndex);
+            }
+            sections.add(new Pair<>(fragment, section));
+        }
+        return sections;
+    }
+
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private static String[] distinct(String[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || !values[i].equals(values[i - 1])) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -20,13 +20,25 @@ package cn.edu.tsinghua.iginx.engine.physical;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.storage.StorageManager;
+import cn.edu.tsinghua.iginx.engine.physical.task.PhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
 import cn.edu.tsinghua.iginx.engine.shared.constraint.ConstraintManager;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 
 public interface PhysicalEngine {
 
-    RowStream execute(Operator root) throws PhysicalException;
+    RowStream execute(RequestContext ctx, Operator root) throws PhysicalException;
+
+    /**
+     * 只生成物理计划而不执行
+     */
+    PhysicalTask plan(Operator root);
+
+    /**
+     * 执行 plan 生成的物理计划
+     */
+    RowStream execute(RequestContext ctx, PhysicalTask task) throws PhysicalException;
 
     ConstraintManager getConstraintManager();
 
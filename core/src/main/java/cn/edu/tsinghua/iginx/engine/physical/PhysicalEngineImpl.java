@@ -20,12 +20,14 @@ package cn.edu.tsinghua.iginx.engine.physical;
 
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskCancelledException;
 import cn.edu.tsinghua.iginx.engine.physical.memory.MemoryPhysicalTaskDispatcher;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.PhysicalOptimizer;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.PhysicalOptimizerManager;
 import cn.edu.tsinghua.iginx.engine.physical.storage.StorageManager;
 import cn.edu.tsinghua.iginx.engine.physical.storage.execute.StoragePhysicalTaskExecutor;
 import cn.edu.tsinghua.iginx.engine.physical.task.*;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
 import cn.edu.tsinghua.iginx.engine.shared.constraint.ConstraintManager;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
@@ -35,6 +37,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class PhysicalEngineImpl implements PhysicalEngine {
 
@@ -48,6 +53,8 @@ public class PhysicalEngineImpl implements PhysicalEngine {
 
     private final StoragePhysicalTaskExecutor storageTaskExecutor;
 
+    private final long queryTimeout = ConfigDescriptor.getInstance().getConfig().getQueryTimeout();
+
     private PhysicalEngineImpl() {
         optimizer = PhysicalOptimizerManager.getInstance().getOptimizer(ConfigDescriptor.getInstance().getConfig().getPhysicalOptimizer());
         memoryTaskExecutor = MemoryPhysicalTaskDispatcher.getInstance();
@@ -61,43 +68,98 @@ public class PhysicalEngineImpl implements PhysicalEngine {
     }
 
     @Override
-    public RowStream execute(Operator root) throws PhysicalException {
+    public RowStream execute(RequestContext ctx, Operator root) throws PhysicalException {
+        return execute(ctx, plan(root));
+    }
+
+    @Override
+    public PhysicalTask plan(Operator root) {
         if (OperatorType.isGlobalOperator(root.getType())) { // 全局任务临时兼容逻辑
-            GlobalPhysicalTask task = new GlobalPhysicalTask(root);
-            TaskExecuteResult result = storageTaskExecutor.executeGlobalTask(task);
+            return new GlobalPhysicalTask(root);
+        }
+        return optimizer.optimize(root);
+    }
+
+    @Override
+    public RowStream execute(RequestContext ctx, PhysicalTask task) throws PhysicalException {
+        if (task.getType() == TaskType.Global) {
+            TaskExecuteResult result = storageTaskExecutor.executeGlobalTask((GlobalPhysicalTask) task);
             if (result.getException() != null) {
                 throw result.getException();
             }
             return result.getRowStream();
         }
-        PhysicalTask task = optimizer.optimize(root);
+        List<PhysicalTask> tasks = new ArrayList<>();
+        getTasks(tasks, task);
         List<StoragePhysicalTask> storageTasks = new ArrayList<>();
-        getStorageTasks(storageTasks, task);
-        storageTaskExecutor.commit(storageTasks);
-        TaskExecuteResult result = task.getResult();
+        for (PhysicalTask t : tasks) {
+            if (t.getType() == TaskType.Storage) {
+                storageTasks.add((StoragePhysicalTask) t);
+            }
+        }
+        ctx.setCancelHook(() -> cancel(tasks, new PhysicalTaskCancelledException("query " + ctx.getId() + " is killed")));
+        long timeout = ctx.getTimeout() > 0 ? ctx.getTimeout() : queryTimeout;
+        storageTaskExecutor.commit(storageTasks, timeout > 0 ? ctx.getStartTime() + timeout : 0L);
+        TaskExecuteResult result;
+        try {
+            result = getResult(ctx, task, tasks);
+        } finally {
+            ctx.setCancelHook(null);
+        }
         if (result.getException() != null) {
             throw result.getException();
         }
         return result.getRowStream();
     }
 
-    private void getStorageTasks(List<StoragePhysicalTask> tasks, PhysicalTask root) {
+    /**
+     * 等待物理任务树的结果，超过期限时取消树中的全部任务
+     */
+    private TaskExecuteResult getResult(RequestContext ctx, PhysicalTask task, List<PhysicalTask> tasks) throws PhysicalException {
+        long timeout = ctx.getTimeout() > 0 ? ctx.getTimeout() : queryTimeout;
+        try {
+            if (timeout <= 0) {
+                return task.getResultFuture().get();
+            }
+            long remaining = ctx.getStartTime() + timeout - System.currentTimeMillis();
+            return task.getResultFuture().get(Math.max(remaining, 0L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            PhysicalException exception = new PhysicalTaskCancelledException("query " + ctx.getId() + " exceeds the timeout of " + timeout + "ms");
+            cancel(tasks, exception);
+            throw exception;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            PhysicalException exception = new PhysicalTaskCancelledException("query " + ctx.getId() + " is interrupted");
+            cancel(tasks, exception);
+            throw exception;
+        } catch (ExecutionException e) {
+            throw new PhysicalException(e.getCause());
+        }
+    }
+
+    private void cancel(List<PhysicalTask> tasks, PhysicalException reason) {
+        logger.warn("cancel physical tasks: " + reason.getMessage());
+        for (PhysicalTask task : tasks) {
+            task.cancel(reason);
+        }
+    }
+
+    private void getTasks(List<PhysicalTask> tasks, PhysicalTask root) {
         if (root == null) {
             return;
         }
-        if (root.getType() == TaskType.Storage) {
-            tasks.add((StoragePhysicalTask) root);
-        } else if (root.getType() == TaskType.BinaryMemory) {
+        tasks.add(root);
+        if (root.getType() == TaskType.BinaryMemory) {
             BinaryMemoryPhysicalTask task = (BinaryMemoryPhysicalTask) root;
-            getStorageTasks(tasks, task.getParentTaskA());
-            getStorageTasks(tasks, task.getParentTaskB());
+            getTasks(tasks, task.getParentTaskA());
+            getTasks(tasks, task.getParentTaskB());
         } else if (root.getType() == TaskType.UnaryMemory) {
             UnaryMemoryPhysicalTask task = (UnaryMemoryPhysicalTask) root;
-            getStorageTasks(tasks, task.getParentTask());
+            getTasks(tasks, task.getParentTask());
         } else if (root.getType() == TaskType.MultipleMemory) {
             MultipleMemoryPhysicalTask task = (MultipleMemoryPhysicalTask) root;
             for (PhysicalTask parentTask : task.getParentTasks()) {
-                getStorageTasks(tasks, parentTask);
+                getTasks(tasks, parentTask);
             }
         }
     }
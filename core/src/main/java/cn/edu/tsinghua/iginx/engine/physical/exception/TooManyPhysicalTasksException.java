@@ -23,4 +23,8 @@ public class TooManyPhysicalTasksException extends PhysicalException {
     public TooManyPhysicalTasksException(long storageId) {
         super("too many physical tasks need to do for storage: " + storageId);
     }
+
+    public TooManyPhysicalTasksException(String storageUnit) {
+        super("too many physical tasks queued for storage unit: " + storageUnit);
+    }
 }
@@ -22,13 +22,16 @@ import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.memory.queue.MemoryPhysicalTaskQueue;
 import cn.edu.tsinghua.iginx.engine.physical.memory.queue.MemoryPhysicalTaskQueueImpl;
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
 import cn.edu.tsinghua.iginx.engine.physical.task.MemoryPhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.TaskExecuteResult;
+import cn.edu.tsinghua.iginx.statistics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class MemoryPhysicalTaskDispatcher {
 
@@ -40,19 +43,42 @@ public class MemoryPhysicalTaskDispatcher {
 
     private final ExecutorService taskDispatcher;
 
-    private final ExecutorService taskExecuteThreadPool;
+    private final ThreadPoolExecutor taskExecuteThreadPool;
+
+    private final ExecutorService prefetchThreadPool;
+
+    private static final String MEMORY_POOL_ACTIVE_THREADS = "iginx_memory_pool_active_threads";
+
+    private static final String MEMORY_POOL_QUEUED_TASKS = "iginx_memory_pool_queued_tasks";
 
     private MemoryPhysicalTaskDispatcher() {
         taskQueue = new MemoryPhysicalTaskQueueImpl();
-        taskExecuteThreadPool = Executors.newFixedThreadPool(ConfigDescriptor.getInstance().getConfig().getMemoryTaskThreadPoolSize());
+        taskExecuteThreadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(ConfigDescriptor.getInstance().getConfig().getMemoryTaskThreadPoolSize());
+        prefetchThreadPool = Executors.newFixedThreadPool(ConfigDescriptor.getInstance().getConfig().getUnionPrefetchThreadPoolSize());
         taskDispatcher = Executors.newSingleThreadExecutor();
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.describe(MEMORY_POOL_ACTIVE_THREADS, "Number of busy threads executing memory tasks.");
+        metrics.describe(MEMORY_POOL_QUEUED_TASKS, "Number of memory tasks waiting for a thread.");
+        metrics.gauge(taskExecuteThreadPool::getActiveCount, MEMORY_POOL_ACTIVE_THREADS);
+        metrics.gauge(() -> taskExecuteThreadPool.getQueue().size(), MEMORY_POOL_QUEUED_TASKS);
     }
 
     public static MemoryPhysicalTaskDispatcher getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * 用于预读各个分片查询结果的线程池
+     */
+    public ExecutorService getPrefetchThreadPool() {
+        return prefetchThreadPool;
+    }
+
     public boolean addMemoryTask(MemoryPhysicalTask task) {
+        if (task.getProfile() != null) {
+            task.getProfile().markReady();
+        }
         return taskQueue.addTask(task);
     }
 
@@ -65,11 +91,23 @@ public class MemoryPhysicalTaskDispatcher {
                     MemoryPhysicalTask currentTask = task;
                     while (currentTask != null) {
                         TaskExecuteResult result;
-                        try {
-                            result = currentTask.execute();
-                        } catch (Exception e) {
-                            logger.error("execute memory task failure: ", e);
-                            result = new TaskExecuteResult(new PhysicalException(e));
+                        if (currentTask.isCancelled()) {
+                            result = currentTask.getResult();
+                        } else {
+                            TaskProfile profile = currentTask.getProfile();
+                            if (profile != null) {
+                                profile.markStart();
+                            }
+                            long startTime = System.nanoTime();
+                            try {
+                                result = currentTask.execute();
+                            } catch (Exception e) {
+                                logger.error("execute memory task failure: ", e);
+                                result = new TaskExecuteResult(new PhysicalException(e));
+                            }
+                            if (profile != null) {
+                                profile.addExecuteNanos(System.nanoTime() - startTime);
+                            }
                         }
                         currentTask.setResult(result);
                         if (currentTask.getFollowerTask() != null) { // 链式执行可以被执行的任务
@@ -90,6 +128,7 @@ public class MemoryPhysicalTaskDispatcher {
 
     public void stopDispatcher() {
         taskDispatcher.shutdown();
+        prefetchThreadPool.shutdown();
     }
 
 }
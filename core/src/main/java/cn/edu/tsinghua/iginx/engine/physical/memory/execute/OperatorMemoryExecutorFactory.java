@@ -18,7 +18,9 @@
  */
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute;
 
+import cn.edu.tsinghua.iginx.conf.Config;
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.batch.BatchOperatorMemoryExecutor;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.naive.NaiveOperatorMemoryExecutor;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.StreamOperatorMemoryExecutor;
 
@@ -31,7 +33,11 @@ public class OperatorMemoryExecutorFactory {
     }
 
     public OperatorMemoryExecutor getMemoryExecutor() {
-        if (ConfigDescriptor.getInstance().getConfig().isUseStreamExecutor()) {
+        Config config = ConfigDescriptor.getInstance().getConfig();
+        if (config.isUseBatchExecutor()) {
+            return BatchOperatorMemoryExecutor.getInstance();
+        }
+        if (config.isUseStreamExecutor()) {
             return StreamOperatorMemoryExecutor.getInstance();
         }
         return NaiveOperatorMemoryExecutor.getInstance();
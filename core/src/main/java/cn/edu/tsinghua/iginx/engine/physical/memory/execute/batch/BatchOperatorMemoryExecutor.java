@@ -0,0 +1,600 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.batch;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.InvalidOperatorParameterException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutor;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.BatchFilterUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowSortUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
+import cn.edu.tsinghua.iginx.engine.shared.Constants;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.*;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.MappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.RowMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.operator.*;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * 基于列式 RowBatch 的内存执行器，算子直接在原生数组上计算，避免逐行装箱和拷贝。
+ * 对于系统函数、UDF 等仍然基于行的接口，通过 RowBatchStream 进行适配。
+ */
+public class BatchOperatorMemoryExecutor implements OperatorMemoryExecutor {
+
+    private BatchOperatorMemoryExecutor() {
+    }
+
+    public static BatchOperatorMemoryExecutor getInstance() {
+        return BatchOperatorMemoryExecutorHolder.INSTANCE;
+    }
+
+    @Override
+    public RowStream executeUnaryOperator(UnaryOperator operator, RowStream stream) throws PhysicalException {
+        switch (operator.getType()) {
+            case Project:
+                return executeProject((Project) operator, transformToBatch(stream));
+            case Select:
+                return executeSelect((Select) operator, transformToBatch(stream));
+            case Sort:
+                return executeSort((Sort) operator, transformToBatch(stream));
+            case Limit:
+                return executeLimit((Limit) operator, stream);
+            case Downsample:
+                return executeDownsample((Downsample) operator, transformToBatch(stream));
+            case RowTransform:
+                return executeRowTransform((RowTransform) operator, transformToBatch(stream));
+            case SetTransform:
+                return executeSetTransform((SetTransform) operator, transformToBatch(stream));
+            case MappingTransform:
+                return executeMappingTransform((MappingTransform) operator, transformToBatch(stream));
+            case Rename:
+                return executeRename((Rename) operator, transformToBatch(stream));
+            default:
+                throw new UnexpectedOperatorException("unknown unary operator: " + operator.getType());
+        }
+    }
+
+    @Override
+    public RowStream executeBinaryOperator(BinaryOperator operator, RowStream streamA, RowStream streamB) throws PhysicalException {
+        switch (operator.getType()) {
+            case Join:
+                return executeJoin((Join) operator, transformToBatch(streamA), transformToBatch(streamB));
+            case Union:
+                return executeUnion((Union) operator, transformToBatch(streamA), transformToBatch(streamB));
+            default:
+                throw new UnexpectedOperatorException("unknown unary operator: " + operator.getType());
+        }
+    }
+
+    @Override
+    public RowStream executeMultipleOperator(MultipleOperator operator, List<RowStream> streams) throws PhysicalException {
+        if (operator.getType() == OperatorType.MergeUnion) {
+            List<RowBatch> batches = new ArrayList<>();
+            for (RowStream stream : streams) {
+                batches.add(transformToBatch(stream));
+            }
+            return executeMergeUnion((MergeUnion) operator, batches);
+        }
+        throw new UnexpectedOperatorException("unknown multiple operator: " + operator.getType());
+    }
+
+    private RowBatch transformToBatch(RowStream stream) throws PhysicalException {
+        return RowBatch.fromRowStream(stream);
+    }
+
+    private RowStream executeProject(Project project, RowBatch batch) {
+        List<String> patterns = project.getPatterns();
+        Header header = batch.getHeader();
+        List<Field> targetFields = new ArrayList<>();
+        List<ColumnVector> targetColumns = new ArrayList<>();
+
+        List<Field> fields = header.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            for (String pattern : patterns) {
+                boolean matched;
+                if (!StringUtils.isPattern(pattern)) {
+                    matched = pattern.equals(field.getName()) || field.getName().startsWith(pattern);
+                } else {
+                    matched = Pattern.matches(StringUtils.reformatPath(pattern), field.getName());
+                }
+                if (matched) {
+                    targetFields.add(field);
+                    targetColumns.add(batch.getColumn(i));
+                }
+            }
+        }
+        Header targetHeader = new Header(header.getTime(), targetFields);
+        // 投影只需要挑选列，列数据直接复用
+        return new RowBatchStream(batch.withHeader(targetHeader, targetColumns.toArray(new ColumnVector[0])));
+    }
+
+    private RowStream executeSelect(Select select, RowBatch batch) {
+        boolean[] valid = BatchFilterUtils.validate(select.getFilter(), batch);
+        int[] positions = new int[batch.getSize()];
+        int length = 0;
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                positions[length++] = i;
+            }
+        }
+        if (length == batch.getSize()) {
+            return new RowBatchStream(batch);
+        }
+        return new RowBatchStream(batch.select(positions, length));
+    }
+
+    private RowStream executeSort(Sort sort, RowBatch batch) throws PhysicalException {
+        if (sort.isSortByTimeAsc()) {
+            // 每个批次都是根据时间已经升序排好的，因此依据时间升序排列的话，已经不需要做任何额外的操作了
+            return new RowBatchStream(batch);
+        }
+        Comparator<Integer> comparator = RowSortUtils.buildComparator(sort, batch);
+        Iterator<Integer> indices = IntStream.range(0, batch.getSize()).boxed().iterator();
+        List<Integer> order;
+        if (sort.hasLimit()) {
+            // 只需要前若干行时，用有界堆代替全量排序
+            order = RowSortUtils.topK(indices, comparator, sort.getLimit());
+        } else {
+            order = new ArrayList<>(batch.getSize());
+            indices.forEachRemaining(order::add);
+            order.sort(comparator);
+        }
+        int[] positions = new int[order.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = order.get(i);
+        }
+        return new RowBatchStream(batch.select(positions, positions.length));
+    }
+
+    private RowStream executeLimit(Limit limit, RowStream stream) throws PhysicalException {
+        if (limit.isTail()) {
+            return new RowBatchStream(RowBatch.fromRows(stream.getHeader(), RowUtils.tail(stream, limit.getLimit())));
+        }
+        // 只读取需要的行，其余的行不再从上游拉取
+        RowBatch batch = RowBatch.fromRowStream(stream, (long) limit.getOffset() + limit.getLimit());
+        long from = limit.getOffset();
+        long to = from + limit.getLimit();
+        return new RowBatchStream(batch.slice((int) Math.min(from, batch.getSize()), (int) Math.min(to, batch.getSize())));
+    }
+
+    private RowStream executeDownsample(Downsample downsample, RowBatch batch) throws PhysicalException {
+        Header header = batch.getHeader();
+        if (!header.hasTimestamp()) {
+            throw new InvalidOperatorParameterException("downsample operator is not support for row stream without timestamps.");
+        }
+        long bias = downsample.getTimeRange().getBeginTime();
+        long precision = downsample.getPrecision();
+        // 计算每一行所在的窗口，保证时间戳有序之后，同一个窗口内的行是连续的
+        batch = sortByTimestamp(batch);
+        long[] timestamps = batch.getTimestamps();
+        int size = batch.getSize();
+        TreeMap<Long, int[]> groups = new TreeMap<>();
+        int groupStart = 0;
+        for (int i = 1; i <= size; i++) {
+            long window = timestamps[groupStart] - (timestamps[groupStart] - bias) % precision;
+            if (i == size || timestamps[i] - (timestamps[i] - bias) % precision != window) {
+                groups.put(window, new int[]{groupStart, i});
+                groupStart = i;
+            }
+        }
+
+        // 所有函数共享同一次分组的结果，每个窗口内依次计算各个函数
+        List<FunctionCall> functionCallList = downsample.getFunctionCallList();
+        Header[] functionHeaders = new Header[functionCallList.size()];
+        List<Long> windows = new ArrayList<>();
+        List<Row[]> transformedRawRows = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : groups.entrySet()) {
+            int[] range = entry.getValue();
+            RowBatch group = batch.slice(range[0], range[1]);
+            Row[] groupRows = new Row[functionCallList.size()];
+            boolean hasResult = false;
+            for (int i = 0; i < functionCallList.size(); i++) {
+                SetMappingFunction function = (SetMappingFunction) functionCallList.get(i).getFunction();
+                Map<String, Value> params = functionCallList.get(i).getParams();
+                try {
+                    groupRows[i] = function.transform(new RowBatchStream(group), params);
+                } catch (Exception e) {
+                    throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+                }
+                if (groupRows[i] != null) {
+                    hasResult = true;
+                    if (functionHeaders[i] == null) {
+                        functionHeaders[i] = groupRows[i].getHeader();
+                    }
+                }
+            }
+            if (hasResult) {
+                windows.add(entry.getKey());
+                transformedRawRows.add(groupRows);
+            }
+        }
+        if (transformedRawRows.size() == 0) {
+            return RowBatchStream.EMPTY_STREAM;
+        }
+        Header newHeader = RowUtils.combineHeaders(functionHeaders, true);
+        List<Row> transformedRows = new ArrayList<>();
+        for (int i = 0; i < transformedRawRows.size(); i++) {
+            transformedRows.add(RowUtils.combineRows(newHeader, windows.get(i), transformedRawRows.get(i), functionHeaders));
+        }
+        return new RowBatchStream(RowBatch.fromRows(newHeader, transformedRows));
+    }
+
+    private RowStream executeRowTransform(RowTransform rowTransform, RowBatch batch) throws PhysicalException {
+        RowMappingFunction function = (RowMappingFunction) rowTransform.getFunctionCall().getFunction();
+        Map<String, Value> params = rowTransform.getFunctionCall().getParams();
+        List<Row> rows = new ArrayList<>();
+        try {
+            for (int i = 0; i < batch.getSize(); i++) {
+                Row row = function.transform(batch.getRow(i), params);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        } catch (Exception e) {
+            throw new PhysicalTaskExecuteFailureException("encounter error when execute row mapping function " + function.getIdentifier() + ".", e);
+        }
+        if (rows.size() == 0) {
+            return RowBatchStream.EMPTY_STREAM;
+        }
+        return new RowBatchStream(RowBatch.fromRows(rows.get(0).getHeader(), rows));
+    }
+
+    private RowStream executeSetTransform(SetTransform setTransform, RowBatch batch) throws PhysicalException {
+        // 所有函数共享同一份输入数据，结果拼接为一行
+        List<FunctionCall> functionCallList = setTransform.getFunctionCallList();
+        Row[] rows = new Row[functionCallList.size()];
+        Header[] headers = new Header[functionCallList.size()];
+        boolean hasResult = false;
+        for (int i = 0; i < functionCallList.size(); i++) {
+            SetMappingFunction function = (SetMappingFunction) functionCallList.get(i).getFunction();
+            Map<String, Value> params = functionCallList.get(i).getParams();
+            try {
+                rows[i] = function.transform(new RowBatchStream(batch), params);
+            } catch (Exception e) {
+                throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+            }
+            if (rows[i] != null) {
+                hasResult = true;
+                headers[i] = rows[i].getHeader();
+            }
+        }
+        if (!hasResult) {
+            return RowBatchStream.EMPTY_STREAM;
+        }
+        Header header = RowUtils.combineHeaders(headers, false);
+        Row row = RowUtils.combineRows(header, Row.NON_EXISTED_TIMESTAMP, rows, headers);
+        return new RowBatchStream(RowBatch.fromRows(header, Collections.singletonList(row)));
+    }
+
+    private RowStream executeMappingTransform(MappingTransform mappingTransform, RowBatch batch) throws PhysicalException {
+        MappingFunction function = (MappingFunction) mappingTransform.getFunctionCall().getFunction();
+        Map<String, Value> params = mappingTransform.getFunctionCall().getParams();
+        try {
+            return function.transform(new RowBatchStream(batch), params);
+        } catch (Exception e) {
+            throw new PhysicalTaskExecuteFailureException("encounter error when execute mapping function " + function.getIdentifier() + ".", e);
+        }
+    }
+
+    private RowStream executeRename(Rename rename, RowBatch batch) {
+        Header header = batch.getHeader();
+        Map<String, String> aliasMap = rename.getAliasMap();
+
+        List<Field> fields = new ArrayList<>();
+        header.getFields().forEach(field -> {
+            String alias = "";
+            for (String oldName : aliasMap.keySet()) {
+                Pattern pattern = Pattern.compile(StringUtils.reformatColumnName(oldName) + ".*");
+                if (pattern.matcher(field.getFullName()).matches()) {
+                    alias = aliasMap.get(oldName);
+                    break;
+                }
+            }
+            if (alias.equals("")) {
+                fields.add(field);
+            } else {
+                fields.add(new Field(alias, field.getType(), field.getTags()));
+            }
+        });
+
+        Header newHeader = new Header(header.getTime(), fields);
+        // 重命名只改变表头，列数据直接复用
+        return new RowBatchStream(batch.withHeader(newHeader, batch.getColumns()));
+    }
+
+    private RowStream executeJoin(Join join, RowBatch batchA, RowBatch batchB) throws PhysicalException {
+        Header headerA = batchA.getHeader();
+        Header headerB = batchB.getHeader();
+        boolean byTimestamp;
+        // 目前只支持使用时间戳和顺序
+        if (join.getJoinBy().equals(Constants.TIMESTAMP)) {
+            if (!headerA.hasTimestamp() || !headerB.hasTimestamp()) {
+                throw new InvalidOperatorParameterException("row streams for join operator by time should have timestamp.");
+            }
+            byTimestamp = true;
+        } else if (join.getJoinBy().equals(Constants.ORDINAL)) {
+            if (headerA.hasTimestamp() || headerB.hasTimestamp()) {
+                throw new InvalidOperatorParameterException("row streams for join operator by ordinal shouldn't have timestamp.");
+            }
+            byTimestamp = false;
+        } else {
+            throw new InvalidOperatorParameterException("join operator is not support for field " + join.getJoinBy() + " except for " + Constants.TIMESTAMP + " and " + Constants.ORDINAL);
+        }
+        // 检查 field
+        for (Field field : headerA.getFields()) {
+            if (headerB.indexOf(field) != -1) { // 二者的 field 存在交集
+                throw new PhysicalTaskExecuteFailureException("two source has shared field");
+            }
+        }
+        List<Field> newFields = new ArrayList<>();
+        newFields.addAll(headerA.getFields());
+        newFields.addAll(headerB.getFields());
+
+        int sizeA = batchA.getSize(), sizeB = batchB.getSize();
+        if (!byTimestamp) {
+            // 按顺序拼接时，两侧的行一一对应，只需要将较短的一侧补齐空值
+            int size = Math.max(sizeA, sizeB);
+            ColumnVector[] columns = new ColumnVector[newFields.size()];
+            int index = 0;
+            for (ColumnVector column : batchA.getColumns()) {
+                columns[index++] = padColumn(column, size);
+            }
+            for (ColumnVector column : batchB.getColumns()) {
+                columns[index++] = padColumn(column, size);
+            }
+            return new RowBatchStream(new RowBatch(new Header(newFields), null, columns, size));
+        }
+
+        // 按时间戳归并，先计算出两侧每一行在结果中的位置
+        long[] timestampsA = batchA.getTimestamps(), timestampsB = batchB.getTimestamps();
+        long[] timestamps = new long[sizeA + sizeB];
+        int[] positionsA = new int[sizeA + sizeB], positionsB = new int[sizeA + sizeB];
+        int index1 = 0, index2 = 0, size = 0;
+        while (index1 < sizeA || index2 < sizeB) {
+            if (index2 == sizeB || (index1 < sizeA && timestampsA[index1] < timestampsB[index2])) {
+                timestamps[size] = timestampsA[index1];
+                positionsA[size] = index1++;
+                positionsB[size] = -1;
+            } else if (index1 == sizeA || timestampsB[index2] < timestampsA[index1]) {
+                timestamps[size] = timestampsB[index2];
+                positionsA[size] = -1;
+                positionsB[size] = index2++;
+            } else {
+                timestamps[size] = timestampsA[index1];
+                positionsA[size] = index1++;
+                positionsB[size] = index2++;
+            }
+            size++;
+        }
+        ColumnVector[] columns = new ColumnVector[newFields.size()];
+        int index = 0;
+        for (ColumnVector column : batchA.getColumns()) {
+            columns[index++] = gatherColumn(column, positionsA, size);
+        }
+        for (ColumnVector column : batchB.getColumns()) {
+            columns[index++] = gatherColumn(column, positionsB, size);
+        }
+        return new RowBatchStream(new RowBatch(new Header(Field.TIME, newFields), Arrays.copyOf(timestamps, size), columns, size));
+    }
+
+    private RowStream executeUnion(Union union, RowBatch batchA, RowBatch batchB) throws PhysicalException {
+        // 检查时间是否一致
+        Header headerA = batchA.getHeader();
+        Header headerB = batchB.getHeader();
+        if (headerA.hasTimestamp() ^ headerB.hasTimestamp()) {
+            throw new InvalidOperatorParameterException("row stream to be union must have same fields");
+        }
+        boolean hasTimestamp = headerA.hasTimestamp();
+        Set<Field> targetFieldSet = new HashSet<>();
+        targetFieldSet.addAll(headerA.getFields());
+        targetFieldSet.addAll(headerB.getFields());
+        List<Field> targetFields = new ArrayList<>(targetFieldSet);
+
+        int sizeA = batchA.getSize(), sizeB = batchB.getSize();
+        int size = sizeA + sizeB;
+        // fromA[i] 表示结果中的第 i 行来自哪一侧，positions[i] 为其在该侧中的下标
+        boolean[] fromA = new boolean[size];
+        int[] positions = new int[size];
+        long[] timestamps = null;
+        if (!hasTimestamp) {
+            for (int i = 0; i < sizeA; i++) {
+                fromA[i] = true;
+                positions[i] = i;
+            }
+            for (int i = 0; i < sizeB; i++) {
+                positions[sizeA + i] = i;
+            }
+        } else {
+            long[] timestampsA = batchA.getTimestamps(), timestampsB = batchB.getTimestamps();
+            timestamps = new long[size];
+            int index1 = 0, index2 = 0;
+            for (int i = 0; i < size; i++) {
+                if (index2 == sizeB || (index1 < sizeA && timestampsA[index1] <= timestampsB[index2])) {
+                    fromA[i] = true;
+                    timestamps[i] = timestampsA[index1];
+                    positions[i] = index1++;
+                } else {
+                    timestamps[i] = timestampsB[index2];
+                    positions[i] = index2++;
+                }
+            }
+        }
+
+        ColumnVector[] columns = new ColumnVector[targetFields.size()];
+        for (int i = 0; i < targetFields.size(); i++) {
+            Field field = targetFields.get(i);
+            int indexA = headerA.indexOf(field), indexB = headerB.indexOf(field);
+            ColumnVector columnA = indexA == -1 ? null : batchA.getColumn(indexA);
+            ColumnVector columnB = indexB == -1 ? null : batchB.getColumn(indexB);
+            ColumnVector column = new ColumnVector(field.getType(), size);
+            for (int j = 0; j < size; j++) {
+                ColumnVector source = fromA[j] ? columnA : columnB;
+                if (source == null) {
+                    column.appendNull();
+                } else {
+                    column.appendFrom(source, positions[j]);
+                }
+            }
+            columns[i] = column;
+        }
+        Header targetHeader = hasTimestamp ? new Header(Field.TIME, targetFields) : new Header(targetFields);
+        return new RowBatchStream(new RowBatch(targetHeader, timestamps, columns, size));
+    }
+
+    private RowStream executeMergeUnion(MergeUnion union, List<RowBatch> batches) throws PhysicalException {
+        boolean hasTimestamp = batches.get(0).getHeader().hasTimestamp();
+        Set<Field> targetFieldSet = new LinkedHashSet<>();
+        int size = 0;
+        for (RowBatch batch : batches) {
+            if (batch.getHeader().hasTimestamp() ^ hasTimestamp) {
+                throw new InvalidOperatorParameterException("row stream to be union must have same fields");
+            }
+            targetFieldSet.addAll(batch.getHeader().getFields());
+            size += batch.getSize();
+        }
+        List<Field> targetFields = new ArrayList<>(targetFieldSet);
+
+        // sources[i] 表示结果中的第 i 行来自哪一个批次，positions[i] 为其在该批次中的下标
+        int[] sources = new int[size];
+        int[] positions = new int[size];
+        long[] timestamps = null;
+        if (!hasTimestamp) {
+            int index = 0;
+            for (int i = 0; i < batches.size(); i++) {
+                for (int j = 0; j < batches.get(i).getSize(); j++) {
+                    sources[index] = i;
+                    positions[index++] = j;
+                }
+            }
+        } else {
+            timestamps = new long[size];
+            int[] indices = new int[batches.size()];
+            // 时间戳相同时先输出靠前的批次，与逐个二路合并的结果一致
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, batches.size()), (o1, o2) -> {
+                int result = Long.compare(batches.get(o1).getTimestamps()[indices[o1]], batches.get(o2).getTimestamps()[indices[o2]]);
+                return result != 0 ? result : Integer.compare(o1, o2);
+            });
+            for (int i = 0; i < batches.size(); i++) {
+                if (batches.get(i).getSize() > 0) {
+                    heap.add(i);
+                }
+            }
+            int index = 0;
+            while (!heap.isEmpty()) {
+                int batchIndex = heap.poll();
+                RowBatch batch = batches.get(batchIndex);
+                sources[index] = batchIndex;
+                positions[index] = indices[batchIndex];
+                timestamps[index++] = batch.getTimestamps()[indices[batchIndex]++];
+                if (indices[batchIndex] < batch.getSize()) {
+                    heap.add(batchIndex);
+                }
+            }
+        }
+
+        ColumnVector[] columns = new ColumnVector[targetFields.size()];
+        for (int i = 0; i < targetFields.size(); i++) {
+            Field field = targetFields.get(i);
+            ColumnVector[] sourceColumns = new ColumnVector[batches.size()];
+            for (int j = 0; j < batches.size(); j++) {
+                int index = batches.get(j).getHeader().indexOf(field);
+                sourceColumns[j] = index == -1 ? null : batches.get(j).getColumn(index);
+            }
+            ColumnVector column = new ColumnVector(field.getType(), size);
+            for (int j = 0; j < size; j++) {
+                ColumnVector source = sourceColumns[sources[j]];
+                if (source == null) {
+                    column.appendNull();
+                } else {
+                    column.appendFrom(source, positions[j]);
+                }
+            }
+            columns[i] = column;
+        }
+        Header targetHeader = hasTimestamp ? new Header(Field.TIME, targetFields) : new Header(targetFields);
+        return new RowBatchStream(new RowBatch(targetHeader, timestamps, columns, size));
+    }
+
+    private static RowBatch sortByTimestamp(RowBatch batch) {
+        long[] timestamps = batch.getTimestamps();
+        boolean sorted = true;
+        for (int i = 1; i < batch.getSize(); i++) {
+            if (timestamps[i - 1] > timestamps[i]) {
+                sorted = false;
+                break;
+            }
+        }
+        if (sorted) {
+            return batch;
+        }
+        Integer[] order = new Integer[batch.getSize()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> timestamps[i]));
+        int[] positions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            positions[i] = order[i];
+        }
+        return batch.select(positions, positions.length);
+    }
+
+    private static ColumnVector padColumn(ColumnVector column, int size) {
+        if (column.getSize() == size) {
+            return column;
+        }
+        ColumnVector result = column.slice(0, column.getSize());
+        for (int i = column.getSize(); i < size; i++) {
+            result.appendNull();
+        }
+        return result;
+    }
+
+    private static ColumnVector gatherColumn(ColumnVector column, int[] positions, int size) {
+        ColumnVector result = new ColumnVector(column.getType(), size);
+        for (int i = 0; i < size; i++) {
+            if (positions[i] == -1) {
+                result.appendNull();
+            } else {
+                result.appendFrom(column, positions[i]);
+            }
+        }
+        return result;
+    }
+
+    private static class BatchOperatorMemoryExecutorHolder {
+
+        private static final BatchOperatorMemoryExecutor INSTANCE = new BatchOperatorMemoryExecutor();
+
+        private BatchOperatorMemoryExecutorHolder() {
+        }
+
+    }
+
+}
@@ -25,6 +25,7 @@ import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorExcepti
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutor;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.FilterUtils;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowSortUtils;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.Constants;
 import cn.edu.tsinghua.iginx.engine.shared.data.Value;
@@ -32,15 +33,16 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingFunction;
 import cn.edu.tsinghua.iginx.engine.shared.function.RowMappingFunction;
 import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
 import cn.edu.tsinghua.iginx.engine.shared.operator.*;
-import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import cn.edu.tsinghua.iginx.utils.StringUtils;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
@@ -62,7 +64,7 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
             case Sort:
                 return executeSort((Sort) operator, transformToTable(stream));
             case Limit:
-                return executeLimit((Limit) operator, transformToTable(stream));
+                return executeLimit((Limit) operator, stream);
             case Downsample:
                 return executeDownsample((Downsample) operator, transformToTable(stream));
             case RowTransform:
@@ -90,6 +92,18 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
         }
     }
 
+    @Override
+    public RowStream executeMultipleOperator(MultipleOperator operator, List<RowStream> streams) throws PhysicalException {
+        if (operator.getType() == OperatorType.MergeUnion) {
+            List<Table> tables = new ArrayList<>();
+            for (RowStream stream : streams) {
+                tables.add(transformToTable(stream));
+            }
+            return executeMergeUnion((MergeUnion) operator, tables);
+        }
+        throw new UnexpectedOperatorException("unknown multiple operator: " + operator.getType());
+    }
+
     private Table transformToTable(RowStream stream) throws PhysicalException {
         if (stream instanceof Table) {
             return (Table) stream;
@@ -139,11 +153,11 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
     }
 
     private RowStream executeSelect(Select select, Table table) throws PhysicalException {
-        Filter filter = select.getFilter();
+        Predicate<Row> predicate = FilterUtils.compile(select.getFilter(), table.getHeader());
         List<Row> targetRows = new ArrayList<>();
         while (table.hasNext()) {
             Row row = table.next();
-            if (FilterUtils.validate(filter, row)) {
+            if (predicate.test(row)) {
                 targetRows.add(row);
             }
         }
@@ -151,31 +165,41 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
     }
 
     private RowStream executeSort(Sort sort, Table table) throws PhysicalException {
-        if (!sort.getSortBy().equals(Constants.TIMESTAMP)) {
-            throw new InvalidOperatorParameterException("sort operator is not support for field " + sort.getSortBy() + " except for " + Constants.TIMESTAMP);
-        }
-        if (sort.getSortType() == Sort.SortType.ASC) {
+        if (sort.isSortByTimeAsc()) {
             // 在默认的实现中，每张表都是根据时间已经升序排好的，因此依据时间升序排列的话，已经不需要做任何额外的操作了
             return table;
         }
-        // 降序排列的话，只需要将各行反过来就行
-        Header header = table.getHeader();
-        List<Row> rows = new ArrayList<>();
-        for (int i = table.getRowSize() - 1; i >= 0; i--) {
-            rows.add(table.getRow(i));
+        Comparator<Row> comparator = RowSortUtils.buildComparator(sort, table.getHeader());
+        List<Row> rows;
+        if (sort.hasLimit()) {
+            // 只需要前若干行时，用有界堆代替全量排序
+            rows = RowSortUtils.topK(table.getRows().iterator(), comparator, sort.getLimit());
+        } else {
+            rows = new ArrayList<>(table.getRows());
+            rows.sort(comparator);
         }
-        return new Table(header, rows);
+        return new Table(table.getHeader(), rows);
     }
 
-    private RowStream executeLimit(Limit limit, Table table) throws PhysicalException {
-        int rowSize = table.getRowSize();
-        Header header = table.getHeader();
+    private RowStream executeLimit(Limit limit, RowStream stream) throws PhysicalException {
+        Header header = stream.getHeader();
+        if (limit.isTail()) {
+            List<Row> rows = RowUtils.tail(stream, limit.getLimit());
+            stream.close();
+            return new Table(header, rows);
+        }
+        // 只读取需要的行，读够之后关闭上游，不再继续拉取
         List<Row> rows = new ArrayList<>();
-        if (rowSize > limit.getOffset()) { // 没有把所有的行都跳过
-            for (int i = limit.getOffset(); i < rowSize && i - limit.getOffset() < limit.getLimit(); i++) {
-                rows.add(table.getRow(i));
+        long index = 0;
+        long end = (long) limit.getOffset() + limit.getLimit();
+        while (index < end && stream.hasNext()) {
+            Row row = stream.next();
+            if (index >= limit.getOffset()) {
+                rows.add(row);
             }
+            index++;
         }
+        stream.close();
         return new Table(header, rows);
     }
 
@@ -188,32 +212,45 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
         long bias = downsample.getTimeRange().getBeginTime();
         long precision = downsample.getPrecision();
         TreeMap<Long, List<Row>> groups = new TreeMap<>();
-        SetMappingFunction function = (SetMappingFunction) downsample.getFunctionCall().getFunction();
-        Map<String, Value> params = downsample.getFunctionCall().getParams();
         for (Row row : rows) {
             long timestamp = row.getTimestamp() - (row.getTimestamp() - bias) % precision;
             groups.compute(timestamp, (k, v) -> v == null ? new ArrayList<>() : v).add(row);
         }
-        List<Pair<Long, Row>> transformedRawRows = new ArrayList<>();
-        try {
-            for (Map.Entry<Long, List<Row>> entry : groups.entrySet()) {
-                long time = entry.getKey();
-                List<Row> group = entry.getValue();
-                Row row = function.transform(new Table(header, group), params);
-                if (row != null) {
-                    transformedRawRows.add(new Pair<>(time, row));
+        // 所有函数共享同一次分组的结果，每个窗口内依次计算各个函数
+        List<FunctionCall> functionCallList = downsample.getFunctionCallList();
+        Header[] functionHeaders = new Header[functionCallList.size()];
+        List<Pair<Long, Row[]>> transformedRawRows = new ArrayList<>();
+        for (Map.Entry<Long, List<Row>> entry : groups.entrySet()) {
+            long time = entry.getKey();
+            List<Row> group = entry.getValue();
+            Row[] groupRows = new Row[functionCallList.size()];
+            boolean hasResult = false;
+            for (int i = 0; i < functionCallList.size(); i++) {
+                SetMappingFunction function = (SetMappingFunction) functionCallList.get(i).getFunction();
+                Map<String, Value> params = functionCallList.get(i).getParams();
+                try {
+                    groupRows[i] = function.transform(new Table(header, group), params);
+                } catch (Exception e) {
+                    throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+                }
+                if (groupRows[i] != null) {
+                    hasResult = true;
+                    if (functionHeaders[i] == null) {
+                        functionHeaders[i] = groupRows[i].getHeader();
+                    }
                 }
             }
-        } catch (Exception e) {
-            throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+            if (hasResult) {
+                transformedRawRows.add(new Pair<>(time, groupRows));
+            }
         }
         if (transformedRawRows.size() == 0) {
             return Table.EMPTY_TABLE;
         }
-        Header newHeader = new Header(Field.TIME, transformedRawRows.get(0).v.getHeader().getFields());
+        Header newHeader = RowUtils.combineHeaders(functionHeaders, true);
         List<Row> transformedRows = new ArrayList<>();
-        for (Pair<Long, Row> pair : transformedRawRows) {
-            transformedRows.add(new Row(newHeader, pair.k, pair.v.getValues()));
+        for (Pair<Long, Row[]> pair : transformedRawRows) {
+            transformedRows.add(RowUtils.combineRows(newHeader, pair.k, pair.v, functionHeaders));
         }
         return new Table(newHeader, transformedRows);
     }
@@ -240,19 +277,32 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
     }
 
     private RowStream executeSetTransform(SetTransform setTransform, Table table) throws PhysicalException {
-        SetMappingFunction function = (SetMappingFunction) setTransform.getFunctionCall().getFunction();
-        Map<String, Value> params = setTransform.getFunctionCall().getParams();
-        try {
-            Row row = function.transform(table, params);
-            if (row == null) {
-                return Table.EMPTY_TABLE;
+        // 所有函数共享同一份输入数据，结果拼接为一行
+        List<FunctionCall> functionCallList = setTransform.getFunctionCallList();
+        Row[] rows = new Row[functionCallList.size()];
+        Header[] headers = new Header[functionCallList.size()];
+        boolean hasResult = false;
+        for (int i = 0; i < functionCallList.size(); i++) {
+            SetMappingFunction function = (SetMappingFunction) functionCallList.get(i).getFunction();
+            Map<String, Value> params = functionCallList.get(i).getParams();
+            try {
+                rows[i] = function.transform(new Table(table.getHeader(), table.getRows()), params);
+            } catch (Exception e) {
+                throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+            }
+            if (rows[i] != null) {
+                hasResult = true;
+                headers[i] = rows[i].getHeader();
             }
-            Header header = row.getHeader();
-            return new Table(header, Collections.singletonList(row));
-        } catch (Exception e) {
-            throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
         }
-
+        if (!hasResult) {
+            return Table.EMPTY_TABLE;
+        }
+        if (rows.length == 1) {
+            return new Table(rows[0].getHeader(), Collections.singletonList(rows[0]));
+        }
+        Header header = RowUtils.combineHeaders(headers, false);
+        return new Table(header, Collections.singletonList(RowUtils.combineRows(header, Row.NON_EXISTED_TIMESTAMP, rows, headers)));
     }
 
     private RowStream executeMappingTransform(MappingTransform mappingTransform, Table table) throws PhysicalException {
@@ -450,6 +500,50 @@ public class NaiveOperatorMemoryExecutor implements OperatorMemoryExecutor {
         return new Table(targetHeader, rows);
     }
 
+    private RowStream executeMergeUnion(MergeUnion union, List<Table> tables) throws PhysicalException {
+        boolean hasTimestamp = tables.get(0).getHeader().hasTimestamp();
+        Set<Field> targetFieldSet = new LinkedHashSet<>();
+        for (Table table : tables) {
+            if (table.getHeader().hasTimestamp() ^ hasTimestamp) {
+                throw new InvalidOperatorParameterException("row stream to be union must have same fields");
+            }
+            targetFieldSet.addAll(table.getHeader().getFields());
+        }
+        List<Field> targetFields = new ArrayList<>(targetFieldSet);
+        Header targetHeader;
+        List<Row> rows = new ArrayList<>();
+        if (!hasTimestamp) {
+            targetHeader = new Header(targetFields);
+            for (Table table : tables) {
+                for (Row row : table.getRows()) {
+                    rows.add(RowUtils.transform(row, targetHeader));
+                }
+            }
+        } else {
+            targetHeader = new Header(Field.TIME, targetFields);
+            // 堆中保存各个表当前的下标，时间戳相同时先输出靠前的表
+            int[] indices = new int[tables.size()];
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, tables.size()), (o1, o2) -> {
+                int result = Long.compare(tables.get(o1).getRow(indices[o1]).getTimestamp(), tables.get(o2).getRow(indices[o2]).getTimestamp());
+                return result != 0 ? result : Integer.compare(o1, o2);
+            });
+            for (int i = 0; i < tables.size(); i++) {
+                if (tables.get(i).getRowSize() > 0) {
+                    heap.add(i);
+                }
+            }
+            while (!heap.isEmpty()) {
+                int tableIndex = heap.poll();
+                Table table = tables.get(tableIndex);
+                rows.add(RowUtils.transform(table.getRow(indices[tableIndex]++), targetHeader));
+                if (indices[tableIndex] < table.getRowSize()) {
+                    heap.add(tableIndex);
+                }
+            }
+        }
+        return new Table(targetHeader, rows);
+    }
+
     private static class NaiveOperatorMemoryExecutorHolder {
 
         private static final NaiveOperatorMemoryExecutor INSTANCE = new NaiveOperatorMemoryExecutor();
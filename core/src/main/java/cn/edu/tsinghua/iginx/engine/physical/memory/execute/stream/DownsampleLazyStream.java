@@ -19,20 +19,15 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
-import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
-import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
-import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStreamWrapper;
-import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class DownsampleLazyStream extends UnaryLazyStream {
 
@@ -40,28 +35,37 @@ public class DownsampleLazyStream extends UnaryLazyStream {
 
     private final Downsample downsample;
 
-    private final SetMappingFunction function;
+    private final List<FunctionCall> functionCallList;
 
-    private final Map<String, Value> params;
+    private SetMappingEvaluator evaluator;
 
-    private Row nextTarget;
+    // 所有函数都能逐行计算时，由各个函数结果的表头预先确定输出的表头，每个窗口复用同一个表头
+    private Header[] functionHeaders;
 
-    private boolean hasInitialized = false;
+    private Header targetHeader;
 
     private Header header;
 
+    private Row nextTarget;
+
+    private boolean hasInitialized = false;
+
     public DownsampleLazyStream(Downsample downsample, RowStream stream) {
         super(stream);
         this.wrapper = new RowStreamWrapper(stream);
         this.downsample = downsample;
-        this.function = (SetMappingFunction) downsample.getFunctionCall().getFunction();
-        this.params = downsample.getFunctionCall().getParams();
+        this.functionCallList = downsample.getFunctionCallList();
     }
 
     private void initialize() throws PhysicalException {
         if (hasInitialized) {
             return;
         }
+        evaluator = new SetMappingEvaluator(functionCallList, stream.getHeader());
+        if (evaluator.isHeaderKnown()) {
+            functionHeaders = evaluator.getFunctionHeaders();
+            targetHeader = RowUtils.combineHeaders(functionHeaders, true);
+        }
         nextTarget = loadNext();
         if (nextTarget != null) {
             header = nextTarget.getHeader();
@@ -84,24 +88,41 @@ public class DownsampleLazyStream extends UnaryLazyStream {
         if (nextTarget != null) {
             return nextTarget;
         }
-        Row row = null;
+        Row[] rows = null;
         long timestamp = 0;
         long bias = downsample.getTimeRange().getBeginTime();
         long precision = downsample.getPrecision();
-        while(row == null && wrapper.hasNext()) {
+        while (rows == null && wrapper.hasNext()) {
             timestamp = wrapper.nextTimestamp() - (wrapper.nextTimestamp() - bias) % precision;
-            List<Row> rows = new ArrayList<>();
-            while(wrapper.hasNext() && wrapper.nextTimestamp() < timestamp + precision) {
-                rows.add(wrapper.next());
+            // 所有函数在同一遍扫描中消费窗口内的数据
+            WindowStream window = new WindowStream(timestamp + precision);
+            rows = evaluator.evaluate(window);
+            while (window.hasNext()) { // 函数可能没有读完窗口内的数据
+                window.next();
             }
-            Table table = new Table(rows.get(0).getHeader(), rows);
-            try {
-                row = function.transform(table, params);
-            } catch (Exception e) {
-                throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+            boolean hasResult = false;
+            for (Row row : rows) {
+                if (row != null) {
+                    hasResult = true;
+                    break;
+                }
             }
+            if (!hasResult) {
+                rows = null;
+            }
+        }
+        if (rows == null) {
+            return null;
+        }
+        if (functionHeaders != null) {
+            return RowUtils.combineRows(targetHeader, timestamp, rows, functionHeaders);
         }
-        return row == null ? null : new Row(new Header(Field.TIME, row.getHeader().getFields()), timestamp, row.getValues());
+        // 存在只能拉取整组数据的函数（如 UDAF），结果的表头只能由当前窗口的结果确定
+        Header[] headers = new Header[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            headers[i] = rows[i] == null ? null : rows[i].getHeader();
+        }
+        return RowUtils.combineRows(RowUtils.combineHeaders(headers, true), timestamp, rows, headers);
     }
 
     @Override
@@ -124,4 +145,35 @@ public class DownsampleLazyStream extends UnaryLazyStream {
         nextTarget = null;
         return row;
     }
+
+    private class WindowStream implements RowStream {
+
+        private final long endTime;
+
+        WindowStream(long endTime) {
+            this.endTime = endTime;
+        }
+
+        @Override
+        public Header getHeader() throws PhysicalException {
+            return wrapper.getHeader();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean hasNext() throws PhysicalException {
+            return wrapper.hasNext() && wrapper.nextTimestamp() < endTime;
+        }
+
+        @Override
+        public Row next() throws PhysicalException {
+            if (!hasNext()) {
+                throw new IllegalStateException("row stream doesn't have more data!");
+            }
+            return wrapper.next();
+        }
+    }
 }
@@ -19,17 +19,25 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Limit;
 
+import java.util.Iterator;
+
 public class LimitLazyStream extends UnaryLazyStream {
 
     private final Limit limit;
 
     private int index = 0;
 
+    private boolean closed = false;
+
+    // 截取末尾若干行时，第一次读取前需要读完上游
+    private Iterator<Row> tailRows = null;
+
     public LimitLazyStream(Limit limit, RowStream stream) {
         super(stream);
         this.limit = limit;
@@ -42,11 +50,25 @@ public class LimitLazyStream extends UnaryLazyStream {
 
     @Override
     public boolean hasNext() throws PhysicalException {
+        if (closed) {
+            return false;
+        }
+        if (limit.isTail()) {
+            if (tailRows == null) {
+                tailRows = RowUtils.tail(stream, limit.getLimit()).iterator();
+            }
+            return tailRows.hasNext();
+        }
         while(index < limit.getOffset() && stream.hasNext()) {
             stream.next();
             index++;
         }
-        return index - limit.getOffset() < limit.getLimit() && stream.hasNext();
+        if (index - limit.getOffset() >= limit.getLimit()) {
+            // 已经取够所需的行，提前关闭上游，不再继续读取
+            close();
+            return false;
+        }
+        return stream.hasNext();
     }
 
     @Override
@@ -55,6 +77,14 @@ public class LimitLazyStream extends UnaryLazyStream {
             throw new IllegalStateException("row stream doesn't have more data!");
         }
         index++;
-        return stream.next();
+        return limit.isTail() ? tailRows.next() : stream.next();
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+        if (!closed) {
+            closed = true;
+            super.close();
+        }
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.InvalidOperatorParameterException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.MergeUnion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 多路 Union：用小顶堆按时间戳一次归并全部输入，时间戳相同时先输出靠前的输入，与逐个二路 Union 的结果一致
+ */
+public class MergeUnionLazyStream implements RowStream {
+
+    private final MergeUnion union;
+
+    private final List<RowStream> streams;
+
+    private boolean hasInitialized = false;
+
+    private Header header;
+
+    private PriorityQueue<MergeEntry> heap;
+
+    private int streamIndex = 0;
+
+    public MergeUnionLazyStream(MergeUnion union, List<RowStream> streams) {
+        this.union = union;
+        this.streams = streams;
+    }
+
+    private void initialize() throws PhysicalException {
+        if (hasInitialized) {
+            return;
+        }
+        boolean hasTimestamp = streams.get(0).getHeader().hasTimestamp();
+        Set<Field> targetFieldSet = new LinkedHashSet<>();
+        for (RowStream stream : streams) {
+            Header streamHeader = stream.getHeader();
+            if (streamHeader.hasTimestamp() ^ hasTimestamp) {
+                throw new InvalidOperatorParameterException("row stream to be union must have same fields");
+            }
+            targetFieldSet.addAll(streamHeader.getFields());
+        }
+        List<Field> targetFields = new ArrayList<>(targetFieldSet);
+        if (hasTimestamp) {
+            header = new Header(Field.TIME, targetFields);
+            heap = new PriorityQueue<>(streams.size(), (o1, o2) -> {
+                int result = Long.compare(o1.row.getTimestamp(), o2.row.getTimestamp());
+                return result != 0 ? result : Integer.compare(o1.streamIndex, o2.streamIndex);
+            });
+            for (int i = 0; i < streams.size(); i++) {
+                advance(i);
+            }
+        } else {
+            header = new Header(targetFields);
+        }
+        hasInitialized = true;
+    }
+
+    private void advance(int index) throws PhysicalException {
+        RowStream stream = streams.get(index);
+        if (stream.hasNext()) {
+            heap.add(new MergeEntry(stream.next(), index));
+        }
+    }
+
+    @Override
+    public Header getHeader() throws PhysicalException {
+        if (!hasInitialized) {
+            initialize();
+        }
+        return header;
+    }
+
+    @Override
+    public boolean hasNext() throws PhysicalException {
+        if (!hasInitialized) {
+            initialize();
+        }
+        if (header.hasTimestamp()) {
+            return !heap.isEmpty();
+        }
+        // 不包含时间戳，只需要顺次访问各个 stream 即可
+        while (streamIndex < streams.size()) {
+            if (streams.get(streamIndex).hasNext()) {
+                return true;
+            }
+            streamIndex++;
+        }
+        return false;
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+        if (!hasNext()) {
+            throw new IllegalStateException("row stream doesn't have more data!");
+        }
+        if (!header.hasTimestamp()) {
+            return RowUtils.transform(streams.get(streamIndex).next(), header);
+        }
+        MergeEntry entry = heap.poll();
+        advance(entry.streamIndex);
+        return RowUtils.transform(entry.row, header);
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+        PhysicalException pe = null;
+        for (RowStream stream : streams) {
+            try {
+                stream.close();
+            } catch (PhysicalException e) {
+                pe = e;
+            }
+        }
+        if (pe != null) {
+            throw pe;
+        }
+    }
+
+    private static final class MergeEntry {
+
+        private final Row row;
+
+        private final int streamIndex;
+
+        MergeEntry(Row row, int streamIndex) {
+            this.row = row;
+            this.streamIndex = streamIndex;
+        }
+    }
+}
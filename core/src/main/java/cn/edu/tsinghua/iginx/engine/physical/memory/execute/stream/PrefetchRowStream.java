@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 在后台线程中预先读取上游的数据，最多缓存 capacity 行。
+ * 预读任务在缓存写满后即退出，不会阻塞线程池，待缓存被消费到一半以下时再重新提交
+ */
+public class PrefetchRowStream implements RowStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchRowStream.class);
+
+    private final RowStream stream;
+
+    private final Header header;
+
+    private final int capacity;
+
+    private final ExecutorService executor;
+
+    private final Deque<Row> buffer = new ArrayDeque<>();
+
+    private boolean fetching = false;
+
+    private boolean exhausted = false;
+
+    private boolean closed = false;
+
+    private PhysicalException exception;
+
+    public PrefetchRowStream(RowStream stream, int capacity, ExecutorService executor) throws PhysicalException {
+        this.stream = stream;
+        this.header = stream.getHeader();
+        this.capacity = Math.max(capacity, 1);
+        this.executor = executor;
+        synchronized (buffer) {
+            startFetch();
+        }
+    }
+
+    /**
+     * 调用时需持有 buffer 上的锁
+     */
+    private void startFetch() {
+        if (fetching || exhausted || closed || exception != null) {
+            return;
+        }
+        fetching = true;
+        try {
+            executor.submit(this::fetch);
+        } catch (RejectedExecutionException e) {
+            // 线程池不可用时退化为由消费者线程读取
+            fetching = false;
+        }
+    }
+
+    private void fetch() {
+        while (true) {
+            synchronized (buffer) {
+                if (closed || buffer.size() >= capacity) {
+                    fetching = false;
+                    buffer.notifyAll();
+                    return;
+                }
+            }
+            Row row = null;
+            PhysicalException failure = null;
+            try {
+                if (stream.hasNext()) {
+                    row = stream.next();
+                }
+            } catch (PhysicalException e) {
+                failure = e;
+            } catch (Exception e) {
+                logger.error("prefetch rows failure: ", e);
+                failure = new PhysicalTaskExecuteFailureException("prefetch rows failure", e);
+            }
+            synchronized (buffer) {
+                if (failure != null) {
+                    exception = failure;
+                } else if (row == null) {
+                    exhausted = true;
+                } else {
+                    buffer.addLast(row);
+                }
+                if (row == null) {
+                    fetching = false;
+                    buffer.notifyAll();
+                    return;
+                }
+                buffer.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public Header getHeader() {
+        return header;
+    }
+
+    @Override
+    public boolean hasNext() throws PhysicalException {
+        synchronized (buffer) {
+            while (buffer.isEmpty() && !exhausted && exception == null) {
+                startFetch();
+                if (!fetching) {
+                    // 预读任务未能提交，直接在当前线程读取
+                    if (!stream.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    buffer.addLast(stream.next());
+                    break;
+                }
+                try {
+                    buffer.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PhysicalTaskExecuteFailureException("interrupted when waiting prefetched rows");
+                }
+            }
+            if (buffer.isEmpty() && exception != null) {
+                throw exception;
+            }
+            return !buffer.isEmpty();
+        }
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+        if (!hasNext()) {
+            throw new IllegalStateException("row stream doesn't have more data!");
+        }
+        synchronized (buffer) {
+            Row row = buffer.pollFirst();
+            if (buffer.size() <= capacity / 2) {
+                startFetch();
+            }
+            return row;
+        }
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.clear();
+            // 等待正在进行的预读结束，避免与关闭操作并发访问上游
+            while (fetching) {
+                try {
+                    buffer.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        stream.close();
+    }
+}
@@ -25,7 +25,8 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
-import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+
+import java.util.function.Predicate;
 
 public class SelectLazyStream extends UnaryLazyStream {
 
@@ -33,6 +34,10 @@ public class SelectLazyStream extends UnaryLazyStream {
 
     private Row nextRow = null;
 
+    private Header compiledHeader = null;
+
+    private Predicate<Row> predicate = null;
+
     public SelectLazyStream(Select select, RowStream stream) {
         super(stream);
         this.select = select;
@@ -52,10 +57,13 @@ public class SelectLazyStream extends UnaryLazyStream {
     }
 
     private Row calculateNext() throws PhysicalException {
-        Filter filter = select.getFilter();
         while(stream.hasNext()) {
             Row row = stream.next();
-            if (FilterUtils.validate(filter, row)) {
+            if (row.getHeader() != compiledHeader) { // 过滤条件按表头编译，表头变化时重新编译
+                compiledHeader = row.getHeader();
+                predicate = FilterUtils.compile(select.getFilter(), compiledHeader);
+            }
+            if (predicate.test(row)) {
                 return row;
             }
         }
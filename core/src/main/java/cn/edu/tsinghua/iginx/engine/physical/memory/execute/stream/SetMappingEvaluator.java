@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对同一组数据计算多个集合函数，每组数据只扫描一遍：能够逐行计算的函数直接累加每一行，
+ * 其余函数（如 UDAF）需要拉取整组数据，只有这种情况下才会缓存该组数据
+ */
+class SetMappingEvaluator {
+
+    private final List<FunctionCall> functionCallList;
+
+    private final Header inputHeader;
+
+    // 逐行计算的函数的结果表头在读取数据之前即可确定，其余函数对应的位置为 null
+    private final Header[] functionHeaders;
+
+    private final boolean hasPullFunction;
+
+    // 构造时为了确定表头而创建的累加器，留给第一组数据使用
+    private Accumulator[] pendingAccumulators;
+
+    SetMappingEvaluator(List<FunctionCall> functionCallList, Header inputHeader) throws PhysicalException {
+        this.functionCallList = functionCallList;
+        this.inputHeader = inputHeader;
+        this.functionHeaders = new Header[functionCallList.size()];
+        this.pendingAccumulators = createAccumulators();
+        boolean hasPullFunction = false;
+        for (int i = 0; i < pendingAccumulators.length; i++) {
+            if (pendingAccumulators[i] == null) {
+                hasPullFunction = true;
+            } else {
+                functionHeaders[i] = pendingAccumulators[i].getHeader();
+            }
+        }
+        this.hasPullFunction = hasPullFunction;
+    }
+
+    /**
+     * 所有函数都能逐行计算时，各个函数结果的表头在读取数据之前即可确定
+     */
+    boolean isHeaderKnown() {
+        return !hasPullFunction;
+    }
+
+    Header[] getFunctionHeaders() {
+        return functionHeaders;
+    }
+
+    /**
+     * 扫描一遍 rows 并计算所有函数，函数没有结果时对应的位置为 null
+     */
+    Row[] evaluate(RowStream rows) throws PhysicalException {
+        Accumulator[] accumulators = pendingAccumulators == null ? createAccumulators() : pendingAccumulators;
+        pendingAccumulators = null;
+        Row[] results = new Row[accumulators.length];
+        if (accumulators.length == 1 && accumulators[0] == null) { // 只有一个函数时直接拉取数据，不需要缓存
+            results[0] = transform(0, rows);
+            return results;
+        }
+        List<Row> group = hasPullFunction ? new ArrayList<>() : null;
+        while (rows.hasNext()) {
+            Row row = rows.next();
+            for (int i = 0; i < accumulators.length; i++) {
+                if (accumulators[i] != null) {
+                    accumulate(i, accumulators[i], row);
+                }
+            }
+            if (group != null) {
+                group.add(row);
+            }
+        }
+        for (int i = 0; i < accumulators.length; i++) {
+            results[i] = accumulators[i] == null ? transform(i, new Table(inputHeader, group)) : finish(i, accumulators[i]);
+        }
+        return results;
+    }
+
+    private Accumulator[] createAccumulators() throws PhysicalException {
+        Accumulator[] accumulators = new Accumulator[functionCallList.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            SetMappingFunction function = getFunction(i);
+            try {
+                accumulators[i] = function.createAccumulator(inputHeader, functionCallList.get(i).getParams());
+            } catch (Exception e) {
+                throw failure(function, e);
+            }
+        }
+        return accumulators;
+    }
+
+    private void accumulate(int index, Accumulator accumulator, Row row) throws PhysicalException {
+        try {
+            accumulator.accumulate(row);
+        } catch (Exception e) {
+            throw failure(getFunction(index), e);
+        }
+    }
+
+    private Row finish(int index, Accumulator accumulator) throws PhysicalException {
+        try {
+            return accumulator.finish();
+        } catch (Exception e) {
+            throw failure(getFunction(index), e);
+        }
+    }
+
+    private Row transform(int index, RowStream rows) throws PhysicalException {
+        SetMappingFunction function = getFunction(index);
+        try {
+            return function.transform(rows, functionCallList.get(index).getParams());
+        } catch (Exception e) {
+            throw failure(function, e);
+        }
+    }
+
+    private SetMappingFunction getFunction(int index) {
+        return (SetMappingFunction) functionCallList.get(index).getFunction();
+    }
+
+    private static PhysicalException failure(SetMappingFunction function, Exception e) {
+        return new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+    }
+}
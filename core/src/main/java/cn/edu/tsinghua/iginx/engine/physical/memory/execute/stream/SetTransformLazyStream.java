@@ -19,23 +19,20 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
-import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
-import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
-import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.operator.SetTransform;
 
-import java.util.Map;
+import java.util.List;
 
 public class SetTransformLazyStream extends UnaryLazyStream {
 
     private final SetTransform setTransform;
 
-    private final SetMappingFunction function;
-
-    private final Map<String, Value> params;
+    private final List<FunctionCall> functionCallList;
 
     private Row nextRow;
 
@@ -44,8 +41,7 @@ public class SetTransformLazyStream extends UnaryLazyStream {
     public SetTransformLazyStream(SetTransform setTransform, RowStream stream) {
         super(stream);
         this.setTransform = setTransform;
-        this.function = (SetMappingFunction) setTransform.getFunctionCall().getFunction();
-        this.params = setTransform.getFunctionCall().getParams();
+        this.functionCallList = setTransform.getFunctionCallList();
     }
 
     @Override
@@ -67,11 +63,26 @@ public class SetTransformLazyStream extends UnaryLazyStream {
     }
 
     private Row calculate() throws PhysicalException {
-        try {
-            return function.transform(stream, params);
-        } catch (Exception e) {
-            throw new PhysicalTaskExecuteFailureException("encounter error when execute set mapping function " + function.getIdentifier() + ".", e);
+        // 所有函数在同一遍扫描中计算，不物化输入数据
+        SetMappingEvaluator evaluator = new SetMappingEvaluator(functionCallList, stream.getHeader());
+        Row[] results = evaluator.evaluate(stream);
+        if (results.length == 1) {
+            return results[0];
+        }
+        Header[] headers = new Header[results.length];
+        boolean hasResult = false;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                hasResult = true;
+                headers[i] = results[i].getHeader();
+            } else {
+                headers[i] = evaluator.getFunctionHeaders()[i];
+            }
+        }
+        if (!hasResult) {
+            return null;
         }
+        return RowUtils.combineRows(RowUtils.combineHeaders(headers, false), Row.NON_EXISTED_TIMESTAMP, results, headers);
     }
 
     @Override
@@ -19,29 +19,38 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.ExternalRowSorter;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowSortUtils;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Sort;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Comparator;
+import java.util.Iterator;
 
 public class SortLazyStream extends UnaryLazyStream {
 
     private final Sort sort;
 
-    private boolean asc;
+    private final Comparator<Row> comparator;
 
-    private Deque<Row> stack;
+    private final long memoryBudget;
 
-    public SortLazyStream(Sort sort, RowStream stream) {
+    private final String spillDir;
+
+    private ExternalRowSorter sorter;
+
+    private Iterator<Row> topRows;
+
+    private RowStream sortedStream;
+
+    public SortLazyStream(Sort sort, Comparator<Row> comparator, long memoryBudget, String spillDir, RowStream stream) {
         super(stream);
         this.sort = sort;
-        this.asc = sort.getSortType() == Sort.SortType.ASC;
-        if (!asc) {
-            stack = new ArrayDeque<>();
-        }
+        this.comparator = comparator;
+        this.memoryBudget = memoryBudget;
+        this.spillDir = spillDir;
     }
 
     @Override
@@ -49,12 +58,30 @@ public class SortLazyStream extends UnaryLazyStream {
         return stream.getHeader();
     }
 
+    private void sortAll() throws PhysicalException {
+        if (topRows != null || sortedStream != null) {
+            return;
+        }
+        if (sort.hasLimit()) {
+            // 只需要前若干行时，用有界堆代替全量排序
+            RowSortUtils.TopK<Row> topK = new RowSortUtils.TopK<>(comparator, sort.getLimit());
+            while (stream.hasNext()) {
+                topK.add(stream.next());
+            }
+            topRows = topK.getResult().iterator();
+            return;
+        }
+        sorter = new ExternalRowSorter(stream.getHeader(), comparator, memoryBudget, spillDir);
+        while (stream.hasNext()) {
+            sorter.add(stream.next());
+        }
+        sortedStream = sorter.sort();
+    }
+
     @Override
     public boolean hasNext() throws PhysicalException {
-        if (asc) {
-            return stream.hasNext();
-        }
-        return !stack.isEmpty() || stream.hasNext();
+        sortAll();
+        return topRows != null ? topRows.hasNext() : sortedStream.hasNext();
     }
 
     @Override
@@ -62,12 +89,14 @@ public class SortLazyStream extends UnaryLazyStream {
         if (!hasNext()) {
             throw new IllegalStateException("row stream doesn't have more data!");
         }
-        if (asc) {
-            return stream.next();
-        }
-        while(stream.hasNext()) {
-            stack.push(stream.next());
+        return topRows != null ? topRows.next() : sortedStream.next();
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+        if (sorter != null) {
+            sorter.close();
         }
-        return stack.pop();
+        super.close();
     }
 }
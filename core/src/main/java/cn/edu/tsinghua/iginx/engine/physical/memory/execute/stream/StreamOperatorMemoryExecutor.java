@@ -18,14 +18,21 @@
  */
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
 
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.InvalidOperatorParameterException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorException;
 import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutor;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowSortUtils;
 import cn.edu.tsinghua.iginx.engine.shared.Constants;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.*;
 
+import java.util.Comparator;
+import java.util.List;
+
 public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
 
     private StreamOperatorMemoryExecutor() {
@@ -74,6 +81,14 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
         }
     }
 
+    @Override
+    public RowStream executeMultipleOperator(MultipleOperator operator, List<RowStream> streams) throws PhysicalException {
+        if (operator.getType() == OperatorType.MergeUnion) {
+            return executeMergeUnion((MergeUnion) operator, streams);
+        }
+        throw new UnexpectedOperatorException("unknown multiple operator: " + operator.getType());
+    }
+
     private RowStream executeProject(Project project, RowStream stream) {
         return new ProjectLazyStream(project, stream);
     }
@@ -83,10 +98,14 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
     }
 
     private RowStream executeSort(Sort sort, RowStream stream) throws PhysicalException {
-        if (!sort.getSortBy().equals(Constants.TIMESTAMP)) {
-            throw new InvalidOperatorParameterException("sort operator is not support for field " + sort.getSortBy() + " except for " + Constants.TIMESTAMP);
+        if (sort.isSortByTimeAsc()) {
+            // 下层数据已经按照时间升序排好
+            return stream;
         }
-        return new SortLazyStream(sort, stream);
+        // 提前构造比较器，使排序键不存在等错误在执行时立即暴露
+        Comparator<Row> comparator = RowSortUtils.buildComparator(sort, stream.getHeader());
+        Config config = ConfigDescriptor.getInstance().getConfig();
+        return new SortLazyStream(sort, comparator, config.getMaxSortMemorySize(), config.getSortSpillDir(), stream);
     }
 
     private RowStream executeLimit(Limit limit, RowStream stream) {
@@ -127,6 +146,10 @@ public class StreamOperatorMemoryExecutor implements OperatorMemoryExecutor {
         return new UnionLazyStream(union, streamA, streamB);
     }
 
+    private RowStream executeMergeUnion(MergeUnion union, List<RowStream> streams) {
+        return new MergeUnionLazyStream(union, streams);
+    }
+
     private static class StreamOperatorMemoryExecutorHolder {
 
         private static final StreamOperatorMemoryExecutor INSTANCE = new StreamOperatorMemoryExecutor();
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowBatch;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.*;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * 在列式的 RowBatch 上批量计算过滤条件，语义与 FilterUtils 保持一致
+ */
+public class BatchFilterUtils {
+
+    /**
+     * 计算过滤条件，返回每一行是否满足条件
+     */
+    public static boolean[] validate(Filter filter, RowBatch batch) {
+        boolean[] result = new boolean[batch.getSize()];
+        switch (filter.getType()) {
+            case Or:
+                OrFilter orFilter = (OrFilter) filter;
+                for (Filter childFilter : orFilter.getChildren()) {
+                    boolean[] childResult = validate(childFilter, batch);
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] |= childResult[i];
+                    }
+                }
+                break;
+            case And:
+                AndFilter andFilter = (AndFilter) filter;
+                Arrays.fill(result, true);
+                for (Filter childFilter : andFilter.getChildren()) {
+                    boolean[] childResult = validate(childFilter, batch);
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] &= childResult[i];
+                    }
+                }
+                break;
+            case Not:
+                NotFilter notFilter = (NotFilter) filter;
+                boolean[] childResult = validate(notFilter.getChild(), batch);
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = !childResult[i];
+                }
+                break;
+            case Time:
+                validateTimeFilter((TimeFilter) filter, batch, result);
+                break;
+            case Value:
+                validateValueFilter((ValueFilter) filter, batch, result);
+                break;
+            case Path:
+                validatePathFilter((PathFilter) filter, batch, result);
+                break;
+            default:
+                break;
+        }
+        return result;
+    }
+
+    private static void validateTimeFilter(TimeFilter timeFilter, RowBatch batch, boolean[] result) {
+        if (!batch.hasTimestamp()) {
+            return;
+        }
+        long[] timestamps = batch.getTimestamps();
+        long value = timeFilter.getValue();
+        Op op = timeFilter.getOp();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = matches(op, Long.compare(timestamps[i], value));
+        }
+    }
+
+    private static void validateValueFilter(ValueFilter valueFilter, RowBatch batch, boolean[] result) {
+        int index = batch.getHeader().indexOf(valueFilter.getPath());
+        Value targetValue = valueFilter.getValue();
+        if (index == -1 || targetValue.isNull()) { // 如果任何一个是空值，则认为不可比较
+            return;
+        }
+        ColumnVector column = batch.getColumn(index);
+        ColumnVector target = new ColumnVector(targetValue.getDataType(), 1);
+        target.appendObject(targetValue.getValue());
+
+        Op op = valueFilter.getOp();
+        if (op == Op.LIKE) {
+            if (column.getType() != DataType.BINARY || target.getType() != DataType.BINARY) {
+                // regex can only be compared between strings.
+                return;
+            }
+            Pattern pattern = Pattern.compile(targetValue.getBinaryVAsString());
+            for (int i = 0; i < result.length; i++) {
+                result[i] = !column.isNull(i) && pattern.matcher(new String(column.getBinary(i))).matches();
+            }
+            return;
+        }
+        compareColumns(op, column, target, true, result);
+    }
+
+    private static void validatePathFilter(PathFilter pathFilter, RowBatch batch, boolean[] result) {
+        Header header = batch.getHeader();
+        int indexA = header.indexOf(pathFilter.getPathA());
+        int indexB = header.indexOf(pathFilter.getPathB());
+        if (indexA == -1 || indexB == -1) {
+            return;
+        }
+        compareColumns(pathFilter.getOp(), batch.getColumn(indexA), batch.getColumn(indexB), false, result);
+    }
+
+    private static void compareColumns(Op op, ColumnVector columnA, ColumnVector columnB, boolean constantB, boolean[] result) {
+        boolean asDouble = false;
+        if (columnA.getType() != columnB.getType()) {
+            if (isNumericType(columnA.getType()) && isNumericType(columnB.getType())) {
+                asDouble = true;
+            } else {  // 数值类型和非数值类型无法比较
+                return;
+            }
+        }
+        for (int i = 0; i < result.length; i++) {
+            int j = constantB ? 0 : i;
+            if (columnA.isNull(i) || columnB.isNull(j)) {
+                continue;
+            }
+            result[i] = matches(op, compare(columnA, i, columnB, j, asDouble));
+        }
+    }
+
+    private static int compare(ColumnVector columnA, int i, ColumnVector columnB, int j, boolean asDouble) {
+        if (asDouble) {
+            return Double.compare(columnA.getAsDouble(i), columnB.getAsDouble(j));
+        }
+        switch (columnA.getType()) {
+            case INTEGER:
+                return Integer.compare(columnA.getInt(i), columnB.getInt(j));
+            case LONG:
+                return Long.compare(columnA.getLong(i), columnB.getLong(j));
+            case BOOLEAN:
+                return Boolean.compare(columnA.getBoolean(i), columnB.getBoolean(j));
+            case FLOAT:
+                return Float.compare(columnA.getFloat(i), columnB.getFloat(j));
+            case DOUBLE:
+                return Double.compare(columnA.getDouble(i), columnB.getDouble(j));
+            case BINARY:
+                return new String(columnA.getBinary(i)).compareTo(new String(columnB.getBinary(j)));
+        }
+        return 0;
+    }
+
+    private static boolean matches(Op op, int compareResult) {
+        switch (op) {
+            case E:
+                return compareResult == 0;
+            case G:
+                return compareResult > 0;
+            case L:
+                return compareResult < 0;
+            case GE:
+                return compareResult >= 0;
+            case LE:
+                return compareResult <= 0;
+            case NE:
+                return compareResult != 0;
+        }
+        return false;
+    }
+
+    private static boolean isNumericType(DataType type) {
+        return type == DataType.INTEGER || type == DataType.LONG || type == DataType.FLOAT || type == DataType.DOUBLE;
+    }
+}
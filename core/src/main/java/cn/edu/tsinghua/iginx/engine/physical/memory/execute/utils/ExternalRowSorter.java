@@ -0,0 +1,361 @@
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 外部排序：内存中缓存的行超出预算时，将其排好序后作为一个有序段溢写到磁盘，
+ * 最终对所有有序段做多路归并。排序键相同的行保持输入顺序
+ */
+public class ExternalRowSorter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalRowSorter.class);
+
+    private final Header header;
+
+    private final Comparator<Row> comparator;
+
+    private final long memoryBudget;
+
+    private final File spillDir;
+
+    private final List<Row> buffer = new ArrayList<>();
+
+    private final List<SpilledRun> runs = new ArrayList<>();
+
+    private long bufferSize;
+
+    private List<RunCursor> cursors = new ArrayList<>();
+
+    public ExternalRowSorter(Header header, Comparator<Row> comparator, long memoryBudget, String spillDir) {
+        this.header = header;
+        this.comparator = comparator;
+        this.memoryBudget = memoryBudget;
+        this.spillDir = spillDir == null || spillDir.isEmpty() ? null : new File(spillDir);
+    }
+
+    public void add(Row row) throws PhysicalException {
+        buffer.add(row);
+        bufferSize += estimateSize(row);
+        if (bufferSize > memoryBudget) {
+            spill();
+        }
+    }
+
+    public int getSpilledRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * 返回全部行的有序结果，内存中剩余的行作为最后一个有序段参与归并
+     */
+    public RowStream sort() throws PhysicalException {
+        buffer.sort(comparator);
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            for (SpilledRun run : runs) {
+                cursors.add(new SpilledRunCursor(run));
+            }
+        } catch (IOException e) {
+            closeCursors(cursors);
+            throw new PhysicalTaskExecuteFailureException("open sort spill file failure", e);
+        }
+        cursors.add(new MemoryRunCursor(new ArrayList<>(buffer).iterator()));
+        buffer.clear();
+        bufferSize = 0;
+        this.cursors = cursors;
+        return new MergedRowStream(cursors);
+    }
+
+    /**
+     * 关闭全部溢写文件并删除
+     */
+    public void close() {
+        closeCursors(cursors);
+        cursors = new ArrayList<>();
+        for (SpilledRun run : runs) {
+            if (!run.file.delete()) {
+                logger.warn("delete sort spill file {} failure", run.file.getAbsolutePath());
+            }
+        }
+        runs.clear();
+        buffer.clear();
+        bufferSize = 0;
+    }
+
+    private void spill() throws PhysicalException {
+        buffer.sort(comparator);
+        File file = null;
+        try {
+            file = File.createTempFile("iginx-sort-", ".run", spillDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                for (Row row : buffer) {
+                    writeRow(out, row);
+                }
+            }
+        } catch (IOException e) {
+            if (file != null && !file.delete()) {
+                logger.warn("delete sort spill file {} failure", file.getAbsolutePath());
+            }
+            throw new PhysicalTaskExecuteFailureException("spill sorted rows to disk failure", e);
+        }
+        runs.add(new SpilledRun(file, buffer.size()));
+        buffer.clear();
+        bufferSize = 0;
+    }
+
+    private void writeRow(DataOutputStream out, Row row) throws IOException {
+        out.writeLong(row.getTimestamp());
+        Object[] values = row.getValues();
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                out.writeBoolean(false);
+                continue;
+            }
+            out.writeBoolean(true);
+            switch (header.getField(i).getType()) {
+                case BOOLEAN:
+                    out.writeBoolean((Boolean) value);
+                    break;
+                case INTEGER:
+                    out.writeInt((Integer) value);
+                    break;
+                case LONG:
+                    out.writeLong((Long) value);
+                    break;
+                case FLOAT:
+                    out.writeFloat((Float) value);
+                    break;
+                case DOUBLE:
+                    out.writeDouble((Double) value);
+                    break;
+                case BINARY:
+                    byte[] bytes = (byte[]) value;
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    break;
+            }
+        }
+    }
+
+    private Row readRow(DataInputStream in) throws IOException {
+        long timestamp = in.readLong();
+        Object[] values = new Object[header.getFieldSize()];
+        for (int i = 0; i < values.length; i++) {
+            if (!in.readBoolean()) {
+                continue;
+            }
+            DataType type = header.getField(i).getType();
+            switch (type) {
+                case BOOLEAN:
+                    values[i] = in.readBoolean();
+                    break;
+                case INTEGER:
+                    values[i] = in.readInt();
+                    break;
+                case LONG:
+                    values[i] = in.readLong();
+                    break;
+                case FLOAT:
+                    values[i] = in.readFloat();
+                    break;
+                case DOUBLE:
+                    values[i] = in.readDouble();
+                    break;
+                case BINARY:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    values[i] = bytes;
+                    break;
+            }
+        }
+        return header.hasTimestamp() ? new Row(header, timestamp, values) : new Row(header, values);
+    }
+
+    private static long estimateSize(Row row) {
+        long size = 16;
+        for (Object value : row.getValues()) {
+            size += 8;
+            if (value instanceof byte[]) {
+                size += ((byte[]) value).length;
+            }
+        }
+        return size;
+    }
+
+    private static void closeCursors(List<RunCursor> cursors) {
+        for (RunCursor cursor : cursors) {
+            cursor.close();
+        }
+    }
+
+    private static final class SpilledRun {
+
+        private final File file;
+
+        private final int rowCount;
+
+        SpilledRun(File file, int rowCount) {
+            this.file = file;
+            this.rowCount = rowCount;
+        }
+    }
+
+    private interface RunCursor {
+
+        /**
+         * 读取下一行，有序段已读完时返回 null
+         */
+        Row next() throws IOException;
+
+        void close();
+    }
+
+    private static final class MemoryRunCursor implements RunCursor {
+
+        private final Iterator<Row> iterator;
+
+        MemoryRunCursor(Iterator<Row> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public Row next() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final class SpilledRunCursor implements RunCursor {
+
+        private final DataInputStream in;
+
+        private int remaining;
+
+        SpilledRunCursor(SpilledRun run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file)));
+            this.remaining = run.rowCount;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+            return readRow(in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                logger.warn("close sort spill file failure", e);
+            }
+        }
+    }
+
+    private static final class MergeEntry {
+
+        private final Row row;
+
+        private final int runIndex;
+
+        MergeEntry(Row row, int runIndex) {
+            this.row = row;
+            this.runIndex = runIndex;
+        }
+    }
+
+    private final class MergedRowStream implements RowStream {
+
+        private final List<RunCursor> cursors;
+
+        private final PriorityQueue<MergeEntry> heap;
+
+        private boolean initialized = false;
+
+        MergedRowStream(List<RunCursor> cursors) {
+            this.cursors = cursors;
+            // 排序键相同时先输出较早的有序段，保证排序稳定
+            this.heap = new PriorityQueue<>(Math.max(1, cursors.size()), (o1, o2) -> {
+                int result = comparator.compare(o1.row, o2.row);
+                return result != 0 ? result : Integer.compare(o1.runIndex, o2.runIndex);
+            });
+        }
+
+        private void init() throws PhysicalException {
+            if (initialized) {
+                return;
+            }
+            for (int i = 0; i < cursors.size(); i++) {
+                advance(i);
+            }
+            initialized = true;
+        }
+
+        private void advance(int runIndex) throws PhysicalException {
+            Row row;
+            try {
+                row = cursors.get(runIndex).next();
+            } catch (IOException e) {
+                throw new PhysicalTaskExecuteFailureException("read sort spill file failure", e);
+            }
+            if (row != null) {
+                heap.add(new MergeEntry(row, runIndex));
+            }
+        }
+
+        @Override
+        public Header getHeader() {
+            return header;
+        }
+
+        @Override
+        public void close() {
+            ExternalRowSorter.this.close();
+        }
+
+        @Override
+        public boolean hasNext() throws PhysicalException {
+            init();
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Row next() throws PhysicalException {
+            if (!hasNext()) {
+                throw new IllegalStateException("row stream doesn't have more data!");
+            }
+            MergeEntry entry = heap.poll();
+            advance(entry.runIndex);
+            return entry.row;
+        }
+    }
+
+}
@@ -19,14 +19,204 @@
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
 
 import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.function.Function;
 import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.*;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
 public class FilterUtils {
 
+    private static final Predicate<Row> ALWAYS_FALSE = row -> false;
+
+    /**
+     * 针对给定的表头将过滤条件编译为谓词，列下标、比较方式和正则表达式都在编译时确定，
+     * 结果与 validate 一致，适用于表头相同的一批行
+     */
+    public static Predicate<Row> compile(Filter filter, Header header) {
+        switch (filter.getType()) {
+            case Or:
+                Predicate<Row>[] orChildren = compileChildren(((OrFilter) filter).getChildren(), header);
+                return row -> {
+                    for (Predicate<Row> child : orChildren) {
+                        if (child.test(row)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            case And:
+                Predicate<Row>[] andChildren = compileChildren(((AndFilter) filter).getChildren(), header);
+                return row -> {
+                    for (Predicate<Row> child : andChildren) {
+                        if (!child.test(row)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            case Not:
+                return compile(((NotFilter) filter).getChild(), header).negate();
+            case Time:
+                return compileTimeFilter((TimeFilter) filter);
+            case Value:
+                return compileValueFilter((ValueFilter) filter, header);
+            case Path:
+                return compilePathFilter((PathFilter) filter, header);
+            default:
+                return ALWAYS_FALSE;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Row>[] compileChildren(List<Filter> children, Header header) {
+        Predicate<Row>[] predicates = new Predicate[children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            predicates[i] = compile(children.get(i), header);
+        }
+        return predicates;
+    }
+
+    /**
+     * 将比较运算符编译为对比较结果的判断，LIKE 等不能由比较结果表示的运算符返回 null
+     */
+    private static IntPredicate compileOp(Op op) {
+        switch (op) {
+            case E:
+                return result -> result == 0;
+            case G:
+                return result -> result > 0;
+            case L:
+                return result -> result < 0;
+            case GE:
+                return result -> result >= 0;
+            case LE:
+                return result -> result <= 0;
+            case NE:
+                return result -> result != 0;
+            default:
+                return null;
+        }
+    }
+
+    private static Predicate<Row> compileTimeFilter(TimeFilter timeFilter) {
+        long target = timeFilter.getValue();
+        IntPredicate test = compileOp(timeFilter.getOp());
+        if (test == null) {
+            return ALWAYS_FALSE;
+        }
+        return row -> {
+            long timestamp = row.getTimestamp();
+            return timestamp != Row.NON_EXISTED_TIMESTAMP && test.test(Long.compare(timestamp, target));
+        };
+    }
+
+    private static Predicate<Row> compileValueFilter(ValueFilter valueFilter, Header header) {
+        int index = header.indexOf(valueFilter.getPath());
+        Value targetValue = valueFilter.getValue();
+        if (index == -1 || targetValue.isNull()) {
+            return ALWAYS_FALSE;
+        }
+        DataType dataType = header.getField(index).getType();
+        if (valueFilter.getOp() == Op.LIKE) {
+            if (dataType != DataType.BINARY || targetValue.getDataType() != DataType.BINARY) {
+                return ALWAYS_FALSE;
+            }
+            Pattern pattern = Pattern.compile(targetValue.getBinaryVAsString());
+            return row -> {
+                Object value = row.getValue(index);
+                return value != null && pattern.matcher(new String((byte[]) value)).matches();
+            };
+        }
+        IntPredicate test = compileOp(valueFilter.getOp());
+        if (test == null) {
+            return ALWAYS_FALSE;
+        }
+        if (dataType != targetValue.getDataType()) {
+            if (ValueUtils.isNumericType(dataType) && ValueUtils.isNumericType(targetValue)) {
+                double target = ValueUtils.transformToDouble(targetValue).getDoubleV();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(Double.compare(((Number) value).doubleValue(), target));
+                };
+            }
+            return ALWAYS_FALSE; // 数值类型和非数值类型无法比较
+        }
+        switch (dataType) {
+            case INTEGER:
+                int intTarget = targetValue.getIntV();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(Integer.compare((Integer) value, intTarget));
+                };
+            case LONG:
+                long longTarget = targetValue.getLongV();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(Long.compare((Long) value, longTarget));
+                };
+            case FLOAT:
+                float floatTarget = targetValue.getFloatV();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(Float.compare((Float) value, floatTarget));
+                };
+            case DOUBLE:
+                double doubleTarget = targetValue.getDoubleV();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(Double.compare((Double) value, doubleTarget));
+                };
+            case BOOLEAN:
+                boolean boolTarget = targetValue.getBoolV();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(Boolean.compare((Boolean) value, boolTarget));
+                };
+            case BINARY:
+                String stringTarget = targetValue.getBinaryVAsString();
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(new String((byte[]) value).compareTo(stringTarget));
+                };
+            default:
+                return ALWAYS_FALSE;
+        }
+    }
+
+    private static Predicate<Row> compilePathFilter(PathFilter pathFilter, Header header) {
+        int indexA = header.indexOf(pathFilter.getPathA());
+        int indexB = header.indexOf(pathFilter.getPathB());
+        IntPredicate test = compileOp(pathFilter.getOp());
+        if (indexA == -1 || indexB == -1 || test == null) {
+            return ALWAYS_FALSE;
+        }
+        DataType typeA = header.getField(indexA).getType();
+        DataType typeB = header.getField(indexB).getType();
+        if (typeA != typeB) {
+            if (ValueUtils.isNumericType(typeA) && ValueUtils.isNumericType(typeB)) {
+                return row -> {
+                    Object valueA = row.getValue(indexA);
+                    Object valueB = row.getValue(indexB);
+                    return valueA != null && valueB != null
+                        && test.test(Double.compare(((Number) valueA).doubleValue(), ((Number) valueB).doubleValue()));
+                };
+            }
+            return ALWAYS_FALSE; // 数值类型和非数值类型无法比较
+        }
+        return row -> {
+            Object valueA = row.getValue(indexA);
+            Object valueB = row.getValue(indexB);
+            return valueA != null && valueB != null && test.test(ValueUtils.compare(valueA, valueB, typeA));
+        };
+    }
+
     public static boolean validate(Filter filter, Row row) {
         switch (filter.getType()) {
             case Or:
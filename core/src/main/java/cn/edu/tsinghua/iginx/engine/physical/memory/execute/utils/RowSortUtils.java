@@ -0,0 +1,163 @@
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.InvalidOperatorParameterException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.Constants;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.ColumnVector;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowBatch;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.utils.ValueUtils;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Sort;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 排序相关的工具方法。空值总是排在最后，排序键相同的行保持输入顺序
+ */
+public class RowSortUtils {
+
+    /**
+     * 按排序算子的排序键构造行比较器
+     */
+    public static Comparator<Row> buildComparator(Sort sort, Header header) throws PhysicalException {
+        Comparator<Row> comparator = null;
+        for (int i = 0; i < sort.getSortByCols().size(); i++) {
+            String sortBy = sort.getSortByCols().get(i);
+            boolean asc = sort.getSortTypes().get(i) == Sort.SortType.ASC;
+            Comparator<Row> keyComparator;
+            if (sortBy.equals(Constants.TIMESTAMP)) {
+                if (!header.hasTimestamp()) {
+                    throw new InvalidOperatorParameterException("sort operator is not support for row stream without timestamps.");
+                }
+                keyComparator = asc ? Comparator.comparingLong(Row::getTimestamp)
+                    : (o1, o2) -> Long.compare(o2.getTimestamp(), o1.getTimestamp());
+            } else {
+                int index = indexOf(header, sortBy);
+                DataType type = header.getField(index).getType();
+                keyComparator = (o1, o2) -> compareValue(o1.getValue(index), o2.getValue(index), type, asc);
+            }
+            comparator = comparator == null ? keyComparator : comparator.thenComparing(keyComparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * 按排序算子的排序键构造批次内行下标的比较器
+     */
+    public static Comparator<Integer> buildComparator(Sort sort, RowBatch batch) throws PhysicalException {
+        Header header = batch.getHeader();
+        Comparator<Integer> comparator = null;
+        for (int i = 0; i < sort.getSortByCols().size(); i++) {
+            String sortBy = sort.getSortByCols().get(i);
+            boolean asc = sort.getSortTypes().get(i) == Sort.SortType.ASC;
+            Comparator<Integer> keyComparator;
+            if (sortBy.equals(Constants.TIMESTAMP)) {
+                if (!header.hasTimestamp()) {
+                    throw new InvalidOperatorParameterException("sort operator is not support for row stream without timestamps.");
+                }
+                long[] timestamps = batch.getTimestamps();
+                keyComparator = asc ? Comparator.comparingLong(o -> timestamps[o])
+                    : (o1, o2) -> Long.compare(timestamps[o2], timestamps[o1]);
+            } else {
+                ColumnVector column = batch.getColumn(indexOf(header, sortBy));
+                DataType type = column.getType();
+                keyComparator = (o1, o2) -> compareValue(column.getObject(o1), column.getObject(o2), type, asc);
+            }
+            comparator = comparator == null ? keyComparator : comparator.thenComparing(keyComparator);
+        }
+        return comparator;
+    }
+
+    private static int indexOf(Header header, String sortBy) throws PhysicalException {
+        int index = header.indexOf(sortBy);
+        if (index == -1) {
+            throw new InvalidOperatorParameterException("sort operator can't find field " + sortBy + " in header.");
+        }
+        return index;
+    }
+
+    private static int compareValue(Object o1, Object o2, DataType type, boolean asc) {
+        if (o1 == null || o2 == null) {
+            return o1 == null ? (o2 == null ? 0 : 1) : -1;
+        }
+        int result = ValueUtils.compare(o1, o2, type);
+        return asc ? result : -result;
+    }
+
+    /**
+     * 选出最小的 k 个元素并按序返回，相等元素保持输入顺序
+     */
+    public static <T> List<T> topK(Iterator<T> iterator, Comparator<T> comparator, long k) {
+        TopK<T> topK = new TopK<>(comparator, k);
+        while (iterator.hasNext()) {
+            topK.add(iterator.next());
+        }
+        return topK.getResult();
+    }
+
+    /**
+     * 用容量为 k 的堆维护已加入元素中最小的 k 个
+     */
+    public static final class TopK<T> {
+
+        private final Comparator<Ranked<T>> comparator;
+
+        private final PriorityQueue<Ranked<T>> heap;
+
+        private final long k;
+
+        private long rank = 0;
+
+        public TopK(Comparator<T> comparator, long k) {
+            this.comparator = (o1, o2) -> {
+                int result = comparator.compare(o1.value, o2.value);
+                return result != 0 ? result : Long.compare(o1.rank, o2.rank);
+            };
+            // 堆顶为当前保留的元素中最大且最晚加入的一个
+            this.heap = new PriorityQueue<>(this.comparator.reversed());
+            this.k = k;
+        }
+
+        public void add(T value) {
+            if (k <= 0) {
+                return;
+            }
+            Ranked<T> ranked = new Ranked<>(value, rank++);
+            if (heap.size() < k) {
+                heap.add(ranked);
+            } else if (comparator.compare(ranked, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(ranked);
+            }
+        }
+
+        public List<T> getResult() {
+            List<T> result = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                result.add(heap.poll().value);
+            }
+            Collections.reverse(result);
+            return result;
+        }
+    }
+
+    private static final class Ranked<T> {
+
+        private final T value;
+
+        private final long rank;
+
+        Ranked(T value, long rank) {
+            this.value = value;
+            this.rank = rank;
+        }
+    }
+
+}
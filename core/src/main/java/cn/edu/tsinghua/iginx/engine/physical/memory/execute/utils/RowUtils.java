@@ -18,9 +18,15 @@
  */
 package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
 
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
 public class RowUtils {
 
@@ -39,4 +45,79 @@ public class RowUtils {
         return targetRow;
     }
 
+    /**
+     * 拼接多个函数结果的表头，headers[i] 为空表示第 i 个函数没有产生结果
+     */
+    public static Header combineHeaders(Header[] headers, boolean hasTimestamp) {
+        List<Field> fields = new ArrayList<>();
+        for (Header header : headers) {
+            if (header != null) {
+                fields.addAll(header.getFields());
+            }
+        }
+        return hasTimestamp ? new Header(Field.TIME, fields) : new Header(fields);
+    }
+
+    /**
+     * 将多个函数在同一组数据上的结果横向拼接为一行，某个函数没有结果时对应的列填充空值
+     */
+    public static Row combineRows(Header targetHeader, long timestamp, Row[] rows, Header[] headers) {
+        Object[] values = new Object[targetHeader.getFieldSize()];
+        int index = 0;
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i] == null) {
+                continue;
+            }
+            int size = headers[i].getFieldSize();
+            if (rows[i] != null) {
+                System.arraycopy(rows[i].getValues(), 0, values, index, size);
+            }
+            index += size;
+        }
+        if (targetHeader.hasTimestamp()) {
+            return new Row(targetHeader, timestamp, values);
+        }
+        return new Row(targetHeader, values);
+    }
+
+    /**
+     * 估算一行数据的字节数：时间戳与各个非空值的大小之和
+     */
+    public static long estimateSize(Row row) {
+        long size = 8;
+        for (Object value : row.getValues()) {
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof byte[]) {
+                size += ((byte[]) value).length;
+            } else if (value instanceof Integer || value instanceof Float) {
+                size += 4;
+            } else if (value instanceof Boolean) {
+                size += 1;
+            } else {
+                size += 8;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 读完整个行流，只在内存中保留最后 limit 行，保持原有顺序
+     */
+    public static List<Row> tail(RowStream stream, int limit) throws PhysicalException {
+        ArrayDeque<Row> rows = new ArrayDeque<>();
+        while (stream.hasNext()) {
+            Row row = stream.next();
+            if (limit == 0) {
+                continue;
+            }
+            if (rows.size() == limit) {
+                rows.pollFirst();
+            }
+            rows.addLast(row);
+        }
+        return new ArrayList<>(rows);
+    }
+
 }
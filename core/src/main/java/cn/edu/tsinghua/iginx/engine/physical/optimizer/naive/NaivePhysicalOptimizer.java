@@ -22,16 +22,29 @@ import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.PhysicalOptimizer;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.ReplicaDispatcher;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.rule.Rule;
+import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
+import cn.edu.tsinghua.iginx.engine.physical.storage.StorageManager;
+import cn.edu.tsinghua.iginx.engine.physical.storage.execute.StoragePhysicalTaskExecutor;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils;
 import cn.edu.tsinghua.iginx.engine.physical.task.*;
+import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
 import cn.edu.tsinghua.iginx.engine.shared.constraint.ConstraintManager;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.operator.*;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
 import cn.edu.tsinghua.iginx.engine.shared.source.OperatorSource;
 import cn.edu.tsinghua.iginx.engine.shared.source.Source;
 import cn.edu.tsinghua.iginx.engine.shared.source.SourceType;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.StorageUnitMeta;
+import cn.edu.tsinghua.iginx.utils.Pair;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.PARAM_LEVELS;
 
 public class NaivePhysicalOptimizer implements PhysicalOptimizer {
 
@@ -77,6 +90,13 @@ public class NaivePhysicalOptimizer implements PhysicalOptimizer {
             } else { // 构建内存中的计划
                 OperatorSource operatorSource = (OperatorSource) source;
                 Operator sourceOperator = operatorSource.getOperator();
+                if (ConfigDescriptor.getInstance().getConfig().isEnablePushDown()
+                        && (operator.getType() == OperatorType.SetTransform || operator.getType() == OperatorType.Downsample)) {
+                    PhysicalTask pushDownTask = tryPushDownAggregate(unaryOperator, sourceOperator);
+                    if (pushDownTask != null) {
+                        return pushDownTask;
+                    }
+                }
                 PhysicalTask sourceTask = constructTask(operatorSource.getOperator());
                 if (ConfigDescriptor.getInstance().getConfig().isEnablePushDown() && sourceTask instanceof StoragePhysicalTask
                         && sourceOperator.getType() == OperatorType.Project
@@ -86,6 +106,13 @@ public class NaivePhysicalOptimizer implements PhysicalOptimizer {
                     sourceTask.getOperators().add(operator);
                     return sourceTask;
                 }
+                if (ConfigDescriptor.getInstance().getConfig().isEnablePushDown() && sourceTask instanceof StoragePhysicalTask
+                        && operator.getType() == OperatorType.Limit && ((Limit) operator).getOffset() == 0
+                        && AggregatePushDownUtils.getAggregateOperator(sourceTask.getOperators()) == null
+                        && canPushDownLimit(((StoragePhysicalTask) sourceTask).getTargetFragment(), ((Limit) operator).isTail())) {
+                    sourceTask.getOperators().add(operator);
+                    return sourceTask;
+                }
                 List<Operator> operators = new ArrayList<>();
                 operators.add(operator);
                 PhysicalTask task = new UnaryMemoryPhysicalTask(operators, sourceTask);
@@ -93,6 +120,17 @@ public class NaivePhysicalOptimizer implements PhysicalOptimizer {
                 return task;
             }
         } else if (OperatorType.isBinaryOperator(operator.getType())) {
+            if (operator.getType() == OperatorType.Union) {
+                List<Operator> inputs = new ArrayList<>();
+                collectUnionInputs(operator, inputs);
+                if (inputs.size() > 2) {
+                    List<PhysicalTask> parentTasks = new ArrayList<>();
+                    for (Operator input : inputs) {
+                        parentTasks.add(constructTask(input));
+                    }
+                    return constructMergeUnionTask(inputs, parentTasks);
+                }
+            }
             BinaryOperator binaryOperator = (BinaryOperator) operator;
             OperatorSource sourceA = (OperatorSource) binaryOperator.getSourceA();
             OperatorSource sourceB = (OperatorSource) binaryOperator.getSourceB();
@@ -123,6 +161,176 @@ public class NaivePhysicalOptimizer implements PhysicalOptimizer {
         }
     }
 
+    /**
+     * 将聚合/降采样算子连同其下方的 Select 下推到各个片段的存储任务中，各个片段的结果再由原有的 Union 合并。
+     * 各个片段返回的是最终结果而不是可合并的部分结果（如 avg 的 count 与 sum），因此 SetTransform 只在查询仅涉及一个片段时下推；
+     * 降采样要求片段的边界与窗口对齐，这样每个窗口只会落在一个片段中，其他情况仍在内存中计算。
+     */
+    private PhysicalTask tryPushDownAggregate(UnaryOperator operator, Operator sourceOperator) {
+        Select select = null;
+        Operator unionRoot = sourceOperator;
+        if (sourceOperator.getType() == OperatorType.Select) {
+            select = (Select) sourceOperator;
+            if (select.getTagFilter() != null || select.getSource().getType() != SourceType.Operator) {
+                return null;
+            }
+            unionRoot = ((OperatorSource) select.getSource()).getOperator();
+        }
+        List<Project> projects = new ArrayList<>();
+        if (!collectFragmentProjects(unionRoot, projects)) {
+            return null;
+        }
+        if (operator.getType() == OperatorType.SetTransform && projects.size() != 1) {
+            return null;
+        }
+        for (Project project : projects) {
+            FragmentMeta fragment = ((FragmentSource) project.getSource()).getFragment();
+            if (!canPushDownAggregate(fragment, operator, select)) {
+                return null;
+            }
+            if (projects.size() > 1 && operator.getType() == OperatorType.Downsample) {
+                Downsample downsample = (Downsample) operator;
+                TimeRange timeRange = downsample.getTimeRange();
+                long startTime = fragment.getTimeInterval().getStartTime();
+                if (startTime > timeRange.getBeginTime() && startTime < timeRange.getEndTime()
+                        && AggregatePushDownUtils.getWindowStart(startTime, timeRange.getBeginTime(), downsample.getPrecision()) != startTime) {
+                    return null;
+                }
+            }
+        }
+        return constructPushDownTask(unionRoot, select, operator);
+    }
+
+    private boolean collectFragmentProjects(Operator operator, List<Project> projects) {
+        if (operator.getType() == OperatorType.Union) {
+            Union union = (Union) operator;
+            return collectFragmentProjects(((OperatorSource) union.getSourceA()).getOperator(), projects)
+                    && collectFragmentProjects(((OperatorSource) union.getSourceB()).getOperator(), projects);
+        }
+        if (operator.getType() != OperatorType.Project) {
+            return false;
+        }
+        Project project = (Project) operator;
+        if (project.getTagFilter() != null || project.getSource().getType() != SourceType.Fragment) {
+            return false;
+        }
+        projects.add(project);
+        return true;
+    }
+
+    private boolean canPushDownAggregate(FragmentMeta fragment, UnaryOperator operator, Select select) {
+        StorageUnitMeta masterStorageUnit = fragment.getMasterStorageUnit();
+        if (masterStorageUnit == null || masterStorageUnit.isDummy()) {
+            return false;
+        }
+        List<FunctionCall> functionCallList = AggregatePushDownUtils.getFunctionCallList(operator);
+        for (FunctionCall functionCall : functionCallList) {
+            if (functionCall.getParams().containsKey(PARAM_LEVELS)) {
+                return false;
+            }
+        }
+        // 副本可能位于不同类型的存储上，需要全部支持
+        List<StorageUnitMeta> storageUnits = new ArrayList<>(masterStorageUnit.getReplicas());
+        storageUnits.add(masterStorageUnit);
+        StorageManager storageManager = StoragePhysicalTaskExecutor.getInstance().getStorageManager();
+        for (StorageUnitMeta storageUnit : storageUnits) {
+            Pair<IStorage, ThreadPoolExecutor> pair = storageManager.getStorage(storageUnit.getStorageEngineId());
+            if (pair == null) {
+                return false;
+            }
+            IStorage storage = pair.k;
+            for (FunctionCall functionCall : functionCallList) {
+                if (!storage.getSupportedAggregateFunctions().contains(functionCall.getFunction().getIdentifier())) {
+                    return false;
+                }
+            }
+            if (operator.getType() == OperatorType.Downsample && !storage.isSupportDownsample(((Downsample) operator).getPrecision())) {
+                return false;
+            }
+            if (select != null && !storage.isSupportValueFilterPushDown() && !AggregatePushDownUtils.isTimeRangeFilter(select.getFilter())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean canPushDownLimit(FragmentMeta fragment, boolean tail) {
+        StorageUnitMeta masterStorageUnit = fragment.getMasterStorageUnit();
+        if (masterStorageUnit == null || masterStorageUnit.isDummy()) {
+            return false;
+        }
+        List<StorageUnitMeta> storageUnits = new ArrayList<>(masterStorageUnit.getReplicas());
+        storageUnits.add(masterStorageUnit);
+        StorageManager storageManager = StoragePhysicalTaskExecutor.getInstance().getStorageManager();
+        for (StorageUnitMeta storageUnit : storageUnits) {
+            Pair<IStorage, ThreadPoolExecutor> pair = storageManager.getStorage(storageUnit.getStorageEngineId());
+            if (pair == null || !(tail ? pair.k.isSupportTailLimitPushDown() : pair.k.isSupportLimitPushDown())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PhysicalTask constructPushDownTask(Operator operator, Select select, UnaryOperator aggregate) {
+        if (operator.getType() == OperatorType.Project) {
+            List<Operator> operators = new ArrayList<>();
+            operators.add(operator);
+            if (select != null) {
+                operators.add(select);
+            }
+            operators.add(aggregate);
+            return new StoragePhysicalTask(operators);
+        }
+        Union union = (Union) operator;
+        List<Operator> inputs = new ArrayList<>();
+        collectUnionInputs(union, inputs);
+        if (inputs.size() > 2) {
+            List<PhysicalTask> parentTasks = new ArrayList<>();
+            for (Operator input : inputs) {
+                parentTasks.add(constructPushDownTask(input, select, aggregate));
+            }
+            return constructMergeUnionTask(inputs, parentTasks);
+        }
+        PhysicalTask sourceTaskA = constructPushDownTask(((OperatorSource) union.getSourceA()).getOperator(), select, aggregate);
+        PhysicalTask sourceTaskB = constructPushDownTask(((OperatorSource) union.getSourceB()).getOperator(), select, aggregate);
+        List<Operator> operators = new ArrayList<>();
+        operators.add(union);
+        PhysicalTask task = new BinaryMemoryPhysicalTask(operators, sourceTaskA, sourceTaskB);
+        sourceTaskA.setFollowerTask(task);
+        sourceTaskB.setFollowerTask(task);
+        return task;
+    }
+
+    /**
+     * 将连续的 Union 展开为其全部输入，输入的先后顺序与二路合并时一致
+     */
+    private void collectUnionInputs(Operator operator, List<Operator> inputs) {
+        if (operator.getType() != OperatorType.Union) {
+            inputs.add(operator);
+            return;
+        }
+        Union union = (Union) operator;
+        collectUnionInputs(((OperatorSource) union.getSourceA()).getOperator(), inputs);
+        collectUnionInputs(((OperatorSource) union.getSourceB()).getOperator(), inputs);
+    }
+
+    /**
+     * 用一个多路 Union 任务代替由二路 Union 组成的任务树，各个输入的任务并发执行，结果一次归并
+     */
+    private PhysicalTask constructMergeUnionTask(List<Operator> inputs, List<PhysicalTask> parentTasks) {
+        List<Source> sources = new ArrayList<>();
+        for (Operator input : inputs) {
+            sources.add(new OperatorSource(input));
+        }
+        List<Operator> operators = new ArrayList<>();
+        operators.add(new MergeUnion(sources));
+        PhysicalTask task = new MultipleMemoryPhysicalTask(operators, parentTasks);
+        for (PhysicalTask parentTask : parentTasks) {
+            parentTask.setFollowerTask(task);
+        }
+        return task;
+    }
+
     private static class NaivePhysicalOptimizerHolder {
 
         private static final NaivePhysicalOptimizer INSTANCE = new NaivePhysicalOptimizer();
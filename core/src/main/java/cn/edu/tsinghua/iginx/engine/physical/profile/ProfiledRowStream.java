@@ -0,0 +1,55 @@
+package cn.edu.tsinghua.iginx.engine.physical.profile;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+
+/**
+ * 统计行数、字节数和读取耗时的行流包装，只在 EXPLAIN ANALYZE 时使用
+ */
+public class ProfiledRowStream implements RowStream {
+
+    private final RowStream stream;
+
+    private final StreamProfile profile;
+
+    public ProfiledRowStream(RowStream stream, StreamProfile profile) {
+        this.stream = stream;
+        this.profile = profile;
+    }
+
+    @Override
+    public Header getHeader() throws PhysicalException {
+        return stream.getHeader();
+    }
+
+    @Override
+    public void close() throws PhysicalException {
+        stream.close();
+    }
+
+    @Override
+    public boolean hasNext() throws PhysicalException {
+        long startTime = System.nanoTime();
+        try {
+            return stream.hasNext();
+        } finally {
+            profile.addNanos(System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Row next() throws PhysicalException {
+        long startTime = System.nanoTime();
+        Row row;
+        try {
+            row = stream.next();
+        } finally {
+            profile.addNanos(System.nanoTime() - startTime);
+        }
+        profile.addRows(1, RowUtils.estimateSize(row));
+        return row;
+    }
+}
@@ -0,0 +1,36 @@
+package cn.edu.tsinghua.iginx.engine.physical.profile;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个行流的统计：输出的行数、估算的字节数，以及构造和读取该行流所花费的时间（包含其上游）
+ */
+public class StreamProfile {
+
+    private final LongAdder rowCount = new LongAdder();
+
+    private final LongAdder byteCount = new LongAdder();
+
+    private final LongAdder nanos = new LongAdder();
+
+    public void addRows(long rows, long bytes) {
+        rowCount.add(rows);
+        byteCount.add(bytes);
+    }
+
+    public void addNanos(long nanos) {
+        this.nanos.add(nanos);
+    }
+
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    public long getByteCount() {
+        return byteCount.sum();
+    }
+
+    public long getNanos() {
+        return nanos.sum();
+    }
+}
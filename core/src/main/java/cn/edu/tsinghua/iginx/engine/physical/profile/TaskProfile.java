@@ -0,0 +1,84 @@
+package cn.edu.tsinghua.iginx.engine.physical.profile;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 物理任务的执行统计：排队时间、执行时间、后端读取以及任务内每个算子输出行流的统计
+ */
+public class TaskProfile {
+
+    // 任务可以执行（进入任务队列）的时刻
+    private volatile long readyTime;
+
+    private volatile long queueWaitNanos;
+
+    private volatile long executeNanos;
+
+    // 存储任务读取后端数据的统计，包含发出请求到读完结果的全部时间
+    private volatile StreamProfile backendProfile;
+
+    // 按算子对象区分，同一计划中可能存在内容相同的算子
+    private final Map<Operator, StreamProfile> operatorProfiles = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public void markReady() {
+        readyTime = System.nanoTime();
+    }
+
+    /**
+     * 任务开始执行时调用，从 markReady 开始计算排队时间
+     */
+    public void markStart() {
+        if (readyTime != 0) {
+            queueWaitNanos = System.nanoTime() - readyTime;
+        }
+    }
+
+    public void setQueueWaitNanos(long queueWaitNanos) {
+        this.queueWaitNanos = queueWaitNanos;
+    }
+
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    public void addExecuteNanos(long nanos) {
+        executeNanos += nanos;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    /**
+     * 统计算子输出的行流，startTime 为开始构造该行流的时刻
+     */
+    public RowStream profileOperator(Operator operator, RowStream stream, long startTime) {
+        StreamProfile profile = new StreamProfile();
+        profile.addNanos(System.nanoTime() - startTime);
+        operatorProfiles.put(operator, profile);
+        return new ProfiledRowStream(stream, profile);
+    }
+
+    /**
+     * 统计存储后端返回的行流，startTime 为向后端发出请求的时刻
+     */
+    public RowStream profileBackend(RowStream stream, long startTime) {
+        StreamProfile profile = new StreamProfile();
+        profile.addNanos(System.nanoTime() - startTime);
+        backendProfile = profile;
+        return stream == null ? null : new ProfiledRowStream(stream, profile);
+    }
+
+    public StreamProfile getOperatorProfile(Operator operator) {
+        return operatorProfiles.get(operator);
+    }
+
+    public StreamProfile getBackendProfile() {
+        return backendProfile;
+    }
+}
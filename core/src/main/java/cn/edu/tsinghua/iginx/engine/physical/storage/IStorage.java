@@ -26,7 +26,9 @@ import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
 import cn.edu.tsinghua.iginx.metadata.entity.TimeSeriesInterval;
 import cn.edu.tsinghua.iginx.utils.Pair;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 public interface IStorage {
 
@@ -38,4 +40,47 @@ public interface IStorage {
 
     void release() throws PhysicalException;
 
+    /**
+     * 任务被取消时由其他线程调用，中止该任务在存储端正在执行的请求，execute 随后可以返回异常的结果
+     */
+    default void cancel(StoragePhysicalTask task) {
+    }
+
+    /**
+     * 存储端能够原生执行的集合映射函数的标识符，SetTransform 和 Downsample 中的函数全部被支持时才会下推到存储端
+     */
+    default Set<String> getSupportedAggregateFunctions() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 存储端能否原生执行给定精度的按时间窗口分组
+     */
+    default boolean isSupportDownsample(long precision) {
+        return false;
+    }
+
+    /**
+     * 下推聚合时能否一并执行包含值过滤的条件，不支持时只会下推仅包含时间范围的过滤条件
+     */
+    default boolean isSupportValueFilterPushDown() {
+        return false;
+    }
+
+    /**
+     * 查询任务中能否执行下推的 Limit。下推的 Limit 位于任务的最后，表示只需要按时间升序返回前 limit 行，
+     * 忽略它返回更多的行不影响结果的正确性
+     */
+    default boolean isSupportLimitPushDown() {
+        return false;
+    }
+
+    /**
+     * 查询任务中能否执行下推的截取末尾的 Limit（isTail 为 true）。
+     * 它表示只需要按时间升序返回最后 limit 行，返回更多的行同样不影响结果的正确性
+     */
+    default boolean isSupportTailLimitPushDown() {
+        return false;
+    }
+
 }
@@ -0,0 +1,400 @@
+package cn.edu.tsinghua.iginx.engine.physical.storage.cache;
+
+import cn.edu.tsinghua.iginx.conf.Config;
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils.RowUtils;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.operator.*;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.StorageUnitMeta;
+import cn.edu.tsinghua.iginx.statistics.MetricsRegistry;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存已封闭分片（结束时间确定）上读任务的结果，键为任务中算子的规范化描述与分片。
+ * 每个分片维护一个版本号，写入或删除该分片时版本号递增并清除其缓存，
+ * 读任务只有在执行期间版本号未发生变化时才会写入缓存。
+ * 缓存按估算的字节数限制大小，超出时淘汰最久未使用的结果
+ */
+public class QueryResultCache {
+
+    private static final String QUERY_CACHE_HITS = "iginx_query_cache_hits_total";
+
+    private static final String QUERY_CACHE_MISSES = "iginx_query_cache_misses_total";
+
+    private static final String QUERY_CACHE_EVICTIONS = "iginx_query_cache_evictions_total";
+
+    private static final String QUERY_CACHE_BYTES = "iginx_query_cache_bytes";
+
+    private static final String QUERY_CACHE_ENTRIES = "iginx_query_cache_entries";
+
+    private final long maxSize;
+
+    private final long maxEntrySize;
+
+    private final long ttl;
+
+    // 按访问顺序排列，最久未使用的结果在前
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<FragmentMeta, Set<String>> keysByFragment = new ConcurrentHashMap<>();
+
+    private final Map<FragmentMeta, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private long size;
+
+    private final LongAdder hitCount;
+
+    private final LongAdder missCount;
+
+    private final LongAdder evictionCount;
+
+    QueryResultCache(long maxSize, long maxEntrySize, long ttl) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = Math.min(maxEntrySize, maxSize);
+        this.ttl = ttl;
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.describe(QUERY_CACHE_HITS, "Number of storage tasks answered from the query result cache.");
+        metrics.describe(QUERY_CACHE_MISSES, "Number of cacheable storage tasks that had to read the storage engine.");
+        metrics.describe(QUERY_CACHE_EVICTIONS, "Number of results evicted from the query result cache.");
+        metrics.describe(QUERY_CACHE_BYTES, "Estimated size of the results in the query result cache.");
+        metrics.describe(QUERY_CACHE_ENTRIES, "Number of results in the query result cache.");
+        this.hitCount = metrics.counter(QUERY_CACHE_HITS);
+        this.missCount = metrics.counter(QUERY_CACHE_MISSES);
+        this.evictionCount = metrics.counter(QUERY_CACHE_EVICTIONS);
+        metrics.gauge(this::getSize, QUERY_CACHE_BYTES);
+        metrics.gauge(this::getEntryCount, QUERY_CACHE_ENTRIES);
+    }
+
+    /**
+     * 未开启查询结果缓存时返回 null
+     */
+    public static QueryResultCache getInstance() {
+        return QueryResultCacheHolder.INSTANCE;
+    }
+
+    /**
+     * 读取缓存的结果，未命中或任务不可缓存时返回 null
+     */
+    public RowStream get(StoragePhysicalTask task) {
+        String key = buildKey(task);
+        if (key == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && ttl > 0 && System.currentTimeMillis() - entry.createTime > ttl) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return new Table(entry.header, new ArrayList<>(entry.rows));
+    }
+
+    /**
+     * 在任务访问存储之前调用，记录分片当前的版本号；任务不可缓存时返回 null
+     */
+    public Ticket ticket(StoragePhysicalTask task) {
+        String key = buildKey(task);
+        if (key == null) {
+            return null;
+        }
+        FragmentMeta fragment = task.getTargetFragment();
+        return new Ticket(key, fragment, getVersion(fragment).get());
+    }
+
+    /**
+     * 包装存储返回的行流，行流被完整读取后将结果写入缓存
+     */
+    public RowStream cache(Ticket ticket, RowStream stream) {
+        if (ticket == null || stream == null) {
+            return stream;
+        }
+        return new CachingRowStream(ticket, stream);
+    }
+
+    /**
+     * 分片被写入或删除数据，递增版本号并清除该分片的全部缓存。需要在任务提交和执行完成后各调用一次
+     */
+    public void invalidate(FragmentMeta fragment) {
+        getVersion(fragment).incrementAndGet();
+        Set<String> keys = keysByFragment.get(fragment);
+        if (keys == null) {
+            return;
+        }
+        synchronized (this) {
+            for (String key : new ArrayList<>(keys)) {
+                remove(key);
+            }
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private AtomicLong getVersion(FragmentMeta fragment) {
+        return versions.computeIfAbsent(fragment, k -> new AtomicLong());
+    }
+
+    private synchronized void put(Ticket ticket, Header header, List<Row> rows, long entrySize) {
+        if (getVersion(ticket.fragment).get() != ticket.version) { // 执行期间分片被修改
+            return;
+        }
+        remove(ticket.key);
+        entries.put(ticket.key, new Entry(ticket.fragment, header, rows, entrySize));
+        keysByFragment.computeIfAbsent(ticket.fragment, k -> ConcurrentHashMap.newKeySet()).add(ticket.key);
+        size += entrySize;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue().size;
+            removeFragmentKey(eldest.getValue().fragment, eldest.getKey());
+            evictionCount.increment();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.size;
+            removeFragmentKey(entry.fragment, key);
+        }
+    }
+
+    private void removeFragmentKey(FragmentMeta fragment, String key) {
+        Set<String> keys = keysByFragment.get(fragment);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByFragment.remove(fragment);
+            }
+        }
+    }
+
+    /**
+     * 只缓存已封闭分片上的读任务，结束时间未确定的最新分片仍在写入，每次都需要读取存储
+     */
+    static String buildKey(StoragePhysicalTask task) {
+        FragmentMeta fragment = task.getTargetFragment();
+        if (fragment == null || fragment.getTimeInterval().getEndTime() == Long.MAX_VALUE) {
+            return null;
+        }
+        StorageUnitMeta storageUnit = fragment.getMasterStorageUnit();
+        if (storageUnit != null && storageUnit.isDummy()) { // 存储中已有的数据可能绕过 IginX 被修改
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(fragment.getTsInterval().getStartTimeSeries()).append('|')
+            .append(fragment.getTsInterval().getEndTimeSeries()).append('|')
+            .append(fragment.getTimeInterval().getStartTime()).append('|')
+            .append(fragment.getTimeInterval().getEndTime());
+        for (Operator operator : task.getOperators()) {
+            builder.append('|');
+            if (!appendOperator(builder, operator)) {
+                return null;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean appendOperator(StringBuilder builder, Operator operator) {
+        builder.append(operator.getType()).append('(');
+        switch (operator.getType()) {
+            case Project:
+                Project project = (Project) operator;
+                builder.append(project.getPatterns()).append(',').append(project.getTagFilter());
+                break;
+            case Select:
+                Select select = (Select) operator;
+                builder.append(select.getFilter()).append(',').append(select.getTagFilter());
+                break;
+            case Limit:
+                Limit limit = (Limit) operator;
+                builder.append(limit.getLimit()).append(',').append(limit.getOffset()).append(',').append(limit.isTail());
+                break;
+            case Downsample:
+                Downsample downsample = (Downsample) operator;
+                builder.append(downsample.getPrecision()).append(',')
+                    .append(downsample.getTimeRange().getBeginTime()).append(',')
+                    .append(downsample.getTimeRange().getEndTime());
+                for (FunctionCall functionCall : downsample.getFunctionCallList()) {
+                    builder.append(',');
+                    appendFunctionCall(builder, functionCall);
+                }
+                break;
+            case SetTransform:
+                for (FunctionCall functionCall : ((SetTransform) operator).getFunctionCallList()) {
+                    builder.append(',');
+                    appendFunctionCall(builder, functionCall);
+                }
+                break;
+            default: // 其他算子不会下推到存储，或结果可能依赖外部状态
+                return false;
+        }
+        builder.append(')');
+        return true;
+    }
+
+    private static void appendFunctionCall(StringBuilder builder, FunctionCall functionCall) {
+        builder.append(functionCall.getFunction().getIdentifier()).append('{');
+        // 按参数名排序，使相同的调用得到相同的键
+        Map<String, Value> params = new TreeMap<>(functionCall.getParams());
+        for (Map.Entry<String, Value> param : params.entrySet()) {
+            Value value = param.getValue();
+            builder.append(param.getKey()).append('=');
+            if (value == null) {
+                builder.append("null");
+            } else if (value.getDataType() == DataType.BINARY) {
+                builder.append('"').append(value.getBinaryVAsString()).append('"');
+            } else {
+                builder.append(value.getValue());
+            }
+            builder.append(';');
+        }
+        builder.append('}');
+    }
+
+    public static class Ticket {
+
+        private final String key;
+
+        private final FragmentMeta fragment;
+
+        private final long version;
+
+        Ticket(String key, FragmentMeta fragment, long version) {
+            this.key = key;
+            this.fragment = fragment;
+            this.version = version;
+        }
+    }
+
+    private static class Entry {
+
+        private final FragmentMeta fragment;
+
+        private final Header header;
+
+        private final List<Row> rows;
+
+        private final long size;
+
+        private final long createTime = System.currentTimeMillis();
+
+        Entry(FragmentMeta fragment, Header header, List<Row> rows, long size) {
+            this.fragment = fragment;
+            this.header = header;
+            this.rows = rows;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 边读取边缓存的行流，超出单个结果的大小上限后放弃缓存，提前关闭时也不写入缓存
+     */
+    private class CachingRowStream implements RowStream {
+
+        private final Ticket ticket;
+
+        private final RowStream stream;
+
+        private List<Row> rows = new ArrayList<>();
+
+        private long entrySize;
+
+        CachingRowStream(Ticket ticket, RowStream stream) {
+            this.ticket = ticket;
+            this.stream = stream;
+        }
+
+        @Override
+        public Header getHeader() throws PhysicalException {
+            return stream.getHeader();
+        }
+
+        @Override
+        public void close() throws PhysicalException {
+            rows = null;
+            stream.close();
+        }
+
+        @Override
+        public boolean hasNext() throws PhysicalException {
+            boolean hasNext = stream.hasNext();
+            if (!hasNext && rows != null) {
+                put(ticket, stream.getHeader(), rows, entrySize);
+                rows = null;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Row next() throws PhysicalException {
+            Row row = stream.next();
+            if (rows != null) {
+                entrySize += RowUtils.estimateSize(row);
+                if (entrySize > maxEntrySize) {
+                    rows = null;
+                } else {
+                    rows.add(row);
+                }
+            }
+            return row;
+        }
+    }
+
+    private static class QueryResultCacheHolder {
+
+        private static final QueryResultCache INSTANCE = create();
+
+        private static QueryResultCache create() {
+            Config config = ConfigDescriptor.getInstance().getConfig();
+            if (!config.isEnableQueryCache()) {
+                return null;
+            }
+            return new QueryResultCache(config.getQueryCacheMaxSize(), config.getQueryCacheMaxEntrySize(), config.getQueryCacheTtl());
+        }
+
+        private QueryResultCacheHolder() {
+        }
+    }
+}
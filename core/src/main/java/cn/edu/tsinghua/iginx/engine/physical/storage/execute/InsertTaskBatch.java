@@ -0,0 +1,224 @@
+package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
+
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 将同一分片上的多个写入任务合并为一次写入。合并后的数据统一按列组织，
+ * 同一序列同一时间戳被多次写入时以后提交的任务为准
+ */
+public class InsertTaskBatch {
+
+    private final List<StoragePhysicalTask> tasks = new ArrayList<>();
+
+    private final Map<SeriesKey, DataType> dataTypes = new HashMap<>();
+
+    private final FragmentMeta fragment;
+
+    private final boolean sync;
+
+    private final boolean needBroadcasting;
+
+    private final boolean aligned;
+
+    private final long maxPoints;
+
+    private long points;
+
+    public InsertTaskBatch(StoragePhysicalTask task, long maxPoints) {
+        this.fragment = task.getTargetFragment();
+        this.sync = task.isSync();
+        this.needBroadcasting = task.isNeedBroadcasting();
+        this.aligned = isAligned(getData(task).getRawDataType());
+        this.maxPoints = maxPoints;
+        add(task);
+    }
+
+    /**
+     * 判断任务是否为可以参与合并的写入任务
+     */
+    public static boolean isMergeable(StoragePhysicalTask task) {
+        List<Operator> operators = task.getOperators();
+        return operators.size() == 1 && operators.get(0).getType() == OperatorType.Insert
+            && task.getTargetFragment() != null && !task.isCancelled();
+    }
+
+    /**
+     * 尝试将任务加入批次，任务与批次不兼容或批次已满时返回 false
+     */
+    public boolean tryAdd(StoragePhysicalTask task) {
+        if (!isMergeable(task) || !fragment.equals(task.getTargetFragment()) || sync != task.isSync()
+            || needBroadcasting != task.isNeedBroadcasting()) {
+            return false;
+        }
+        DataView data = getData(task);
+        if (aligned != isAligned(data.getRawDataType()) || points + countPoints(data) > maxPoints) {
+            return false;
+        }
+        for (int i = 0; i < data.getPathNum(); i++) {
+            DataType dataType = dataTypes.get(new SeriesKey(data.getPath(i), data.getTags(i)));
+            if (dataType != null && dataType != data.getDataType(i)) {
+                return false;
+            }
+        }
+        add(task);
+        return true;
+    }
+
+    private void add(StoragePhysicalTask task) {
+        DataView data = getData(task);
+        for (int i = 0; i < data.getPathNum(); i++) {
+            dataTypes.put(new SeriesKey(data.getPath(i), data.getTags(i)), data.getDataType(i));
+        }
+        points += countPoints(data);
+        tasks.add(task);
+    }
+
+    public List<StoragePhysicalTask> getTasks() {
+        return tasks;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public boolean isFull() {
+        return points >= maxPoints;
+    }
+
+    /**
+     * 生成合并后的写入任务，批次中只有一个任务时直接返回该任务
+     */
+    public StoragePhysicalTask build() {
+        if (tasks.size() == 1) {
+            return tasks.get(0);
+        }
+        Map<SeriesKey, Map<Long, Object>> seriesValues = new LinkedHashMap<>();
+        for (StoragePhysicalTask task : tasks) {
+            DataView data = getData(task);
+            if (data.isColumnData()) {
+                for (int i = 0; i < data.getPathNum(); i++) {
+                    Map<Long, Object> values = seriesValues.computeIfAbsent(new SeriesKey(data.getPath(i), data.getTags(i)), k -> new HashMap<>());
+                    BitmapView bitmapView = data.getBitmapView(i);
+                    for (int j = 0, index = 0; j < data.getTimeSize(); j++) {
+                        if (bitmapView.get(j)) {
+                            values.put(data.getTimestamp(j), data.getValue(i, index++));
+                        }
+                    }
+                }
+            } else {
+                List<Map<Long, Object>> valuesList = new ArrayList<>(data.getPathNum());
+                for (int i = 0; i < data.getPathNum(); i++) {
+                    valuesList.add(seriesValues.computeIfAbsent(new SeriesKey(data.getPath(i), data.getTags(i)), k -> new HashMap<>()));
+                }
+                for (int i = 0; i < data.getTimeSize(); i++) {
+                    BitmapView bitmapView = data.getBitmapView(i);
+                    for (int j = 0, index = 0; j < data.getPathNum(); j++) {
+                        if (bitmapView.get(j)) {
+                            valuesList.get(j).put(data.getTimestamp(i), data.getValue(i, index++));
+                        }
+                    }
+                }
+            }
+        }
+
+        long[] timestamps = seriesValues.values().stream().flatMap(e -> e.keySet().stream())
+            .mapToLong(Long::longValue).distinct().sorted().toArray();
+        List<Long> timestampList = new ArrayList<>(timestamps.length);
+        for (long timestamp : timestamps) {
+            timestampList.add(timestamp);
+        }
+        List<String> paths = new ArrayList<>(seriesValues.size());
+        List<Map<String, String>> tagsList = new ArrayList<>(seriesValues.size());
+        List<DataType> dataTypeList = new ArrayList<>(seriesValues.size());
+        List<Bitmap> bitmaps = new ArrayList<>(seriesValues.size());
+        Object[] valuesList = new Object[seriesValues.size()];
+        boolean hasTags = false;
+        int index = 0;
+        for (Map.Entry<SeriesKey, Map<Long, Object>> entry : seriesValues.entrySet()) {
+            SeriesKey key = entry.getKey();
+            Map<Long, Object> values = entry.getValue();
+            paths.add(key.path);
+            tagsList.add(key.tags);
+            hasTags |= key.tags != null;
+            dataTypeList.add(dataTypes.get(key));
+            Bitmap bitmap = new Bitmap(timestamps.length);
+            Object[] columnValues = new Object[values.size()];
+            for (int j = 0, k = 0; j < timestamps.length; j++) {
+                Object value = values.get(timestamps[j]);
+                if (value != null) {
+                    bitmap.mark(j);
+                    columnValues[k++] = value;
+                }
+            }
+            bitmaps.add(bitmap);
+            valuesList[index++] = columnValues;
+        }
+        RawData rawData = new RawData(paths, hasTags ? tagsList : Collections.emptyList(), timestampList, valuesList,
+            dataTypeList, bitmaps, aligned ? RawDataType.Column : RawDataType.NonAlignedColumn);
+        DataView dataView = new ColumnDataView(rawData, 0, paths.size(), 0, timestamps.length);
+        Insert insert = new Insert(new FragmentSource(fragment), dataView);
+        return new StoragePhysicalTask(Collections.singletonList(insert), fragment, sync, needBroadcasting);
+    }
+
+    private static DataView getData(StoragePhysicalTask task) {
+        return ((Insert) task.getOperators().get(0)).getData();
+    }
+
+    private static long countPoints(DataView data) {
+        return (long) data.getPathNum() * data.getTimeSize();
+    }
+
+    private static boolean isAligned(RawDataType type) {
+        return type == RawDataType.Row || type == RawDataType.Column;
+    }
+
+    private static final class SeriesKey {
+
+        private final String path;
+
+        private final Map<String, String> tags;
+
+        SeriesKey(String path, Map<String, String> tags) {
+            this.path = path;
+            this.tags = tags == null || tags.isEmpty() ? null : tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SeriesKey that = (SeriesKey) o;
+            return path.equals(that.path) && Objects.equals(tags, that.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, tags);
+        }
+    }
+
+}
@@ -20,24 +20,31 @@ package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
 
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskCancelledException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.TooManyPhysicalTasksException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorException;
 import cn.edu.tsinghua.iginx.engine.physical.memory.MemoryPhysicalTaskDispatcher;
 import cn.edu.tsinghua.iginx.engine.physical.optimizer.ReplicaDispatcher;
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
 import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
 import cn.edu.tsinghua.iginx.engine.physical.storage.StorageManager;
+import cn.edu.tsinghua.iginx.engine.physical.storage.cache.QueryResultCache;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.Timeseries;
 import cn.edu.tsinghua.iginx.engine.physical.storage.queue.StoragePhysicalTaskQueue;
 import cn.edu.tsinghua.iginx.engine.physical.task.GlobalPhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.MemoryPhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.TaskExecuteResult;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
 import cn.edu.tsinghua.iginx.metadata.DefaultMetaManager;
 import cn.edu.tsinghua.iginx.metadata.IMetaManager;
 import cn.edu.tsinghua.iginx.metadata.entity.StorageEngineMeta;
 import cn.edu.tsinghua.iginx.metadata.entity.StorageUnitMeta;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
+import cn.edu.tsinghua.iginx.statistics.LatencyHistogram;
+import cn.edu.tsinghua.iginx.statistics.MetricsRegistry;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +53,12 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class StoragePhysicalTaskExecutor {
@@ -69,7 +81,57 @@ public class StoragePhysicalTaskExecutor {
 
     private final int maxCachedPhysicalTaskPerStorage = ConfigDescriptor.getInstance().getConfig().getMaxCachedPhysicalTaskPerStorage();
 
+    private final int storageTaskQueueCapacity = ConfigDescriptor.getInstance().getConfig().getStorageTaskQueueCapacity();
+
+    private final long storageTaskQueueOfferTimeout = ConfigDescriptor.getInstance().getConfig().getStorageTaskQueueOfferTimeout();
+
+    private final int readTaskWeight = ConfigDescriptor.getInstance().getConfig().getReadTaskWeight();
+
+    private final int writeTaskWeight = ConfigDescriptor.getInstance().getConfig().getWriteTaskWeight();
+
+    // 每个存储节点上已提交到线程池但尚未完成的任务数上限
+    private final Map<Long, Semaphore> storageTaskPermits = new ConcurrentHashMap<>();
+
+    private final boolean enableWriteCoalescing = ConfigDescriptor.getInstance().getConfig().isEnableWriteCoalescing();
+
+    private final long writeCoalescingMaxPoints = ConfigDescriptor.getInstance().getConfig().getWriteCoalescingMaxPoints();
+
+    private final long writeCoalescingLingerMs = ConfigDescriptor.getInstance().getConfig().getWriteCoalescingLingerMs();
+
+    // 写入合并的统计：合并产生的写入次数，以及被合并的原始任务数
+    private final LongAdder coalescedBatchCount;
+
+    private final LongAdder coalescedTaskCount;
+
+    // 未开启查询结果缓存时为 null
+    private final QueryResultCache queryResultCache = QueryResultCache.getInstance();
+
+    private static final String STORAGE_QUEUE_DEPTH = "iginx_storage_queue_depth";
+
+    private static final String STORAGE_QUEUE_WAIT = "iginx_storage_queue_wait_seconds";
+
+    private static final String STORAGE_TASK_LATENCY = "iginx_storage_task_latency_seconds";
+
+    private static final String STORAGE_POOL_ACTIVE_THREADS = "iginx_storage_pool_active_threads";
+
+    private static final String STORAGE_POOL_QUEUED_TASKS = "iginx_storage_pool_queued_tasks";
+
+    private static final String STORAGE_COALESCED_BATCHES = "iginx_storage_coalesced_batches_total";
+
+    private static final String STORAGE_COALESCED_TASKS = "iginx_storage_coalesced_tasks_total";
+
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
     private StoragePhysicalTaskExecutor() {
+        metrics.describe(STORAGE_QUEUE_DEPTH, "Number of tasks waiting in the task queue of each storage unit.");
+        metrics.describe(STORAGE_QUEUE_WAIT, "Time a task spends in the task queue of its storage unit.");
+        metrics.describe(STORAGE_TASK_LATENCY, "Execution latency of physical tasks by storage engine.");
+        metrics.describe(STORAGE_POOL_ACTIVE_THREADS, "Number of busy threads in the thread pool of each storage engine.");
+        metrics.describe(STORAGE_POOL_QUEUED_TASKS, "Number of tasks waiting in the thread pool of each storage engine.");
+        metrics.describe(STORAGE_COALESCED_BATCHES, "Number of writes produced by coalescing insert tasks.");
+        metrics.describe(STORAGE_COALESCED_TASKS, "Number of insert tasks merged into coalesced writes.");
+        coalescedBatchCount = metrics.counter(STORAGE_COALESCED_BATCHES);
+        coalescedTaskCount = metrics.counter(STORAGE_COALESCED_TASKS);
         StorageUnitHook storageUnitHook = (before, after) -> {
             if (before == null && after != null) { // 新增加 du，处理这种事件，其他事件暂时不处理
                 logger.info("new storage unit " + after.getId() + " come!");
@@ -78,7 +140,9 @@ public class StoragePhysicalTaskExecutor {
                 if (storageTaskQueues.containsKey(id)) {
                     return;
                 }
-                storageTaskQueues.put(id, new StoragePhysicalTaskQueue());
+                StoragePhysicalTaskQueue queue = new StoragePhysicalTaskQueue(storageTaskQueueCapacity, readTaskWeight, writeTaskWeight);
+                storageTaskQueues.put(id, queue);
+                metrics.gauge(queue::size, STORAGE_QUEUE_DEPTH, "storage_unit", id);
                 // 为拥有该分片的存储创建一个调度线程，用于调度任务执行
                 ExecutorService dispatcher = Executors.newSingleThreadExecutor();
                 long storageId = after.getStorageEngineId();
@@ -96,52 +160,141 @@ public class StoragePhysicalTaskExecutor {
                         }
                     }
                     Pair<IStorage, ThreadPoolExecutor> pair = p;
+                    Semaphore permits = storageTaskPermits.computeIfAbsent(storageId,
+                        k -> new Semaphore(pair.v.getMaximumPoolSize() + maxCachedPhysicalTaskPerStorage));
+                    String storageLabel = String.valueOf(storageId);
+                    metrics.gauge(pair.v::getActiveCount, STORAGE_POOL_ACTIVE_THREADS, "storage_engine", storageLabel);
+                    metrics.gauge(() -> pair.v.getQueue().size(), STORAGE_POOL_QUEUED_TASKS, "storage_engine", storageLabel);
+                    LatencyHistogram queueWait = metrics.histogram(STORAGE_QUEUE_WAIT, "storage_unit", id);
+                    StorageEngineMeta storageMeta = metaManager.getStorageEngine(storageId);
+                    LatencyHistogram executeLatency = metrics.histogram(STORAGE_TASK_LATENCY, "storage_engine", storageLabel,
+                        "engine_type", storageMeta == null ? "unknown" : storageMeta.getStorageEngine());
                     while (true) {
                         StoragePhysicalTask task = taskQueue.getTask();
+                        long waitNanos = System.nanoTime() - task.getEnqueueTime();
+                        queueWait.record(TimeUnit.NANOSECONDS.toMicros(waitNanos));
+                        if (task.getProfile() != null) {
+                            task.getProfile().setQueueWaitNanos(waitNanos);
+                        }
+                        List<StoragePhysicalTask> originTasks = Collections.singletonList(task);
+                        if (enableWriteCoalescing && InsertTaskBatch.isMergeable(task)) {
+                            // 合并写队列中紧随其后、写入同一分片的任务，遇到不能合并的任务时放回队首
+                            InsertTaskBatch batch = new InsertTaskBatch(task, writeCoalescingMaxPoints);
+                            long deadline = System.currentTimeMillis() + writeCoalescingLingerMs;
+                            while (!batch.isFull()) {
+                                StoragePhysicalTask nextTask = taskQueue.pollWriteTask(deadline - System.currentTimeMillis());
+                                if (nextTask == null) {
+                                    break;
+                                }
+                                if (!batch.tryAdd(nextTask)) {
+                                    taskQueue.returnWriteTask(nextTask);
+                                    break;
+                                }
+                            }
+                            if (batch.size() > 1) {
+                                originTasks = batch.getTasks();
+                                task = batch.build();
+                                coalescedBatchCount.increment();
+                                coalescedTaskCount.add(batch.size());
+                                logger.info("coalesce " + batch.size() + " insert tasks into task " + task);
+                            }
+                        }
                         task.setStorageUnit(id);
                         task.setDummyStorageUnit(isDummy);
                         logger.info("take out new task: " + task);
-                        if (pair.v.getQueue().size() > maxCachedPhysicalTaskPerStorage) {
-                            task.setResult(new TaskExecuteResult(new TooManyPhysicalTasksException(storageId)));
+                        // 存储节点繁忙时在此等待，不再取出新任务，队列随之积压并阻塞提交方
+                        try {
+                            permits.acquire();
+                        } catch (InterruptedException e) {
+                            logger.error("interrupted when waiting for storage " + storageId + ": ", e);
+                            TaskExecuteResult result = new TaskExecuteResult(new TooManyPhysicalTasksException(storageId));
+                            for (StoragePhysicalTask originTask : originTasks) {
+                                completeTask(originTask, result);
+                            }
                             continue;
                         }
-                        pair.v.submit(() -> {
-                            TaskExecuteResult result = null;
-                            try {
-                                result = pair.k.execute(task);
-                                logger.info("task " + task + " execute finished");
-                            } catch (Exception e) {
-                                logger.error("execute task error: " + e);
-                                result = new TaskExecuteResult(new PhysicalException(e));
+                        AtomicBoolean permitReleased = new AtomicBoolean(false);
+                        Runnable releasePermit = () -> {
+                            if (permitReleased.compareAndSet(false, true)) {
+                                permits.release();
                             }
-                            task.setResult(result);
-                            if (task.getFollowerTask() != null && task.isSync()) { // 只有同步任务才会影响后续任务的执行
-                                MemoryPhysicalTask followerTask = (MemoryPhysicalTask) task.getFollowerTask();
-                                boolean isFollowerTaskReady = followerTask.notifyParentReady();
-                                if (isFollowerTaskReady) {
-                                    memoryTaskExecutor.addMemoryTask(followerTask);
+                        };
+                        StoragePhysicalTask mergedTask = task;
+                        List<StoragePhysicalTask> mergedOriginTasks = originTasks;
+                        Future<?> future = pair.v.submit(() -> {
+                            TaskExecuteResult result = null;
+                            if (mergedTask.isCancelled()) { // 任务已被取消，不再访问存储
+                                result = mergedTask.getResult();
+                            } else {
+                                // 在访问存储之前记录分片的版本，执行期间分片被写入时不缓存结果
+                                QueryResultCache.Ticket ticket = queryResultCache == null || isWriteTask(mergedTask) ? null : queryResultCache.ticket(mergedTask);
+                                long startTime = System.nanoTime();
+                                try {
+                                    result = pair.k.execute(mergedTask);
+                                    logger.info("task " + mergedTask + " execute finished");
+                                } catch (Exception e) {
+                                    logger.error("execute task error: " + e);
+                                    result = new TaskExecuteResult(new PhysicalException(e));
                                 }
+                                if (ticket != null && result.getException() == null) {
+                                    result.setRowStream(queryResultCache.cache(ticket, result.getRowStream()));
+                                }
+                                long executeNanos = System.nanoTime() - startTime;
+                                executeLatency.record(TimeUnit.NANOSECONDS.toMicros(executeNanos));
+                                TaskProfile profile = mergedTask.getProfile();
+                                if (profile != null) {
+                                    // 后端返回的结果多为惰性读取，读取结果的时间也计入后端耗时；
+                                    // 后端耗时从发出请求时开始计算，已经包含 execute 的耗时，不再重复计入
+                                    if (result.getException() == null) {
+                                        result.setRowStream(profile.profileBackend(result.getRowStream(), startTime));
+                                    } else {
+                                        profile.addExecuteNanos(executeNanos);
+                                    }
+                                }
+                            }
+                            releasePermit.run();
+                            if (queryResultCache != null && isWriteTask(mergedTask)) {
+                                // 写入前后各清除一次，丢弃写入期间读取到旧数据的查询缓存的结果
+                                queryResultCache.invalidate(mergedTask.getTargetFragment());
                             }
-                            if (task.isNeedBroadcasting()) { // 需要传播
+                            if (mergedTask != mergedOriginTasks.get(0)) {
+                                mergedTask.setResult(result);
+                            }
+                            for (StoragePhysicalTask originTask : mergedOriginTasks) {
+                                completeTask(originTask, result);
+                            }
+                            if (mergedTask.isNeedBroadcasting()) { // 需要传播
                                 if (result.getException() != null) {
-                                    logger.error("task " + task + " will not broadcasting to replicas for the sake of exception: " + result.getException());
-                                    task.setResult(new TaskExecuteResult(result.getException()));
+                                    logger.error("task " + mergedTask + " will not broadcasting to replicas for the sake of exception: " + result.getException());
                                 } else {
-                                    StorageUnitMeta masterStorageUnit = task.getTargetFragment().getMasterStorageUnit();
+                                    StorageUnitMeta masterStorageUnit = mergedTask.getTargetFragment().getMasterStorageUnit();
                                     List<String> replicaIds = masterStorageUnit.getReplicas()
                                         .stream().map(StorageUnitMeta::getId).collect(Collectors.toList());
                                     replicaIds.add(masterStorageUnit.getId());
                                     for (String replicaId : replicaIds) {
-                                        if (replicaId.equals(task.getStorageUnit())) {
+                                        if (replicaId.equals(mergedTask.getStorageUnit())) {
                                             continue;
                                         }
-                                        StoragePhysicalTask replicaTask = new StoragePhysicalTask(task.getOperators(), false, false);
+                                        StoragePhysicalTask replicaTask = new StoragePhysicalTask(mergedTask.getOperators(), false, false);
                                         storageTaskQueues.get(replicaId).addTask(replicaTask);
-                                        logger.info("broadcasting task " + task + " to " + replicaId);
+                                        logger.info("broadcasting task " + mergedTask + " to " + replicaId);
                                     }
                                 }
                             }
                         });
+                        if (mergedTask == originTasks.get(0)) {
+                            // 取消时通知驱动中止后端的请求并中断执行任务的线程；合并后的写入涉及多个请求，不中断
+                            mergedTask.addCancelHook(() -> {
+                                try {
+                                    pair.k.cancel(mergedTask);
+                                } catch (Exception e) {
+                                    logger.error("cancel task " + mergedTask + " in storage failure: ", e);
+                                }
+                                if (future.cancel(true)) {
+                                    releasePermit.run();
+                                }
+                            });
+                        }
                     }
                 });
                 logger.info("process for new storage unit finished!");
@@ -172,6 +325,10 @@ public class StoragePhysicalTaskExecutor {
         commit(Collections.singletonList(task));
     }
 
+    public void commit(List<StoragePhysicalTask> tasks) {
+        commit(tasks, 0L);
+    }
+
     public TaskExecuteResult executeGlobalTask(GlobalPhysicalTask task) {
         List<StorageEngineMeta> storageList = metaManager.getStorageEngineList();
         switch (task.getOperator().getType()) {
@@ -196,12 +353,72 @@ public class StoragePhysicalTaskExecutor {
         }
     }
 
-    public void commit(List<StoragePhysicalTask> tasks) {
+    /**
+     * @param deadline 查询的截止时间，不大于 0 时没有限制；队列已满时提交方最多等到截止时间
+     */
+    public void commit(List<StoragePhysicalTask> tasks, long deadline) {
         for (StoragePhysicalTask task : tasks) {
+            if (task.isCancelled()) { // 查询已被取消，剩余的任务不再提交
+                completeTask(task, task.getResult());
+                continue;
+            }
+            String storageUnit;
             if (replicaDispatcher == null) {
-                storageTaskQueues.get(task.getTargetFragment().getMasterStorageUnitId()).addTask(task); // 默认情况下，异步写备，查询只查主
+                storageUnit = task.getTargetFragment().getMasterStorageUnitId(); // 默认情况下，异步写备，查询只查主
             } else {
-                storageTaskQueues.get(replicaDispatcher.chooseReplica(task)).addTask(task); // 在优化策略提供了选择器的情况下，利用选择器提供的结果
+                storageUnit = replicaDispatcher.chooseReplica(task); // 在优化策略提供了选择器的情况下，利用选择器提供的结果
+            }
+            if (queryResultCache != null) {
+                if (isWriteTask(task)) {
+                    queryResultCache.invalidate(task.getTargetFragment());
+                } else {
+                    RowStream cached = queryResultCache.get(task);
+                    if (cached != null) { // 命中缓存的查询不再进入存储的任务队列
+                        completeTask(task, new TaskExecuteResult(cached));
+                        continue;
+                    }
+                }
+            }
+            long timeout = storageTaskQueueOfferTimeout;
+            if (deadline > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    completeTask(task, new TaskExecuteResult(new PhysicalTaskCancelledException("task " + task + " exceeds the query deadline")));
+                    continue;
+                }
+                timeout = timeout <= 0 ? remaining : Math.min(timeout, remaining);
+            }
+            // 队列已满时阻塞提交线程，等待超时或任务被取消后放弃该任务
+            StoragePhysicalTaskQueue queue = storageTaskQueues.get(storageUnit);
+            if (!queue.offerTask(task, timeout)) {
+                if (task.isCancelled()) {
+                    completeTask(task, task.getResult());
+                } else {
+                    logger.warn("task queue of storage unit " + storageUnit + " is full, reject task " + task);
+                    completeTask(task, new TaskExecuteResult(new TooManyPhysicalTasksException(storageUnit)));
+                }
+                continue;
+            }
+            // 取消时从队列中移除尚未执行的任务，不再占用队列的容量
+            task.addCancelHook(() -> {
+                if (queue.removeTask(task)) {
+                    completeTask(task, task.getResult());
+                }
+            });
+        }
+    }
+
+    private static boolean isWriteTask(StoragePhysicalTask task) {
+        return OperatorType.isNeedBroadcasting(task.getOperators().get(0).getType());
+    }
+
+    private void completeTask(StoragePhysicalTask task, TaskExecuteResult result) {
+        task.setResult(result);
+        if (task.getFollowerTask() != null && task.isSync()) { // 只有同步任务才会影响后续任务的执行
+            MemoryPhysicalTask followerTask = (MemoryPhysicalTask) task.getFollowerTask();
+            boolean isFollowerTaskReady = followerTask.notifyParentReady();
+            if (isFollowerTaskReady) {
+                memoryTaskExecutor.addMemoryTask(followerTask);
             }
         }
     }
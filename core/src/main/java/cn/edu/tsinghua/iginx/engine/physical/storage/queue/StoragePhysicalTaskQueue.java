@@ -19,37 +19,217 @@
 package cn.edu.tsinghua.iginx.engine.physical.storage.queue;
 
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * 存储单元上的有界任务队列。读写任务分别排队，二者都有任务时按权重轮流取出，
+ * 避免大量写入饿死查询；队列满时提交方阻塞等待，从而把压力传导给客户端
+ */
 public class StoragePhysicalTaskQueue {
 
     private static final Logger logger = LoggerFactory.getLogger(StoragePhysicalTaskQueue.class);
 
-    private final BlockingQueue<StoragePhysicalTask> tasks;
+    private final Deque<StoragePhysicalTask> readTasks = new ArrayDeque<>();
+
+    private final Deque<StoragePhysicalTask> writeTasks = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final int capacity;
+
+    private final int readWeight;
+
+    private final int writeWeight;
+
+    // 当前轮次中读写任务剩余的出队次数
+    private int readCredit;
+
+    private int writeCredit;
 
     public StoragePhysicalTaskQueue() {
-        tasks = new LinkedBlockingQueue<>();
+        this(Integer.MAX_VALUE, 1, 1);
+    }
+
+    public StoragePhysicalTaskQueue(int capacity, int readWeight, int writeWeight) {
+        this.capacity = capacity <= 0 ? Integer.MAX_VALUE : capacity;
+        this.readWeight = Math.max(readWeight, 1);
+        this.writeWeight = Math.max(writeWeight, 1);
+    }
+
+    public static boolean isWriteTask(StoragePhysicalTask task) {
+        for (Operator operator : task.getOperators()) {
+            if (operator.getType() == OperatorType.Insert || operator.getType() == OperatorType.Delete) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * 提交任务，不受容量限制，用于不能阻塞的内部调用方（如副本同步）
+     */
     public void addTask(StoragePhysicalTask task) {
+        lock.lock();
         try {
-            tasks.put(task);
+            enqueue(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交任务，队列已满时最多等待 timeout 毫秒，timeout 不大于 0 时一直等待，超时或等待期间任务被取消时返回 false
+     */
+    public boolean offerTask(StoragePhysicalTask task, long timeout) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while (size() >= capacity) {
+                if (task.isCancelled()) {
+                    return false;
+                }
+                if (timeout <= 0) {
+                    notFull.await();
+                } else if (nanos <= 0) {
+                    return false;
+                } else {
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            }
+            if (task.isCancelled()) {
+                return false;
+            }
+            enqueue(task);
+            return true;
         } catch (InterruptedException e) {
             logger.error("add task to physical task queue error: ", e);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
         }
     }
 
     public StoragePhysicalTask getTask() {
+        lock.lock();
         try {
-            return tasks.take();
+            while (size() == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
         } catch (Exception e) {
             logger.error("encounter error when get memory task: ", e);
+        } finally {
+            lock.unlock();
         }
         return null;
     }
 
+    /**
+     * 获取写任务，最多等待 timeout 毫秒，timeout 不大于 0 时不等待，没有写任务时返回 null
+     */
+    public StoragePhysicalTask pollWriteTask(long timeout) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while (writeTasks.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            StoragePhysicalTask task = writeTasks.poll();
+            notFull.signal();
+            return task;
+        } catch (InterruptedException e) {
+            logger.error("encounter error when poll storage task: ", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * 将取出但未能处理的写任务放回队首
+     */
+    public void returnWriteTask(StoragePhysicalTask task) {
+        lock.lock();
+        try {
+            writeTasks.addFirst(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除尚未被取出的任务，任务不在队列中时返回 false。同时唤醒等待提交的线程，使其检查自己的任务是否已被取消
+     */
+    public boolean removeTask(StoragePhysicalTask task) {
+        lock.lock();
+        try {
+            boolean removed = readTasks.remove(task) || writeTasks.remove(task);
+            notFull.signalAll();
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return readTasks.size() + writeTasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(StoragePhysicalTask task) {
+        task.setEnqueueTime(System.nanoTime());
+        if (isWriteTask(task)) {
+            writeTasks.add(task);
+        } else {
+            readTasks.add(task);
+        }
+        notEmpty.signalAll();
+    }
+
+    private StoragePhysicalTask dequeue() {
+        StoragePhysicalTask task;
+        if (writeTasks.isEmpty()) {
+            task = readTasks.poll();
+        } else if (readTasks.isEmpty()) {
+            task = writeTasks.poll();
+        } else {
+            if (readCredit == 0 && writeCredit == 0) {
+                readCredit = readWeight;
+                writeCredit = writeWeight;
+            }
+            if (readCredit > 0) {
+                readCredit--;
+                task = readTasks.poll();
+            } else {
+                writeCredit--;
+                task = writeTasks.poll();
+            }
+        }
+        notFull.signal();
+        return task;
+    }
+
 }
@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.physical.storage.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Count;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Sum;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
+import cn.edu.tsinghua.iginx.engine.shared.operator.SetTransform;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.FilterType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.DataTypeUtils;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.PARAM_PATHS;
+
+/**
+ * 聚合与降采样下推到存储端时的公共逻辑，保证存储端返回的结果与内存中执行的结果在列名、类型和窗口划分上一致
+ */
+public class AggregatePushDownUtils {
+
+    /**
+     * 返回存储任务中下推的聚合算子（SetTransform 或 Downsample），不存在时返回 null
+     */
+    public static Operator getAggregateOperator(List<Operator> operators) {
+        Operator last = operators.get(operators.size() - 1);
+        if (last.getType() == OperatorType.SetTransform || last.getType() == OperatorType.Downsample) {
+            return last;
+        }
+        return null;
+    }
+
+    /**
+     * 返回存储任务中下推的过滤算子，不存在时返回 null
+     */
+    public static Select getSelectOperator(List<Operator> operators) {
+        for (Operator operator : operators) {
+            if (operator.getType() == OperatorType.Select) {
+                return (Select) operator;
+            }
+        }
+        return null;
+    }
+
+    public static List<FunctionCall> getFunctionCallList(Operator operator) {
+        if (operator.getType() == OperatorType.Downsample) {
+            return ((Downsample) operator).getFunctionCallList();
+        }
+        return ((SetTransform) operator).getFunctionCallList();
+    }
+
+    /**
+     * 按照内存中集合映射函数的语义，确定每个函数作用在哪些原始列上，以及结果列的名称与类型
+     */
+    public static List<AggregateColumn> resolveColumns(List<FunctionCall> functionCallList, List<Field> rawFields) {
+        List<AggregateColumn> columns = new ArrayList<>();
+        for (FunctionCall functionCall : functionCallList) {
+            String identifier = functionCall.getFunction().getIdentifier();
+            Value param = functionCall.getParams().get(PARAM_PATHS);
+            if (param == null || param.getDataType() != DataType.BINARY) {
+                throw new IllegalArgumentException("unexpected param type for " + identifier + ".");
+            }
+            Pattern pattern = Pattern.compile(StringUtils.reformatPath(param.getBinaryVAsString()) + ".*");
+            for (int i = 0; i < rawFields.size(); i++) {
+                Field field = rawFields.get(i);
+                if (!pattern.matcher(field.getFullName()).matches()) {
+                    continue;
+                }
+                DataType type = getResultType(identifier, field.getType());
+                columns.add(new AggregateColumn(identifier, i, new Field(identifier + "(" + field.getFullName() + ")", type)));
+            }
+        }
+        return columns;
+    }
+
+    public static DataType getResultType(String identifier, DataType rawType) {
+        switch (identifier) {
+            case Avg.AVG:
+                if (!DataTypeUtils.isNumber(rawType)) {
+                    throw new IllegalArgumentException("only number can calculate average");
+                }
+                return DataType.DOUBLE;
+            case Sum.SUM:
+                if (!DataTypeUtils.isNumber(rawType)) {
+                    throw new IllegalArgumentException("only number can calculate sum");
+                }
+                return DataTypeUtils.isWholeNumber(rawType) ? DataType.LONG : DataType.DOUBLE;
+            case Count.COUNT:
+                return DataType.LONG;
+            default:
+                return rawType;
+        }
+    }
+
+    /**
+     * 将存储端返回的值转换为结果列的类型
+     */
+    public static Object castValue(Object value, DataType type) {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case INTEGER:
+                return value instanceof Number ? ((Number) value).intValue() : value;
+            case LONG:
+                return value instanceof Number ? ((Number) value).longValue() : value;
+            case FLOAT:
+                return value instanceof Number ? ((Number) value).floatValue() : value;
+            case DOUBLE:
+                return value instanceof Number ? ((Number) value).doubleValue() : value;
+            case BINARY:
+                return value instanceof String ? ((String) value).getBytes() : value;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * 存储端按窗口返回结果时，内存中的降采样只会输出有数据的窗口，因此需要跳过全部为空（计数为 0）的窗口
+     */
+    public static boolean isEmptyWindow(List<AggregateColumn> columns, Object[] values) {
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (columns.get(i).getIdentifier().equals(Count.COUNT) && ((Number) value).longValue() == 0L) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 存储端按列分别返回窗口结果时，某列在窗口内没有数据会得到空值，而内存中对应的计数为 0
+     */
+    public static void fillEmptyCounts(List<AggregateColumn> columns, Object[] values) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (values[i] == null && columns.get(i).getIdentifier().equals(Count.COUNT)) {
+                values[i] = 0L;
+            }
+        }
+    }
+
+    /**
+     * 与内存中的降采样一致，以时间范围的起点作为窗口的对齐点
+     */
+    public static long getWindowStart(long timestamp, long bias, long precision) {
+        return timestamp - (timestamp - bias) % precision;
+    }
+
+    /**
+     * 计算片段时间范围与降采样时间范围的交集，返回 null 表示无交集
+     */
+    public static TimeRange getDownsampleRange(TimeInterval fragmentInterval, Downsample downsample) {
+        long begin = Math.max(fragmentInterval.getStartTime(), downsample.getTimeRange().getBeginTime());
+        long end = Math.min(fragmentInterval.getEndTime(), downsample.getTimeRange().getEndTime());
+        if (begin >= end) {
+            return null;
+        }
+        return new TimeRange(begin, end);
+    }
+
+    /**
+     * 构造下推查询的过滤条件：片段的时间范围、降采样的时间范围以及下推的过滤条件
+     */
+    public static Filter getPushDownFilter(TimeInterval fragmentInterval, Operator aggregate, Select select) {
+        long begin = fragmentInterval.getStartTime();
+        long end = fragmentInterval.getEndTime();
+        if (aggregate.getType() == OperatorType.Downsample) {
+            TimeRange range = getDownsampleRange(fragmentInterval, (Downsample) aggregate);
+            if (range != null) {
+                begin = range.getBeginTime();
+                end = range.getEndTime();
+            }
+        }
+        List<Filter> children = new ArrayList<>(Arrays.asList(new TimeFilter(Op.GE, begin), new TimeFilter(Op.L, end)));
+        if (select != null) {
+            children.add(select.getFilter());
+        }
+        return new AndFilter(children);
+    }
+
+    /**
+     * 过滤条件是否只由时间范围构成（时间条件的合取）
+     */
+    public static boolean isTimeRangeFilter(Filter filter) {
+        switch (filter.getType()) {
+            case Time:
+                Op op = ((TimeFilter) filter).getOp();
+                return op == Op.GE || op == Op.G || op == Op.LE || op == Op.L || op == Op.E;
+            case And:
+                for (Filter child : ((AndFilter) filter).getChildren()) {
+                    if (!isTimeRangeFilter(child)) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 计算下推查询需要扫描的时间范围 [begin, end)，下推的过滤条件必须只包含时间范围；返回 null 表示范围为空
+     */
+    public static TimeRange getPushDownTimeRange(TimeInterval fragmentInterval, Operator aggregate, Select select) {
+        long[] range = new long[]{fragmentInterval.getStartTime(), fragmentInterval.getEndTime()};
+        if (aggregate.getType() == OperatorType.Downsample) {
+            TimeRange timeRange = ((Downsample) aggregate).getTimeRange();
+            range[0] = Math.max(range[0], timeRange.getBeginTime());
+            range[1] = Math.min(range[1], timeRange.getEndTime());
+        }
+        if (select != null) {
+            intersectTimeRange(select.getFilter(), range);
+        }
+        if (range[0] >= range[1]) {
+            return null;
+        }
+        return new TimeRange(range[0], range[1]);
+    }
+
+    private static void intersectTimeRange(Filter filter, long[] range) {
+        if (filter.getType() == FilterType.And) {
+            for (Filter child : ((AndFilter) filter).getChildren()) {
+                intersectTimeRange(child, range);
+            }
+            return;
+        }
+        TimeFilter timeFilter = (TimeFilter) filter;
+        long value = timeFilter.getValue();
+        switch (timeFilter.getOp()) {
+            case GE:
+                range[0] = Math.max(range[0], value);
+                break;
+            case G:
+                range[0] = Math.max(range[0], value + 1);
+                break;
+            case LE:
+                range[1] = Math.min(range[1], value + 1);
+                break;
+            case L:
+                range[1] = Math.min(range[1], value);
+                break;
+            case E:
+                range[0] = Math.max(range[0], value);
+                range[1] = Math.min(range[1], value + 1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public static class AggregateColumn {
+
+        private final String identifier;
+
+        private final int rawIndex;
+
+        private final Field field;
+
+        public AggregateColumn(String identifier, int rawIndex, Field field) {
+            this.identifier = identifier;
+            this.rawIndex = rawIndex;
+            this.field = field;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public int getRawIndex() {
+            return rawIndex;
+        }
+
+        public Field getField() {
+            return field;
+        }
+    }
+
+}
@@ -18,12 +18,15 @@
  */
 package cn.edu.tsinghua.iginx.engine.physical.task;
 
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class AbstractPhysicalTask implements PhysicalTask {
 
@@ -32,9 +35,11 @@ public abstract class AbstractPhysicalTask implements PhysicalTask {
     private final TaskType type;
 
     private final List<Operator> operators;
-    private final CountDownLatch resultLatch = new CountDownLatch(1);
+    private final CompletableFuture<TaskExecuteResult> resultFuture = new CompletableFuture<>();
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled = false;
     private PhysicalTask followerTask;
-    private TaskExecuteResult result;
+    private volatile TaskProfile profile;
 
     public AbstractPhysicalTask(TaskType type, List<Operator> operators) {
         this.type = type;
@@ -62,18 +67,64 @@ public abstract class AbstractPhysicalTask implements PhysicalTask {
     }
 
     @Override
-    public TaskExecuteResult getResult() {
-        try {
-            this.resultLatch.await();
-        } catch (InterruptedException e) {
-            logger.error("unexpected interrupted when get result: ", e);
+    public void enableProfile() {
+        if (profile == null) {
+            profile = new TaskProfile();
         }
-        return result;
+    }
+
+    @Override
+    public TaskProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public TaskExecuteResult getResult() {
+        return resultFuture.join();
+    }
+
+    @Override
+    public CompletableFuture<TaskExecuteResult> getResultFuture() {
+        return resultFuture;
     }
 
     @Override
     public void setResult(TaskExecuteResult result) {
-        this.result = result;
-        this.resultLatch.countDown();
+        if (!resultFuture.complete(result) && cancelled) { // 任务已被取消，没有人再消费这个结果
+            release(result);
+        }
+    }
+
+    @Override
+    public void cancel(PhysicalException reason) {
+        cancelled = true;
+        resultFuture.complete(new TaskExecuteResult(reason));
+        for (Runnable hook : cancelHooks) {
+            hook.run();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void addCancelHook(Runnable hook) {
+        cancelHooks.add(hook);
+        if (cancelled) {
+            hook.run();
+        }
+    }
+
+    private void release(TaskExecuteResult result) {
+        if (result == null || result.getRowStream() == null) {
+            return;
+        }
+        try {
+            result.getRowStream().close();
+        } catch (PhysicalException e) {
+            logger.error("encounter error when release result of cancelled task: ", e);
+        }
     }
 }
@@ -81,13 +81,17 @@ public class BinaryMemoryPhysicalTask extends MemoryPhysicalTask {
             if (OperatorType.isUnaryOperator(op.getType())) {
                 throw new UnexpectedOperatorException("unexpected unary operator " + op + " in unary task");
             }
+            long startTime = System.nanoTime();
             stream = executor.executeBinaryOperator((BinaryOperator) op, streamA, streamB);
+            stream = profile(op, stream, startTime);
             for (int i = 1; i < operators.size(); i++) {
                 op = operators.get(i);
                 if (OperatorType.isBinaryOperator(op.getType())) {
                     throw new UnexpectedOperatorException("unexpected binary operator " + op + " in unary task");
                 }
+                startTime = System.nanoTime();
                 stream = executor.executeUnaryOperator((UnaryOperator) op, stream);
+                stream = profile(op, stream, startTime);
             }
         } catch (PhysicalException e) {
             logger.error("encounter error when execute operator in memory: ", e);
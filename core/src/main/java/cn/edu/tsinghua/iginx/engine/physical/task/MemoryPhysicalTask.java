@@ -19,6 +19,8 @@
 package cn.edu.tsinghua.iginx.engine.physical.task;
 
 
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 
 import java.util.List;
@@ -37,4 +39,15 @@ public abstract class MemoryPhysicalTask extends AbstractPhysicalTask {
 
     public abstract boolean notifyParentReady(); // 通知当前任务的某个父节点已经完成，该方法会返回 boolean 值，表示当前的任务是否可以执行
 
+    /**
+     * 开启执行统计时记录算子输出的行流，startTime 为开始执行该算子的时刻
+     */
+    protected RowStream profile(Operator operator, RowStream stream, long startTime) {
+        TaskProfile profile = getProfile();
+        if (profile == null) {
+            return stream;
+        }
+        return profile.profileOperator(operator, stream, startTime);
+    }
+
 }
@@ -1,9 +1,18 @@
 package cn.edu.tsinghua.iginx.engine.physical.task;
 
+import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.UnexpectedOperatorException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.MemoryPhysicalTaskDispatcher;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutor;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.OperatorMemoryExecutorFactory;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream.PrefetchRowStream;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.MultipleOperator;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.UnaryOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,7 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * 目前专门用于 CombineNonQuery 操作符
+ * 用于 CombineNonQuery 与 MergeUnion 操作符
  */
 public class MultipleMemoryPhysicalTask extends MemoryPhysicalTask {
 
@@ -31,6 +40,9 @@ public class MultipleMemoryPhysicalTask extends MemoryPhysicalTask {
     @Override
     public TaskExecuteResult execute() {
         List<Operator> operators = getOperators();
+        if (!operators.isEmpty() && operators.get(0).getType() == OperatorType.MergeUnion) {
+            return executeMergeUnion(operators);
+        }
         if (operators.size() != 1) {
             return new TaskExecuteResult(new PhysicalException("unexpected multiple memory physical task"));
         }
@@ -58,6 +70,60 @@ public class MultipleMemoryPhysicalTask extends MemoryPhysicalTask {
         return new TaskExecuteResult();
     }
 
+    private TaskExecuteResult executeMergeUnion(List<Operator> operators) {
+        List<RowStream> streams = new ArrayList<>();
+        for (PhysicalTask parentTask : parentTasks) {
+            TaskExecuteResult parentResult = parentTask.getResult();
+            if (parentResult == null) {
+                closeStreams(streams);
+                return new TaskExecuteResult(new PhysicalException("unexpected parent task execute result for " + this + ": null"));
+            }
+            if (parentResult.getException() != null) {
+                closeStreams(streams);
+                return parentResult;
+            }
+            streams.add(parentResult.getRowStream());
+        }
+        int prefetchSize = ConfigDescriptor.getInstance().getConfig().getUnionPrefetchSize();
+        OperatorMemoryExecutor executor = OperatorMemoryExecutorFactory.getInstance().getMemoryExecutor();
+        RowStream stream;
+        try {
+            if (prefetchSize > 0) {
+                // 各个分片的结果在后台并发读取，归并时只需从缓存中获取
+                for (int i = 0; i < streams.size(); i++) {
+                    streams.set(i, new PrefetchRowStream(streams.get(i), prefetchSize, MemoryPhysicalTaskDispatcher.getInstance().getPrefetchThreadPool()));
+                }
+            }
+            long startTime = System.nanoTime();
+            stream = executor.executeMultipleOperator((MultipleOperator) operators.get(0), streams);
+            stream = profile(operators.get(0), stream, startTime);
+            for (int i = 1; i < operators.size(); i++) {
+                Operator op = operators.get(i);
+                if (!OperatorType.isUnaryOperator(op.getType())) {
+                    throw new UnexpectedOperatorException("unexpected operator " + op + " in multiple task");
+                }
+                startTime = System.nanoTime();
+                stream = executor.executeUnaryOperator((UnaryOperator) op, stream);
+                stream = profile(op, stream, startTime);
+            }
+        } catch (PhysicalException e) {
+            logger.error("encounter error when execute operator in memory: ", e);
+            closeStreams(streams);
+            return new TaskExecuteResult(e);
+        }
+        return new TaskExecuteResult(stream);
+    }
+
+    private void closeStreams(List<RowStream> streams) {
+        for (RowStream stream : streams) {
+            try {
+                stream.close();
+            } catch (PhysicalException e) {
+                logger.error("close row stream failure: ", e);
+            }
+        }
+    }
+
     @Override
     public boolean notifyParentReady() {
         return parentReadyCount.incrementAndGet() == parentTasks.size();
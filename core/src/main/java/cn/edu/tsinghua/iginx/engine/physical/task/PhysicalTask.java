@@ -19,9 +19,12 @@
 package cn.edu.tsinghua.iginx.engine.physical.task;
 
 
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface PhysicalTask {
 
@@ -31,10 +34,34 @@ public interface PhysicalTask {
 
     TaskExecuteResult getResult();
 
+    CompletableFuture<TaskExecuteResult> getResultFuture();
+
     void setResult(TaskExecuteResult result);
 
+    /**
+     * 取消任务，等待结果的调用方会立刻得到携带 reason 的结果，之后到达的结果会被直接释放
+     */
+    void cancel(PhysicalException reason);
+
+    boolean isCancelled();
+
+    /**
+     * 注册任务被取消时需要执行的操作，例如中断正在执行任务的线程；任务已被取消时立即执行
+     */
+    void addCancelHook(Runnable hook);
+
     PhysicalTask getFollowerTask();
 
     void setFollowerTask(PhysicalTask task);
 
+    /**
+     * 开启执行统计，需要在任务提交执行之前调用
+     */
+    void enableProfile();
+
+    /**
+     * 任务的执行统计，未开启时返回 null
+     */
+    TaskProfile getProfile();
+
 }
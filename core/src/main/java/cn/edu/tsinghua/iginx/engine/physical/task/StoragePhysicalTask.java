@@ -33,6 +33,8 @@ public class StoragePhysicalTask extends AbstractPhysicalTask {
     private String storageUnit;
     private long storage;
     private boolean dummyStorageUnit;
+    // 进入存储任务队列的时刻（System.nanoTime），用于统计排队时间
+    private long enqueueTime;
 
     public StoragePhysicalTask(List<Operator> operators) {
         this(operators, ((FragmentSource) ((UnaryOperator) operators.get(0)).getSource()).getFragment(), true, false);
@@ -77,6 +79,14 @@ public class StoragePhysicalTask extends AbstractPhysicalTask {
         this.storage = storage;
     }
 
+    public long getEnqueueTime() {
+        return enqueueTime;
+    }
+
+    public void setEnqueueTime(long enqueueTime) {
+        this.enqueueTime = enqueueTime;
+    }
+
     public boolean isSync() {
         return sync;
     }
@@ -46,7 +46,9 @@ public class UnaryMemoryPhysicalTask extends MemoryPhysicalTask {
                 if (OperatorType.isBinaryOperator(op.getType())) {
                     throw new UnexpectedOperatorException("unexpected binary operator " + op + " in unary task");
                 }
+                long startTime = System.nanoTime();
                 stream = executor.executeUnaryOperator((UnaryOperator) op, stream);
+                stream = profile(op, stream, startTime);
             }
         } catch (PhysicalException e) {
             logger.error("encounter error when execute operator in memory: ", e);
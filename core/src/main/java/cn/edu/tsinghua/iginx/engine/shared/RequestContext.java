@@ -36,6 +36,14 @@ public class RequestContext {
 
     private boolean useStream;
 
+    // 语句在物理引擎中执行的超时时间（毫秒），不大于 0 时使用配置中的默认值
+    private long timeout;
+
+    private volatile boolean killed;
+
+    // 取消正在执行的物理任务
+    private volatile Runnable cancelHook;
+
     private void init() {
         this.id = SnowFlakeUtils.getInstance().nextId();
         this.startTime = System.currentTimeMillis();
@@ -84,6 +92,24 @@ public class RequestContext {
         return useStream;
     }
 
+    public void setCancelHook(Runnable cancelHook) {
+        this.cancelHook = cancelHook;
+        if (killed && cancelHook != null) {
+            cancelHook.run();
+        }
+    }
+
+    /**
+     * 终止语句的执行，正在执行的物理任务会被取消
+     */
+    public void kill() {
+        killed = true;
+        Runnable cancelHook = this.cancelHook;
+        if (cancelHook != null) {
+            cancelHook.run();
+        }
+    }
+
     public void setResult(Result result) {
         this.result = result;
         if (this.result != null) {
@@ -46,6 +46,8 @@ public class Result {
     private long queryId;
     private JobState jobState;
     private RowStream resultStream;
+    // 流式查询的结果是否按列编码返回
+    private boolean useColumnDataSet;
 
     private long jobId;
 
@@ -180,36 +182,15 @@ public class Result {
                 }
             });
 
-            List<ByteBuffer> valuesList = new ArrayList<>();
-            List<ByteBuffer> bitmapList = new ArrayList<>();
-
-            int cnt = 0;
-            boolean hasTimestamp = resultStream.getHeader().hasTimestamp();
-            while (resultStream.hasNext() && cnt < fetchSize) {
-                Row row = resultStream.next();
-
-                Object[] rawValues = row.getValues();
-                Object[] rowValues = rawValues;
-                if (hasTimestamp) {
-                    rowValues = new Object[rawValues.length + 1];
-                    rowValues[0] = row.getTimestamp();
-                    System.arraycopy(rawValues, 0, rowValues, 1, rawValues.length);
-                }
-                valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
-
-                Bitmap bitmap = new Bitmap(rowValues.length);
-                for (int i = 0; i < rowValues.length; i++) {
-                    if (rowValues[i] != null) {
-                        bitmap.mark(i);
-                    }
-                }
-                bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
-                cnt++;
-            }
+            List<Row> rows = nextRows(fetchSize);
             resp.setColumns(paths);
             resp.setTagsList(tagsList);
             resp.setDataTypeList(types);
-            resp.setQueryDataSet(new QueryDataSetV2(valuesList, bitmapList));
+            if (useColumnDataSet) {
+                resp.setColumnDataSet(getColumnDataSet(rows, types, header.hasTimestamp()));
+            } else {
+                resp.setQueryDataSet(getRowDataSet(rows, types, header.hasTimestamp()));
+            }
         } catch (PhysicalException e) {
             logger.error("unexpected error when load row stream: ", e);
             resp.setStatus(RpcUtils.FAILURE);
@@ -234,34 +215,13 @@ public class Result {
 
             resultStream.getHeader().getFields().forEach(field -> types.add(field.getType()));
 
-            List<ByteBuffer> valuesList = new ArrayList<>();
-            List<ByteBuffer> bitmapList = new ArrayList<>();
-
-            int cnt = 0;
-            boolean hasTimestamp = resultStream.getHeader().hasTimestamp();
-            while (resultStream.hasNext() && cnt < fetchSize) {
-                Row row = resultStream.next();
-
-                Object[] rawValues = row.getValues();
-                Object[] rowValues = rawValues;
-                if (hasTimestamp) {
-                    rowValues = new Object[rawValues.length + 1];
-                    rowValues[0] = row.getTimestamp();
-                    System.arraycopy(rawValues, 0, rowValues, 1, rawValues.length);
-                }
-                valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
-
-                Bitmap bitmap = new Bitmap(rowValues.length);
-                for (int i = 0; i < rowValues.length; i++) {
-                    if (rowValues[i] != null) {
-                        bitmap.mark(i);
-                    }
-                }
-                bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
-                cnt++;
-            }
+            List<Row> rows = nextRows(fetchSize);
             resp.setHasMoreResults(resultStream.hasNext());
-            resp.setQueryDataSet(new QueryDataSetV2(valuesList, bitmapList));
+            if (useColumnDataSet) {
+                resp.setColumnDataSet(getColumnDataSet(rows, types, header.hasTimestamp()));
+            } else {
+                resp.setQueryDataSet(getRowDataSet(rows, types, header.hasTimestamp()));
+            }
         } catch (PhysicalException e) {
             logger.error("unexpected error when load row stream: ", e);
             resp.setStatus(RpcUtils.FAILURE);
@@ -269,6 +229,58 @@ public class Result {
         return resp;
     }
 
+    private List<Row> nextRows(int fetchSize) throws PhysicalException {
+        List<Row> rows = new ArrayList<>();
+        while (resultStream.hasNext() && rows.size() < fetchSize) {
+            rows.add(resultStream.next());
+        }
+        return rows;
+    }
+
+    private static Object getValue(Row row, int index, boolean hasTimestamp) {
+        if (!hasTimestamp) {
+            return row.getValue(index);
+        }
+        return index == 0 ? row.getTimestamp() : row.getValue(index - 1);
+    }
 
+    private static QueryDataSetV2 getRowDataSet(List<Row> rows, List<DataType> types, boolean hasTimestamp) {
+        List<ByteBuffer> valuesList = new ArrayList<>(rows.size());
+        List<ByteBuffer> bitmapList = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Object[] rowValues = new Object[types.size()];
+            Bitmap bitmap = new Bitmap(rowValues.length);
+            for (int i = 0; i < rowValues.length; i++) {
+                rowValues[i] = getValue(row, i, hasTimestamp);
+                if (rowValues[i] != null) {
+                    bitmap.mark(i);
+                }
+            }
+            valuesList.add(ByteUtils.getRowByteBuffer(rowValues, types));
+            bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+        }
+        return new QueryDataSetV2(valuesList, bitmapList);
+    }
+
+    /**
+     * 将一批结果按列编码，每列只包含一个值缓冲区和一个位图，不再有逐行的封装开销
+     */
+    private static QueryDataSetV3 getColumnDataSet(List<Row> rows, List<DataType> types, boolean hasTimestamp) {
+        List<ByteBuffer> valuesList = new ArrayList<>(types.size());
+        List<ByteBuffer> bitmapList = new ArrayList<>(types.size());
+        Object[] columnValues = new Object[rows.size()];
+        for (int i = 0; i < types.size(); i++) {
+            Bitmap bitmap = new Bitmap(rows.size());
+            for (int j = 0; j < rows.size(); j++) {
+                columnValues[j] = getValue(rows.get(j), i, hasTimestamp);
+                if (columnValues[j] != null) {
+                    bitmap.mark(j);
+                }
+            }
+            valuesList.add(ByteUtils.getColumnByteBuffer(columnValues, types.get(i)));
+            bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+        }
+        return new QueryDataSetV3(rows.size(), valuesList, bitmapList);
+    }
 
 }
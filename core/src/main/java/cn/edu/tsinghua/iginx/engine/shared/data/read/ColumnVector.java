@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 按列存储的一组同类型值，数值类型使用原生数组存放，空值通过 bitmap 标记，避免逐行装箱。
+ */
+public class ColumnVector {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final DataType type;
+
+    private final BitSet nulls;
+
+    private int size;
+
+    private boolean[] booleanValues;
+
+    private int[] intValues;
+
+    private long[] longValues;
+
+    private float[] floatValues;
+
+    private double[] doubleValues;
+
+    private byte[][] binaryValues;
+
+    public ColumnVector(DataType type) {
+        this(type, DEFAULT_CAPACITY);
+    }
+
+    public ColumnVector(DataType type, int capacity) {
+        this.type = type;
+        this.nulls = new BitSet();
+        this.size = 0;
+        capacity = Math.max(capacity, 1);
+        switch (type) {
+            case BOOLEAN:
+                booleanValues = new boolean[capacity];
+                break;
+            case INTEGER:
+                intValues = new int[capacity];
+                break;
+            case LONG:
+                longValues = new long[capacity];
+                break;
+            case FLOAT:
+                floatValues = new float[capacity];
+                break;
+            case DOUBLE:
+                doubleValues = new double[capacity];
+                break;
+            case BINARY:
+                binaryValues = new byte[capacity][];
+                break;
+            default:
+                throw new IllegalArgumentException("unknown data type: " + type);
+        }
+    }
+
+    public DataType getType() {
+        return type;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isNull(int index) {
+        return nulls.get(index);
+    }
+
+    public boolean getBoolean(int index) {
+        return booleanValues[index];
+    }
+
+    public int getInt(int index) {
+        return intValues[index];
+    }
+
+    public long getLong(int index) {
+        return longValues[index];
+    }
+
+    public float getFloat(int index) {
+        return floatValues[index];
+    }
+
+    public double getDouble(int index) {
+        return doubleValues[index];
+    }
+
+    public byte[] getBinary(int index) {
+        return binaryValues[index];
+    }
+
+    /**
+     * 将数值类型的值统一转换为 double，调用前需保证该位置非空且为数值类型
+     */
+    public double getAsDouble(int index) {
+        switch (type) {
+            case INTEGER:
+                return intValues[index];
+            case LONG:
+                return longValues[index];
+            case FLOAT:
+                return floatValues[index];
+            case DOUBLE:
+                return doubleValues[index];
+            default:
+                throw new IllegalStateException("column of type " + type + " can't be read as double");
+        }
+    }
+
+    /**
+     * 以装箱形式读取值，仅用于和基于行的接口做适配
+     */
+    public Object getObject(int index) {
+        if (nulls.get(index)) {
+            return null;
+        }
+        switch (type) {
+            case BOOLEAN:
+                return booleanValues[index];
+            case INTEGER:
+                return intValues[index];
+            case LONG:
+                return longValues[index];
+            case FLOAT:
+                return floatValues[index];
+            case DOUBLE:
+                return doubleValues[index];
+            case BINARY:
+                return binaryValues[index];
+            default:
+                return null;
+        }
+    }
+
+    public void appendNull() {
+        ensureCapacity(size + 1);
+        nulls.set(size);
+        size++;
+    }
+
+    public void appendBoolean(boolean value) {
+        ensureCapacity(size + 1);
+        booleanValues[size++] = value;
+    }
+
+    public void appendInt(int value) {
+        ensureCapacity(size + 1);
+        intValues[size++] = value;
+    }
+
+    public void appendLong(long value) {
+        ensureCapacity(size + 1);
+        longValues[size++] = value;
+    }
+
+    public void appendFloat(float value) {
+        ensureCapacity(size + 1);
+        floatValues[size++] = value;
+    }
+
+    public void appendDouble(double value) {
+        ensureCapacity(size + 1);
+        doubleValues[size++] = value;
+    }
+
+    public void appendBinary(byte[] value) {
+        if (value == null) {
+            appendNull();
+            return;
+        }
+        ensureCapacity(size + 1);
+        binaryValues[size++] = value;
+    }
+
+    public void appendObject(Object value) {
+        if (value == null) {
+            appendNull();
+            return;
+        }
+        switch (type) {
+            case BOOLEAN:
+                appendBoolean((Boolean) value);
+                break;
+            case INTEGER:
+                appendInt((Integer) value);
+                break;
+            case LONG:
+                appendLong((Long) value);
+                break;
+            case FLOAT:
+                appendFloat((Float) value);
+                break;
+            case DOUBLE:
+                appendDouble((Double) value);
+                break;
+            case BINARY:
+                appendBinary((byte[]) value);
+                break;
+        }
+    }
+
+    /**
+     * 从另一个同类型的列中拷贝一个值，不经过装箱
+     */
+    public void appendFrom(ColumnVector other, int index) {
+        if (other.isNull(index)) {
+            appendNull();
+            return;
+        }
+        switch (type) {
+            case BOOLEAN:
+                appendBoolean(other.booleanValues[index]);
+                break;
+            case INTEGER:
+                appendInt(other.intValues[index]);
+                break;
+            case LONG:
+                appendLong(other.longValues[index]);
+                break;
+            case FLOAT:
+                appendFloat(other.floatValues[index]);
+                break;
+            case DOUBLE:
+                appendDouble(other.doubleValues[index]);
+                break;
+            case BINARY:
+                appendBinary(other.binaryValues[index]);
+                break;
+        }
+    }
+
+    /**
+     * 按给定的下标选出若干行，生成新的列
+     */
+    public ColumnVector select(int[] positions, int length) {
+        ColumnVector vector = new ColumnVector(type, length);
+        for (int i = 0; i < length; i++) {
+            vector.appendFrom(this, positions[i]);
+        }
+        return vector;
+    }
+
+    /**
+     * 截取 [from, to) 范围内的行，生成新的列
+     */
+    public ColumnVector slice(int from, int to) {
+        int length = Math.max(to - from, 0);
+        ColumnVector vector = new ColumnVector(type, length);
+        switch (type) {
+            case BOOLEAN:
+                System.arraycopy(booleanValues, from, vector.booleanValues, 0, length);
+                break;
+            case INTEGER:
+                System.arraycopy(intValues, from, vector.intValues, 0, length);
+                break;
+            case LONG:
+                System.arraycopy(longValues, from, vector.longValues, 0, length);
+                break;
+            case FLOAT:
+                System.arraycopy(floatValues, from, vector.floatValues, 0, length);
+                break;
+            case DOUBLE:
+                System.arraycopy(doubleValues, from, vector.doubleValues, 0, length);
+                break;
+            case BINARY:
+                System.arraycopy(binaryValues, from, vector.binaryValues, 0, length);
+                break;
+        }
+        for (int i = nulls.nextSetBit(from); i >= 0 && i < to; i = nulls.nextSetBit(i + 1)) {
+            vector.nulls.set(i - from);
+        }
+        vector.size = length;
+        return vector;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int current = getCapacity();
+        if (capacity <= current) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, current + (current >> 1));
+        switch (type) {
+            case BOOLEAN:
+                booleanValues = Arrays.copyOf(booleanValues, newCapacity);
+                break;
+            case INTEGER:
+                intValues = Arrays.copyOf(intValues, newCapacity);
+                break;
+            case LONG:
+                longValues = Arrays.copyOf(longValues, newCapacity);
+                break;
+            case FLOAT:
+                floatValues = Arrays.copyOf(floatValues, newCapacity);
+                break;
+            case DOUBLE:
+                doubleValues = Arrays.copyOf(doubleValues, newCapacity);
+                break;
+            case BINARY:
+                binaryValues = Arrays.copyOf(binaryValues, newCapacity);
+                break;
+        }
+    }
+
+    private int getCapacity() {
+        switch (type) {
+            case BOOLEAN:
+                return booleanValues.length;
+            case INTEGER:
+                return intValues.length;
+            case LONG:
+                return longValues.length;
+            case FLOAT:
+                return floatValues.length;
+            case DOUBLE:
+                return doubleValues.length;
+            case BINARY:
+                return binaryValues.length;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 列式存储的一批数据，时间戳使用原生 long 数组，每一列使用一个 ColumnVector 存放
+ */
+public class RowBatch {
+
+    public static final RowBatch EMPTY_BATCH = new RowBatch(Header.EMPTY_HEADER, null, new ColumnVector[0], 0);
+
+    private final Header header;
+
+    private final long[] timestamps;
+
+    private final ColumnVector[] columns;
+
+    private final int size;
+
+    public RowBatch(Header header, long[] timestamps, ColumnVector[] columns, int size) {
+        this.header = header;
+        this.timestamps = timestamps;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    public static RowBatch fromRows(Header header, List<Row> rows) {
+        int size = rows.size();
+        long[] timestamps = header.hasTimestamp() ? new long[size] : null;
+        List<Field> fields = header.getFields();
+        ColumnVector[] columns = new ColumnVector[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnVector(fields.get(i).getType(), size);
+        }
+        for (int i = 0; i < size; i++) {
+            Row row = rows.get(i);
+            if (timestamps != null) {
+                timestamps[i] = row.getTimestamp();
+            }
+            Object[] values = row.getValues();
+            for (int j = 0; j < columns.length; j++) {
+                columns[j].appendObject(values[j]);
+            }
+        }
+        return new RowBatch(header, timestamps, columns, size);
+    }
+
+    public static RowBatch fromRowStream(RowStream stream) throws PhysicalException {
+        return fromRowStream(stream, Long.MAX_VALUE);
+    }
+
+    /**
+     * 最多读取 maxRows 行，读取完毕后关闭行流
+     */
+    public static RowBatch fromRowStream(RowStream stream, long maxRows) throws PhysicalException {
+        if (stream instanceof RowBatchStream) {
+            RowBatch batch = ((RowBatchStream) stream).getBatch();
+            return batch.getSize() > maxRows ? batch.slice(0, (int) maxRows) : batch;
+        }
+        Header header = stream.getHeader();
+        List<Field> fields = header.getFields();
+        ColumnVector[] columns = new ColumnVector[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnVector(fields.get(i).getType());
+        }
+        long[] timestamps = header.hasTimestamp() ? new long[16] : null;
+        int size = 0;
+        while (size < maxRows && stream.hasNext()) {
+            Row row = stream.next();
+            if (timestamps != null) {
+                if (size == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, size + (size >> 1));
+                }
+                timestamps[size] = row.getTimestamp();
+            }
+            Object[] values = row.getValues();
+            for (int j = 0; j < columns.length; j++) {
+                columns[j].appendObject(values[j]);
+            }
+            size++;
+        }
+        stream.close();
+        return new RowBatch(header, timestamps, columns, size);
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public boolean hasTimestamp() {
+        return timestamps != null;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps == null ? Row.NON_EXISTED_TIMESTAMP : timestamps[index];
+    }
+
+    public ColumnVector[] getColumns() {
+        return columns;
+    }
+
+    public ColumnVector getColumn(int index) {
+        return columns[index];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 将第 index 行转换为行式表示，仅用于和基于行的接口做适配
+     */
+    public Row getRow(int index) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].getObject(index);
+        }
+        if (timestamps != null) {
+            return new Row(header, timestamps[index], values);
+        }
+        return new Row(header, values);
+    }
+
+    /**
+     * 按给定的下标选出若干行
+     */
+    public RowBatch select(int[] positions, int length) {
+        long[] newTimestamps = null;
+        if (timestamps != null) {
+            newTimestamps = new long[length];
+            for (int i = 0; i < length; i++) {
+                newTimestamps[i] = timestamps[positions[i]];
+            }
+        }
+        ColumnVector[] newColumns = new ColumnVector[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            newColumns[i] = columns[i].select(positions, length);
+        }
+        return new RowBatch(header, newTimestamps, newColumns, length);
+    }
+
+    /**
+     * 截取 [from, to) 范围内的行
+     */
+    public RowBatch slice(int from, int to) {
+        from = Math.min(Math.max(from, 0), size);
+        to = Math.min(Math.max(to, from), size);
+        if (from == 0 && to == size) {
+            return this;
+        }
+        long[] newTimestamps = timestamps == null ? null : Arrays.copyOfRange(timestamps, from, to);
+        ColumnVector[] newColumns = new ColumnVector[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            newColumns[i] = columns[i].slice(from, to);
+        }
+        return new RowBatch(header, newTimestamps, newColumns, to - from);
+    }
+
+    /**
+     * 使用新的表头，列数据直接复用，不产生拷贝
+     */
+    public RowBatch withHeader(Header newHeader, ColumnVector[] newColumns) {
+        return new RowBatch(newHeader, newHeader.hasTimestamp() ? timestamps : null, newColumns, size);
+    }
+
+    @Override
+    public String toString() {
+        return "RowBatch{" +
+            "header=" + header +
+            ", size=" + size +
+            '}';
+    }
+}
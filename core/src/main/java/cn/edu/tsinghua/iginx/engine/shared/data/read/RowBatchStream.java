@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.data.read;
+
+/**
+ * 将列式的 RowBatch 适配为 RowStream，以便存储引擎和系统函数等基于行的接口继续工作
+ */
+public class RowBatchStream implements RowStream {
+
+    public static final RowBatchStream EMPTY_STREAM = new RowBatchStream(RowBatch.EMPTY_BATCH);
+
+    private final RowBatch batch;
+
+    private int index;
+
+    public RowBatchStream(RowBatch batch) {
+        this.batch = batch;
+        this.index = 0;
+    }
+
+    public RowBatch getBatch() {
+        if (index == 0) {
+            return batch;
+        }
+        return batch.slice(index, batch.getSize());
+    }
+
+    @Override
+    public Header getHeader() {
+        return batch.getHeader();
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < batch.getSize();
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new IllegalStateException("row stream doesn't have more data!");
+        }
+        Row row = batch.getRow(index);
+        index++;
+        return row;
+    }
+}
@@ -40,7 +40,43 @@ public final class ColumnDataView extends DataView {
     @Override
     public Object getValue(int index1, int index2) { // 第一个维度为序列，第二个维度为数组中的偏移量
         checkPathIndexRange(index1);
-        return ((Object[]) data.getValuesList()[index1 + startPathIndex])[biases[index1] + index2];
+        return data.getValue(index1 + startPathIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public boolean getBoolean(int index1, int index2) {
+        checkPathIndexRange(index1);
+        return data.getBoolean(index1 + startPathIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public int getInt(int index1, int index2) {
+        checkPathIndexRange(index1);
+        return data.getInt(index1 + startPathIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public long getLong(int index1, int index2) {
+        checkPathIndexRange(index1);
+        return data.getLong(index1 + startPathIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public float getFloat(int index1, int index2) {
+        checkPathIndexRange(index1);
+        return data.getFloat(index1 + startPathIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public double getDouble(int index1, int index2) {
+        checkPathIndexRange(index1);
+        return data.getDouble(index1 + startPathIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public byte[] getBinary(int index1, int index2) {
+        checkPathIndexRange(index1);
+        return data.getBinary(index1 + startPathIndex, biases[index1] + index2);
     }
 
     @Override
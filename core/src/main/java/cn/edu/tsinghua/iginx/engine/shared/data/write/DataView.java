@@ -88,13 +88,27 @@ public abstract class DataView {
         return data.getDataTypeList().get(startPathIndex + index);
     }
 
-    public Long getTimestamp(int index) {
+    public long getTimestamp(int index) {
         checkTimeIndexRange(index);
-        return data.getTimestamps().get(startTimeIndex + index);
+        return data.getTimestamp(startTimeIndex + index);
     }
 
     public abstract Object getValue(int index1, int index2);
 
+    // 以下方法与 getValue 的下标含义相同，按原始类型读取值，调用方需保证类型匹配
+
+    public abstract boolean getBoolean(int index1, int index2);
+
+    public abstract int getInt(int index1, int index2);
+
+    public abstract long getLong(int index1, int index2);
+
+    public abstract float getFloat(int index1, int index2);
+
+    public abstract double getDouble(int index1, int index2);
+
+    public abstract byte[] getBinary(int index1, int index2);
+
     public abstract BitmapView getBitmapView(int index);
 
     public Map<String, String> getTags(int index) {
@@ -1,20 +1,30 @@
 package cn.edu.tsinghua.iginx.engine.shared.data.write;
 
+import cn.edu.tsinghua.iginx.exceptions.UnsupportedDataTypeException;
 import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Bitmap;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
+/**
+ * 写入的原始数据。值既可以是解码后的对象数组，也可以直接引用请求中按列或按行编码的缓冲区，
+ * 后者通过 getLong、getDouble 等方法按需读取，避免为每个值创建包装对象
+ */
 public class RawData {
 
     private final List<String> paths;
 
     private final List<Map<String, String>> tagsList;
 
-    private final List<Long> timestamps;
+    private final long[] timestamps;
 
-    private final Object[] valuesList;
+    private final List<Long> timestampList;
+
+    private volatile Object[] valuesList;
 
     private final List<DataType> dataTypeList;
 
@@ -22,15 +32,121 @@ public class RawData {
 
     private final RawDataType type;
 
+    // 以下字段仅在直接引用编码缓冲区时有效
+    private final ByteBuffer[] valueBuffers;
+
+    // 每个缓冲区的起始位置
+    private final int[] bufferBases;
+
+    // 变长值（行数据中的全部值、列数据中的字符串值）相对于缓冲区起始位置的偏移，定长列为 null
+    private final int[][] valueOffsets;
+
+    // 行数据中每个值所属的序列
+    private final int[][] valuePathIndexes;
+
     public RawData(List<String> paths, List<Map<String, String>> tagsList, List<Long> timestamps, Object[] valuesList,
                    List<DataType> dataTypeList, List<Bitmap> bitmaps, RawDataType type) {
         this.paths = paths;
         this.tagsList = tagsList;
-        this.timestamps = timestamps;
+        this.timestampList = timestamps;
+        this.timestamps = new long[timestamps.size()];
+        for (int i = 0; i < timestamps.size(); i++) {
+            this.timestamps[i] = timestamps.get(i);
+        }
         this.valuesList = valuesList;
         this.dataTypeList = dataTypeList;
         this.bitmaps = bitmaps;
         this.type = type;
+        this.valueBuffers = null;
+        this.bufferBases = null;
+        this.valueOffsets = null;
+        this.valuePathIndexes = null;
+    }
+
+    /**
+     * 直接引用编码缓冲区构造原始数据，缓冲区中只包含位图中标记的非空值，按列数据为每列一个缓冲区，按行数据为每行一个缓冲区
+     */
+    public RawData(List<String> paths, List<Map<String, String>> tagsList, long[] timestamps, List<ByteBuffer> valueBuffers,
+                   List<DataType> dataTypeList, List<Bitmap> bitmaps, RawDataType type) {
+        this.paths = paths;
+        this.tagsList = tagsList;
+        this.timestamps = timestamps;
+        this.timestampList = new LongArrayList(timestamps);
+        this.dataTypeList = dataTypeList;
+        this.bitmaps = bitmaps;
+        this.type = type;
+        this.valueBuffers = valueBuffers.toArray(new ByteBuffer[0]);
+        this.bufferBases = new int[this.valueBuffers.length];
+        this.valueOffsets = new int[this.valueBuffers.length][];
+        boolean isRowData = isRowData();
+        this.valuePathIndexes = isRowData ? new int[this.valueBuffers.length][] : null;
+        for (int i = 0; i < this.valueBuffers.length; i++) {
+            bufferBases[i] = this.valueBuffers[i].position();
+            if (isRowData) {
+                indexRow(i);
+            } else if (dataTypeList.get(i) == DataType.BINARY) {
+                indexBinaryColumn(i);
+            }
+        }
+    }
+
+    private void indexRow(int index) {
+        Bitmap bitmap = bitmaps.get(index);
+        int count = 0;
+        for (int j = 0; j < paths.size(); j++) {
+            if (bitmap.get(j)) {
+                count++;
+            }
+        }
+        ByteBuffer buffer = valueBuffers[index];
+        int[] offsets = new int[count];
+        int[] pathIndexes = new int[count];
+        int offset = 0;
+        for (int j = 0, k = 0; j < paths.size(); j++) {
+            if (!bitmap.get(j)) {
+                continue;
+            }
+            offsets[k] = offset;
+            pathIndexes[k] = j;
+            DataType dataType = dataTypeList.get(j);
+            offset += dataType == DataType.BINARY ? 4 + buffer.getInt(bufferBases[index] + offset) : getTypeLength(dataType);
+            k++;
+        }
+        valueOffsets[index] = offsets;
+        valuePathIndexes[index] = pathIndexes;
+    }
+
+    private void indexBinaryColumn(int index) {
+        Bitmap bitmap = bitmaps.get(index);
+        int count = 0;
+        for (int j = 0; j < timestamps.length; j++) {
+            if (bitmap.get(j)) {
+                count++;
+            }
+        }
+        ByteBuffer buffer = valueBuffers[index];
+        int[] offsets = new int[count];
+        int offset = 0;
+        for (int k = 0; k < count; k++) {
+            offsets[k] = offset;
+            offset += 4 + buffer.getInt(bufferBases[index] + offset);
+        }
+        valueOffsets[index] = offsets;
+    }
+
+    private static int getTypeLength(DataType dataType) {
+        switch (dataType) {
+            case BOOLEAN:
+                return 1;
+            case INTEGER:
+            case FLOAT:
+                return 4;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                throw new UnsupportedDataTypeException(dataType.toString());
+        }
     }
 
     public List<String> getPaths() {
@@ -42,10 +158,38 @@ public class RawData {
     }
 
     public List<Long> getTimestamps() {
-        return timestamps;
+        return timestampList;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
     }
 
+    public int getTimeSize() {
+        return timestamps.length;
+    }
+
+    /**
+     * 直接引用编码缓冲区时，首次调用会解码全部值，应优先使用 getValue、getLong 等按值读取的方法
+     */
     public Object[] getValuesList() {
+        Object[] valuesList = this.valuesList;
+        if (valuesList == null) {
+            synchronized (this) {
+                valuesList = this.valuesList;
+                if (valuesList == null) {
+                    valuesList = new Object[valueBuffers.length];
+                    for (int i = 0; i < valueBuffers.length; i++) {
+                        Object[] values = new Object[getValueCount(i)];
+                        for (int j = 0; j < values.length; j++) {
+                            values[j] = getValue(i, j);
+                        }
+                        valuesList[i] = values;
+                    }
+                    this.valuesList = valuesList;
+                }
+            }
+        }
         return valuesList;
     }
 
@@ -69,4 +213,127 @@ public class RawData {
         return type == RawDataType.Column || type == RawDataType.NonAlignedColumn;
     }
 
+    /**
+     * 是否直接引用编码缓冲区
+     */
+    public boolean isBuffered() {
+        return valueBuffers != null;
+    }
+
+    private int getValueCount(int index) {
+        if (valueOffsets[index] != null) {
+            return valueOffsets[index].length;
+        }
+        int count = 0;
+        Bitmap bitmap = bitmaps.get(index);
+        for (int j = 0; j < timestamps.length; j++) {
+            if (bitmap.get(j)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int getOffset(int index, int valueIndex, int length) {
+        int[] offsets = valueOffsets[index];
+        return bufferBases[index] + (offsets == null ? valueIndex * length : offsets[valueIndex]);
+    }
+
+    /**
+     * 读取第 index 列（按列数据）或第 index 行（按行数据）中的第 valueIndex 个非空值
+     */
+    public Object getValue(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return ((Object[]) valuesList[index])[valueIndex];
+        }
+        DataType dataType = isRowData() ? dataTypeList.get(valuePathIndexes[index][valueIndex]) : dataTypeList.get(index);
+        switch (dataType) {
+            case BOOLEAN:
+                return getBoolean(index, valueIndex);
+            case INTEGER:
+                return getInt(index, valueIndex);
+            case LONG:
+                return getLong(index, valueIndex);
+            case FLOAT:
+                return getFloat(index, valueIndex);
+            case DOUBLE:
+                return getDouble(index, valueIndex);
+            case BINARY:
+                return getBinary(index, valueIndex);
+            default:
+                throw new UnsupportedDataTypeException(dataType.toString());
+        }
+    }
+
+    public boolean getBoolean(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return (Boolean) getValue(index, valueIndex);
+        }
+        return valueBuffers[index].get(getOffset(index, valueIndex, 1)) == 1;
+    }
+
+    public int getInt(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return (Integer) getValue(index, valueIndex);
+        }
+        return valueBuffers[index].getInt(getOffset(index, valueIndex, 4));
+    }
+
+    public long getLong(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return (Long) getValue(index, valueIndex);
+        }
+        return valueBuffers[index].getLong(getOffset(index, valueIndex, 8));
+    }
+
+    public float getFloat(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return (Float) getValue(index, valueIndex);
+        }
+        return valueBuffers[index].getFloat(getOffset(index, valueIndex, 4));
+    }
+
+    public double getDouble(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return (Double) getValue(index, valueIndex);
+        }
+        return valueBuffers[index].getDouble(getOffset(index, valueIndex, 8));
+    }
+
+    public byte[] getBinary(int index, int valueIndex) {
+        if (!isBuffered()) {
+            return (byte[]) getValue(index, valueIndex);
+        }
+        ByteBuffer buffer = valueBuffers[index];
+        int offset = getOffset(index, valueIndex, 0);
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + offset + 4, bytes, 0, bytes.length);
+        } else {
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(offset + 4);
+            duplicate.get(bytes);
+        }
+        return bytes;
+    }
+
+    private static class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+        private final long[] array;
+
+        LongArrayList(long[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public Long get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+    }
+
 }
@@ -40,8 +40,43 @@ public class RowDataView extends DataView {
     @Override
     public Object getValue(int index1, int index2) {
         checkTimeIndexRange(index1);
-        Object[] tmp = (Object[]) data.getValuesList()[index1 + startTimeIndex];
-        return tmp[biases[index1] + index2];
+        return data.getValue(index1 + startTimeIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public boolean getBoolean(int index1, int index2) {
+        checkTimeIndexRange(index1);
+        return data.getBoolean(index1 + startTimeIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public int getInt(int index1, int index2) {
+        checkTimeIndexRange(index1);
+        return data.getInt(index1 + startTimeIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public long getLong(int index1, int index2) {
+        checkTimeIndexRange(index1);
+        return data.getLong(index1 + startTimeIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public float getFloat(int index1, int index2) {
+        checkTimeIndexRange(index1);
+        return data.getFloat(index1 + startTimeIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public double getDouble(int index1, int index2) {
+        checkTimeIndexRange(index1);
+        return data.getDouble(index1 + startTimeIndex, biases[index1] + index2);
+    }
+
+    @Override
+    public byte[] getBinary(int index1, int index2) {
+        checkTimeIndexRange(index1);
+        return data.getBinary(index1 + startTimeIndex, biases[index1] + index2);
     }
 
     @Override
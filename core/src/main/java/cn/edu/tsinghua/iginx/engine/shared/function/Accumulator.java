@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.engine.shared.function;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+
+/**
+ * 逐行计算集合函数的状态，由 {@link SetMappingFunction#createAccumulator} 创建，每组数据使用一个新的实例。
+ * 结果的表头只依赖输入的表头与参数，在读取数据之前即可确定
+ */
+public interface Accumulator {
+
+    Header getHeader();
+
+    void accumulate(Row row) throws Exception;
+
+    /**
+     * 返回的行使用 getHeader() 返回的表头
+     */
+    Row finish() throws Exception;
+
+    static Row accumulateAll(Accumulator accumulator, RowStream rows) throws Exception {
+        while (rows.hasNext()) {
+            accumulator.accumulate(rows.next());
+        }
+        return accumulator.finish();
+    }
+
+}
@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.engine.shared.function;
 
 import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 
@@ -28,4 +29,11 @@ public interface SetMappingFunction extends Function {
 
     Row transform(RowStream rows, Map<String, Value> params) throws Exception;
 
+    /**
+     * 能够逐行计算时返回一个新的 Accumulator，多个函数可以共享同一遍扫描；否则返回 null，只能通过 transform 拉取整组数据
+     */
+    default Accumulator createAccumulator(Header header, Map<String, Value> params) throws Exception {
+        return null;
+    }
+
 }
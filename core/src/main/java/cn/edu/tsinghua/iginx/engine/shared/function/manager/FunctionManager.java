@@ -49,6 +49,10 @@ public class FunctionManager {
 
     private static final String PY_SUFFIX = ".py";
 
+    private static final String ARROW_BRIDGE_MODULE = "arrow_bridge";
+
+    private static final String ARROW_BRIDGE_CLASS = "ArrowBridge";
+
     private static final String PATH = String.join(File.separator, System.getProperty("user.dir"), "python_scripts");
 
     private FunctionManager() {
@@ -80,8 +84,8 @@ public class FunctionManager {
         String[] udfList = config.getUdfList().split(",");
         for (String udf: udfList) {
             String[] udfInfo = udf.split("#");
-            if (udfInfo.length != 4) {
-                logger.error("udf info len must be 4.");
+            if (udfInfo.length != 4 && udfInfo.length != 5) {
+                logger.error("udf info len must be 4 or 5.");
                 continue;
             }
             UDFType udfType;
@@ -102,8 +106,9 @@ public class FunctionManager {
                     logger.error("unknown udf type: " + udfInfo[3]);
                     continue;
             }
+            boolean vectorized = udfInfo.length == 5 && udfInfo[4].toLowerCase().trim().equals("vectorized");
             metaList.add(new TransformTaskMeta(udfInfo[0], udfInfo[1], udfInfo[2],
-                new HashSet<>(Collections.singletonList(config.getIp())), udfType));
+                new HashSet<>(Collections.singletonList(config.getIp())), udfType, vectorized));
         }
 
         for (TransformTaskMeta meta : metaList) {
@@ -164,17 +169,23 @@ public class FunctionManager {
         // init the python udf
         interpreter.exec(String.format("import %s", moduleName));
         interpreter.exec(String.format("t = %s.%s()", moduleName, className));
+        boolean vectorized = taskMeta.isVectorized();
+        if (vectorized) {
+            // 向量化的 UDF 通过 Arrow 批次收发数据
+            interpreter.exec(String.format("import %s", ARROW_BRIDGE_MODULE));
+            interpreter.exec(String.format("t = %s.%s(t)", ARROW_BRIDGE_MODULE, ARROW_BRIDGE_CLASS));
+        }
 
         if (taskMeta.getType().equals(UDFType.UDAF)) {
-            PyUDAF udaf = new PyUDAF(interpreter, identifier);
+            PyUDAF udaf = new PyUDAF(interpreter, identifier, vectorized);
             functions.put(identifier, udaf);
             return udaf;
         } else if (taskMeta.getType().equals(UDFType.UDTF)) {
-            PyUDTF udtf = new PyUDTF(interpreter, identifier);
+            PyUDTF udtf = new PyUDTF(interpreter, identifier, vectorized);
             functions.put(identifier, udtf);
             return udtf;
         } else if (taskMeta.getType().equals(UDFType.UDSF)) {
-            PyUDSF udsf = new PyUDSF(interpreter, identifier);
+            PyUDSF udsf = new PyUDSF(interpreter, identifier, vectorized);
             functions.put(identifier, udsf);
             return udsf;
         } else {
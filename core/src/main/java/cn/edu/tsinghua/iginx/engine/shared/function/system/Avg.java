@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionType;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
@@ -67,6 +68,11 @@ public class Avg implements SetMappingFunction {
 
     @Override
     public Row transform(RowStream rows, Map<String, Value> params) throws Exception {
+        return Accumulator.accumulateAll(createAccumulator(rows.getHeader(), params), rows);
+    }
+
+    @Override
+    public Accumulator createAccumulator(Header header, Map<String, Value> params) {
         if (params.size() == 0 || params.size() > 2) {
             throw new IllegalArgumentException("unexpected params for avg.");
         }
@@ -74,12 +80,9 @@ public class Avg implements SetMappingFunction {
         if (param == null || param.getDataType() != DataType.BINARY) {
             throw new IllegalArgumentException("unexpected param type for avg.");
         }
-        List<Integer> groupByLevels = null;
-        if (params.containsKey(PARAM_LEVELS)) {
-            groupByLevels = GroupByUtils.parseLevelsFromValue(params.get(PARAM_LEVELS));
-        }
+        List<Integer> groupByLevels = params.containsKey(PARAM_LEVELS) ? GroupByUtils.parseLevelsFromValue(params.get(PARAM_LEVELS)) : null;
         String target = param.getBinaryVAsString();
-        List<Field> fields = rows.getHeader().getFields();
+        List<Field> fields = header.getFields();
 
         Pattern pattern = Pattern.compile(StringUtils.reformatPath(target) + ".*");
         List<Field> targetFields = new ArrayList<>();
@@ -114,40 +117,54 @@ public class Avg implements SetMappingFunction {
 
         double[] targetSums = new double[targetFields.size()];
         long[] counts = new long[targetFields.size()];
-        while (rows.hasNext()) {
-            Row row = rows.next();
-            for (int i = 0; i < indices.size(); i++) {
-                int index = indices.get(i);
-                Object value = row.getValue(index);
-                if (value == null) {
-                    continue;
-                }
-                int targetIndex = i;
-                if (groupByLevels != null) {
-                    targetIndex = groupOrderIndexMap.get(index);
+        Header targetHeader = new Header(targetFields);
+        return new Accumulator() {
+
+            @Override
+            public Header getHeader() {
+                return targetHeader;
+            }
+
+            @Override
+            public void accumulate(Row row) {
+                for (int i = 0; i < indices.size(); i++) {
+                    int index = indices.get(i);
+                    Object value = row.getValue(index);
+                    if (value == null) {
+                        continue;
+                    }
+                    int targetIndex = i;
+                    if (groupByLevels != null) {
+                        targetIndex = groupOrderIndexMap.get(index);
+                    }
+                    switch (fields.get(index).getType()) {
+                        case INTEGER:
+                            targetSums[targetIndex] += (int) value;
+                            break;
+                        case LONG:
+                            targetSums[targetIndex] += (long) value;
+                            break;
+                        case FLOAT:
+                            targetSums[targetIndex] += (float) value;
+                            break;
+                        case DOUBLE:
+                            targetSums[targetIndex] += (double) value;
+                            break;
+                    }
+                    counts[targetIndex]++;
                 }
-                switch (fields.get(index).getType()) {
-                    case INTEGER:
-                        targetSums[targetIndex] += (int) value;
-                        break;
-                    case LONG:
-                        targetSums[targetIndex] += (long) value;
-                        break;
-                    case FLOAT:
-                        targetSums[targetIndex] += (float) value;
-                        break;
-                    case DOUBLE:
-                        targetSums[targetIndex] += (double) value;
-                        break;
+            }
+
+            @Override
+            public Row finish() {
+                Object[] targetValues = new Object[targetFields.size()];
+                for (int i = 0; i < targetValues.length; i++) {
+                    targetValues[i] = targetSums[i] / counts[i];
                 }
-                counts[targetIndex]++;
+                return new Row(targetHeader, targetValues);
             }
-        }
-        Object[] targetValues = new Object[targetFields.size()];
-        for (int i = 0; i < targetValues.length; i++) {
-            targetValues[i] = targetSums[i] / counts[i];
-        }
-        return new Row(new Header(targetFields), targetValues);
+
+        };
     }
 
 }
@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionType;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
@@ -68,6 +69,11 @@ public class Count implements SetMappingFunction {
 
     @Override
     public Row transform(RowStream rows, Map<String, Value> params) throws Exception {
+        return Accumulator.accumulateAll(createAccumulator(rows.getHeader(), params), rows);
+    }
+
+    @Override
+    public Accumulator createAccumulator(Header header, Map<String, Value> params) {
         if (params.size() == 0 || params.size() > 2) {
             throw new IllegalArgumentException("unexpected params for count.");
         }
@@ -75,18 +81,15 @@ public class Count implements SetMappingFunction {
         if (param == null || param.getDataType() != DataType.BINARY) {
             throw new IllegalArgumentException("unexpected param type for count.");
         }
-        List<Integer> groupByLevels = null;
-        if (params.containsKey(PARAM_LEVELS)) {
-            groupByLevels = GroupByUtils.parseLevelsFromValue(params.get(PARAM_LEVELS));
-        }
+        List<Integer> groupByLevels = params.containsKey(PARAM_LEVELS) ? GroupByUtils.parseLevelsFromValue(params.get(PARAM_LEVELS)) : null;
         String target = param.getBinaryVAsString();
         Pattern pattern = Pattern.compile(StringUtils.reformatPath(target) + ".*");
         List<Field> targetFields = new ArrayList<>();
         List<Integer> indices = new ArrayList<>();
         Map<String, Integer> groupNameIndexMap = new HashMap<>(); // 只有在存在 group by 的时候才奏效
         Map<Integer, Integer> groupOrderIndexMap = new HashMap<>();
-        for (int i = 0; i < rows.getHeader().getFieldSize(); i++) {
-            Field field = rows.getHeader().getField(i);
+        for (int i = 0; i < header.getFieldSize(); i++) {
+            Field field = header.getField(i);
             if (pattern.matcher(field.getFullName()).matches()) {
                 if (groupByLevels == null) {
                     targetFields.add(new Field(getIdentifier() + "(" + field.getFullName() + ")", DataType.LONG));
@@ -105,25 +108,39 @@ public class Count implements SetMappingFunction {
             }
         }
         long[] counts = new long[targetFields.size()];
-        while (rows.hasNext()) {
-            Row row = rows.next();
-            Object[] values = row.getValues();
-            for (int i = 0; i < indices.size(); i++) {
-                int index = indices.get(i);
-                if (values[index] != null) {
-                    int targetIndex = i;
-                    if (groupByLevels != null) {
-                        targetIndex = groupOrderIndexMap.get(index);
+        Header targetHeader = new Header(targetFields);
+        return new Accumulator() {
+
+            @Override
+            public Header getHeader() {
+                return targetHeader;
+            }
+
+            @Override
+            public void accumulate(Row row) {
+                Object[] values = row.getValues();
+                for (int i = 0; i < indices.size(); i++) {
+                    int index = indices.get(i);
+                    if (values[index] != null) {
+                        int targetIndex = i;
+                        if (groupByLevels != null) {
+                            targetIndex = groupOrderIndexMap.get(index);
+                        }
+                        counts[targetIndex]++;
                     }
-                    counts[targetIndex]++;
                 }
             }
-        }
-        Object[] targetValues = new Object[targetFields.size()];
-        for (int i = 0; i < counts.length; i++) {
-            targetValues[i] = counts[i];
-        }
-        return new Row(new Header(targetFields), targetValues);
+
+            @Override
+            public Row finish() {
+                Object[] targetValues = new Object[targetFields.size()];
+                for (int i = 0; i < counts.length; i++) {
+                    targetValues[i] = counts[i];
+                }
+                return new Row(targetHeader, targetValues);
+            }
+
+        };
     }
 
 }
@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionType;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
@@ -68,6 +69,11 @@ public class LastValue implements SetMappingFunction {
 
     @Override
     public Row transform(RowStream rows, Map<String, Value> params) throws Exception {
+        return Accumulator.accumulateAll(createAccumulator(rows.getHeader(), params), rows);
+    }
+
+    @Override
+    public Accumulator createAccumulator(Header header, Map<String, Value> params) {
         if (params.size() != 1) {
             throw new IllegalArgumentException("unexpected params for last value.");
         }
@@ -76,7 +82,7 @@ public class LastValue implements SetMappingFunction {
             throw new IllegalArgumentException("unexpected param type for last value.");
         }
         String target = param.getBinaryVAsString();
-        List<Field> fields = rows.getHeader().getFields();
+        List<Field> fields = header.getFields();
         Pattern pattern = Pattern.compile(StringUtils.reformatPath(target) + ".*");
         List<Field> targetFields = new ArrayList<>();
         List<Integer> indices = new ArrayList<>();
@@ -88,17 +94,31 @@ public class LastValue implements SetMappingFunction {
             }
         }
         Object[] targetValues = new Object[targetFields.size()];
-        while (rows.hasNext()) {
-            Row row = rows.next();
-            for (int i = 0; i < indices.size(); i++) {
-                Object value = row.getValue(indices.get(i));
-                if (value == null) {
-                    continue;
+        Header targetHeader = new Header(targetFields);
+        return new Accumulator() {
+
+            @Override
+            public Header getHeader() {
+                return targetHeader;
+            }
+
+            @Override
+            public void accumulate(Row row) {
+                for (int i = 0; i < indices.size(); i++) {
+                    Object value = row.getValue(indices.get(i));
+                    if (value == null) {
+                        continue;
+                    }
+                    targetValues[i] = value;
                 }
-                targetValues[i] = value;
             }
-        }
-        return new Row(new Header(targetFields), targetValues);
+
+            @Override
+            public Row finish() {
+                return new Row(targetHeader, targetValues);
+            }
+
+        };
     }
 
 }
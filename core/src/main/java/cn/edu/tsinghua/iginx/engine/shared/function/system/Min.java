@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionType;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
@@ -68,6 +69,11 @@ public class Min implements SetMappingFunction {
 
     @Override
     public Row transform(RowStream rows, Map<String, Value> params) throws Exception {
+        return Accumulator.accumulateAll(createAccumulator(rows.getHeader(), params), rows);
+    }
+
+    @Override
+    public Accumulator createAccumulator(Header header, Map<String, Value> params) {
         if (params.size() != 1) {
             throw new IllegalArgumentException("unexpected params for max.");
         }
@@ -79,29 +85,43 @@ public class Min implements SetMappingFunction {
         Pattern pattern = Pattern.compile(StringUtils.reformatPath(target) + ".*");
         List<Field> targetFields = new ArrayList<>();
         List<Integer> indices = new ArrayList<>();
-        for (int i = 0; i < rows.getHeader().getFieldSize(); i++) {
-            Field field = rows.getHeader().getField(i);
+        for (int i = 0; i < header.getFieldSize(); i++) {
+            Field field = header.getField(i);
             if (pattern.matcher(field.getFullName()).matches()) {
                 targetFields.add(new Field(getIdentifier() + "(" + field.getFullName() + ")", field.getType()));
                 indices.add(i);
             }
         }
         Object[] targetValues = new Object[targetFields.size()];
-        while (rows.hasNext()) {
-            Row row = rows.next();
-            Object[] values = row.getValues();
-            for (int i = 0; i < indices.size(); i++) {
-                Object value = values[indices.get(i)];
-                if (targetValues[i] == null) {
-                    targetValues[i] = value;
-                } else {
-                    if (value != null && ValueUtils.compare(targetValues[i], value, targetFields.get(i).getType()) > 0) {
+        Header targetHeader = new Header(targetFields);
+        return new Accumulator() {
+
+            @Override
+            public Header getHeader() {
+                return targetHeader;
+            }
+
+            @Override
+            public void accumulate(Row row) {
+                Object[] values = row.getValues();
+                for (int i = 0; i < indices.size(); i++) {
+                    Object value = values[indices.get(i)];
+                    if (targetValues[i] == null) {
                         targetValues[i] = value;
+                    } else {
+                        if (value != null && ValueUtils.compare(targetValues[i], value, targetFields.get(i).getType()) > 0) {
+                            targetValues[i] = value;
+                        }
                     }
                 }
             }
-        }
-        return new Row(new Header(targetFields), targetValues);
+
+            @Override
+            public Row finish() {
+                return new Row(targetHeader, targetValues);
+            }
+
+        };
     }
 
 }
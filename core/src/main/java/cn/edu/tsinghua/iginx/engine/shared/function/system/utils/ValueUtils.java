@@ -36,6 +36,10 @@ public class ValueUtils {
         return numericTypeSet.contains(value.getDataType());
     }
 
+    public static boolean isNumericType(DataType dataType) {
+        return numericTypeSet.contains(dataType);
+    }
+
     public static Value transformToDouble(Value value) {
         DataType dataType = value.getDataType();
         double dVal;
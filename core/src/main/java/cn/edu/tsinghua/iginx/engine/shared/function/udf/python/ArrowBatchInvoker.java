@@ -0,0 +1,92 @@
+package cn.edu.tsinghua.iginx.engine.shared.function.udf.python;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.transform.utils.ArrowUtils;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+import pemja.core.PythonInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.UDF_CLASS;
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.UDF_FUNC;
+
+/**
+ * 向量化的 Python UDF 调用：将选中的列整体编码为一个 Arrow 批次交给 Python，
+ * Python 侧的 UDF 以 pyarrow.Table 的形式接收数据，结果同样以 Arrow 批次返回
+ */
+class ArrowBatchInvoker {
+
+    private final PythonInterpreter interpreter;
+
+    private final String funcName;
+
+    private final List<Integer> indices = new ArrayList<>();
+
+    private final List<String> names = new ArrayList<>();
+
+    ArrowBatchInvoker(PythonInterpreter interpreter, String funcName, Header header, String target) {
+        this.interpreter = interpreter;
+        this.funcName = funcName;
+        if (StringUtils.isPattern(target)) {
+            Pattern pattern = Pattern.compile(StringUtils.reformatPath(target));
+            for (int i = 0; i < header.getFieldSize(); i++) {
+                Field field = header.getField(i);
+                if (pattern.matcher(field.getName()).matches()) {
+                    names.add(funcName + "(" + field.getName() + ")");
+                    indices.add(i);
+                }
+            }
+        } else {
+            int index = header.indexOf(target);
+            if (index != -1) {
+                names.add(funcName + "(" + target + ")");
+                indices.add(index);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return indices.isEmpty();
+    }
+
+    static List<Row> collect(RowStream rows) throws Exception {
+        List<Row> rowList = new ArrayList<>();
+        while (rows.hasNext()) {
+            rowList.add(rows.next());
+        }
+        return rowList;
+    }
+
+    /**
+     * 调用 UDF 并按照输入列重新命名输出列，输出列数与输入不一致时返回 null
+     */
+    Table invoke(Header header, List<Row> rows) throws Exception {
+        byte[] data = ArrowUtils.encode(header, rows, indices, false);
+        Object res = interpreter.invokeMethod(UDF_CLASS, UDF_FUNC, data);
+        if (!(res instanceof byte[])) {
+            throw new IllegalArgumentException("vectorized udf " + funcName + " should return arrow ipc bytes.");
+        }
+        Table table = ArrowUtils.decode((byte[]) res);
+        Header resHeader = table.getHeader();
+        if (resHeader.getFieldSize() != names.size()) {
+            return null;
+        }
+        List<Field> targetFields = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            targetFields.add(new Field(names.get(i), resHeader.getField(i).getType()));
+        }
+        Header targetHeader = resHeader.hasTimestamp() ? new Header(Field.TIME, targetFields) : new Header(targetFields);
+        List<Row> targetRows = new ArrayList<>();
+        while (table.hasNext()) {
+            Row row = table.next();
+            targetRows.add(resHeader.hasTimestamp() ? new Row(targetHeader, row.getTimestamp(), row.getValues()) : new Row(targetHeader, row.getValues()));
+        }
+        return new Table(targetHeader, targetRows);
+    }
+}
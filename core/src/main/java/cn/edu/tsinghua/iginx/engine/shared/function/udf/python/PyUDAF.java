@@ -1,5 +1,6 @@
 package cn.edu.tsinghua.iginx.engine.shared.function.udf.python;
 
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
@@ -26,9 +27,12 @@ public class PyUDAF implements UDAF {
 
     private final String funcName;
 
-    public PyUDAF(PythonInterpreter interpreter, String funcName) {
+    private final boolean vectorized;
+
+    public PyUDAF(PythonInterpreter interpreter, String funcName, boolean vectorized) {
         this.interpreter = interpreter;
         this.funcName = funcName;
+        this.vectorized = vectorized;
     }
 
     @Override
@@ -53,6 +57,9 @@ public class PyUDAF implements UDAF {
         }
 
         String target = params.get(PARAM_PATHS).getBinaryVAsString();
+        if (vectorized) {
+            return transformVectorized(rows, target);
+        }
         if (StringUtils.isPattern(target)) {
             Pattern pattern = Pattern.compile(StringUtils.reformatPath(target));
             List<String> name = new ArrayList<>();
@@ -109,6 +116,19 @@ public class PyUDAF implements UDAF {
         }
     }
 
+    private Row transformVectorized(RowStream rows, String target) throws Exception {
+        ArrowBatchInvoker invoker = new ArrowBatchInvoker(interpreter, getFunctionName(), rows.getHeader(), target);
+        if (invoker.isEmpty()) {
+            return Row.EMPTY_ROW;
+        }
+        Table res = invoker.invoke(rows.getHeader(), ArrowBatchInvoker.collect(rows));
+        if (res == null || !res.hasNext()) {
+            return Row.EMPTY_ROW;
+        }
+        Row row = res.next();
+        return new Row(new Header(res.getHeader().getFields()), row.getValues());
+    }
+
     private boolean isLegal(Map<String, Value> params) {
         List<String> neededParams = Arrays.asList(PARAM_PATHS);
         for (String param : neededParams) {
@@ -28,9 +28,12 @@ public class PyUDSF implements UDSF {
 
     private final String funcName;
 
-    public PyUDSF(PythonInterpreter interpreter, String funcName) {
+    private final boolean vectorized;
+
+    public PyUDSF(PythonInterpreter interpreter, String funcName, boolean vectorized) {
         this.interpreter = interpreter;
         this.funcName = funcName;
+        this.vectorized = vectorized;
     }
 
     @Override
@@ -55,6 +58,9 @@ public class PyUDSF implements UDSF {
         }
 
         String target = params.get(PARAM_PATHS).getBinaryVAsString();
+        if (vectorized) {
+            return transformVectorized(rows, target);
+        }
         if (StringUtils.isPattern(target)) {
             Pattern pattern = Pattern.compile(StringUtils.reformatPath(target));
             List<String> name = new ArrayList<>();
@@ -118,6 +124,15 @@ public class PyUDSF implements UDSF {
         }
     }
 
+    private RowStream transformVectorized(RowStream rows, String target) throws Exception {
+        ArrowBatchInvoker invoker = new ArrowBatchInvoker(interpreter, getFunctionName(), rows.getHeader(), target);
+        if (invoker.isEmpty()) {
+            return Table.EMPTY_TABLE;
+        }
+        Table res = invoker.invoke(rows.getHeader(), ArrowBatchInvoker.collect(rows));
+        return res == null || res.isEmpty() ? Table.EMPTY_TABLE : res;
+    }
+
     private boolean isLegal(Map<String, Value> params) {
         List<String> neededParams = Arrays.asList(PARAM_PATHS);
         for (String param : neededParams) {
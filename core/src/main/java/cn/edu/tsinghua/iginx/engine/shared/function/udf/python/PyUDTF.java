@@ -1,10 +1,13 @@
 package cn.edu.tsinghua.iginx.engine.shared.function.udf.python;
 
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.shared.data.Value;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionType;
+import cn.edu.tsinghua.iginx.engine.shared.function.MappingFunction;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.function.udf.UDTF;
 import cn.edu.tsinghua.iginx.engine.shared.function.udf.utils.TypeUtils;
@@ -17,7 +20,7 @@ import java.util.regex.Pattern;
 
 import static cn.edu.tsinghua.iginx.engine.shared.Constants.*;
 
-public class PyUDTF implements UDTF {
+public class PyUDTF implements UDTF, MappingFunction {
 
     private static final String PY_UDTF = "py_udtf";
 
@@ -25,9 +28,12 @@ public class PyUDTF implements UDTF {
 
     private final String funcName;
 
-    public PyUDTF(PythonInterpreter interpreter, String funcName) {
+    private final boolean vectorized;
+
+    public PyUDTF(PythonInterpreter interpreter, String funcName, boolean vectorized) {
         this.interpreter = interpreter;
         this.funcName = funcName;
+        this.vectorized = vectorized;
     }
 
     @Override
@@ -37,7 +43,8 @@ public class PyUDTF implements UDTF {
 
     @Override
     public MappingType getMappingType() {
-        return MappingType.RowMapping;
+        // 向量化的 UDTF 一次处理整个行流，按 MappingTransform 执行
+        return vectorized ? MappingType.Mapping : MappingType.RowMapping;
     }
 
     @Override
@@ -101,6 +108,38 @@ public class PyUDTF implements UDTF {
         }
     }
 
+    @Override
+    public RowStream transform(RowStream rows, Map<String, Value> params) throws Exception {
+        if (!isLegal(params)) {
+            throw new IllegalArgumentException("unexpected params for PyUDTF.");
+        }
+
+        String target = params.get(PARAM_PATHS).getBinaryVAsString();
+        ArrowBatchInvoker invoker = new ArrowBatchInvoker(interpreter, getFunctionName(), rows.getHeader(), target);
+        if (invoker.isEmpty()) {
+            return Table.EMPTY_TABLE;
+        }
+        List<Row> rowList = ArrowBatchInvoker.collect(rows);
+        Table res = invoker.invoke(rows.getHeader(), rowList);
+        if (res == null || res.isEmpty()) {
+            return Table.EMPTY_TABLE;
+        }
+
+        // 逐行映射，输出的第 i 行对应输入的第 i 行
+        List<Field> targetFields = res.getHeader().getFields();
+        Header header = rows.getHeader().hasTimestamp() ?
+            new Header(Field.TIME, targetFields) :
+            new Header(targetFields);
+        List<Row> targetRows = new ArrayList<>();
+        for (int i = 0; res.hasNext(); i++) {
+            if (i >= rowList.size()) {
+                throw new IllegalArgumentException("vectorized udtf " + getFunctionName() + " should return one row for each input row.");
+            }
+            targetRows.add(new Row(header, rowList.get(i).getTimestamp(), res.next().getValues()));
+        }
+        return new Table(header, targetRows);
+    }
+
     private boolean isLegal(Map<String, Value> params) {
         List<String> neededParams = Arrays.asList(PARAM_PATHS);
         for (String param : neededParams) {
@@ -23,30 +23,46 @@ import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.source.Source;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class Downsample extends AbstractUnaryOperator {
 
     private final long precision;
 
-    private final FunctionCall functionCall;
+    private final List<FunctionCall> functionCallList;
 
     private final TimeRange timeRange;
 
     public Downsample(Source source, long precision, FunctionCall functionCall, TimeRange timeRange) {
+        this(source, precision, Collections.singletonList(functionCall), timeRange);
+    }
+
+    /**
+     * 在同一次扫描的每个时间窗口上计算多个集合映射函数，结果按照函数的顺序横向拼接
+     */
+    public Downsample(Source source, long precision, List<FunctionCall> functionCallList, TimeRange timeRange) {
         super(OperatorType.Downsample, source);
         if (precision <= 0) {
             throw new IllegalArgumentException("precision should be greater than zero");
         }
-        if (functionCall == null || functionCall.getFunction() == null) {
+        if (functionCallList == null || functionCallList.isEmpty()) {
             throw new IllegalArgumentException("function shouldn't be null");
         }
-        if (functionCall.getFunction().getMappingType() != MappingType.SetMapping) {
-            throw new IllegalArgumentException("function should be set mapping function");
+        for (FunctionCall functionCall : functionCallList) {
+            if (functionCall == null || functionCall.getFunction() == null) {
+                throw new IllegalArgumentException("function shouldn't be null");
+            }
+            if (functionCall.getFunction().getMappingType() != MappingType.SetMapping) {
+                throw new IllegalArgumentException("function should be set mapping function");
+            }
         }
         if (timeRange == null) {
             throw new IllegalArgumentException("timeRange shouldn't be null");
         }
         this.precision = precision;
-        this.functionCall = functionCall;
+        this.functionCallList = functionCallList;
         this.timeRange = timeRange;
     }
 
@@ -55,7 +71,11 @@ public class Downsample extends AbstractUnaryOperator {
     }
 
     public FunctionCall getFunctionCall() {
-        return functionCall;
+        return functionCallList.get(0);
+    }
+
+    public List<FunctionCall> getFunctionCallList() {
+        return functionCallList;
     }
 
     public TimeRange getTimeRange() {
@@ -64,6 +84,10 @@ public class Downsample extends AbstractUnaryOperator {
 
     @Override
     public Operator copy() {
-        return new Downsample(getSource().copy(), precision, functionCall.copy(), timeRange.copy());
+        List<FunctionCall> copyFunctionCallList = new ArrayList<>();
+        for (FunctionCall functionCall : functionCallList) {
+            copyFunctionCallList.add(functionCall.copy());
+        }
+        return new Downsample(getSource().copy(), precision, copyFunctionCallList, timeRange.copy());
     }
 }
@@ -26,13 +26,24 @@ public class Limit extends AbstractUnaryOperator {
 
     private final int offset;
 
+    // 为 true 时保留按时间升序排列的最后 limit 行，输出顺序不变，用于下推 ORDER BY time DESC LIMIT
+    private final boolean tail;
+
     public Limit(Source source, int limit, int offset) {
+        this(source, limit, offset, false);
+    }
+
+    public Limit(Source source, int limit, int offset, boolean tail) {
         super(OperatorType.Limit, source);
         if (limit < 0 || offset < 0) {
             throw new IllegalArgumentException("limit and offset shouldn't less than zero");
         }
+        if (tail && offset != 0) {
+            throw new IllegalArgumentException("tail limit doesn't support offset");
+        }
         this.limit = limit;
         this.offset = offset;
+        this.tail = tail;
     }
 
     public int getLimit() {
@@ -43,8 +54,12 @@ public class Limit extends AbstractUnaryOperator {
         return offset;
     }
 
+    public boolean isTail() {
+        return tail;
+    }
+
     @Override
     public Operator copy() {
-        return new Limit(getSource().copy(), limit, offset);
+        return new Limit(getSource().copy(), limit, offset, tail);
     }
 }
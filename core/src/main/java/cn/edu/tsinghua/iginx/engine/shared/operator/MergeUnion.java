@@ -0,0 +1,23 @@
+package cn.edu.tsinghua.iginx.engine.shared.operator;
+
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多路 Union，一次性按时间戳归并全部输入，由物理优化器将连续的 Union 合并而成
+ */
+public class MergeUnion extends AbstractMultipleOperator {
+
+    public MergeUnion(List<Source> sources) {
+        super(OperatorType.MergeUnion, sources);
+    }
+
+    @Override
+    public Operator copy() {
+        List<Source> sources = new ArrayList<>();
+        getSources().forEach(source -> sources.add(source.copy()));
+        return new MergeUnion(sources);
+    }
+}
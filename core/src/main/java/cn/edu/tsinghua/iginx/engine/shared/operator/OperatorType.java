@@ -29,6 +29,7 @@ public enum OperatorType {
     Select,
     Join,
     Union,
+    MergeUnion,
     Sort,
     Limit,
     Downsample,
@@ -52,7 +53,7 @@ public enum OperatorType {
     }
 
     public static boolean isMultipleOperator(OperatorType op) {
-        return op == CombineNonQuery;
+        return op == CombineNonQuery || op == MergeUnion;
     }
 
     public static boolean isGlobalOperator(OperatorType op) {
@@ -22,27 +22,51 @@ import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
 import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
 import cn.edu.tsinghua.iginx.engine.shared.source.Source;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class SetTransform extends AbstractUnaryOperator {
 
-    private final FunctionCall functionCall;
+    private final List<FunctionCall> functionCallList;
 
     public SetTransform(Source source, FunctionCall functionCall) {
+        this(source, Collections.singletonList(functionCall));
+    }
+
+    /**
+     * 在同一份输入数据上计算多个集合映射函数，结果按照函数的顺序横向拼接为一行
+     */
+    public SetTransform(Source source, List<FunctionCall> functionCallList) {
         super(OperatorType.SetTransform, source);
-        if (functionCall == null || functionCall.getFunction() == null) {
+        if (functionCallList == null || functionCallList.isEmpty()) {
             throw new IllegalArgumentException("function shouldn't be null");
         }
-        if (functionCall.getFunction().getMappingType() != MappingType.SetMapping) {
-            throw new IllegalArgumentException("function should be set mapping function");
+        for (FunctionCall functionCall : functionCallList) {
+            if (functionCall == null || functionCall.getFunction() == null) {
+                throw new IllegalArgumentException("function shouldn't be null");
+            }
+            if (functionCall.getFunction().getMappingType() != MappingType.SetMapping) {
+                throw new IllegalArgumentException("function should be set mapping function");
+            }
         }
-        this.functionCall = functionCall;
+        this.functionCallList = functionCallList;
     }
 
     public FunctionCall getFunctionCall() {
-        return functionCall;
+        return functionCallList.get(0);
+    }
+
+    public List<FunctionCall> getFunctionCallList() {
+        return functionCallList;
     }
 
     @Override
     public Operator copy() {
-        return new SetTransform(getSource().copy(), functionCall.copy());
+        List<FunctionCall> copyFunctionCallList = new ArrayList<>();
+        for (FunctionCall functionCall : functionCallList) {
+            copyFunctionCallList.add(functionCall.copy());
+        }
+        return new SetTransform(getSource().copy(), copyFunctionCallList);
     }
 }
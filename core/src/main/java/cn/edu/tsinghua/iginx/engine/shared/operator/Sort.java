@@ -21,39 +21,66 @@ package cn.edu.tsinghua.iginx.engine.shared.operator;
 import cn.edu.tsinghua.iginx.engine.shared.Constants;
 import cn.edu.tsinghua.iginx.engine.shared.source.Source;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class Sort extends AbstractUnaryOperator {
 
-    private final String sortBy;
+    private final List<String> sortByCols;
+
+    private final List<SortType> sortTypes;
 
-    private final SortType sortType;
+    // 排序后只需要保留的前若干行，通常来自紧随其后的 Limit，-1 表示需要全部结果
+    private final long limit;
 
     public Sort(Source source) {
         this(source, Constants.TIMESTAMP, SortType.ASC);
     }
 
     public Sort(Source source, String sortBy, SortType sortType) {
+        this(source, Collections.singletonList(sortBy), Collections.singletonList(sortType), -1);
+    }
+
+    public Sort(Source source, List<String> sortByCols, List<SortType> sortTypes, long limit) {
         super(OperatorType.Sort, source);
-        if (sortBy == null) {
-            throw new IllegalArgumentException("sortBy shouldn't be null");
+        if (sortByCols == null || sortByCols.isEmpty() || sortByCols.contains(null)) {
+            throw new IllegalArgumentException("sortByCols shouldn't be null or empty");
         }
-        if (sortType == null) {
-            throw new IllegalArgumentException("sortType shouldn't be null");
+        if (sortTypes == null || sortTypes.size() != sortByCols.size() || sortTypes.contains(null)) {
+            throw new IllegalArgumentException("sortTypes should match sortByCols");
         }
-        this.sortBy = sortBy;
-        this.sortType = sortType;
+        this.sortByCols = sortByCols;
+        this.sortTypes = sortTypes;
+        this.limit = limit;
+    }
+
+    public List<String> getSortByCols() {
+        return sortByCols;
+    }
+
+    public List<SortType> getSortTypes() {
+        return sortTypes;
+    }
+
+    public long getLimit() {
+        return limit;
     }
 
-    public String getSortBy() {
-        return sortBy;
+    public boolean hasLimit() {
+        return limit >= 0;
     }
 
-    public SortType getSortType() {
-        return sortType;
+    /**
+     * 是否只按时间升序排列
+     */
+    public boolean isSortByTimeAsc() {
+        return sortByCols.size() == 1 && sortByCols.get(0).equals(Constants.TIMESTAMP) && sortTypes.get(0) == SortType.ASC;
     }
 
     @Override
     public Operator copy() {
-        return new Sort(getSource().copy(), sortBy, sortType);
+        return new Sort(getSource().copy(), new ArrayList<>(sortByCols), new ArrayList<>(sortTypes), limit);
     }
 
     public enum SortType {
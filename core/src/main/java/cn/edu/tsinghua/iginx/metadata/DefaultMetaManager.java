@@ -25,6 +25,7 @@ import cn.edu.tsinghua.iginx.exceptions.MetaStorageException;
 import cn.edu.tsinghua.iginx.metadata.cache.DefaultMetaCache;
 import cn.edu.tsinghua.iginx.metadata.cache.IMetaCache;
 import cn.edu.tsinghua.iginx.metadata.entity.*;
+import cn.edu.tsinghua.iginx.metadata.hook.ContinuousQueryChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
 import cn.edu.tsinghua.iginx.metadata.storage.IMetaStorage;
@@ -53,6 +54,7 @@ public class DefaultMetaManager implements IMetaManager {
     private final IMetaStorage storage;
     private final List<StorageEngineChangeHook> storageEngineChangeHooks;
     private final List<StorageUnitHook> storageUnitHooks;
+    private final List<ContinuousQueryChangeHook> continuousQueryChangeHooks;
     private long id;
 
     private DefaultMetaManager() {
@@ -85,6 +87,7 @@ public class DefaultMetaManager implements IMetaManager {
 
         storageEngineChangeHooks = Collections.synchronizedList(new ArrayList<>());
         storageUnitHooks = Collections.synchronizedList(new ArrayList<>());
+        continuousQueryChangeHooks = Collections.synchronizedList(new ArrayList<>());
 
         try {
             initIginx();
@@ -95,6 +98,7 @@ public class DefaultMetaManager implements IMetaManager {
             initPolicy();
             initUser();
             initTransform();
+            initContinuousQuery();
         } catch (MetaStorageException e) {
             logger.error("init meta manager error: ", e);
             System.exit(-1);
@@ -293,6 +297,22 @@ public class DefaultMetaManager implements IMetaManager {
         }
     }
 
+    private void initContinuousQuery() throws MetaStorageException {
+        storage.registerContinuousQueryChangeHook((name, continuousQuery) -> {
+            if (continuousQuery == null) {
+                cache.dropContinuousQuery(name);
+            } else {
+                cache.addOrUpdateContinuousQuery(continuousQuery);
+            }
+            for (ContinuousQueryChangeHook hook : continuousQueryChangeHooks) {
+                hook.onChange(name, continuousQuery);
+            }
+        });
+        for (ContinuousQueryMeta continuousQuery : storage.loadContinuousQuery()) {
+            cache.addOrUpdateContinuousQuery(continuousQuery);
+        }
+    }
+
     @Override
     public boolean addStorageEngines(List<StorageEngineMeta> storageEngineMetas) {
         try {
@@ -940,4 +960,40 @@ public class DefaultMetaManager implements IMetaManager {
     public List<TransformTaskMeta> getTransformTasks() {
         return cache.getTransformTasks();
     }
+
+    @Override
+    public boolean addContinuousQuery(ContinuousQueryMeta continuousQuery) {
+        try {
+            storage.addContinuousQuery(continuousQuery);
+            cache.addOrUpdateContinuousQuery(continuousQuery);
+            return true;
+        } catch (MetaStorageException e) {
+            logger.error("add continuous query error: ", e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean dropContinuousQuery(String name) {
+        try {
+            cache.dropContinuousQuery(name);
+            storage.dropContinuousQuery(name);
+            return true;
+        } catch (MetaStorageException e) {
+            logger.error("drop continuous query error: ", e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<ContinuousQueryMeta> getContinuousQueries() {
+        return cache.getContinuousQueries();
+    }
+
+    @Override
+    public void registerContinuousQueryChangeHook(ContinuousQueryChangeHook hook) {
+        if (hook != null) {
+            this.continuousQueryChangeHooks.add(hook);
+        }
+    }
 }
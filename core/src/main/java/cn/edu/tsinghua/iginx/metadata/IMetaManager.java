@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.metadata;
 
 import cn.edu.tsinghua.iginx.metadata.entity.*;
+import cn.edu.tsinghua.iginx.metadata.hook.ContinuousQueryChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageEngineChangeHook;
 import cn.edu.tsinghua.iginx.metadata.hook.StorageUnitHook;
 import cn.edu.tsinghua.iginx.policy.simple.TimeSeriesCalDO;
@@ -212,4 +213,15 @@ public interface IMetaManager {
 
     List<TransformTaskMeta> getTransformTasks();
 
+    boolean addContinuousQuery(ContinuousQueryMeta continuousQuery);
+
+    boolean dropContinuousQuery(String name);
+
+    List<ContinuousQueryMeta> getContinuousQueries();
+
+    /**
+     * 持续查询在任意节点上被创建或删除时调用，删除时 continuousQuery 为 null
+     */
+    void registerContinuousQueryChangeHook(ContinuousQueryChangeHook hook);
+
 }
@@ -23,14 +23,15 @@ import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.*;
 import cn.edu.tsinghua.iginx.metadata.entity.*;
 import cn.edu.tsinghua.iginx.policy.simple.TimeSeriesCalDO;
+import cn.edu.tsinghua.iginx.policy.simple.TimeSeriesStatistics;
 import cn.edu.tsinghua.iginx.sql.statement.InsertStatement;
 import cn.edu.tsinghua.iginx.thrift.DataType;
-import cn.edu.tsinghua.iginx.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
@@ -43,10 +44,8 @@ public class DefaultMetaCache implements IMetaCache {
 
     private static DefaultMetaCache INSTANCE = null;
 
-    // 分片列表的缓存
-    private final List<Pair<TimeSeriesInterval, List<FragmentMeta>>> sortedFragmentMetaLists;
-
-    private final Map<TimeSeriesInterval, List<FragmentMeta>> fragmentMetaListMap;
+    // 分片列表的缓存，读操作无需加锁
+    private final FragmentIndex fragmentIndex;
 
     private final List<FragmentMeta> dummyFragments;
 
@@ -58,6 +57,7 @@ public class DefaultMetaCache implements IMetaCache {
 
     private long minTimestamp = 0L;
 
+    // 仅用于分片写操作之间的互斥
     private final ReadWriteLock fragmentLock;
 
     // 数据单元的缓存
@@ -83,15 +83,17 @@ public class DefaultMetaCache implements IMetaCache {
     // 时序列信息版本号的缓存
     private final Map<Integer, Integer> timeSeriesVersionMap;
 
-    private final ReadWriteLock insertRecordLock = new ReentrantReadWriteLock();
-
-    private final Map<String, TimeSeriesCalDO> timeSeriesCalDOConcurrentHashMap = new ConcurrentHashMap<>();
+    // 时序列写入统计，写入路径只做无锁累加
+    private final Map<String, TimeSeriesStatistics> timeSeriesStatisticsMap = new ConcurrentHashMap<>();
 
     private final Random random = new Random();
 
     // transform task 的缓存
     private final Map<String, TransformTaskMeta> transformTaskMetaMap;
 
+    // continuous query 的缓存
+    private final Map<String, ContinuousQueryMeta> continuousQueryMetaMap;
+
     private DefaultMetaCache() {
         if (enableFragmentCacheControl) {
             long sizeOfFragment = FragmentMeta.sizeOf();
@@ -102,9 +104,8 @@ public class DefaultMetaCache implements IMetaCache {
         }
 
         // 分片相关
-        sortedFragmentMetaLists = new ArrayList<>();
-        fragmentMetaListMap = new HashMap<>();
-        dummyFragments = new ArrayList<>();
+        fragmentIndex = new FragmentIndex();
+        dummyFragments = new CopyOnWriteArrayList<>();
         fragmentLock = new ReentrantReadWriteLock();
         // 数据单元相关
         storageUnitMetaMap = new HashMap<>();
@@ -122,6 +123,7 @@ public class DefaultMetaCache implements IMetaCache {
         timeSeriesVersionMap = new ConcurrentHashMap<>();
         // transform task 相关
         transformTaskMetaMap = new ConcurrentHashMap<>();
+        continuousQueryMetaMap = new ConcurrentHashMap<>();
     }
 
     public static DefaultMetaCache getInstance() {
@@ -145,63 +147,16 @@ public class DefaultMetaCache implements IMetaCache {
         return minTimestamp;
     }
 
-    private static List<Pair<TimeSeriesInterval, List<FragmentMeta>>> searchFragmentSeriesList(List<Pair<TimeSeriesInterval, List<FragmentMeta>>> fragmentSeriesList, TimeSeriesInterval tsInterval) {
-        List<Pair<TimeSeriesInterval, List<FragmentMeta>>> resultList = new ArrayList<>();
-        if (fragmentSeriesList.isEmpty()) {
-            return resultList;
-        }
-        int index = 0;
-        while (index < fragmentSeriesList.size() && !fragmentSeriesList.get(index).k.isCompletelyAfter(tsInterval)) {
-            if (fragmentSeriesList.get(index).k.isIntersect(tsInterval)) {
-                resultList.add(fragmentSeriesList.get(index));
-            }
-            index++;
-        }
-        return resultList;
-    }
-
-    private static List<Pair<TimeSeriesInterval, List<FragmentMeta>>> searchFragmentSeriesList(List<Pair<TimeSeriesInterval, List<FragmentMeta>>> fragmentSeriesList, String tsName) {
-        List<Pair<TimeSeriesInterval, List<FragmentMeta>>> resultList = new ArrayList<>();
-        if (fragmentSeriesList.isEmpty()) {
-            return resultList;
-        }
-        int index = 0;
-        while (index < fragmentSeriesList.size() && !fragmentSeriesList.get(index).k.isAfter(tsName)) {
-            if (fragmentSeriesList.get(index).k.isContain(tsName)) {
-                resultList.add(fragmentSeriesList.get(index));
-            }
-            index++;
-        }
-        return resultList;
-    }
-
-    private static List<FragmentMeta> searchFragmentList(List<FragmentMeta> fragmentMetaList, TimeInterval timeInterval) {
-        List<FragmentMeta> resultList = new ArrayList<>();
-        if (fragmentMetaList.isEmpty()) {
-            return resultList;
-        }
-        int index = 0;
-        while (index < fragmentMetaList.size() && !fragmentMetaList.get(index).getTimeInterval().isAfter(timeInterval)) {
-            if (fragmentMetaList.get(index).getTimeInterval().isIntersect(timeInterval)) {
-                resultList.add(fragmentMetaList.get(index));
-            }
-            index++;
-        }
-        return resultList;
-    }
-
     @Override
     public void initFragment(Map<TimeSeriesInterval, List<FragmentMeta>> fragmentListMap) {
         storageUnitLock.readLock().lock();
         fragmentListMap.values().forEach(e -> e.forEach(f -> f.setMasterStorageUnit(storageUnitMetaMap.get(f.getMasterStorageUnitId()))));
         storageUnitLock.readLock().unlock();
         fragmentLock.writeLock().lock();
-        sortedFragmentMetaLists.addAll(fragmentListMap.entrySet().stream().sorted(Map.Entry.comparingByKey())
-            .map(e -> new Pair<>(e.getKey(), e.getValue())).collect(Collectors.toList()));
-        fragmentListMap.forEach(fragmentMetaListMap::put);
+        fragmentIndex.init(fragmentListMap);
         if (enableFragmentCacheControl) {
             // 统计分片总数
-            fragmentCacheSize = sortedFragmentMetaLists.stream().mapToInt(e -> e.v.size()).sum();
+            fragmentCacheSize = fragmentIndex.getFragmentCount();
             while (fragmentCacheSize > fragmentCacheMaxSize) {
                 kickOffHistoryFragment();
             }
@@ -211,13 +166,9 @@ public class DefaultMetaCache implements IMetaCache {
 
     private void kickOffHistoryFragment() {
         long nextMinTimestamp = 0L;
-        for (List<FragmentMeta> fragmentList: fragmentMetaListMap.values()) {
-            FragmentMeta fragment = fragmentList.get(0);
-            if (fragment.getTimeInterval().getStartTime() == minTimestamp) {
-                fragmentList.remove(0);
-                nextMinTimestamp = fragment.getTimeInterval().getEndTime();
-                fragmentCacheSize--;
-            }
+        for (FragmentMeta fragment: fragmentIndex.removeFirstFragments(minTimestamp)) {
+            nextMinTimestamp = fragment.getTimeInterval().getEndTime();
+            fragmentCacheSize--;
         }
         if (nextMinTimestamp == 0L || nextMinTimestamp == Long.MAX_VALUE) {
             logger.error("unexpected next min timestamp " + nextMinTimestamp + "!");
@@ -229,13 +180,7 @@ public class DefaultMetaCache implements IMetaCache {
     @Override
     public void addFragment(FragmentMeta fragmentMeta) {
         fragmentLock.writeLock().lock();
-        // 更新 fragmentMetaListMap
-        List<FragmentMeta> fragmentMetaList = fragmentMetaListMap.computeIfAbsent(fragmentMeta.getTsInterval(), v -> new ArrayList<>());
-        if (fragmentMetaList.size() == 0) {
-            // 更新 sortedFragmentMetaLists
-            updateSortedFragmentsList(fragmentMeta.getTsInterval(), fragmentMetaList);
-        }
-        fragmentMetaList.add(fragmentMeta);
+        fragmentIndex.addFragment(fragmentMeta);
         if (enableFragmentCacheControl) {
             if (fragmentMeta.getTimeInterval().getStartTime() < minTimestamp) {
                 minTimestamp = fragmentMeta.getTimeInterval().getStartTime();
@@ -249,115 +194,76 @@ public class DefaultMetaCache implements IMetaCache {
         fragmentLock.writeLock().unlock();
     }
 
-    private void updateSortedFragmentsList(TimeSeriesInterval tsInterval, List<FragmentMeta> fragmentMetas) {
-        Pair<TimeSeriesInterval, List<FragmentMeta>> pair = new Pair<>(tsInterval, fragmentMetas);
-        if (sortedFragmentMetaLists.size() == 0) {
-            sortedFragmentMetaLists.add(pair);
-            return;
-        }
-        int left = 0, right = sortedFragmentMetaLists.size() - 1;
-        while (left <= right) {
-            int mid = (left + right) / 2;
-            TimeSeriesInterval midTsInterval = sortedFragmentMetaLists.get(mid).k;
-            if (tsInterval.compareTo(midTsInterval) < 0) {
-                right = mid - 1;
-            } else if (tsInterval.compareTo(midTsInterval) > 0) {
-                left = mid + 1;
-            } else {
-                throw new RuntimeException("unexpected fragment");
-            }
-        }
-        if (left == sortedFragmentMetaLists.size()) {
-            sortedFragmentMetaLists.add(pair);
-        } else {
-            sortedFragmentMetaLists.add(left, pair);
-        }
-
-    }
-
     @Override
     public void updateFragment(FragmentMeta fragmentMeta) {
         fragmentLock.writeLock().lock();
-        // 更新 fragmentMetaListMap
-        List<FragmentMeta> fragmentMetaList = fragmentMetaListMap.get(fragmentMeta.getTsInterval());
-        fragmentMetaList.set(fragmentMetaList.size() - 1, fragmentMeta);
+        fragmentIndex.updateLatestFragment(fragmentMeta);
         fragmentLock.writeLock().unlock();
     }
 
     @Override
     public Map<TimeSeriesInterval, List<FragmentMeta>> getFragmentMapByTimeSeriesInterval(TimeSeriesInterval tsInterval) {
         Map<TimeSeriesInterval, List<FragmentMeta>> resultMap = new HashMap<>();
-        fragmentLock.readLock().lock();
-        searchFragmentSeriesList(sortedFragmentMetaLists, tsInterval).forEach(e -> resultMap.put(e.k, e.v));
-        fragmentLock.readLock().unlock();
+        fragmentIndex.searchFragmentSeriesList(tsInterval).forEach(e -> resultMap.put(e.k, e.v));
         return resultMap;
     }
 
     @Override
     public List<FragmentMeta> getDummyFragmentsByTimeSeriesInterval(TimeSeriesInterval tsInterval) {
-        fragmentLock.readLock().lock();
         List<FragmentMeta> results = new ArrayList<>();
         for (FragmentMeta fragmentMeta: dummyFragments) {
             if (fragmentMeta.getTsInterval().isIntersect(tsInterval)) {
                 results.add(fragmentMeta);
             }
         }
-        fragmentLock.readLock().unlock();
         return results;
     }
 
     @Override
     public Map<TimeSeriesInterval, FragmentMeta> getLatestFragmentMap() {
         Map<TimeSeriesInterval, FragmentMeta> latestFragmentMap = new HashMap<>();
-        fragmentLock.readLock().lock();
-        sortedFragmentMetaLists.stream().map(e -> e.v.get(e.v.size() - 1)).filter(e -> e.getTimeInterval().getEndTime() == Long.MAX_VALUE)
+        fragmentIndex.getFragmentSeriesList().stream().filter(e -> !e.v.isEmpty()).map(e -> e.v.get(e.v.size() - 1))
+            .filter(e -> e.getTimeInterval().getEndTime() == Long.MAX_VALUE)
             .forEach(e -> latestFragmentMap.put(e.getTsInterval(), e));
-        fragmentLock.readLock().unlock();
         return latestFragmentMap;
     }
 
     @Override
     public Map<TimeSeriesInterval, FragmentMeta> getLatestFragmentMapByTimeSeriesInterval(TimeSeriesInterval tsInterval) {
         Map<TimeSeriesInterval, FragmentMeta> latestFragmentMap = new HashMap<>();
-        fragmentLock.readLock().lock();
-        searchFragmentSeriesList(sortedFragmentMetaLists, tsInterval).stream().map(e -> e.v.get(e.v.size() - 1)).filter(e -> e.getTimeInterval().getEndTime() == Long.MAX_VALUE)
+        fragmentIndex.searchFragmentSeriesList(tsInterval).stream().filter(e -> !e.v.isEmpty()).map(e -> e.v.get(e.v.size() - 1))
+            .filter(e -> e.getTimeInterval().getEndTime() == Long.MAX_VALUE)
             .forEach(e -> latestFragmentMap.put(e.getTsInterval(), e));
-        fragmentLock.readLock().unlock();
         return latestFragmentMap;
     }
 
     @Override
     public Map<TimeSeriesInterval, List<FragmentMeta>> getFragmentMapByTimeSeriesIntervalAndTimeInterval(TimeSeriesInterval tsInterval, TimeInterval timeInterval) {
         Map<TimeSeriesInterval, List<FragmentMeta>> resultMap = new HashMap<>();
-        fragmentLock.readLock().lock();
-        searchFragmentSeriesList(sortedFragmentMetaLists, tsInterval).forEach(e -> {
-            List<FragmentMeta> fragmentMetaList = searchFragmentList(e.v, timeInterval);
+        fragmentIndex.searchFragmentSeriesList(tsInterval).forEach(e -> {
+            List<FragmentMeta> fragmentMetaList = FragmentIndex.searchFragmentList(e.v, timeInterval);
             if (!fragmentMetaList.isEmpty()) {
                 resultMap.put(e.k, fragmentMetaList);
             }
         });
-        fragmentLock.readLock().unlock();
         return resultMap;
     }
 
     @Override
     public List<FragmentMeta> getDummyFragmentsByTimeSeriesIntervalAndTimeInterval(TimeSeriesInterval tsInterval, TimeInterval timeInterval) {
-        fragmentLock.readLock().lock();
         List<FragmentMeta> results = new ArrayList<>();
         for (FragmentMeta fragmentMeta: dummyFragments) {
             if (fragmentMeta.getTsInterval().isIntersect(tsInterval) && fragmentMeta.getTimeInterval().isIntersect(timeInterval)) {
                 results.add(fragmentMeta);
             }
         }
-        fragmentLock.readLock().unlock();
         return results;
     }
 
     @Override
     public List<FragmentMeta> getFragmentListByTimeSeriesName(String tsName) {
         List<FragmentMeta> resultList;
-        fragmentLock.readLock().lock();
-        resultList = searchFragmentSeriesList(sortedFragmentMetaLists, tsName).stream().map(e -> e.v).flatMap(List::stream).sorted((o1, o2) -> {
+        resultList = fragmentIndex.searchFragmentSeriesList(tsName).stream().map(e -> e.v).flatMap(List::stream).sorted((o1, o2) -> {
             if (o1.getTsInterval().getStartTimeSeries() == null && o2.getTsInterval().getStartTimeSeries() == null)
                 return 0;
             else if (o1.getTsInterval().getStartTimeSeries() == null)
@@ -366,34 +272,28 @@ public class DefaultMetaCache implements IMetaCache {
                 return 1;
             return o1.getTsInterval().getStartTimeSeries().compareTo(o2.getTsInterval().getStartTimeSeries());
         }).collect(Collectors.toList());
-        fragmentLock.readLock().unlock();
         return resultList;
     }
 
     @Override
     public FragmentMeta getLatestFragmentByTimeSeriesName(String tsName) {
         FragmentMeta result;
-        fragmentLock.readLock().lock();
-        result = searchFragmentSeriesList(sortedFragmentMetaLists, tsName).stream().map(e -> e.v).flatMap(List::stream)
+        result = fragmentIndex.searchFragmentSeriesList(tsName).stream().map(e -> e.v).flatMap(List::stream)
             .filter(e -> e.getTimeInterval().getEndTime() == Long.MAX_VALUE).findFirst().orElse(null);
-        fragmentLock.readLock().unlock();
         return result;
     }
 
     @Override
     public List<FragmentMeta> getFragmentListByTimeSeriesNameAndTimeInterval(String tsName, TimeInterval timeInterval) {
         List<FragmentMeta> resultList;
-        fragmentLock.readLock().lock();
-        List<FragmentMeta> fragmentMetas = searchFragmentSeriesList(sortedFragmentMetaLists, tsName).stream().map(e -> e.v).flatMap(List::stream)
-            .sorted(Comparator.comparingLong(o -> o.getTimeInterval().getStartTime())).collect(Collectors.toList());
-        resultList = searchFragmentList(fragmentMetas, timeInterval);
-        fragmentLock.readLock().unlock();
+        resultList = fragmentIndex.searchFragmentSeriesList(tsName).stream().map(e -> FragmentIndex.searchFragmentList(e.v, timeInterval))
+            .flatMap(List::stream).sorted(Comparator.comparingLong(o -> o.getTimeInterval().getStartTime())).collect(Collectors.toList());
         return resultList;
     }
 
     @Override
     public boolean hasFragment() {
-        return !sortedFragmentMetaLists.isEmpty() || (enableFragmentCacheControl && minTimestamp != 0L);
+        return !fragmentIndex.isEmpty() || (enableFragmentCacheControl && minTimestamp != 0L);
     }
 
     @Override
@@ -584,7 +484,6 @@ public class DefaultMetaCache implements IMetaCache {
 
     @Override
     public void saveTimeSeriesData(InsertStatement statement) {
-        insertRecordLock.writeLock().lock();
         long now = System.currentTimeMillis();
 
         RawData data = statement.getRawData();
@@ -596,21 +495,23 @@ public class DefaultMetaCache implements IMetaCache {
                 long maxx = Long.MIN_VALUE;
                 long totalByte = 0L;
                 int count = 0;
+                boolean isBinary = view.getDataType(i) == DataType.BINARY;
                 BitmapView bitmapView = view.getBitmapView(i);
                 for (int j = 0; j < view.getTimeSize(); j++) {
                     if (bitmapView.get(j)) {
                         minn = Math.min(minn, view.getTimestamp(j));
                         maxx = Math.max(maxx, view.getTimestamp(j));
-                        if (view.getDataType(i) == DataType.BINARY) {
+                        if (isBinary) {
                             totalByte += ((byte[]) view.getValue(i, j)).length;
-                        } else {
-                            totalByte += transDatatypeToByte(view.getDataType(i));
                         }
                         count++;
                     }
                 }
+                if (!isBinary) {
+                    totalByte = count * transDatatypeToByte(view.getDataType(i));
+                }
                 if (count > 0) {
-                    updateTimeSeriesCalDOConcurrentHashMap(paths.get(i), now, minn, maxx, totalByte, count);
+                    updateTimeSeriesStatistics(paths.get(i), now, minn, maxx, totalByte, count);
                 }
             }
         } else {
@@ -641,21 +542,14 @@ public class DefaultMetaCache implements IMetaCache {
             }
             for (int i = 0; i < count.length; i++) {
                 if (count[i] > 0) {
-                    updateTimeSeriesCalDOConcurrentHashMap(paths.get(i), now, minn[i], maxx[i], totalByte[i], count[i]);
+                    updateTimeSeriesStatistics(paths.get(i), now, minn[i], maxx[i], totalByte[i], count[i]);
                 }
             }
         }
-        insertRecordLock.writeLock().unlock();
     }
 
-    private void updateTimeSeriesCalDOConcurrentHashMap(String path, long now, long minn, long maxx, long totalByte, int count) {
-        TimeSeriesCalDO timeSeriesCalDO = new TimeSeriesCalDO();
-        timeSeriesCalDO.setTimeSeries(path);
-        if (timeSeriesCalDOConcurrentHashMap.containsKey(path)) {
-            timeSeriesCalDO = timeSeriesCalDOConcurrentHashMap.get(path);
-        }
-        timeSeriesCalDO.merge(now, minn, maxx, count, totalByte);
-        timeSeriesCalDOConcurrentHashMap.put(path, timeSeriesCalDO);
+    private void updateTimeSeriesStatistics(String path, long now, long minn, long maxx, long totalByte, int count) {
+        timeSeriesStatisticsMap.computeIfAbsent(path, TimeSeriesStatistics::new).update(now, minn, maxx, count, totalByte);
     }
 
     private long transDatatypeToByte(DataType dataType) {
@@ -675,19 +569,15 @@ public class DefaultMetaCache implements IMetaCache {
 
     @Override
     public List<TimeSeriesCalDO> getMaxValueFromTimeSeries() {
-        insertRecordLock.readLock().lock();
-        List<TimeSeriesCalDO> ret = timeSeriesCalDOConcurrentHashMap.values().stream()
-            .filter(e -> random.nextDouble() < config.getCachedTimeseriesProb()).collect(Collectors.toList());
-        insertRecordLock.readLock().unlock();
-        return ret;
+        return timeSeriesStatisticsMap.values().stream()
+            .filter(e -> random.nextDouble() < config.getCachedTimeseriesProb())
+            .map(TimeSeriesStatistics::snapshot)
+            .collect(Collectors.toList());
     }
 
     @Override
     public double getSumFromTimeSeries() {
-        insertRecordLock.readLock().lock();
-        double ret = timeSeriesCalDOConcurrentHashMap.values().stream().mapToDouble(TimeSeriesCalDO::getValue).sum();
-        insertRecordLock.readLock().unlock();
-        return ret;
+        return timeSeriesStatisticsMap.values().stream().mapToDouble(TimeSeriesStatistics::getValue).sum();
     }
 
     @Override
@@ -714,4 +604,19 @@ public class DefaultMetaCache implements IMetaCache {
     public List<TransformTaskMeta> getTransformTasks() {
         return transformTaskMetaMap.values().stream().map(TransformTaskMeta::copy).collect(Collectors.toList());
     }
+
+    @Override
+    public void addOrUpdateContinuousQuery(ContinuousQueryMeta continuousQuery) {
+        continuousQueryMetaMap.put(continuousQuery.getName(), continuousQuery);
+    }
+
+    @Override
+    public void dropContinuousQuery(String name) {
+        continuousQueryMetaMap.remove(name);
+    }
+
+    @Override
+    public List<ContinuousQueryMeta> getContinuousQueries() {
+        return continuousQueryMetaMap.values().stream().map(ContinuousQueryMeta::copy).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.metadata.cache;
+
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeSeriesInterval;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import cn.edu.tsinghua.iginx.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片的索引，按时间序列区间的起点排序并记录区间终点的前缀最大值，查询时通过二分确定候选范围。
+ * 读操作基于不可变的快照，无需加锁；写操作之间需要由调用方保证互斥
+ */
+public class FragmentIndex {
+
+    private static final Comparator<FragmentMeta> FRAGMENT_START_TIME_COMPARATOR = Comparator.comparingLong(o -> o.getTimeInterval().getStartTime());
+
+    private final Map<TimeSeriesInterval, FragmentSeries> fragmentSeriesMap = new HashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new FragmentSeries[0]);
+
+    public void init(Map<TimeSeriesInterval, List<FragmentMeta>> fragmentListMap) {
+        fragmentListMap.forEach((tsInterval, fragmentList) -> {
+            List<FragmentMeta> fragments = new ArrayList<>(fragmentList);
+            fragments.sort(FRAGMENT_START_TIME_COMPARATOR);
+            FragmentSeries series = fragmentSeriesMap.get(tsInterval);
+            if (series == null) {
+                fragmentSeriesMap.put(tsInterval, new FragmentSeries(tsInterval, Collections.unmodifiableList(fragments)));
+            } else {
+                fragments.addAll(series.fragments);
+                fragments.sort(FRAGMENT_START_TIME_COMPARATOR);
+                series.fragments = Collections.unmodifiableList(fragments);
+            }
+        });
+        FragmentSeries[] seriesArray = fragmentSeriesMap.values().toArray(new FragmentSeries[0]);
+        Arrays.sort(seriesArray, Comparator.comparing(e -> e.tsInterval));
+        snapshot = new Snapshot(seriesArray);
+    }
+
+    public void addFragment(FragmentMeta fragmentMeta) {
+        FragmentSeries series = fragmentSeriesMap.get(fragmentMeta.getTsInterval());
+        if (series != null) {
+            List<FragmentMeta> fragments = new ArrayList<>(series.fragments.size() + 1);
+            fragments.addAll(series.fragments);
+            fragments.add(fragmentMeta);
+            series.fragments = Collections.unmodifiableList(fragments);
+            return;
+        }
+        series = new FragmentSeries(fragmentMeta.getTsInterval(), Collections.singletonList(fragmentMeta));
+        FragmentSeries[] oldArray = snapshot.seriesArray;
+        int index = binarySearch(oldArray, series.tsInterval);
+        if (index >= 0) {
+            throw new RuntimeException("unexpected fragment");
+        }
+        index = -index - 1;
+        FragmentSeries[] newArray = new FragmentSeries[oldArray.length + 1];
+        System.arraycopy(oldArray, 0, newArray, 0, index);
+        newArray[index] = series;
+        System.arraycopy(oldArray, index, newArray, index + 1, oldArray.length - index);
+        fragmentSeriesMap.put(series.tsInterval, series);
+        snapshot = new Snapshot(newArray);
+    }
+
+    /**
+     * 替换时间序列区间内最新的分片
+     */
+    public void updateLatestFragment(FragmentMeta fragmentMeta) {
+        FragmentSeries series = fragmentSeriesMap.get(fragmentMeta.getTsInterval());
+        List<FragmentMeta> fragments = new ArrayList<>(series.fragments);
+        fragments.set(fragments.size() - 1, fragmentMeta);
+        series.fragments = Collections.unmodifiableList(fragments);
+    }
+
+    /**
+     * 移除各时间序列区间中起始时间为 startTime 的首个分片，返回被移除的分片
+     */
+    public List<FragmentMeta> removeFirstFragments(long startTime) {
+        List<FragmentMeta> removedFragments = new ArrayList<>();
+        for (FragmentSeries series : fragmentSeriesMap.values()) {
+            if (series.fragments.isEmpty()) {
+                continue;
+            }
+            FragmentMeta fragment = series.fragments.get(0);
+            if (fragment.getTimeInterval().getStartTime() == startTime) {
+                series.fragments = Collections.unmodifiableList(new ArrayList<>(series.fragments.subList(1, series.fragments.size())));
+                removedFragments.add(fragment);
+            }
+        }
+        return removedFragments;
+    }
+
+    public boolean isEmpty() {
+        return snapshot.seriesArray.length == 0;
+    }
+
+    public int getFragmentCount() {
+        int count = 0;
+        for (FragmentSeries series : snapshot.seriesArray) {
+            count += series.fragments.size();
+        }
+        return count;
+    }
+
+    /**
+     * 按时间序列区间排序返回全部分片
+     */
+    public List<Pair<TimeSeriesInterval, List<FragmentMeta>>> getFragmentSeriesList() {
+        FragmentSeries[] seriesArray = snapshot.seriesArray;
+        List<Pair<TimeSeriesInterval, List<FragmentMeta>>> resultList = new ArrayList<>(seriesArray.length);
+        for (FragmentSeries series : seriesArray) {
+            resultList.add(new Pair<>(series.tsInterval, series.fragments));
+        }
+        return resultList;
+    }
+
+    /**
+     * 返回与给定时间序列区间相交的全部时间序列区间及其分片
+     */
+    public List<Pair<TimeSeriesInterval, List<FragmentMeta>>> searchFragmentSeriesList(TimeSeriesInterval tsInterval) {
+        Snapshot snapshot = this.snapshot;
+        FragmentSeries[] seriesArray = snapshot.seriesArray;
+        List<Pair<TimeSeriesInterval, List<FragmentMeta>>> resultList = new ArrayList<>();
+        int begin = snapshot.lowerBound(tsInterval.getStartTimeSeries());
+        int end = upperBound(seriesArray, tsInterval.getEndTimeSeries());
+        for (int i = begin; i < end; i++) {
+            FragmentSeries series = seriesArray[i];
+            if (series.tsInterval.isIntersect(tsInterval)) {
+                resultList.add(new Pair<>(series.tsInterval, series.fragments));
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * 返回包含给定时间序列的全部时间序列区间及其分片
+     */
+    public List<Pair<TimeSeriesInterval, List<FragmentMeta>>> searchFragmentSeriesList(String tsName) {
+        Snapshot snapshot = this.snapshot;
+        FragmentSeries[] seriesArray = snapshot.seriesArray;
+        List<Pair<TimeSeriesInterval, List<FragmentMeta>>> resultList = new ArrayList<>();
+        int begin = tsName == null ? 0 : snapshot.lowerBound(tsName);
+        int end = tsName == null ? seriesArray.length : upperBound(seriesArray, tsName);
+        for (int i = begin; i < end; i++) {
+            FragmentSeries series = seriesArray[i];
+            if (series.tsInterval.isContain(tsName)) {
+                resultList.add(new Pair<>(series.tsInterval, series.fragments));
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * 在同一时间序列区间内按起始时间排序且首尾相接的分片列表中，查找与给定时间区间相交的分片
+     */
+    public static List<FragmentMeta> searchFragmentList(List<FragmentMeta> fragmentMetaList, TimeInterval timeInterval) {
+        List<FragmentMeta> resultList = new ArrayList<>();
+        // 第一个结束时间大于查询起点的分片
+        int left = 0, right = fragmentMetaList.size();
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (fragmentMetaList.get(mid).getTimeInterval().getEndTime() > timeInterval.getStartTime()) {
+                right = mid;
+            } else {
+                left = mid + 1;
+            }
+        }
+        for (int i = left; i < fragmentMetaList.size(); i++) {
+            FragmentMeta fragmentMeta = fragmentMetaList.get(i);
+            if (fragmentMeta.getTimeInterval().isAfter(timeInterval)) {
+                break;
+            }
+            if (fragmentMeta.getTimeInterval().isIntersect(timeInterval)) {
+                resultList.add(fragmentMeta);
+            }
+        }
+        return resultList;
+    }
+
+    private static int binarySearch(FragmentSeries[] seriesArray, TimeSeriesInterval tsInterval) {
+        int left = 0, right = seriesArray.length - 1;
+        while (left <= right) {
+            int mid = (left + right) >>> 1;
+            int value = tsInterval.compareTo(seriesArray[mid].tsInterval);
+            if (value < 0) {
+                right = mid - 1;
+            } else if (value > 0) {
+                left = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(left + 1);
+    }
+
+    /**
+     * 第一个起点在 border 之后的时间序列区间，起点按序递增，因此该判定在数组上单调
+     */
+    private static int upperBound(FragmentSeries[] seriesArray, String border) {
+        if (border == null) {
+            return seriesArray.length;
+        }
+        int left = 0, right = seriesArray.length;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            String start = seriesArray[mid].tsInterval.getStartTimeSeries();
+            if (start != null && StringUtils.compare(border, start, true) < 0) {
+                right = mid;
+            } else {
+                left = mid + 1;
+            }
+        }
+        return left;
+    }
+
+    private static final class FragmentSeries {
+
+        private final TimeSeriesInterval tsInterval;
+
+        // 始终指向不可变列表，写入时整体替换
+        private volatile List<FragmentMeta> fragments;
+
+        FragmentSeries(TimeSeriesInterval tsInterval, List<FragmentMeta> fragments) {
+            this.tsInterval = tsInterval;
+            this.fragments = fragments;
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final FragmentSeries[] seriesArray;
+
+        // maxEndTimeSeries[i] 为前 i + 1 个区间终点的最大值，null 表示无上界
+        private final String[] maxEndTimeSeries;
+
+        Snapshot(FragmentSeries[] seriesArray) {
+            this.seriesArray = seriesArray;
+            this.maxEndTimeSeries = new String[seriesArray.length];
+            for (int i = 0; i < seriesArray.length; i++) {
+                String end = seriesArray[i].tsInterval.getEndTimeSeries();
+                if (i == 0) {
+                    maxEndTimeSeries[i] = end;
+                } else if (end == null || maxEndTimeSeries[i - 1] == null) {
+                    maxEndTimeSeries[i] = null;
+                } else {
+                    maxEndTimeSeries[i] = end.compareTo(maxEndTimeSeries[i - 1]) > 0 ? end : maxEndTimeSeries[i - 1];
+                }
+            }
+        }
+
+        /**
+         * 第一个可能包含 border 之后时间序列的区间，其之前所有区间的终点都不超过 border
+         */
+        int lowerBound(String border) {
+            if (border == null) {
+                return 0;
+            }
+            int left = 0, right = seriesArray.length;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                String maxEnd = maxEndTimeSeries[mid];
+                if (maxEnd != null && StringUtils.compare(border, maxEnd, false) >= 0) {
+                    left = mid + 1;
+                } else {
+                    right = mid;
+                }
+            }
+            return left;
+        }
+    }
+}
@@ -126,4 +126,11 @@ public interface IMetaCache {
     TransformTaskMeta getTransformTask(String name);
 
     List<TransformTaskMeta> getTransformTasks();
+
+    // continuous query 相关的缓存读写接口
+    void addOrUpdateContinuousQuery(ContinuousQueryMeta continuousQuery);
+
+    void dropContinuousQuery(String name);
+
+    List<ContinuousQueryMeta> getContinuousQueries();
 }
@@ -0,0 +1,60 @@
+package cn.edu.tsinghua.iginx.metadata.entity;
+
+import cn.edu.tsinghua.iginx.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ContinuousQueryMeta {
+
+    private String name;
+
+    // 窗口长度，窗口从时间 0 开始对齐
+    private long precision;
+
+    // 聚合函数与路径
+    private List<Pair<String, String>> expressions;
+
+    public ContinuousQueryMeta(String name, long precision, List<Pair<String, String>> expressions) {
+        this.name = name;
+        this.precision = precision;
+        this.expressions = expressions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPrecision() {
+        return precision;
+    }
+
+    public void setPrecision(long precision) {
+        this.precision = precision;
+    }
+
+    public List<Pair<String, String>> getExpressions() {
+        return expressions;
+    }
+
+    public void setExpressions(List<Pair<String, String>> expressions) {
+        this.expressions = expressions;
+    }
+
+    public ContinuousQueryMeta copy() {
+        return new ContinuousQueryMeta(name, precision, new ArrayList<>(expressions));
+    }
+
+    @Override
+    public String toString() {
+        return "ContinuousQueryMeta{" +
+            "name='" + name + '\'' +
+            ", precision=" + precision +
+            ", expressions=" + expressions +
+            '}';
+    }
+}
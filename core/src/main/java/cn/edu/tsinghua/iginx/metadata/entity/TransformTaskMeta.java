@@ -16,12 +16,22 @@ public class TransformTaskMeta {
 
     private UDFType type;
 
+    /**
+     * 向量化的任务以 Arrow 批数据为输入与输出，而不是逐行的对象列表
+     */
+    private boolean vectorized;
+
     public TransformTaskMeta(String name, String className, String fileName, Set<String> ipSet, UDFType type) {
+        this(name, className, fileName, ipSet, type, false);
+    }
+
+    public TransformTaskMeta(String name, String className, String fileName, Set<String> ipSet, UDFType type, boolean vectorized) {
         this.name = name;
         this.className = className;
         this.fileName = fileName;
         this.ipSet = ipSet;
         this.type = type;
+        this.vectorized = vectorized;
     }
 
     public String getName() {
@@ -68,8 +78,16 @@ public class TransformTaskMeta {
         this.type = type;
     }
 
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
     public TransformTaskMeta copy() {
-        return new TransformTaskMeta(name, className, fileName, ipSet, type);
+        return new TransformTaskMeta(name, className, fileName, ipSet, type, vectorized);
     }
 
     @Override
@@ -80,6 +98,7 @@ public class TransformTaskMeta {
             ", fileName='" + fileName + '\'' +
             ", ip='" + ipSet + '\'' +
             ", type=" + type +
+            ", vectorized=" + vectorized +
             '}';
     }
 }
@@ -0,0 +1,9 @@
+package cn.edu.tsinghua.iginx.metadata.hook;
+
+import cn.edu.tsinghua.iginx.metadata.entity.ContinuousQueryMeta;
+
+public interface ContinuousQueryChangeHook {
+
+    void onChange(String name, ContinuousQueryMeta continuousQuery);
+
+}
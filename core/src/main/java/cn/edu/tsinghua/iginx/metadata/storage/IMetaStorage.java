@@ -106,4 +106,12 @@ public interface IMetaStorage {
     void updateTransformTask(TransformTaskMeta transformTask) throws MetaStorageException;
 
     void dropTransformTask(String name) throws MetaStorageException;
+
+    void registerContinuousQueryChangeHook(ContinuousQueryChangeHook hook);
+
+    List<ContinuousQueryMeta> loadContinuousQuery() throws MetaStorageException;
+
+    void addContinuousQuery(ContinuousQueryMeta continuousQuery) throws MetaStorageException;
+
+    void dropContinuousQuery(String name) throws MetaStorageException;
 }
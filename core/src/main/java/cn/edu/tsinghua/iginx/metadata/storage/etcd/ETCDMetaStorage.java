@@ -63,6 +63,8 @@ public class ETCDMetaStorage implements IMetaStorage {
 
     private static final String TRANSFORM_LOCK = "/lock/transform/";
 
+    private static final String CONTINUOUS_QUERY_LOCK = "/lock/continuous_query/";
+
     private static final String SCHEMA_MAPPING_PREFIX = "/schema/";
 
     private static final String IGINX_PREFIX = "/iginx/";
@@ -77,6 +79,8 @@ public class ETCDMetaStorage implements IMetaStorage {
 
     private static final String TRANSFORM_PREFIX = "/transform/";
 
+    private static final String CONTINUOUS_QUERY_PREFIX = "/continuous_query/";
+
     private static final long MAX_LOCK_TIME = 30; // 最长锁住 30 秒
 
     private static final long HEART_BEAT_INTERVAL = 5; // 和 etcd 之间的心跳包的时间间隔
@@ -88,6 +92,7 @@ public class ETCDMetaStorage implements IMetaStorage {
     private final Lock fragmentLeaseLock = new ReentrantLock();
     private final Lock userLeaseLock = new ReentrantLock();
     private final Lock transformLeaseLock = new ReentrantLock();
+    private final Lock continuousQueryLeaseLock = new ReentrantLock();
 
     private Client client;
 
@@ -110,6 +115,9 @@ public class ETCDMetaStorage implements IMetaStorage {
     private Watch.Watcher transformWatcher;
     private TransformChangeHook transformChangeHook = null;
     private long transformLease = -1L;
+    private Watch.Watcher continuousQueryWatcher;
+    private ContinuousQueryChangeHook continuousQueryChangeHook = null;
+    private long continuousQueryLease = -1L;
 
     public ETCDMetaStorage() {
         client = Client.builder()
@@ -378,6 +386,44 @@ public class ETCDMetaStorage implements IMetaStorage {
                 @Override
                 public void onCompleted() {
 
+                }
+            });
+
+        // 注册 continuous query 的监听
+        this.continuousQueryWatcher = client.getWatchClient().watch(ByteSequence.from(CONTINUOUS_QUERY_PREFIX.getBytes()),
+            WatchOption.newBuilder().withPrefix(ByteSequence.from(CONTINUOUS_QUERY_PREFIX.getBytes())).withPrevKV(true).build(),
+            new Watch.Listener() {
+                @Override
+                public void onNext(WatchResponse watchResponse) {
+                    if (ETCDMetaStorage.this.continuousQueryChangeHook == null) {
+                        return;
+                    }
+                    for (WatchEvent event : watchResponse.getEvents()) {
+                        ContinuousQueryMeta continuousQuery;
+                        switch (event.getEventType()) {
+                            case PUT:
+                                continuousQuery = JsonUtils.fromJson(event.getKeyValue().getValue().getBytes(), ContinuousQueryMeta.class);
+                                continuousQueryChangeHook.onChange(continuousQuery.getName(), continuousQuery);
+                                break;
+                            case DELETE:
+                                continuousQuery = JsonUtils.fromJson(event.getPrevKV().getValue().getBytes(), ContinuousQueryMeta.class);
+                                continuousQueryChangeHook.onChange(continuousQuery.getName(), null);
+                                break;
+                            default:
+                                logger.error("unexpected watchEvent: " + event.getEventType());
+                                break;
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+
+                }
+
+                @Override
+                public void onCompleted() {
+
                 }
             });
     }
@@ -1012,6 +1058,94 @@ public class ETCDMetaStorage implements IMetaStorage {
         }
     }
 
+    private void lockContinuousQuery() throws MetaStorageException {
+        try {
+            continuousQueryLeaseLock.lock();
+            continuousQueryLease = client.getLeaseClient().grant(MAX_LOCK_TIME).get().getID();
+            client.getLockClient().lock(ByteSequence.from(CONTINUOUS_QUERY_LOCK.getBytes()), continuousQueryLease);
+        } catch (Exception e) {
+            continuousQueryLeaseLock.unlock();
+            throw new MetaStorageException("acquire continuous query mutex error: ", e);
+        }
+    }
+
+    private void releaseContinuousQuery() throws MetaStorageException {
+        try {
+            client.getLockClient().unlock(ByteSequence.from(CONTINUOUS_QUERY_LOCK.getBytes())).get();
+            client.getLeaseClient().revoke(continuousQueryLease).get();
+            continuousQueryLease = -1L;
+        } catch (Exception e) {
+            throw new MetaStorageException("release continuous query mutex error: ", e);
+        } finally {
+            continuousQueryLeaseLock.unlock();
+        }
+    }
+
+    @Override
+    public void registerContinuousQueryChangeHook(ContinuousQueryChangeHook hook) {
+        continuousQueryChangeHook = hook;
+    }
+
+    @Override
+    public List<ContinuousQueryMeta> loadContinuousQuery() throws MetaStorageException {
+        try {
+            lockContinuousQuery();
+            List<ContinuousQueryMeta> continuousQueries = new ArrayList<>();
+            GetResponse response = this.client.getKVClient().get(ByteSequence.from(CONTINUOUS_QUERY_PREFIX.getBytes()),
+                GetOption.newBuilder().withPrefix(ByteSequence.from(CONTINUOUS_QUERY_PREFIX.getBytes())).build())
+                .get();
+            if (response.getCount() != 0L) {
+                response.getKvs().forEach(e -> continuousQueries.add(JsonUtils.fromJson(e.getValue().getBytes(), ContinuousQueryMeta.class)));
+            }
+            return continuousQueries;
+        } catch (ExecutionException | InterruptedException e) {
+            logger.error("got error when load continuous query: ", e);
+            throw new MetaStorageException(e);
+        } finally {
+            if (continuousQueryLease != -1) {
+                releaseContinuousQuery();
+            }
+        }
+    }
+
+    @Override
+    public void addContinuousQuery(ContinuousQueryMeta continuousQuery) throws MetaStorageException {
+        try {
+            lockContinuousQuery();
+            this.client.getKVClient()
+                .put(ByteSequence.from((CONTINUOUS_QUERY_PREFIX + continuousQuery.getName()).getBytes()), ByteSequence.from(JsonUtils.toJson(continuousQuery))).get();
+        } catch (ExecutionException | InterruptedException e) {
+            logger.error("got error when add continuous query: ", e);
+            throw new MetaStorageException(e);
+        } finally {
+            if (continuousQueryLease != -1) {
+                releaseContinuousQuery();
+            }
+        }
+        if (continuousQueryChangeHook != null) {
+            continuousQueryChangeHook.onChange(continuousQuery.getName(), continuousQuery);
+        }
+    }
+
+    @Override
+    public void dropContinuousQuery(String name) throws MetaStorageException {
+        try {
+            lockContinuousQuery();
+            this.client.getKVClient()
+                .delete(ByteSequence.from((CONTINUOUS_QUERY_PREFIX + name).getBytes())).get();
+        } catch (ExecutionException | InterruptedException e) {
+            logger.error("got error when remove continuous query: ", e);
+            throw new MetaStorageException(e);
+        } finally {
+            if (continuousQueryLease != -1) {
+                releaseContinuousQuery();
+            }
+        }
+        if (continuousQueryChangeHook != null) {
+            continuousQueryChangeHook.onChange(name, null);
+        }
+    }
+
     public void close() throws MetaStorageException {
         this.schemaMappingWatcher.close();
         this.schemaMappingWatcher = null;
@@ -1034,6 +1168,9 @@ public class ETCDMetaStorage implements IMetaStorage {
         this.transformWatcher.close();
         this.transformWatcher = null;
 
+        this.continuousQueryWatcher.close();
+        this.continuousQueryWatcher = null;
+
         this.client.close();
         this.client = null;
     }
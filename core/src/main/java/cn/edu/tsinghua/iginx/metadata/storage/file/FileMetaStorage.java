@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -26,16 +27,16 @@ public class FileMetaStorage implements IMetaStorage {
 
     private static final Logger logger = LoggerFactory.getLogger(FileMetaStorage.class);
     private static final String PATH = ConfigDescriptor.getInstance().getConfig().getFileDataDir();
-    private static final String STORAGE_META_FILE = "storage.log";
-    private static final String SCHEMA_MAPPING_FILE = "schema.log";
-    private static final String FRAGMENT_META_FILE = "fragment.log";
-    private static final String STORAGE_UNIT_META_FILE = "storage_unit.log";
+    private static final int COMPACT_THRESHOLD = ConfigDescriptor.getInstance().getConfig().getFileMetaCompactThreshold();
+    private static final String STORAGE_META_FILE = "storage";
+    private static final String SCHEMA_MAPPING_FILE = "schema";
+    private static final String FRAGMENT_META_FILE = "fragment";
+    private static final String STORAGE_UNIT_META_FILE = "storage_unit";
     private static final String ID_FILE = "id.log";
-    private static final String USER_META_FILE = "user.log";
-    private static final String TRANSFORM_META_FILE = "transform.log";
+    private static final String USER_META_FILE = "user";
+    private static final String TRANSFORM_META_FILE = "transform";
+    private static final String CONTINUOUS_QUERY_META_FILE = "continuous_query";
     private static final long ID_INTERVAL = 100000;
-    private static final String UPDATE = "update";
-    private static final String REMOVE = "remove";
     private static FileMetaStorage INSTANCE = null;
     private final Lock storageUnitLock = new ReentrantLock();
 
@@ -55,35 +56,47 @@ public class FileMetaStorage implements IMetaStorage {
 
     private TransformChangeHook transformChangeHook = null;
 
+    private ContinuousQueryChangeHook continuousQueryChangeHook = null;
+
     private AtomicLong idGenerator = null; // 加载完数据之后赋值
 
+    private MetaLog storageLog;
+
+    private MetaLog schemaMappingLog;
+
+    private MetaLog fragmentLog;
+
+    private MetaLog storageUnitLog;
+
+    private MetaLog userLog;
+
+    private MetaLog transformLog;
+
+    private MetaLog continuousQueryLog;
+
     public FileMetaStorage() {
         try {
             // 创建目录
-            if (Files.notExists(Paths.get(PATH))) {
-                Files.createDirectories(Paths.get(PATH));
-            }
-            // 初始化文件
-            if (Files.notExists(Paths.get(PATH, STORAGE_META_FILE))) {
-                Files.createFile(Paths.get(PATH, STORAGE_META_FILE));
-            }
-            if (Files.notExists(Paths.get(PATH, SCHEMA_MAPPING_FILE))) {
-                Files.createFile(Paths.get(PATH, SCHEMA_MAPPING_FILE));
+            Path dir = Paths.get(PATH);
+            if (Files.notExists(dir)) {
+                Files.createDirectories(dir);
             }
-            if (Files.notExists(Paths.get(PATH, FRAGMENT_META_FILE))) {
-                Files.createFile(Paths.get(PATH, FRAGMENT_META_FILE));
-            }
-            if (Files.notExists(Paths.get(PATH, STORAGE_UNIT_META_FILE))) {
-                Files.createFile(Paths.get(PATH, STORAGE_UNIT_META_FILE));
-            }
-            if (Files.notExists(Paths.get(PATH, USER_META_FILE))) {
-                Files.createFile(Paths.get(PATH, USER_META_FILE));
-            }
-            if (Files.notExists(Paths.get(PATH, TRANSFORM_META_FILE))) {
-                Files.createFile(Paths.get(PATH, TRANSFORM_META_FILE));
-            }
-        } catch (IOException e) {
-            logger.error("encounter error when create log file: ", e);
+            // 加载快照与日志，日志中的记录数超过阈值时合并为快照
+            storageLog = new MetaLog(dir, STORAGE_META_FILE,
+                e -> Long.toString(JsonUtils.fromJson(e.getBytes(StandardCharsets.UTF_8), StorageEngineMeta.class).getId()), COMPACT_THRESHOLD);
+            schemaMappingLog = new MetaLog(dir, SCHEMA_MAPPING_FILE, e -> e.split(" ", 2)[0], COMPACT_THRESHOLD);
+            fragmentLog = new MetaLog(dir, FRAGMENT_META_FILE,
+                e -> fragmentKey(JsonUtils.getGson().fromJson(e, FragmentMeta.class)), COMPACT_THRESHOLD);
+            storageUnitLog = new MetaLog(dir, STORAGE_UNIT_META_FILE,
+                e -> JsonUtils.getGson().fromJson(e, StorageUnitMeta.class).getId(), COMPACT_THRESHOLD);
+            userLog = new MetaLog(dir, USER_META_FILE,
+                e -> JsonUtils.fromJson(e.getBytes(StandardCharsets.UTF_8), UserMeta.class).getUsername(), COMPACT_THRESHOLD);
+            transformLog = new MetaLog(dir, TRANSFORM_META_FILE,
+                e -> JsonUtils.fromJson(e.getBytes(StandardCharsets.UTF_8), TransformTaskMeta.class).getName(), COMPACT_THRESHOLD);
+            continuousQueryLog = new MetaLog(dir, CONTINUOUS_QUERY_META_FILE,
+                e -> JsonUtils.fromJson(e.getBytes(StandardCharsets.UTF_8), ContinuousQueryMeta.class).getName(), COMPACT_THRESHOLD);
+        } catch (IOException | RuntimeException e) {
+            logger.error("encounter error when load log file: ", e);
             System.exit(10);
         }
         // 加载 id
@@ -134,28 +147,20 @@ public class FileMetaStorage implements IMetaStorage {
         return id;
     }
 
+    // 与 FragmentMeta 的 equals 一致，由序列区间与时间区间确定一个分片
+    private static String fragmentKey(FragmentMeta fragment) {
+        TimeInterval timeInterval = fragment.getTimeInterval();
+        return fragment.getTsInterval() + " " + timeInterval.getStartTime() + " " + timeInterval.getEndTime();
+    }
+
     @Override
     public Map<String, Map<String, Integer>> loadSchemaMapping() throws MetaStorageException {
         Map<String, Map<String, Integer>> schemaMappings = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, SCHEMA_MAPPING_FILE).toFile())))) {
-            String line;
-            String[] params;
-            while ((line = reader.readLine()) != null) {
-                params = line.split(" ");
-                String schema = params[1];
-                if (params[0].equals(UPDATE)) {
-                    Map<String, Integer> schemeMapping = JsonUtils.getGson().fromJson(params[2], new TypeToken<Map<String, Integer>>() {
-                    }.getType());
-                    schemaMappings.put(schema, schemeMapping);
-                } else if (params[0].equals(REMOVE)) {
-                    schemaMappings.remove(schema);
-                } else {
-                    logger.error("unknown log content: " + line);
-                }
-            }
-        } catch (IOException e) {
-            logger.error("encounter error when read schema mapping log file: ", e);
-            throw new MetaStorageException(e);
+        for (String content : schemaMappingLog.values()) {
+            String[] params = content.split(" ", 2);
+            Map<String, Integer> schemeMapping = JsonUtils.getGson().fromJson(params[1], new TypeToken<Map<String, Integer>>() {
+            }.getType());
+            schemaMappings.put(params[0], schemeMapping);
         }
         return schemaMappings;
     }
@@ -169,11 +174,11 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void updateSchemaMapping(String schema, Map<String, Integer> schemaMapping) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, SCHEMA_MAPPING_FILE).toFile(), true))) {
+        try {
             if (schemaMapping == null || schemaMapping.isEmpty()) {
-                writer.write(String.format("%s %s\n", REMOVE, schema));
+                schemaMappingLog.remove(schema);
             } else {
-                writer.write(String.format("%s %s %s\n", UPDATE, schema, JsonUtils.getGson().toJson(schemaMapping)));
+                schemaMappingLog.update(schema, String.format("%s %s", schema, JsonUtils.getGson().toJson(schemaMapping)));
             }
         } catch (IOException e) {
             logger.error("write schema mapping file error: ", e);
@@ -207,28 +212,15 @@ public class FileMetaStorage implements IMetaStorage {
     public Map<Long, StorageEngineMeta> loadStorageEngine(List<StorageEngineMeta> storageEngines) throws MetaStorageException {
         Map<Long, StorageEngineMeta> storageEngineMap = new HashMap<>();
 
-        File storageEngineLogFile = Paths.get(PATH, STORAGE_META_FILE).toFile();
-        if (storageEngineLogFile.length() == 0L) { // 是第一次启动
+        if (storageLog.isEmpty()) { // 是第一次启动
             for (StorageEngineMeta storageEngine : storageEngines) {
                 storageEngine.setId(addStorageEngine(storageEngine));
                 storageEngineMap.put(storageEngine.getId(), storageEngine);
             }
         } else { // 并非第一次启动
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, STORAGE_META_FILE).toFile())))) {
-                String line;
-                String[] params;
-                while ((line = reader.readLine()) != null) {
-                    params = line.split(" ");
-                    if (params[0].equals(UPDATE)) {
-                        StorageEngineMeta storageEngine = JsonUtils.fromJson(params[1].getBytes(StandardCharsets.UTF_8), StorageEngineMeta.class);
-                        storageEngineMap.put(storageEngine.getId(), storageEngine);
-                    } else {
-                        logger.error("unknown log content: " + line);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("encounter error when read schema mapping log file: ", e);
-                throw new MetaStorageException(e);
+            for (String content : storageLog.values()) {
+                StorageEngineMeta storageEngine = JsonUtils.fromJson(content.getBytes(StandardCharsets.UTF_8), StorageEngineMeta.class);
+                storageEngineMap.put(storageEngine.getId(), storageEngine);
             }
         }
 
@@ -240,8 +232,8 @@ public class FileMetaStorage implements IMetaStorage {
         long id = nextId();
         storageEngine.setId(id);
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, STORAGE_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(storageEngine)));
+        try {
+            storageLog.update(Long.toString(id), JsonUtils.getGson().toJson(storageEngine));
         } catch (IOException e) {
             logger.error("write storage engine file error: ", e);
             throw new MetaStorageException(e);
@@ -263,21 +255,9 @@ public class FileMetaStorage implements IMetaStorage {
     @Override
     public Map<String, StorageUnitMeta> loadStorageUnit() throws MetaStorageException {
         Map<String, StorageUnitMeta> storageUnitMap = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, STORAGE_UNIT_META_FILE).toFile())))) {
-            String line;
-            String[] params;
-            while ((line = reader.readLine()) != null) {
-                params = line.split(" ");
-                if (params[0].equals(UPDATE)) {
-                    StorageUnitMeta storageUnit = JsonUtils.getGson().fromJson(params[1], StorageUnitMeta.class);
-                    storageUnitMap.put(storageUnit.getId(), storageUnit);
-                } else {
-                    logger.error("unknown log content: " + line);
-                }
-            }
-        } catch (IOException e) {
-            logger.error("encounter error when read storage unit log file: ", e);
-            throw new MetaStorageException(e);
+        for (String content : storageUnitLog.values()) {
+            StorageUnitMeta storageUnit = JsonUtils.getGson().fromJson(content, StorageUnitMeta.class);
+            storageUnitMap.put(storageUnit.getId(), storageUnit);
         }
         return storageUnitMap;
     }
@@ -294,8 +274,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void updateStorageUnit(StorageUnitMeta storageUnitMeta) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, STORAGE_UNIT_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(storageUnitMeta)));
+        try {
+            storageUnitLog.update(storageUnitMeta.getId(), JsonUtils.getGson().toJson(storageUnitMeta));
         } catch (IOException e) {
             logger.error("write storage unit file error: ", e);
             throw new MetaStorageException(e);
@@ -320,23 +300,9 @@ public class FileMetaStorage implements IMetaStorage {
     @Override
     public Map<TimeSeriesInterval, List<FragmentMeta>> loadFragment() throws MetaStorageException {
         Map<TimeSeriesInterval, List<FragmentMeta>> fragmentsMap = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, FRAGMENT_META_FILE).toFile())))) {
-            String line;
-            String[] params;
-            while ((line = reader.readLine()) != null) {
-                params = line.split(" ");
-                if (params[0].equals(UPDATE)) {
-                    FragmentMeta fragment = JsonUtils.getGson().fromJson(params[1], FragmentMeta.class);
-                    List<FragmentMeta> fragmentList = fragmentsMap.computeIfAbsent(fragment.getTsInterval(), e -> new ArrayList<>());
-                    fragmentList.remove(fragment);
-                    fragmentList.add(fragment);
-                } else {
-                    logger.error("unknown log content: " + line);
-                }
-            }
-        } catch (IOException e) {
-            logger.error("encounter error when read fragment log file: ", e);
-            throw new MetaStorageException(e);
+        for (String content : fragmentLog.values()) {
+            FragmentMeta fragment = JsonUtils.getGson().fromJson(content, FragmentMeta.class);
+            fragmentsMap.computeIfAbsent(fragment.getTsInterval(), e -> new ArrayList<>()).add(fragment);
         }
         return fragmentsMap;
     }
@@ -349,23 +315,11 @@ public class FileMetaStorage implements IMetaStorage {
     @Override
     public List<FragmentMeta> getFragmentListByTimeSeriesNameAndTimeInterval(String tsName, TimeInterval timeInterval) {
         List<FragmentMeta> fragments = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, FRAGMENT_META_FILE).toFile())))) {
-            String line;
-            String[] params;
-            while ((line = reader.readLine()) != null) {
-                params = line.split(" ");
-                if (params[0].equals(UPDATE)) {
-                    FragmentMeta fragment = JsonUtils.getGson().fromJson(params[1], FragmentMeta.class);
-                    if (fragment.getTsInterval().isContain(tsName) && fragment.getTimeInterval().isIntersect(timeInterval)) {
-                        fragments.remove(fragment);
-                        fragments.add(fragment);
-                    }
-                } else {
-                    logger.error("unknown log content: " + line);
-                }
+        for (String content : fragmentLog.values()) {
+            FragmentMeta fragment = JsonUtils.getGson().fromJson(content, FragmentMeta.class);
+            if (fragment.getTsInterval().isContain(tsName) && fragment.getTimeInterval().isIntersect(timeInterval)) {
+                fragments.add(fragment);
             }
-        } catch (IOException e) {
-            logger.error("encounter error when read storage unit log file: ", e);
         }
         fragments.sort((o1, o2) -> {
             long s1 = o1.getTimeInterval().getStartTime();
@@ -378,24 +332,11 @@ public class FileMetaStorage implements IMetaStorage {
     @Override
     public Map<TimeSeriesInterval, List<FragmentMeta>> getFragmentMapByTimeSeriesIntervalAndTimeInterval(TimeSeriesInterval tsInterval, TimeInterval timeInterval) {
         Map<TimeSeriesInterval, List<FragmentMeta>> fragmentsMap = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, FRAGMENT_META_FILE).toFile())))) {
-            String line;
-            String[] params;
-            while ((line = reader.readLine()) != null) {
-                params = line.split(" ");
-                if (params[0].equals(UPDATE)) {
-                    FragmentMeta fragment = JsonUtils.getGson().fromJson(params[1], FragmentMeta.class);
-                    if (fragment.getTsInterval().isIntersect(tsInterval) && fragment.getTimeInterval().isIntersect(timeInterval)) {
-                        List<FragmentMeta> fragmentList = fragmentsMap.computeIfAbsent(fragment.getTsInterval(), e -> new ArrayList<>());
-                        fragmentList.remove(fragment);
-                        fragmentList.add(fragment);
-                    }
-                } else {
-                    logger.error("unknown log content: " + line);
-                }
+        for (String content : fragmentLog.values()) {
+            FragmentMeta fragment = JsonUtils.getGson().fromJson(content, FragmentMeta.class);
+            if (fragment.getTsInterval().isIntersect(tsInterval) && fragment.getTimeInterval().isIntersect(timeInterval)) {
+                fragmentsMap.computeIfAbsent(fragment.getTsInterval(), e -> new ArrayList<>()).add(fragment);
             }
-        } catch (IOException e) {
-            logger.error("encounter error when read storage unit log file: ", e);
         }
         fragmentsMap.values().forEach(e -> e.sort((o1, o2) -> {
             long s1 = o1.getTimeInterval().getStartTime();
@@ -407,8 +348,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void updateFragment(FragmentMeta fragmentMeta) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, FRAGMENT_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(fragmentMeta)));
+        try {
+            fragmentLog.update(fragmentKey(fragmentMeta), JsonUtils.getGson().toJson(fragmentMeta));
         } catch (IOException e) {
             logger.error("write fragment file error: ", e);
             throw new MetaStorageException(e);
@@ -420,8 +361,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void addFragment(FragmentMeta fragmentMeta) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, FRAGMENT_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(fragmentMeta)));
+        try {
+            fragmentLog.update(fragmentKey(fragmentMeta), JsonUtils.getGson().toJson(fragmentMeta));
         } catch (IOException e) {
             logger.error("write fragment file error: ", e);
             throw new MetaStorageException(e);
@@ -447,29 +388,13 @@ public class FileMetaStorage implements IMetaStorage {
     public List<UserMeta> loadUser(UserMeta userMeta) throws MetaStorageException {
         Map<String, UserMeta> users = new HashMap<>();
 
-        File userLogFile = Paths.get(PATH, USER_META_FILE).toFile();
-        if (userLogFile.length() == 0L) { // 是第一次启动
+        if (userLog.isEmpty()) { // 是第一次启动
             addUser(userMeta);
             users.put(userMeta.getUsername(), userMeta);
         } else {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, USER_META_FILE).toFile())))) {
-                String line;
-                String[] params;
-                while ((line = reader.readLine()) != null) {
-                    params = line.split(" ");
-                    if (params[0].equals(UPDATE)) {
-                        UserMeta user = JsonUtils.fromJson(params[1].getBytes(StandardCharsets.UTF_8), UserMeta.class);
-                        users.put(user.getUsername(), user);
-                    } else if (params[0].equals(REMOVE)) {
-                        String username = params[1];
-                        users.remove(username);
-                    } else {
-                        logger.error("unknown log content: " + line);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("encounter error when read user log file: ", e);
-                throw new MetaStorageException(e);
+            for (String content : userLog.values()) {
+                UserMeta user = JsonUtils.fromJson(content.getBytes(StandardCharsets.UTF_8), UserMeta.class);
+                users.put(user.getUsername(), user);
             }
         }
         return new ArrayList<>(users.values());
@@ -484,8 +409,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void addUser(UserMeta userMeta) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, USER_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(userMeta)));
+        try {
+            userLog.update(userMeta.getUsername(), JsonUtils.getGson().toJson(userMeta));
         } catch (IOException e) {
             logger.error("write user file error: ", e);
             throw new MetaStorageException(e);
@@ -497,8 +422,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void updateUser(UserMeta userMeta) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, USER_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(userMeta)));
+        try {
+            userLog.update(userMeta.getUsername(), JsonUtils.getGson().toJson(userMeta));
         } catch (IOException e) {
             logger.error("write user file error: ", e);
             throw new MetaStorageException(e);
@@ -510,8 +435,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void removeUser(String username) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, USER_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", REMOVE, username));
+        try {
+            userLog.remove(username);
         } catch (IOException e) {
             logger.error("write user file error: ", e);
             throw new MetaStorageException(e);
@@ -566,27 +491,10 @@ public class FileMetaStorage implements IMetaStorage {
     @Override
     public List<TransformTaskMeta> loadTransformTask() throws MetaStorageException {
         Map<String, TransformTaskMeta> taskMetaMap = new HashMap<>();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(Paths.get(PATH, TRANSFORM_META_FILE).toFile())))) {
-            String line;
-            String[] params;
-            while ((line = reader.readLine()) != null) {
-                params = line.split(" ");
-                if (params[0].equals(UPDATE)) {
-                    TransformTaskMeta taskMeta = JsonUtils.fromJson(params[1].getBytes(StandardCharsets.UTF_8), TransformTaskMeta.class);
-                    taskMetaMap.put(taskMeta.getName(), taskMeta);
-                } else if (params[0].equals(REMOVE)) {
-                    String name = params[1];
-                    taskMetaMap.remove(name);
-                } else {
-                    logger.error("unknown log content: " + line);
-                }
-            }
-        } catch (IOException e) {
-            logger.error("encounter error when read task log file: ", e);
-            throw new MetaStorageException(e);
+        for (String content : transformLog.values()) {
+            TransformTaskMeta taskMeta = JsonUtils.fromJson(content.getBytes(StandardCharsets.UTF_8), TransformTaskMeta.class);
+            taskMetaMap.put(taskMeta.getName(), taskMeta);
         }
-
         return new ArrayList<>(taskMetaMap.values());
     }
 
@@ -597,8 +505,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void updateTransformTask(TransformTaskMeta transformTask) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, TRANSFORM_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", UPDATE, JsonUtils.getGson().toJson(transformTask)));
+        try {
+            transformLog.update(transformTask.getName(), JsonUtils.getGson().toJson(transformTask));
         } catch (IOException e) {
             logger.error("write transform file error: ", e);
             throw new MetaStorageException(e);
@@ -610,8 +518,8 @@ public class FileMetaStorage implements IMetaStorage {
 
     @Override
     public void dropTransformTask(String name) throws MetaStorageException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(Paths.get(PATH, TRANSFORM_META_FILE).toFile(), true))) {
-            writer.write(String.format("%s %s\n", REMOVE, name));
+        try {
+            transformLog.remove(name);
         } catch (IOException e) {
             logger.error("write transform file error: ", e);
             throw new MetaStorageException(e);
@@ -620,4 +528,46 @@ public class FileMetaStorage implements IMetaStorage {
             transformChangeHook.onChange(name, null);
         }
     }
+
+    @Override
+    public void registerContinuousQueryChangeHook(ContinuousQueryChangeHook hook) {
+        if (hook != null) {
+            continuousQueryChangeHook = hook;
+        }
+    }
+
+    @Override
+    public List<ContinuousQueryMeta> loadContinuousQuery() throws MetaStorageException {
+        List<ContinuousQueryMeta> continuousQueries = new ArrayList<>();
+        for (String content : continuousQueryLog.values()) {
+            continuousQueries.add(JsonUtils.fromJson(content.getBytes(StandardCharsets.UTF_8), ContinuousQueryMeta.class));
+        }
+        return continuousQueries;
+    }
+
+    @Override
+    public void addContinuousQuery(ContinuousQueryMeta continuousQuery) throws MetaStorageException {
+        try {
+            continuousQueryLog.update(continuousQuery.getName(), JsonUtils.getGson().toJson(continuousQuery));
+        } catch (IOException e) {
+            logger.error("write continuous query file error: ", e);
+            throw new MetaStorageException(e);
+        }
+        if (continuousQueryChangeHook != null) {
+            continuousQueryChangeHook.onChange(continuousQuery.getName(), continuousQuery);
+        }
+    }
+
+    @Override
+    public void dropContinuousQuery(String name) throws MetaStorageException {
+        try {
+            continuousQueryLog.remove(name);
+        } catch (IOException e) {
+            logger.error("write continuous query file error: ", e);
+            throw new MetaStorageException(e);
+        }
+        if (continuousQueryChangeHook != null) {
+            continuousQueryChangeHook.onChange(name, null);
+        }
+    }
 }
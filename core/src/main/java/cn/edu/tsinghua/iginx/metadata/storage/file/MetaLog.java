@@ -0,0 +1,381 @@
+package cn.edu.tsinghua.iginx.metadata.storage.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * 由二进制快照与追加日志组成的元数据文件，每条记录以 key 区分。
+ * 日志只保存上一次快照之后的更新与删除，日志中的记录数超过阈值时将全部有效记录写成新的快照并清空日志。
+ * 快照先写入临时文件再原子地重命名，日志在快照落盘之后才被清空，任意时刻崩溃都可以通过快照加日志恢复。
+ * 多个线程同时追加时合并为一次写入与一次 fsync
+ */
+class MetaLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetaLog.class);
+
+    static final String UPDATE = "update";
+
+    static final String REMOVE = "remove";
+
+    private static final int SNAPSHOT_MAGIC = 0x49474d53;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Path logPath;
+
+    private final Path snapshotPath;
+
+    private final Path tempSnapshotPath;
+
+    private final Function<String, String> keyExtractor;
+
+    private final int compactThreshold;
+
+    // 当前全部有效记录，按最后一次更新的顺序排列，key -> 记录内容
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<>();
+
+    private final FileChannel channel;
+
+    private List<byte[]> pending = new ArrayList<>();
+
+    private long appendedSeq = 0L;
+
+    private long durableSeq = 0L;
+
+    private long failedSeq = 0L;
+
+    // 是否有线程正在写日志或快照
+    private boolean writing = false;
+
+    // 日志中的记录数
+    private int logSize = 0;
+
+    /**
+     * @param keyExtractor 重放日志时从更新记录的内容中解析出 key，需要与写入时使用的 key 一致，删除记录的内容即为 key
+     */
+    MetaLog(Path dir, String name, Function<String, String> keyExtractor, int compactThreshold) throws IOException {
+        this.logPath = dir.resolve(name + ".log");
+        this.snapshotPath = dir.resolve(name + ".snapshot");
+        this.tempSnapshotPath = dir.resolve(name + ".snapshot.tmp");
+        this.keyExtractor = keyExtractor;
+        this.compactThreshold = compactThreshold;
+
+        Files.deleteIfExists(tempSnapshotPath);
+        if (Files.exists(snapshotPath)) {
+            loadSnapshot();
+        }
+        channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayLog();
+        if (logSize >= compactThreshold) {
+            compact();
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        try (FileChannel snapshotChannel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readFully(snapshotChannel);
+            if (buffer.remaining() < 20 || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("invalid meta snapshot: " + snapshotPath);
+            }
+            int version = buffer.getInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("unsupported meta snapshot version " + version + ": " + snapshotPath);
+            }
+
+            ByteBuffer content = buffer.duplicate();
+            content.position(0);
+            content.limit(buffer.limit() - 8);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+                throw new IOException("meta snapshot checksum mismatch: " + snapshotPath);
+            }
+
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                entries.put(key, readString(buffer));
+            }
+        }
+    }
+
+    /**
+     * 读入堆内存而不使用 mmap，映射在被回收前会阻止 Windows 上截断或替换文件
+     */
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void replayLog() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer buffer = readFully(channel);
+        // 崩溃时最后一行可能只写入了一部分，丢弃并截断
+        int end = (int) size;
+        while (end > 0 && buffer.get(end - 1) != '\n') {
+            end--;
+        }
+        if (end < size) {
+            logger.warn("discard incomplete record at the end of {}", logPath);
+            channel.truncate(end);
+        }
+        buffer.limit(end);
+
+        String content = StandardCharsets.UTF_8.decode(buffer).toString();
+        int start = 0;
+        while (start < content.length()) {
+            int lineEnd = content.indexOf('\n', start);
+            String line = content.substring(start, lineEnd);
+            start = lineEnd + 1;
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] params = line.split(" ", 2);
+            if (params.length == 2 && params[0].equals(UPDATE)) {
+                put(keyExtractor.apply(params[1]), params[1]);
+            } else if (params.length == 2 && params[0].equals(REMOVE)) {
+                entries.remove(params[1]);
+            } else {
+                logger.error("unknown log content: " + line);
+            }
+            logSize++;
+        }
+        channel.position(end);
+    }
+
+    private void put(String key, String value) {
+        // 先删除再插入，使记录按最后一次更新的顺序排列
+        entries.remove(key);
+        entries.put(key, value);
+    }
+
+    synchronized List<String> values() {
+        return new ArrayList<>(entries.values());
+    }
+
+    synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    void update(String key, String value) throws IOException {
+        append(UPDATE, key, value);
+    }
+
+    void remove(String key) throws IOException {
+        append(REMOVE, key, key);
+    }
+
+    private void append(String type, String key, String content) throws IOException {
+        byte[] bytes = (type + " " + content + "\n").getBytes(StandardCharsets.UTF_8);
+        List<byte[]> batch;
+        long seq;
+        long batchSeq;
+        synchronized (this) {
+            if (type.equals(UPDATE)) {
+                put(key, content);
+            } else {
+                entries.remove(key);
+            }
+            pending.add(bytes);
+            seq = ++appendedSeq;
+            // 其他线程正在写入时等待，写入完成后自己的记录可能已被一并刷盘
+            while (writing && durableSeq < seq && failedSeq < seq) {
+                waitQuietly();
+            }
+            if (durableSeq >= seq) {
+                return;
+            }
+            if (failedSeq >= seq) {
+                throw new IOException("write meta log failure: " + logPath);
+            }
+            writing = true;
+            batch = pending;
+            pending = new ArrayList<>();
+            batchSeq = appendedSeq;
+        }
+
+        boolean needCompact = false;
+        try {
+            int length = 0;
+            for (byte[] record : batch) {
+                length += record.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            batch.forEach(buffer::put);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                failedSeq = batchSeq;
+                writing = false;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            durableSeq = batchSeq;
+            logSize += batch.size();
+            writing = false;
+            if (logSize >= compactThreshold) {
+                needCompact = true;
+                writing = true;
+            } else {
+                notifyAll();
+            }
+        }
+        if (needCompact) {
+            compactAndRelease();
+        }
+    }
+
+    /**
+     * 写入快照期间不会有其他线程写日志，快照包含尚未写入日志的记录，这些记录会在快照之后写入新的日志，重放结果不变
+     */
+    private void compactAndRelease() throws IOException {
+        try {
+            compact();
+        } finally {
+            synchronized (this) {
+                writing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        Map<String, String> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(entries);
+        }
+        long startTime = System.currentTimeMillis();
+        try (FileChannel snapshotChannel = FileChannel.open(tempSnapshotPath, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new ChecksumOutputStream(
+                Channels.newOutputStream(snapshotChannel), crc)));
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeInt(snapshot.size());
+            for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                writeString(output, entry.getKey());
+                writeString(output, entry.getValue());
+            }
+            output.flush();
+            output.writeLong(crc.getValue());
+            output.flush();
+            snapshotChannel.force(true);
+        }
+        Files.move(tempSnapshotPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // 重命名落盘之后才能清空日志，否则崩溃后可能只剩旧快照和空日志
+        syncDirectory(snapshotPath.toAbsolutePath().getParent());
+
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        synchronized (this) {
+            logSize = 0;
+        }
+        logger.info("compact {} into {} records in {} ms", logPath, snapshot.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private static void syncDirectory(Path dir) throws IOException {
+        FileChannel dirChannel;
+        try {
+            dirChannel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Windows 不支持打开目录，其重命名不依赖目录的 fsync
+            logger.debug("skip fsync of directory {}: {}", dir, e.getMessage());
+            return;
+        }
+        try (FileChannel ignored = dirChannel) {
+            dirChannel.force(true);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private void waitQuietly() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    // 快照的校验和覆盖文件头与全部记录，不包含末尾的校验和本身
+    private static class ChecksumOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final CRC32 crc;
+
+        ChecksumOutputStream(OutputStream out, CRC32 crc) {
+            this.out = out;
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            crc.update(b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+    }
+
+}
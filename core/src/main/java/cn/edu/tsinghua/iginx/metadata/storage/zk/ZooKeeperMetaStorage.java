@@ -91,6 +91,10 @@ public class ZooKeeperMetaStorage implements IMetaStorage {
 
     private static final String TRANSFORM_LOCK_NODE = "/lock/transform";
 
+    private static final String CONTINUOUS_QUERY_NODE_PREFIX = "/continuous_query";
+
+    private static final String CONTINUOUS_QUERY_LOCK_NODE = "/lock/continuous_query";
+
     private boolean isMaster = false;
 
     private static ZooKeeperMetaStorage INSTANCE = null;
@@ -114,6 +118,7 @@ public class ZooKeeperMetaStorage implements IMetaStorage {
     private TimeSeriesChangeHook timeSeriesChangeHook = null;
     private VersionChangeHook versionChangeHook = null;
     private TransformChangeHook transformChangeHook = null;
+    private ContinuousQueryChangeHook continuousQueryChangeHook = null;
 
     protected TreeCache userCache;
 
@@ -125,6 +130,8 @@ public class ZooKeeperMetaStorage implements IMetaStorage {
 
     private TreeCache transformCache;
 
+    private TreeCache continuousQueryCache;
+
     public ZooKeeperMetaStorage() {
         client = CuratorFrameworkFactory.builder()
             .connectString(ConfigDescriptor.getInstance().getConfig().getZookeeperConnectionString())
@@ -1261,6 +1268,121 @@ public class ZooKeeperMetaStorage implements IMetaStorage {
         }
     }
 
+    @Override
+    public void registerContinuousQueryChangeHook(ContinuousQueryChangeHook hook) {
+        this.continuousQueryChangeHook = hook;
+    }
+
+    @Override
+    public List<ContinuousQueryMeta> loadContinuousQuery() throws MetaStorageException {
+        InterProcessMutex mutex = new InterProcessMutex(this.client, CONTINUOUS_QUERY_LOCK_NODE);
+        try {
+            mutex.acquire();
+            List<ContinuousQueryMeta> continuousQueries = new ArrayList<>();
+            if (this.client.checkExists().forPath(CONTINUOUS_QUERY_NODE_PREFIX) == null) {
+                // 当前还没有数据，创建父节点，然后不需要解析数据
+                client.create()
+                    .creatingParentsIfNeeded()
+                    .withMode(CreateMode.PERSISTENT)
+                    .forPath(CONTINUOUS_QUERY_NODE_PREFIX);
+            } else {
+                List<String> names = this.client.getChildren().forPath(CONTINUOUS_QUERY_NODE_PREFIX);
+                for (String name : names) {
+                    byte[] data = this.client.getData()
+                        .forPath(CONTINUOUS_QUERY_NODE_PREFIX + "/" + name);
+                    ContinuousQueryMeta continuousQuery = JsonUtils.fromJson(data, ContinuousQueryMeta.class);
+                    if (continuousQuery == null) {
+                        logger.error("resolve data from " + CONTINUOUS_QUERY_NODE_PREFIX + "/" + name + " error");
+                        continue;
+                    }
+                    continuousQueries.add(continuousQuery);
+                }
+            }
+            registerContinuousQueryListener();
+            return continuousQueries;
+        } catch (Exception e) {
+            throw new MetaStorageException("get error when load continuous queries", e);
+        } finally {
+            try {
+                mutex.release();
+            } catch (Exception e) {
+                throw new MetaStorageException("get error when release interprocess lock for " + CONTINUOUS_QUERY_LOCK_NODE, e);
+            }
+        }
+    }
+
+    private void registerContinuousQueryListener() throws Exception {
+        this.continuousQueryCache = new TreeCache(this.client, CONTINUOUS_QUERY_NODE_PREFIX);
+        TreeCacheListener listener = (curatorFramework, event) -> {
+            if (continuousQueryChangeHook == null) {
+                return;
+            }
+            switch (event.getType()) {
+                case NODE_ADDED:
+                case NODE_UPDATED:
+                    if (event.getData() == null || event.getData().getPath() == null ||
+                        event.getData().getPath().equals(CONTINUOUS_QUERY_NODE_PREFIX)) {
+                        return; // 前缀事件，非含数据的节点的变化，不需要处理
+                    }
+                    ContinuousQueryMeta continuousQuery = JsonUtils.fromJson(event.getData().getData(), ContinuousQueryMeta.class);
+                    if (continuousQuery != null) {
+                        continuousQueryChangeHook.onChange(continuousQuery.getName(), continuousQuery);
+                    } else {
+                        logger.error("resolve continuous query from zookeeper error");
+                    }
+                    break;
+                case NODE_REMOVED:
+                    String path = event.getData().getPath();
+                    if (path.equals(CONTINUOUS_QUERY_NODE_PREFIX)) {
+                        return;
+                    }
+                    String[] pathParts = path.split("/");
+                    continuousQueryChangeHook.onChange(pathParts[pathParts.length - 1], null);
+                    break;
+                default:
+                    break;
+            }
+        };
+        this.continuousQueryCache.getListenable().addListener(listener);
+        this.continuousQueryCache.start();
+    }
+
+    @Override
+    public void addContinuousQuery(ContinuousQueryMeta continuousQuery) throws MetaStorageException {
+        InterProcessMutex mutex = new InterProcessMutex(this.client, CONTINUOUS_QUERY_LOCK_NODE);
+        try {
+            mutex.acquire();
+            this.client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT)
+                .forPath(CONTINUOUS_QUERY_NODE_PREFIX + "/" + continuousQuery.getName(), JsonUtils.toJson(continuousQuery));
+        } catch (Exception e) {
+            throw new MetaStorageException("get error when add continuous query", e);
+        } finally {
+            try {
+                mutex.release();
+            } catch (Exception e) {
+                throw new MetaStorageException("get error when release interprocess lock for " + CONTINUOUS_QUERY_LOCK_NODE, e);
+            }
+        }
+    }
+
+    @Override
+    public void dropContinuousQuery(String name) throws MetaStorageException {
+        InterProcessMutex mutex = new InterProcessMutex(this.client, CONTINUOUS_QUERY_LOCK_NODE);
+        try {
+            mutex.acquire();
+            this.client.delete()
+                .forPath(CONTINUOUS_QUERY_NODE_PREFIX + "/" + name);
+        } catch (Exception e) {
+            throw new MetaStorageException("get error when drop continuous query", e);
+        } finally {
+            try {
+                mutex.release();
+            } catch (Exception e) {
+                throw new MetaStorageException("get error when release interprocess lock for " + CONTINUOUS_QUERY_LOCK_NODE, e);
+            }
+        }
+    }
+
     public static boolean isNumeric(String str) {
         String bigStr;
         try {
@@ -0,0 +1,57 @@
+package cn.edu.tsinghua.iginx.policy.simple;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单条时间序列写入统计的无锁累加器，并发写入时各线程只更新分散的计数单元，读取时再合并为 TimeSeriesCalDO 快照
+ */
+public class TimeSeriesStatistics {
+
+    private final String timeSeries;
+
+    private final LongAccumulator recentTimestamp = new LongAccumulator(Math::max, 0L);
+
+    private final LongAccumulator firstTimestamp = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator lastTimestamp = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalByte = new LongAdder();
+
+    public TimeSeriesStatistics(String timeSeries) {
+        this.timeSeries = timeSeries;
+    }
+
+    public String getTimeSeries() {
+        return timeSeries;
+    }
+
+    public void update(long recentTimestamp, long firstTimestamp, long lastTimestamp, int count, long totalByte) {
+        // 先扩展时间范围再累加数据量，读取方看到的写入速率只会偏小而不会偏大
+        this.firstTimestamp.accumulate(firstTimestamp);
+        this.lastTimestamp.accumulate(lastTimestamp);
+        this.recentTimestamp.accumulate(recentTimestamp);
+        this.count.add(count);
+        this.totalByte.add(totalByte);
+    }
+
+    /**
+     * 合并各计数单元得到当前统计的快照，与并发写入之间不保证原子性，但对采样决策已足够
+     */
+    public TimeSeriesCalDO snapshot() {
+        TimeSeriesCalDO timeSeriesCalDO = new TimeSeriesCalDO();
+        timeSeriesCalDO.setTimeSeries(timeSeries);
+        timeSeriesCalDO.setRecentTimeStamp(recentTimestamp.get());
+        timeSeriesCalDO.setFirstTimestamp(firstTimestamp.get());
+        timeSeriesCalDO.setLastTimestamp(lastTimestamp.get());
+        timeSeriesCalDO.setCount((int) Math.min(count.sum(), Integer.MAX_VALUE));
+        timeSeriesCalDO.setTotalByte(totalByte.sum());
+        return timeSeriesCalDO;
+    }
+
+    public double getValue() {
+        return snapshot().getValue();
+    }
+}
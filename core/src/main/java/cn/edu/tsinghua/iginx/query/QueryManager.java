@@ -47,6 +47,18 @@ public class QueryManager {
         queries.remove(queryId);
     }
 
+    /**
+     * 终止查询：取消正在执行的物理任务并释放查询，返回查询是否存在
+     */
+    public boolean killQuery(long queryId) {
+        RequestContext context = queries.remove(queryId);
+        if (context == null) {
+            return false;
+        }
+        context.kill();
+        return true;
+    }
+
     private static class QueryManagerHolder {
 
         private static final QueryManager INSTANCE = new QueryManager();
@@ -26,6 +26,9 @@ import cn.edu.tsinghua.iginx.resource.system.SystemMetricsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class ResourceManager {
 
     private static final Logger logger = LoggerFactory.getLogger(ResourceManager.class);
@@ -38,6 +41,11 @@ public class ResourceManager {
 
     private final double systemCpuThreshold;
 
+    private final int maxConcurrentStatementsPerSession;
+
+    // 每个会话正在执行的语句数
+    private final Map<Long, Integer> sessionStatementCounts = new ConcurrentHashMap<>();
+
     private ResourceManager() {
         Config config = ConfigDescriptor.getInstance().getConfig();
         switch (config.getSystemResourceMetrics()) {
@@ -52,6 +60,7 @@ public class ResourceManager {
         heapMemoryThreshold = config.getHeapMemoryThreshold();
         systemMemoryThreshold = config.getSystemMemoryThreshold();
         systemCpuThreshold = config.getSystemCpuThreshold();
+        maxConcurrentStatementsPerSession = config.getMaxConcurrentStatementsPerSession();
     }
 
     public boolean reject(RequestContext ctx) {
@@ -59,6 +68,32 @@ public class ResourceManager {
                 systemMetrics.getRecentMemoryUsage() > systemMemoryThreshold;
     }
 
+    /**
+     * 为语句申请会话内的执行名额，会话中正在执行的语句数已达上限时返回 false，申请成功的语句执行完毕后需要调用 release
+     */
+    public boolean admit(RequestContext ctx) {
+        if (maxConcurrentStatementsPerSession <= 0) {
+            return true;
+        }
+        boolean[] admitted = new boolean[1];
+        sessionStatementCounts.compute(ctx.getSessionId(), (sessionId, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxConcurrentStatementsPerSession) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        return admitted[0];
+    }
+
+    public void release(RequestContext ctx) {
+        if (maxConcurrentStatementsPerSession <= 0) {
+            return;
+        }
+        sessionStatementCounts.computeIfPresent(ctx.getSessionId(), (sessionId, count) -> count <= 1 ? null : count - 1);
+    }
+
     private boolean heapMemoryOverwhelmed() {
         return Runtime.getRuntime().totalMemory() * heapMemoryThreshold > Runtime.getRuntime().maxMemory();
     }
@@ -27,6 +27,7 @@ import cn.edu.tsinghua.iginx.rest.bean.QueryResult;
 import cn.edu.tsinghua.iginx.rest.insert.InsertWorker;
 import cn.edu.tsinghua.iginx.rest.query.QueryExecutor;
 import cn.edu.tsinghua.iginx.rest.query.QueryParser;
+import cn.edu.tsinghua.iginx.statistics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +60,8 @@ public class MetricsResource {
     private static final String GRAFANA_OK = "";
     private static final String GRAFANA_QUERY = "query";
     private static final String GRAFANA_STRING = "annotations";
+    private static final String PROMETHEUS_METRICS_URL = "metrics";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
     private static final String ERROR_PATH = "{string : .+}";
 
     private static final Config config = ConfigDescriptor.getInstance().getConfig();
@@ -76,6 +79,15 @@ public class MetricsResource {
         return setHeaders(Response.status(Status.OK)).build();
     }
 
+    @GET
+    @Path(PROMETHEUS_METRICS_URL)
+    public Response prometheusMetrics() {
+        return Response.status(Status.OK)
+            .type(PROMETHEUS_CONTENT_TYPE)
+            .entity(MetricsRegistry.getInstance().toPrometheusText())
+            .build();
+    }
+
     @POST
     @Path(GRAFANA_QUERY)
     public Response grafanaQuery(String jsonStr) {
@@ -31,6 +31,10 @@ public class IginXSqlVisitor extends SqlBaseVisitor<Statement> {
         )
     );
 
+    private final static Set<String> CONTINUOUS_QUERY_FUNCS = new HashSet<>(
+        Arrays.asList("avg", "count", "sum", "max", "min")
+    );
+
     @Override
     public Statement visitSqlStatement(SqlStatementContext ctx) {
         return visit(ctx.statement());
@@ -231,7 +235,7 @@ public class IginXSqlVisitor extends SqlBaseVisitor<Statement> {
         } else if (ctx.udfType().UDSF() != null) {
             type = UDFType.UDSF;
         }
-        return new RegisterTaskStatement(name, filePath, className, type);
+        return new RegisterTaskStatement(name, filePath, className, type, ctx.VECTORIZED() != null);
     }
 
     @Override
@@ -254,6 +258,54 @@ public class IginXSqlVisitor extends SqlBaseVisitor<Statement> {
         return new ShowJobStatusStatement(jobId);
     }
 
+    @Override
+    public Statement visitKillQueryStatement(KillQueryStatementContext ctx) {
+        long queryId = Long.parseLong(ctx.queryId.getText());
+        return new KillQueryStatement(queryId);
+    }
+
+    @Override
+    public Statement visitExplainStatement(ExplainStatementContext ctx) {
+        SelectStatement selectStatement = new SelectStatement();
+        parseQueryClause(ctx.queryClause(), selectStatement);
+        return new ExplainStatement(selectStatement, ctx.ANALYZE() != null);
+    }
+
+    @Override
+    public Statement visitCreateContinuousQueryStatement(CreateContinuousQueryStatementContext ctx) {
+        String name = ctx.name.getText();
+        name = name.substring(1, name.length() - 1);
+
+        SelectStatement selectStatement = new SelectStatement();
+        parseFromPaths(ctx.fromClause(), selectStatement);
+        if (selectStatement.getSubStatement() != null) {
+            throw new SQLParserException("Continuous query does not support sub query.");
+        }
+        parseSelectPaths(ctx.selectClause(), selectStatement);
+
+        List<Expression> expressions = new ArrayList<>();
+        for (Map.Entry<String, List<Expression>> entry : selectStatement.getSelectedFuncsAndExpressions().entrySet()) {
+            if (!CONTINUOUS_QUERY_FUNCS.contains(entry.getKey())) {
+                throw new SQLParserException("Continuous query only supports avg, count, sum, max and min.");
+            }
+            expressions.addAll(entry.getValue());
+        }
+        long precision = TimeUtils.convertDurationStrToLong(0, ctx.DURATION().getText());
+        return new CreateContinuousQueryStatement(name, expressions, precision);
+    }
+
+    @Override
+    public Statement visitDropContinuousQueryStatement(DropContinuousQueryStatementContext ctx) {
+        String name = ctx.name.getText();
+        name = name.substring(1, name.length() - 1);
+        return new DropContinuousQueryStatement(name);
+    }
+
+    @Override
+    public Statement visitShowContinuousQueryStatement(ShowContinuousQueryStatementContext ctx) {
+        return new ShowContinuousQueryStatement();
+    }
+
     private void parseSelectPaths(SelectClauseContext ctx, SelectStatement selectStatement) {
         List<ExpressionContext> expressions = ctx.expression();
 
@@ -366,20 +418,27 @@ public class IginXSqlVisitor extends SqlBaseVisitor<Statement> {
     }
 
     private void parseOrderByClause(OrderByClauseContext ctx, SelectStatement selectStatement) {
-        if (selectStatement.hasFunc()) {
+        // 聚合查询只有在按时间分组时才会产生多行结果，此时可以按聚合结果列排序
+        if (selectStatement.hasFunc() && !selectStatement.hasGroupByTime()) {
             throw new SQLParserException("Not support ORDER BY clause in aggregate query.");
         }
-        if (ctx.path() != null) {
-            String orderByPath = ctx.path().getText();
-            if (orderByPath.contains("*")) {
-                throw new SQLParserException(String.format("ORDER BY path '%s' has '*', which is not supported.", orderByPath));
+        for (OrderItemContext item : ctx.orderItem()) {
+            String orderByPath;
+            if (item.path() != null) {
+                orderByPath = item.path().getText();
+                if (orderByPath.contains("*")) {
+                    throw new SQLParserException(String.format("ORDER BY path '%s' has '*', which is not supported.", orderByPath));
+                }
+                if (item.functionName() != null) {
+                    if (!selectStatement.hasFunc()) {
+                        throw new SQLParserException(String.format("ORDER BY function '%s' is only supported in aggregate query.", item.getText()));
+                    }
+                    orderByPath = item.functionName().getText().trim().toLowerCase() + "(" + orderByPath + ")";
+                }
+            } else {
+                orderByPath = SQLConstant.TIME;
             }
-            selectStatement.setOrderByPath(orderByPath);
-        } else {
-            selectStatement.setOrderByPath(SQLConstant.TIME);
-        }
-        if (ctx.DESC() != null) {
-            selectStatement.setAscending(false);
+            selectStatement.setOrderByPath(orderByPath, item.DESC() == null);
         }
     }
 
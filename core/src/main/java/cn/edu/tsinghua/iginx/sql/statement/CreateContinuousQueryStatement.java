@@ -0,0 +1,44 @@
+package cn.edu.tsinghua.iginx.sql.statement;
+
+import cn.edu.tsinghua.iginx.engine.continuous.ContinuousQueryManager;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.Result;
+import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+
+import java.util.List;
+
+public class CreateContinuousQueryStatement extends SystemStatement {
+
+    private final String name;
+
+    private final List<Expression> expressions;
+
+    // 窗口长度，窗口从时间 0 开始对齐
+    private final long precision;
+
+    public CreateContinuousQueryStatement(String name, List<Expression> expressions, long precision) {
+        this.statementType = StatementType.CREATE_CONTINUOUS_QUERY;
+        this.name = name;
+        this.expressions = expressions;
+        this.precision = precision;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Expression> getExpressions() {
+        return expressions;
+    }
+
+    public long getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public void execute(RequestContext ctx) throws ExecutionException {
+        ContinuousQueryManager.getInstance().create(name, expressions, precision);
+        ctx.setResult(new Result(RpcUtils.SUCCESS));
+    }
+}
@@ -0,0 +1,27 @@
+package cn.edu.tsinghua.iginx.sql.statement;
+
+import cn.edu.tsinghua.iginx.engine.continuous.ContinuousQueryManager;
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.Result;
+import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+
+public class DropContinuousQueryStatement extends SystemStatement {
+
+    private final String name;
+
+    public DropContinuousQueryStatement(String name) {
+        this.statementType = StatementType.DROP_CONTINUOUS_QUERY;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void execute(RequestContext ctx) throws ExecutionException {
+        ContinuousQueryManager.getInstance().drop(name);
+        ctx.setResult(new Result(RpcUtils.SUCCESS));
+    }
+}
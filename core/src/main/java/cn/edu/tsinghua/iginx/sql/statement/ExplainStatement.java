@@ -0,0 +1,23 @@
+package cn.edu.tsinghua.iginx.sql.statement;
+
+public class ExplainStatement extends DataStatement {
+
+    private final SelectStatement subSelectStatement;
+
+    // 为 true 时实际执行查询，并输出每个物理任务和算子的执行统计
+    private final boolean analyze;
+
+    public ExplainStatement(SelectStatement subSelectStatement, boolean analyze) {
+        this.statementType = StatementType.EXPLAIN;
+        this.subSelectStatement = subSelectStatement;
+        this.analyze = analyze;
+    }
+
+    public SelectStatement getSubSelectStatement() {
+        return subSelectStatement;
+    }
+
+    public boolean isAnalyze() {
+        return analyze;
+    }
+}
@@ -21,6 +21,9 @@ public class InsertStatement extends DataStatement {
     private List<DataType> types;
     private List<Bitmap> bitmaps;
 
+    // 由 RPC 请求构造时直接持有原始数据，值保留在请求的编码缓冲区中
+    private RawData rawData;
+
     public InsertStatement(RawDataType rawDataType) {
         this.statementType = StatementType.INSERT;
         this.rawDataType = rawDataType;
@@ -42,6 +45,17 @@ public class InsertStatement extends DataStatement {
         this.tagsList = tagsList;
     }
 
+    public InsertStatement(RawData rawData) {
+        this.statementType = StatementType.INSERT;
+        this.rawDataType = rawData.getType();
+        this.paths = rawData.getPaths();
+        this.times = rawData.getTimestamps();
+        this.types = rawData.getDataTypeList();
+        this.bitmaps = rawData.getBitmaps();
+        this.tagsList = rawData.getTagsList();
+        this.rawData = rawData;
+    }
+
     public String getPrefixPath() {
         return prefixPath;
     }
@@ -96,6 +110,9 @@ public class InsertStatement extends DataStatement {
     }
 
     public Object[] getValues() {
+        if (rawData != null) {
+            return rawData.getValuesList();
+        }
         return values;
     }
 
@@ -176,6 +193,9 @@ public class InsertStatement extends DataStatement {
     }
 
     public RawData getRawData() {
+        if (rawData != null) {
+            return rawData;
+        }
         List<Map<String, String>> tagsList = this.tagsList;
         if (globalTags != null) {
             for (int i = 0; i < paths.size(); i++) {
@@ -0,0 +1,29 @@
+package cn.edu.tsinghua.iginx.sql.statement;
+
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.Result;
+import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.query.QueryManager;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+
+public class KillQueryStatement extends SystemStatement {
+
+    private final long queryId;
+
+    public KillQueryStatement(long queryId) {
+        this.statementType = StatementType.KILL_QUERY;
+        this.queryId = queryId;
+    }
+
+    public long getQueryId() {
+        return queryId;
+    }
+
+    @Override
+    public void execute(RequestContext ctx) throws ExecutionException {
+        if (!QueryManager.getInstance().killQuery(queryId)) {
+            throw new ExecutionException(String.format("Execute Error: query [%d] does not exist.", queryId));
+        }
+        ctx.setResult(new Result(RpcUtils.SUCCESS));
+    }
+}
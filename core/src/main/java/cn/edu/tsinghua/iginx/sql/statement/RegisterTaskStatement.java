@@ -20,21 +20,25 @@ public class RegisterTaskStatement extends SystemStatement {
 
     private final UDFType type;
 
+    private final boolean vectorized;
+
     private final IginxWorker worker = IginxWorker.getInstance();
 
     private final static Logger logger = LoggerFactory.getLogger(RegisterTaskStatement.class);
 
-    public RegisterTaskStatement(String name, String filePath, String className, UDFType type) {
+    public RegisterTaskStatement(String name, String filePath, String className, UDFType type, boolean vectorized) {
         this.statementType = StatementType.REGISTER_TASK;
         this.name = name;
         this.filePath = filePath;
         this.className = className;
         this.type = type;
+        this.vectorized = vectorized;
     }
 
     @Override
     public void execute(RequestContext ctx) throws ExecutionException {
         RegisterTaskReq req = new RegisterTaskReq(ctx.getSessionId(), name, filePath, className, type);
+        req.setVectorized(vectorized);
         Status status = worker.registerTask(req);
         ctx.setResult(new Result(status));
     }
@@ -19,13 +19,13 @@ public class SelectStatement extends DataStatement {
     private boolean hasFunc;
     private boolean hasValueFilter;
     private boolean hasGroupByTime;
-    private boolean ascending;
 
     private Map<String, List<Expression>> selectedFuncsAndExpressions;
     private Set<FuncType> funcTypeSet;
     private Set<String> pathSet;
     private List<String> fromPaths;
-    private String orderByPath;
+    private List<String> orderByPaths;
+    private List<Boolean> ascendingList;
     private Filter filter;
     private TagFilter tagFilter;
     private long precision;
@@ -41,12 +41,12 @@ public class SelectStatement extends DataStatement {
     public SelectStatement() {
         this.statementType = StatementType.SELECT;
         this.queryType = QueryType.Unknown;
-        this.ascending = true;
         this.selectedFuncsAndExpressions = new HashMap<>();
         this.funcTypeSet = new HashSet<>();
         this.pathSet = new HashSet<>();
         this.fromPaths = new ArrayList<>();
-        this.orderByPath = "";
+        this.orderByPaths = new ArrayList<>();
+        this.ascendingList = new ArrayList<>();
         this.limit = Integer.MAX_VALUE;
         this.offset = 0;
         this.layers = new ArrayList<>();
@@ -116,10 +116,10 @@ public class SelectStatement extends DataStatement {
     private void setFromSession(List<String> paths, long startTime, long endTime) {
         this.statementType = StatementType.SELECT;
 
-        this.ascending = true;
         this.limit = Integer.MAX_VALUE;
         this.offset = 0;
-        this.orderByPath = "";
+        this.orderByPaths = new ArrayList<>();
+        this.ascendingList = new ArrayList<>();
 
         this.pathSet = new HashSet<>();
         this.pathSet.addAll(paths);
@@ -193,14 +193,6 @@ public class SelectStatement extends DataStatement {
         this.hasGroupByTime = hasGroupByTime;
     }
 
-    public boolean isAscending() {
-        return ascending;
-    }
-
-    public void setAscending(boolean ascending) {
-        this.ascending = ascending;
-    }
-
     public List<String> getSelectedPaths() {
         List<String> paths = new ArrayList<>();
         selectedFuncsAndExpressions.forEach((k, v) -> {
@@ -258,12 +250,17 @@ public class SelectStatement extends DataStatement {
         this.fromPaths.add(fromPath);
     }
 
-    public String getOrderByPath() {
-        return orderByPath;
+    public List<String> getOrderByPaths() {
+        return orderByPaths;
+    }
+
+    public List<Boolean> getAscendingList() {
+        return ascendingList;
     }
 
-    public void setOrderByPath(String orderByPath) {
-        this.orderByPath = orderByPath;
+    public void setOrderByPath(String orderByPath, boolean ascending) {
+        this.orderByPaths.add(orderByPath);
+        this.ascendingList.add(ascending);
     }
 
     public Filter getFilter() {
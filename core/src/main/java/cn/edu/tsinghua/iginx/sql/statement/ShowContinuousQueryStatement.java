@@ -0,0 +1,8 @@
+package cn.edu.tsinghua.iginx.sql.statement;
+
+public class ShowContinuousQueryStatement extends DataStatement {
+
+    public ShowContinuousQueryStatement() {
+        this.statementType = StatementType.SHOW_CONTINUOUS_QUERY;
+    }
+}
@@ -17,5 +17,10 @@ public enum StatementType {
     REGISTER_TASK,
     DROP_TASK,
     COMMIT_TRANSFORM_JOB,
-    SHOW_JOB_STATUS
+    SHOW_JOB_STATUS,
+    KILL_QUERY,
+    EXPLAIN,
+    CREATE_CONTINUOUS_QUERY,
+    DROP_CONTINUOUS_QUERY,
+    SHOW_CONTINUOUS_QUERY
 }
@@ -10,20 +10,18 @@ import cn.edu.tsinghua.iginx.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ExecuteStatisticsCollector extends AbstractStageStatisticsCollector implements IExecuteStatisticsCollector {
 
     private static final Logger logger = LoggerFactory.getLogger(ExecuteStatisticsCollector.class);
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Map<StatementType, Pair<Long, Long>> detailInfos = new HashMap<>();
-    private long count = 0;
-    private long span = 0;
-    private long queryPoints = 0;
-    private long insertPoints = 0;
+    private final Map<StatementType, Pair<LongAdder, LongAdder>> detailInfos = new ConcurrentHashMap<>();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder span = new LongAdder();
+    private final LongAdder queryPoints = new LongAdder();
+    private final LongAdder insertPoints = new LongAdder();
 
     @Override
     protected String getStageName() {
@@ -32,39 +30,37 @@ public class ExecuteStatisticsCollector extends AbstractStageStatisticsCollector
 
     @Override
     protected void processStatistics(Statistics statistics) {
-        lock.writeLock().lock();
-        count += 1;
-        span += statistics.getEndTime() - statistics.getStartTime();
+        count.increment();
+        span.add(statistics.getEndTime() - statistics.getStartTime());
 
         Statement statement = statistics.getContext().getStatement();
-        Pair<Long, Long> detailInfo = detailInfos.computeIfAbsent(statement.getType(), e -> new Pair<>(0L, 0L));
-        detailInfo.k += 1;
-        detailInfo.v += statistics.getEndTime() - statistics.getStartTime();
+        Pair<LongAdder, LongAdder> detailInfo = detailInfos.computeIfAbsent(statement.getType(), e -> new Pair<>(new LongAdder(), new LongAdder()));
+        detailInfo.k.increment();
+        detailInfo.v.add(statistics.getEndTime() - statistics.getStartTime());
         if (statement.getType() == StatementType.INSERT) {
             InsertStatement insertStatement = (InsertStatement) statement;
-            insertPoints += (long) insertStatement.getTimes().size() * insertStatement.getPaths().size();
+            insertPoints.add((long) insertStatement.getTimes().size() * insertStatement.getPaths().size());
         }
         if (statement.getType() == StatementType.SELECT) {
             Result result = statistics.getContext().getResult();
-            queryPoints += (long) result.getBitmapList().size() * result.getPaths().size();
+            queryPoints.add((long) result.getBitmapList().size() * result.getPaths().size());
         }
-        lock.writeLock().unlock();
     }
 
     @Override
     public void broadcastStatistics() {
-        lock.readLock().lock();
         logger.info("Execute Stage Statistics Info: ");
+        long count = this.count.sum();
+        long span = this.span.sum();
         logger.info("\tcount: " + count + ", span: " + span + "μs");
         if (count != 0) {
             logger.info("\taverage-span: " + (1.0 * span) / count + "μs");
         }
-        for (Map.Entry<StatementType, Pair<Long, Long>> entry : detailInfos.entrySet()) {
-            logger.info("\t\tFor Request: " + entry.getKey() + ", count: " + entry.getValue().k + ", span: " + entry.getValue().v + "μs");
+        for (Map.Entry<StatementType, Pair<LongAdder, LongAdder>> entry : detailInfos.entrySet()) {
+            logger.info("\t\tFor Request: " + entry.getKey() + ", count: " + entry.getValue().k.sum() + ", span: " + entry.getValue().v.sum() + "μs");
         }
-        logger.info("\ttotal insert points: " + insertPoints);
-        logger.info("\ttotal query points: " + queryPoints);
-        lock.readLock().unlock();
+        logger.info("\ttotal insert points: " + insertPoints.sum());
+        logger.info("\ttotal query points: " + queryPoints.sum());
     }
 
     @Override
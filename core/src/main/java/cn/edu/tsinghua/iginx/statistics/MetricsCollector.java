@@ -0,0 +1,122 @@
+package cn.edu.tsinghua.iginx.statistics;
+
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.Result;
+import cn.edu.tsinghua.iginx.engine.shared.processor.*;
+import cn.edu.tsinghua.iginx.sql.statement.InsertStatement;
+import cn.edu.tsinghua.iginx.sql.statement.Statement;
+import cn.edu.tsinghua.iginx.sql.statement.StatementType;
+import cn.edu.tsinghua.iginx.thrift.Status;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 按语句类型记录各执行阶段（parse/logical/physical/execute）的延迟直方图以及读写点数，
+ * 结果写入 MetricsRegistry，由 REST 服务的 /metrics 导出
+ */
+public class MetricsCollector implements IStatisticsCollector {
+
+    public static final String STAGE_LATENCY = "iginx_stage_latency_seconds";
+
+    public static final String INGEST_POINTS = "iginx_ingest_points_total";
+
+    public static final String QUERY_POINTS = "iginx_query_points_total";
+
+    private static final String BEGIN = "metricsBegin";
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+
+    public MetricsCollector() {
+        registry.describe(STAGE_LATENCY, "Latency of each execution stage by statement type.");
+        registry.describe(INGEST_POINTS, "Number of data points written.");
+        registry.describe(QUERY_POINTS, "Number of data points returned by queries.");
+    }
+
+    private Function<RequestContext, Status> before(String stage) {
+        return ctx -> {
+            ctx.setExtraParam(BEGIN + stage, System.nanoTime());
+            return null;
+        };
+    }
+
+    private Function<RequestContext, Status> after(String stage) {
+        return ctx -> {
+            Object begin = ctx.getExtraParam(BEGIN + stage);
+            if (begin == null) {
+                return null;
+            }
+            long span = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (long) begin);
+            Statement statement = ctx.getStatement();
+            String type = statement == null ? UNKNOWN : statement.getType().name();
+            registry.histogram(STAGE_LATENCY, "stage", stage, "statement", type).record(span);
+            if (stage.equals("execute") && statement != null) {
+                recordPoints(ctx, statement);
+            }
+            return null;
+        };
+    }
+
+    private void recordPoints(RequestContext ctx, Statement statement) {
+        if (statement.getType() == StatementType.INSERT) {
+            InsertStatement insertStatement = (InsertStatement) statement;
+            registry.counter(INGEST_POINTS).add((long) insertStatement.getTimes().size() * insertStatement.getPaths().size());
+        } else if (statement.getType() == StatementType.SELECT) {
+            Result result = ctx.getResult();
+            if (result != null && result.getBitmapList() != null && result.getPaths() != null) {
+                registry.counter(QUERY_POINTS).add((long) result.getBitmapList().size() * result.getPaths().size());
+            }
+        }
+    }
+
+    @Override
+    public PreParseProcessor getPreParseProcessor() {
+        return before("parse")::apply;
+    }
+
+    @Override
+    public PostParseProcessor getPostParseProcessor() {
+        return after("parse")::apply;
+    }
+
+    @Override
+    public PreLogicalProcessor getPreLogicalProcessor() {
+        return before("logical")::apply;
+    }
+
+    @Override
+    public PostLogicalProcessor getPostLogicalProcessor() {
+        return after("logical")::apply;
+    }
+
+    @Override
+    public PrePhysicalProcessor getPrePhysicalProcessor() {
+        return before("physical")::apply;
+    }
+
+    @Override
+    public PostPhysicalProcessor getPostPhysicalProcessor() {
+        return after("physical")::apply;
+    }
+
+    @Override
+    public PreExecuteProcessor getPreExecuteProcessor() {
+        return before("execute")::apply;
+    }
+
+    @Override
+    public PostExecuteProcessor getPostExecuteProcessor() {
+        return after("execute")::apply;
+    }
+
+    @Override
+    public void startBroadcasting() {
+        // 指标通过 /metrics 拉取，不需要定期输出
+    }
+
+    @Override
+    public void endBroadcasting() {
+    }
+}
@@ -0,0 +1,152 @@
+package cn.edu.tsinghua.iginx.statistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 进程内的指标注册表，记录直方图、计数器与瞬时值，并以 Prometheus 文本格式导出。
+ * 记录指标时只访问并发容器与原子变量，不加锁。直方图以微秒记录，导出时换算为秒
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = new double[]{0.5, 0.9, 0.99, 0.999};
+
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+
+    private final Map<String, String> helps = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, Supplier<Number>>> gauges = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return MetricsRegistryHolder.INSTANCE;
+    }
+
+    public void describe(String name, String help) {
+        helps.put(name, help);
+    }
+
+    /**
+     * labels 依次为标签名与标签值
+     */
+    public LatencyHistogram histogram(String name, String... labels) {
+        return histograms.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(formatLabels(labels), k -> new LatencyHistogram());
+    }
+
+    public LongAdder counter(String name, String... labels) {
+        return counters.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(formatLabels(labels), k -> new LongAdder());
+    }
+
+    public void gauge(Supplier<Number> supplier, String name, String... labels) {
+        gauges.computeIfAbsent(name, k -> new ConcurrentHashMap<>()).put(formatLabels(labels), supplier);
+    }
+
+    public void removeGauge(String name, String... labels) {
+        Map<String, Supplier<Number>> series = gauges.get(name);
+        if (series != null) {
+            series.remove(formatLabels(labels));
+        }
+    }
+
+    public String toPrometheusText() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Map<String, LongAdder>> entry : new TreeMap<>(counters).entrySet()) {
+            appendHeader(builder, entry.getKey(), "counter");
+            for (Map.Entry<String, LongAdder> series : new TreeMap<>(entry.getValue()).entrySet()) {
+                appendSample(builder, entry.getKey(), series.getKey(), series.getValue().sum());
+            }
+        }
+        for (Map.Entry<String, Map<String, Supplier<Number>>> entry : new TreeMap<>(gauges).entrySet()) {
+            appendHeader(builder, entry.getKey(), "gauge");
+            for (Map.Entry<String, Supplier<Number>> series : new TreeMap<>(entry.getValue()).entrySet()) {
+                Number value = series.getValue().get();
+                appendSample(builder, entry.getKey(), series.getKey(), value == null ? Double.NaN : value.doubleValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, LatencyHistogram>> entry : new TreeMap<>(histograms).entrySet()) {
+            String name = entry.getKey();
+            appendHeader(builder, name, "summary");
+            for (Map.Entry<String, LatencyHistogram> series : new TreeMap<>(entry.getValue()).entrySet()) {
+                String labels = series.getKey();
+                LatencyHistogram histogram = series.getValue();
+                for (double quantile : QUANTILES) {
+                    String quantileLabels = appendLabel(labels, "quantile", String.valueOf(quantile));
+                    appendSample(builder, name, quantileLabels, histogram.getValueAtQuantile(quantile) / MICROS_PER_SECOND);
+                }
+                appendSample(builder, name + "_sum", labels, histogram.getSum() / MICROS_PER_SECOND);
+                appendSample(builder, name + "_count", labels, histogram.getCount());
+            }
+        }
+        return builder.toString();
+    }
+
+    private void appendHeader(StringBuilder builder, String name, String type) {
+        String help = helps.get(name);
+        if (help != null) {
+            builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        }
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void appendSample(StringBuilder builder, String name, String labels, double value) {
+        builder.append(name).append(labels).append(' ');
+        if (value == (long) value) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+
+    static String formatLabels(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels should be name-value pairs.");
+        }
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i != 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static String appendLabel(String labels, String name, String value) {
+        String label = name + "=\"" + escape(value) + "\"";
+        if (labels.isEmpty()) {
+            return "{" + label + "}";
+        }
+        return labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static class MetricsRegistryHolder {
+
+        private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+        private MetricsRegistryHolder() {
+        }
+
+    }
+}
@@ -5,15 +5,13 @@ import cn.edu.tsinghua.iginx.engine.shared.processor.PreParseProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ParseStatisticsCollector extends AbstractStageStatisticsCollector implements IParseStatisticsCollector {
 
     private static final Logger logger = LoggerFactory.getLogger(ParseStatisticsCollector.class);
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private long count = 0;
-    private long span = 0;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder span = new LongAdder();
 
     @Override
     protected String getStageName() {
@@ -22,21 +20,19 @@ public class ParseStatisticsCollector extends AbstractStageStatisticsCollector i
 
     @Override
     protected void processStatistics(Statistics statistics) {
-        lock.writeLock().lock();
-        count += 1;
-        span += statistics.getEndTime() - statistics.getStartTime();
-        lock.writeLock().unlock();
+        count.increment();
+        span.add(statistics.getEndTime() - statistics.getStartTime());
     }
 
     @Override
     public void broadcastStatistics() {
-        lock.readLock().lock();
         logger.info("Parse Stage Statistics Info: ");
+        long count = this.count.sum();
+        long span = this.span.sum();
         logger.info("\tcount: " + count + ", span: " + span + "μs");
         if (count != 0) {
             logger.info("\taverage-span: " + (1.0 * span) / count + "μs");
         }
-        lock.readLock().unlock();
     }
 
     @Override
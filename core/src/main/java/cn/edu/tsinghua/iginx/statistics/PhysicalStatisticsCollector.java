@@ -7,18 +7,16 @@ import cn.edu.tsinghua.iginx.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PhysicalStatisticsCollector extends AbstractStageStatisticsCollector implements IPhysicalStatisticsCollector {
 
     private static final Logger logger = LoggerFactory.getLogger(PhysicalStatisticsCollector.class);
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Map<StatementType, Pair<Long, Long>> detailInfos = new HashMap<>();
-    private long count = 0;
-    private long span = 0;
+    private final Map<StatementType, Pair<LongAdder, LongAdder>> detailInfos = new ConcurrentHashMap<>();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder span = new LongAdder();
 
     @Override
     protected String getStageName() {
@@ -27,27 +25,25 @@ public class PhysicalStatisticsCollector extends AbstractStageStatisticsCollecto
 
     @Override
     protected void processStatistics(Statistics statistics) {
-        lock.writeLock().lock();
-        count += 1;
-        span += statistics.getEndTime() - statistics.getStartTime();
-        Pair<Long, Long> detailInfo = detailInfos.computeIfAbsent(statistics.getContext().getStatement().getType(), e -> new Pair<>(0L, 0L));
-        detailInfo.k += 1;
-        detailInfo.v += statistics.getEndTime() - statistics.getStartTime();
-        lock.writeLock().unlock();
+        count.increment();
+        span.add(statistics.getEndTime() - statistics.getStartTime());
+        Pair<LongAdder, LongAdder> detailInfo = detailInfos.computeIfAbsent(statistics.getContext().getStatement().getType(), e -> new Pair<>(new LongAdder(), new LongAdder()));
+        detailInfo.k.increment();
+        detailInfo.v.add(statistics.getEndTime() - statistics.getStartTime());
     }
 
     @Override
     public void broadcastStatistics() {
-        lock.readLock().lock();
         logger.info("Physical Stage Statistics Info: ");
+        long count = this.count.sum();
+        long span = this.span.sum();
         logger.info("\tcount: " + count + ", span: " + span + "μs");
         if (count != 0) {
             logger.info("\taverage-span: " + (1.0 * span) / count + "μs");
         }
-        for (Map.Entry<StatementType, Pair<Long, Long>> entry : detailInfos.entrySet()) {
-            logger.info("\t\tFor Request: " + entry.getKey() + ", count: " + entry.getValue().k + ", span: " + entry.getValue().v + "μs");
+        for (Map.Entry<StatementType, Pair<LongAdder, LongAdder>> entry : detailInfos.entrySet()) {
+            logger.info("\t\tFor Request: " + entry.getKey() + ", count: " + entry.getValue().k.sum() + ", span: " + entry.getValue().v.sum() + "μs");
         }
-        lock.readLock().unlock();
     }
 
     @Override
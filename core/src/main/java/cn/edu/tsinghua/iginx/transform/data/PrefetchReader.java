@@ -0,0 +1,99 @@
+package cn.edu.tsinghua.iginx.transform.data;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.transform.api.Reader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 在后台线程中预先读取批次，使读取与 Python 处理前一批次并行，已读取但尚未被处理的批次数不超过 capacity。
+ * Python 解释器只能在创建它的线程中调用，所以只把读取放到后台线程
+ */
+public class PrefetchReader implements Reader {
+
+    // 读取结束的标记
+    private static final BatchData END = new BatchData(Header.EMPTY_HEADER);
+
+    private final Reader reader;
+
+    private final BlockingQueue<BatchData> queue;
+
+    private final Thread thread;
+
+    private volatile boolean closed = false;
+
+    private BatchData next;
+
+    private final static Logger logger = LoggerFactory.getLogger(PrefetchReader.class);
+
+    public PrefetchReader(Reader reader, int capacity) {
+        this.reader = reader;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.thread = new Thread(this::prefetch, "transform-prefetch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void prefetch() {
+        try {
+            try {
+                while (!closed && reader.hasNextBatch()) {
+                    BatchData batchData = reader.loadNextBatch();
+                    if (batchData == null) {
+                        // 被包装的 reader 已经记录了失败原因
+                        break;
+                    }
+                    queue.put(batchData);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Fail to prefetch next batch of data, because ", e);
+            }
+            if (!closed) {
+                queue.put(END);
+            }
+        } catch (InterruptedException e) {
+            logger.error("Prefetch of transform batches was interrupted");
+        }
+    }
+
+    @Override
+    public boolean hasNextBatch() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                logger.error("Wait for next batch of data was interrupted");
+                return false;
+            }
+        }
+        return next != END;
+    }
+
+    @Override
+    public BatchData loadNextBatch() {
+        if (!hasNextBatch()) {
+            return null;
+        }
+        BatchData batchData = next;
+        next = null;
+        return batchData;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        // 腾出队列的空间，使阻塞在 put 上的后台线程退出
+        try {
+            while (thread.isAlive()) {
+                queue.clear();
+                thread.join(10);
+            }
+        } catch (InterruptedException e) {
+            logger.error("Wait for prefetch thread to exit was interrupted");
+        }
+        reader.close();
+    }
+}
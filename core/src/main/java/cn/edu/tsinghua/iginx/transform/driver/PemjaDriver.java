@@ -22,6 +22,10 @@ public class PemjaDriver {
 
     private final static String PY_SUFFIX = ".py";
 
+    private final static String ARROW_BRIDGE_MODULE = "arrow_bridge";
+
+    private final static String ARROW_BRIDGE_CLASS = "ArrowBridge";
+
     private static PemjaDriver instance;
 
     private PemjaDriver() {}
@@ -62,7 +66,11 @@ public class PemjaDriver {
         // init the python udf
         interpreter.exec(String.format("import %s", moduleName));
         interpreter.exec(String.format("t = %s.%s()", moduleName, className));
+        if (taskMeta.isVectorized()) {
+            interpreter.exec(String.format("import %s", ARROW_BRIDGE_MODULE));
+            interpreter.exec(String.format("t = %s.%s(t)", ARROW_BRIDGE_MODULE, ARROW_BRIDGE_CLASS));
+        }
 
-        return new PemjaWorker(identifier, interpreter, writer);
+        return new PemjaWorker(identifier, interpreter, writer, taskMeta.isVectorized());
     }
 }
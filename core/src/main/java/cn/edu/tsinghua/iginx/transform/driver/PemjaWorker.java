@@ -2,18 +2,22 @@ package cn.edu.tsinghua.iginx.transform.driver;
 
 import cn.edu.tsinghua.iginx.conf.Config;
 import cn.edu.tsinghua.iginx.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.transform.api.Writer;
 import cn.edu.tsinghua.iginx.transform.data.BatchData;
 import cn.edu.tsinghua.iginx.transform.data.PemjaReader;
 import cn.edu.tsinghua.iginx.transform.exception.WriteBatchException;
+import cn.edu.tsinghua.iginx.transform.utils.ArrowChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pemja.core.PythonInterpreter;
 
+import java.io.IOException;
 import java.util.*;
 
 import static cn.edu.tsinghua.iginx.transform.utils.Constants.UDF_FUNC;
 import static cn.edu.tsinghua.iginx.transform.utils.Constants.UDF_CLASS;
+import static cn.edu.tsinghua.iginx.transform.utils.Constants.UDF_STREAM_FUNC;
 
 public class PemjaWorker {
 
@@ -23,17 +27,28 @@ public class PemjaWorker {
 
     private final Writer writer;
 
+    private final boolean vectorized;
+
+    // 向量化任务的所有批次共用一个通道，schema 只发送一次
+    private final ArrowChannel channel;
+
     private final static Logger logger = LoggerFactory.getLogger(PemjaWorker.class);
 
     private final static Config config = ConfigDescriptor.getInstance().getConfig();
 
-    public PemjaWorker(String identifier, PythonInterpreter interpreter, Writer writer) {
+    public PemjaWorker(String identifier, PythonInterpreter interpreter, Writer writer, boolean vectorized) {
         this.identifier = identifier;
         this.interpreter = interpreter;
         this.writer = writer;
+        this.vectorized = vectorized;
+        this.channel = vectorized ? new ArrowChannel() : null;
     }
 
     public void process(BatchData batchData) {
+        if (vectorized) {
+            processVectorized(batchData);
+            return;
+        }
         List<List<Object>> data = new ArrayList<>();
         batchData.getRowList().forEach(row -> {
             if (row.getHeader().hasTimestamp()) {
@@ -59,6 +74,37 @@ public class PemjaWorker {
         }
     }
 
+    /**
+     * 以 Arrow 批次的形式整体传给 Python，时间戳作为名为 time 的首列
+     */
+    private void processVectorized(BatchData batchData) {
+        try {
+            byte[] data = channel.write(batchData.getHeader(), batchData.getRowList());
+            Table res = channel.read((byte[]) interpreter.invokeMethod(UDF_CLASS, UDF_STREAM_FUNC, data));
+            BatchData nextBatchData = new BatchData(res.getHeader());
+            while (res.hasNext()) {
+                nextBatchData.appendRow(res.next());
+                if (nextBatchData.getRowList().size() == config.getBatchSize()) {
+                    writer.writeBatch(nextBatchData);
+                    nextBatchData = new BatchData(res.getHeader());
+                }
+            }
+            if (!nextBatchData.getRowList().isEmpty()) {
+                writer.writeBatch(nextBatchData);
+            }
+        } catch (IOException e) {
+            logger.error(String.format("PemjaWorker identifier=%s fail to exchange arrow batch.", identifier), e);
+        } catch (WriteBatchException e) {
+            logger.error(String.format("PemjaWorker identifier=%s fail to writer data.", identifier));
+        }
+    }
+
+    public void close() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
     public String getIdentifier() {
         return identifier;
     }
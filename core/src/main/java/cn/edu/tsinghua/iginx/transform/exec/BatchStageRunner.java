@@ -61,6 +61,8 @@ public class BatchStageRunner implements Runner {
 
     @Override
     public void close() {
-
+        if (pemjaWorker != null) {
+            pemjaWorker.close();
+        }
     }
 }
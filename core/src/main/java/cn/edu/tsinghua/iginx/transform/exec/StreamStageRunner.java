@@ -73,7 +73,8 @@ public class StreamStageRunner implements Runner {
         if (streamStage.isStartWithIginX()) {
             IginXTask firstTask = (IginXTask) streamStage.getTaskList().get(0);
             RowStream rowStream = getRowStream(streamStage.getSessionId(), firstTask.getSql());
-            reader = new RowStreamReader(rowStream, batchSize);
+            // 读取查询结果与 Python 处理并行，已读取的批次数有上限
+            reader = new PrefetchReader(new RowStreamReader(rowStream, batchSize), config.getTransformMaxInFlightBatches());
         } else {
             CollectionWriter collectionWriter = (CollectionWriter) streamStage.getBeforeStage().getExportWriter();
             reader = new SplitReader(collectionWriter.getCollectedData(), batchSize);
@@ -102,5 +103,6 @@ public class StreamStageRunner implements Runner {
     @Override
     public void close() {
         reader.close();
+        pemjaWorkerList.forEach(PemjaWorker::close);
     }
 }
@@ -0,0 +1,147 @@
+package cn.edu.tsinghua.iginx.transform.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageChannelReader;
+import org.apache.arrow.vector.ipc.message.MessageResult;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 与同一个 Python 进程连续交换多批数据的 Arrow IPC 通道，每次调用只传递 Arrow 消息而不是完整的流：
+ * schema 只在第一次或发生变化时发送，之后只发送 record batch。两侧各自保存对方最近发送的 schema，
+ * 发送与接收使用的向量在批次之间复用。对应 Python 侧 arrow_bridge.ArrowBridge.transform_stream，非线程安全
+ */
+public class ArrowChannel implements AutoCloseable {
+
+    private static final RootAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // 发送侧：当前 schema 对应的表头与向量
+    private Header writeHeader;
+
+    private boolean writeTimestamp;
+
+    private VectorSchemaRoot writeRoot;
+
+    // 接收侧：对方最近发送的 schema 对应的向量
+    private VectorSchemaRoot readRoot;
+
+    private Header readHeader;
+
+    private int readTimeIndex = -1;
+
+    /**
+     * 将一批数据编码为 Arrow 消息，表头与上一批不同时先发送新的 schema
+     */
+    public byte[] write(Header header, List<Row> rows) throws IOException {
+        out.reset();
+        WriteChannel channel = new WriteChannel(Channels.newChannel(out));
+        if (writeRoot == null || !header.equals(writeHeader)) {
+            closeWriteRoot();
+            List<FieldVector> vectors = new ArrayList<>();
+            if (header.hasTimestamp()) {
+                vectors.add(new BigIntVector(Constants.TIMESTAMP, allocator));
+            }
+            for (Field field : header.getFields()) {
+                vectors.add(ArrowUtils.createVector(field));
+            }
+            writeRoot = new VectorSchemaRoot(vectors);
+            writeHeader = header;
+            writeTimestamp = header.hasTimestamp();
+            MessageSerializer.serialize(channel, writeRoot.getSchema());
+        }
+
+        List<FieldVector> vectors = writeRoot.getFieldVectors();
+        int offset = 0;
+        if (writeTimestamp) {
+            ArrowUtils.fillTimestamps((BigIntVector) vectors.get(0), rows);
+            offset = 1;
+        }
+        for (int i = 0; i < header.getFieldSize(); i++) {
+            ArrowUtils.fillVector(vectors.get(i + offset), header.getField(i).getType(), rows, i);
+        }
+        writeRoot.setRowCount(rows.size());
+        try (ArrowRecordBatch batch = new VectorUnloader(writeRoot).getRecordBatch()) {
+            MessageSerializer.serialize(channel, batch);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码对方返回的 Arrow 消息，没有携带 schema 时沿用上一次的 schema
+     */
+    public Table read(byte[] data) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (MessageChannelReader reader = new MessageChannelReader(new ReadChannel(Channels.newChannel(new ByteArrayInputStream(data))), allocator)) {
+            MessageResult result;
+            while ((result = reader.readNext()) != null) {
+                byte type = result.getMessage().headerType();
+                if (type == MessageHeader.Schema) {
+                    Schema schema = MessageSerializer.deserializeSchema(result.getMessage());
+                    closeReadRoot();
+                    readRoot = VectorSchemaRoot.create(schema, allocator);
+                    readTimeIndex = ArrowUtils.getTimeIndex(schema);
+                    readHeader = ArrowUtils.toHeader(schema, readTimeIndex);
+                } else if (type == MessageHeader.RecordBatch) {
+                    if (readRoot == null) {
+                        throw new IOException("receive arrow record batch before schema.");
+                    }
+                    try (ArrowRecordBatch batch = MessageSerializer.deserializeRecordBatch(result.getMessage(), result.getBodyBuffer())) {
+                        new VectorLoader(readRoot).load(batch);
+                    }
+                    ArrowUtils.readRows(readRoot, readHeader, readTimeIndex, rows);
+                } else {
+                    throw new IOException("unsupported arrow message type " + type + ".");
+                }
+                if (result.getBodyBuffer() != null) {
+                    result.getBodyBuffer().close();
+                }
+            }
+        }
+        if (readHeader == null) {
+            return Table.EMPTY_TABLE;
+        }
+        return new Table(readHeader, rows);
+    }
+
+    private void closeWriteRoot() {
+        if (writeRoot != null) {
+            writeRoot.close();
+            writeRoot = null;
+        }
+    }
+
+    private void closeReadRoot() {
+        if (readRoot != null) {
+            readRoot.close();
+            readRoot = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeWriteRoot();
+        closeReadRoot();
+    }
+}
@@ -0,0 +1,178 @@
+package cn.edu.tsinghua.iginx.transform.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以 Arrow IPC 流的格式在 Java 与 Python 之间按列传递一批数据。
+ * Python 侧可以直接在收到的缓冲区上构造 pyarrow.Table，并以 numpy/pandas 的形式访问，无需逐行转换
+ */
+public class ArrowUtils {
+
+    private static final RootAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+
+    /**
+     * 将若干行中指定下标的列编码为 Arrow IPC 流，withTimestamp 为 true 时首列为时间戳
+     */
+    public static byte[] encode(Header header, List<Row> rows, List<Integer> indices, boolean withTimestamp) throws IOException {
+        List<FieldVector> vectors = new ArrayList<>();
+        try {
+            if (withTimestamp) {
+                BigIntVector timeVector = new BigIntVector(Constants.TIMESTAMP, allocator);
+                vectors.add(timeVector);
+                fillTimestamps(timeVector, rows);
+            }
+            for (int index : indices) {
+                Field field = header.getField(index);
+                FieldVector vector = createVector(field);
+                vectors.add(vector);
+                fillVector(vector, field.getType(), rows, index);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (VectorSchemaRoot root = new VectorSchemaRoot(vectors);
+                 ArrowStreamWriter writer = new ArrowStreamWriter(root, null, out)) {
+                writer.start();
+                writer.writeBatch();
+                writer.end();
+            }
+            return out.toByteArray();
+        } finally {
+            vectors.forEach(FieldVector::close);
+        }
+    }
+
+    /**
+     * 解码 Arrow IPC 流，名为 time 的 BIGINT 列作为时间戳，其余列的顺序保持不变
+     */
+    public static Table decode(byte[] data) throws IOException {
+        try (ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(data), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            int timeIndex = getTimeIndex(root.getSchema());
+            Header header = toHeader(root.getSchema(), timeIndex);
+            List<Row> rows = new ArrayList<>();
+            while (reader.loadNextBatch()) {
+                readRows(root, header, timeIndex, rows);
+            }
+            return new Table(header, rows);
+        }
+    }
+
+    static FieldVector createVector(Field field) {
+        FieldVector vector = TypeUtils.getFieldVectorByType(field.getFullName(), field.getType(), allocator);
+        if (vector == null) {
+            throw new IllegalArgumentException("unsupported data type " + field.getType() + " for arrow batch.");
+        }
+        return vector;
+    }
+
+    /**
+     * 向量中已有的缓冲区会被复用，容量不足时才重新分配
+     */
+    static void fillTimestamps(BigIntVector vector, List<Row> rows) {
+        vector.reset();
+        for (int i = 0; i < rows.size(); i++) {
+            vector.setSafe(i, rows.get(i).getTimestamp());
+        }
+        vector.setValueCount(rows.size());
+    }
+
+    static void fillVector(FieldVector vector, DataType type, List<Row> rows, int index) {
+        vector.reset();
+        for (int i = 0; i < rows.size(); i++) {
+            Object value = rows.get(i).getValue(index);
+            if (value == null) {
+                setNull(vector, i);
+            } else {
+                TypeUtils.setValue(vector, i, type, value);
+            }
+        }
+        vector.setValueCount(rows.size());
+    }
+
+    /**
+     * 名为 time 的 BIGINT 列的下标，不存在时返回 -1
+     */
+    static int getTimeIndex(Schema schema) {
+        List<org.apache.arrow.vector.types.pojo.Field> arrowFields = schema.getFields();
+        for (int i = 0; i < arrowFields.size(); i++) {
+            org.apache.arrow.vector.types.pojo.Field arrowField = arrowFields.get(i);
+            if (arrowField.getName().equals(Constants.TIMESTAMP) && TypeUtils.arrowTypeToDataType(arrowField.getType()) == DataType.LONG) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static Header toHeader(Schema schema, int timeIndex) {
+        List<Field> fields = new ArrayList<>();
+        List<org.apache.arrow.vector.types.pojo.Field> arrowFields = schema.getFields();
+        for (int i = 0; i < arrowFields.size(); i++) {
+            if (i != timeIndex) {
+                fields.add(new Field(arrowFields.get(i).getName(), TypeUtils.arrowTypeToDataType(arrowFields.get(i).getType())));
+            }
+        }
+        return timeIndex == -1 ? new Header(fields) : new Header(Field.TIME, fields);
+    }
+
+    /**
+     * 将当前批次中的数据按行追加到 rows，其余列的顺序保持不变
+     */
+    static void readRows(VectorSchemaRoot root, Header header, int timeIndex, List<Row> rows) {
+        List<FieldVector> vectors = root.getFieldVectors();
+        for (int i = 0; i < root.getRowCount(); i++) {
+            Object[] values = new Object[header.getFieldSize()];
+            int offset = 0;
+            for (int j = 0; j < vectors.size(); j++) {
+                if (j == timeIndex) {
+                    offset = 1;
+                    continue;
+                }
+                values[j - offset] = getValue(vectors.get(j), i);
+            }
+            if (timeIndex == -1) {
+                rows.add(new Row(header, values));
+            } else {
+                rows.add(new Row(header, ((BigIntVector) vectors.get(timeIndex)).get(i), values));
+            }
+        }
+    }
+
+    private static Object getValue(FieldVector vector, int index) {
+        if (vector.isNull(index)) {
+            return null;
+        }
+        if (vector instanceof VarCharVector) {
+            // 字符串在 IginX 中以 byte[] 表示
+            return ((VarCharVector) vector).get(index);
+        }
+        return vector.getObject(index);
+    }
+
+    private static void setNull(FieldVector vector, int index) {
+        if (vector instanceof BaseFixedWidthVector) {
+            ((BaseFixedWidthVector) vector).setNull(index);
+        } else if (vector instanceof BaseVariableWidthVector) {
+            ((BaseVariableWidthVector) vector).setNull(index);
+        }
+    }
+}
@@ -14,6 +14,7 @@ public class Constants {
 
     public static final String UDF_CLASS = "t";
     public static final String UDF_FUNC = "transform";
+    public static final String UDF_STREAM_FUNC = "transform_stream";
 
     public static final Map<Integer, String> WORKER_STATUS_MAP = new HashMap<>();
     static {
@@ -0,0 +1,134 @@
+package cn.edu.tsinghua.iginx.engine;
+
+import cn.edu.tsinghua.iginx.engine.shared.RequestContext;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.sql.statement.InsertStatement;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.thrift.InsertRowRecordsReq;
+import cn.edu.tsinghua.iginx.thrift.QueryDataSet;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import cn.edu.tsinghua.iginx.utils.ByteUtils;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ContextBuilderTest {
+
+    private static final List<String> PATHS = Arrays.asList("a.a", "a.b", "a.c");
+
+    private static final List<DataType> TYPES = Arrays.asList(DataType.LONG, DataType.BINARY, DataType.DOUBLE);
+
+    private static final long[] TIMESTAMPS = new long[]{1L, 2L, 3L};
+
+    private static final Object[][] ROWS = new Object[][]{
+        {1L, null, 1.5},
+        {null, "v".getBytes(), null},
+        {3L, "value".getBytes(), 3.5}
+    };
+
+    // 经 framed transport 与 compact protocol 序列化后再读出，读出的 binary 字段共享整个帧的底层数组
+    private static <T extends TBase<?, ?>> T roundTrip(T source, T target) throws TException {
+        TMemoryBuffer memory = new TMemoryBuffer(1024);
+        TFramedTransport writeTransport = new TFramedTransport(memory);
+        source.write(new TCompactProtocol(writeTransport));
+        writeTransport.flush();
+        target.read(new TCompactProtocol(new TFramedTransport(memory)));
+        return target;
+    }
+
+    private static List<ByteBuffer> buildRowBitmaps() {
+        List<ByteBuffer> bitmapList = new ArrayList<>();
+        for (Object[] row : ROWS) {
+            Bitmap bitmap = new Bitmap(row.length);
+            for (int j = 0; j < row.length; j++) {
+                if (row[j] != null) {
+                    bitmap.mark(j);
+                }
+            }
+            bitmapList.add(ByteBuffer.wrap(bitmap.getBytes()));
+        }
+        return bitmapList;
+    }
+
+    @Test
+    public void testInsertRowRecordsOverFramedTransport() throws TException {
+        InsertRowRecordsReq req = new InsertRowRecordsReq();
+        req.setSessionId(1L);
+        req.setPaths(PATHS);
+        req.setDataTypeList(TYPES);
+        req.setTimestamps(ByteUtils.getByteArrayFromLongArray(TIMESTAMPS));
+        List<ByteBuffer> valuesList = new ArrayList<>();
+        for (Object[] row : ROWS) {
+            valuesList.add(ByteUtils.getRowByteBuffer(row, TYPES));
+        }
+        req.setValuesList(valuesList);
+        req.setBitmapList(buildRowBitmaps());
+
+        InsertRowRecordsReq received = roundTrip(req, new InsertRowRecordsReq());
+        RequestContext context = ContextBuilder.getInstance().build(received);
+        RawData rawData = ((InsertStatement) context.getStatement()).getRawData();
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), rawData.getTimestamps());
+        for (int i = 0; i < ROWS.length; i++) {
+            Bitmap bitmap = rawData.getBitmaps().get(i);
+            int valueIndex = 0;
+            for (int j = 0; j < PATHS.size(); j++) {
+                if (ROWS[i][j] == null) {
+                    assertFalse(bitmap.get(j));
+                    continue;
+                }
+                assertTrue(bitmap.get(j));
+                Object value = rawData.getValue(i, valueIndex++);
+                if (ROWS[i][j] instanceof byte[]) {
+                    assertArrayEquals((byte[]) ROWS[i][j], (byte[]) value);
+                } else {
+                    assertEquals(ROWS[i][j], value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQueryDataSetOverFramedTransport() throws TException {
+        List<ByteBuffer> valuesList = new ArrayList<>();
+        for (Object[] row : ROWS) {
+            valuesList.add(ByteUtils.getRowByteBuffer(row, TYPES));
+        }
+        QueryDataSet dataSet = new QueryDataSet(ByteBuffer.wrap(ByteUtils.getByteArrayFromLongArray(TIMESTAMPS)),
+            valuesList, buildRowBitmaps());
+
+        QueryDataSet received = roundTrip(dataSet, new QueryDataSet());
+        assertArrayEquals(TIMESTAMPS, ByteUtils.getLongArrayFromByteBuffer(received.timestamps));
+
+        Object[] rows = ByteUtils.getRowValuesByDataType(received.valuesList, TYPES, received.bitmapList);
+        for (int i = 0; i < ROWS.length; i++) {
+            Object[] values = (Object[]) rows[i];
+            int valueIndex = 0;
+            for (int j = 0; j < PATHS.size(); j++) {
+                if (ROWS[i][j] == null) {
+                    continue;
+                }
+                if (ROWS[i][j] instanceof byte[]) {
+                    assertArrayEquals((byte[]) ROWS[i][j], (byte[]) values[valueIndex++]);
+                } else {
+                    assertEquals(ROWS[i][j], values[valueIndex++]);
+                }
+            }
+            assertEquals(valueIndex, values.length);
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package cn.edu.tsinghua.iginx.engine.continuous;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.naive.NaiveOperatorMemoryExecutor;
+import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.sql.statement.Expression;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.PARAM_PATHS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ContinuousQueryTest {
+
+    private static final List<String> FUNCTIONS = Arrays.asList("avg", "count", "sum", "max", "min");
+
+    private static final Header HEADER = new Header(Field.TIME, Arrays.asList(
+        new Field("a.x", DataType.LONG),
+        new Field("a.y", DataType.DOUBLE)
+    ));
+
+    private static List<Row> generateRows(long startTime, long endTime) {
+        List<Row> rows = new ArrayList<>();
+        for (long t = startTime; t < endTime; t += 3) {
+            Long x = t % 4 == 0 ? null : t * 7 % 11;
+            Double y = t % 5 == 0 ? null : t * 0.5;
+            rows.add(new Row(HEADER, t, new Object[]{x, y}));
+        }
+        return rows;
+    }
+
+    private static ContinuousQuery create() {
+        List<Expression> expressions = new ArrayList<>();
+        FUNCTIONS.forEach(function -> expressions.add(new Expression("a.*", function)));
+        return new ContinuousQuery("cq", expressions, 10);
+    }
+
+    private static List<Pair<String, String>> functions() {
+        List<Pair<String, String>> functions = new ArrayList<>();
+        FUNCTIONS.forEach(function -> functions.add(new Pair<>(function, "a.*")));
+        return functions;
+    }
+
+    private static RowStream downsample(List<Row> rows, long precision, long startTime, long endTime) throws PhysicalException {
+        List<FunctionCall> functionCalls = new ArrayList<>();
+        for (String function : FUNCTIONS) {
+            Map<String, Value> params = Collections.singletonMap(PARAM_PATHS, new Value("a.*"));
+            functionCalls.add(new FunctionCall(PartialAggregate.of(function).getFunction(), params));
+        }
+        List<Row> selected = new ArrayList<>();
+        rows.stream().filter(row -> row.getTimestamp() >= startTime && row.getTimestamp() < endTime).forEach(selected::add);
+        selected.sort((o1, o2) -> Long.compare(o1.getTimestamp(), o2.getTimestamp()));
+        Downsample downsample = new Downsample(new FragmentSource(new FragmentMeta("a", "b", 0, 1000)), precision,
+            functionCalls, new TimeRange(startTime, endTime));
+        return NaiveOperatorMemoryExecutor.getInstance().executeUnaryOperator(downsample, new Table(HEADER, selected));
+    }
+
+    private static void assertSameResult(RowStream expected, RowStream actual) throws PhysicalException {
+        assertEquals(expected.getHeader().getFieldSize(), actual.getHeader().getFieldSize());
+        for (int i = 0; i < expected.getHeader().getFieldSize(); i++) {
+            assertEquals(expected.getHeader().getField(i).getFullName(), actual.getHeader().getField(i).getFullName());
+            assertEquals(expected.getHeader().getField(i).getType(), actual.getHeader().getField(i).getType());
+        }
+        while (expected.hasNext()) {
+            Row expectedRow = expected.next();
+            Row actualRow = actual.next();
+            assertEquals(expectedRow.getTimestamp(), actualRow.getTimestamp());
+            for (int i = 0; i < expectedRow.getValues().length; i++) {
+                Object value = expectedRow.getValue(i);
+                if (value instanceof Double) {
+                    assertEquals((Double) value, (Double) actualRow.getValue(i), 1e-6);
+                } else {
+                    assertEquals(value, actualRow.getValue(i));
+                }
+            }
+        }
+        assertEquals(false, actual.hasNext());
+    }
+
+    /**
+     * 将多个节点写入的部分结果合并为一张表，模拟从存储中读取
+     */
+    private static Table union(List<Pair<Header, List<Row>>> parts) {
+        List<Field> fields = new ArrayList<>();
+        parts.forEach(part -> fields.addAll(part.k.getFields()));
+        Header header = new Header(Field.TIME, fields);
+        TreeMap<Long, Object[]> values = new TreeMap<>();
+        int offset = 0;
+        for (Pair<Header, List<Row>> part : parts) {
+            for (Row row : part.v) {
+                Object[] rowValues = values.computeIfAbsent(row.getTimestamp(), k -> new Object[fields.size()]);
+                System.arraycopy(row.getValues(), 0, rowValues, offset, row.getValues().length);
+            }
+            offset += part.k.getFieldSize();
+        }
+        List<Row> rows = new ArrayList<>();
+        values.forEach((timestamp, rowValues) -> rows.add(new Row(header, timestamp, rowValues)));
+        return new Table(header, rows);
+    }
+
+    @Test
+    public void testMatchRawDownsample() throws PhysicalException {
+        List<Row> rows = generateRows(0, 200);
+        ContinuousQuery continuousQuery = create();
+        // 从原始数据分批构建
+        Rollup base = continuousQuery.compute(HEADER, rows.subList(0, 30));
+        base.merge(continuousQuery.compute(HEADER, rows.subList(30, 52)));
+        // 两个节点各自合并的写入，与 base 以及彼此之间都有重叠的窗口
+        Rollup first = continuousQuery.compute(HEADER, rows.subList(52, 58));
+        Rollup second = continuousQuery.compute(HEADER, rows.subList(58, rows.size()));
+        List<Pair<Header, List<Row>>> stored = Arrays.asList(
+            continuousQuery.toStorage(base, ContinuousQuery.BASE_OWNER),
+            continuousQuery.toStorage(first, "1"),
+            continuousQuery.toStorage(second, "2")
+        );
+
+        Rollup rollup = continuousQuery.fromStorage(union(stored), null);
+        assertSameResult(downsample(rows, 10, 0, 200), continuousQuery.query(functions(), 0, 0, 200, 10, rollup));
+        assertSameResult(downsample(rows, 30, 20, 170), continuousQuery.query(functions(), 20, 20, 170, 30, rollup));
+        assertSameResult(downsample(rows, 40, 0, Long.MAX_VALUE), continuousQuery.query(functions(), 0, 0, Long.MAX_VALUE, 40, rollup));
+
+        // 只读取一个节点写入的部分
+        assertEquals(first.getWindows().keySet(), continuousQuery.fromStorage(union(stored), "1").getWindows().keySet());
+    }
+
+    @Test
+    public void testStorageLayout() throws PhysicalException {
+        ContinuousQuery continuousQuery = create();
+        Rollup rollup = continuousQuery.compute(HEADER, generateRows(0, 30));
+        Pair<Header, List<Row>> stored = continuousQuery.toStorage(rollup, "1");
+        TreeSet<String> names = new TreeSet<>();
+        stored.k.getFields().forEach(field -> {
+            names.add(field.getName());
+            assertEquals("1", field.getTags().get(ContinuousQuery.OWNER_TAG));
+        });
+        // 每个分量一棵子树
+        assertEquals(new TreeSet<>(Arrays.asList(
+            "__continuous_query__.cq.count.a.x", "__continuous_query__.cq.count.a.y",
+            "__continuous_query__.cq.sum.a.x", "__continuous_query__.cq.sum.a.y",
+            "__continuous_query__.cq.max.a.x", "__continuous_query__.cq.max.a.y",
+            "__continuous_query__.cq.min.a.x", "__continuous_query__.cq.min.a.y"
+        )), names);
+        assertEquals(3, stored.v.size());
+        // 部分结果本身不会被持续查询选中
+        assertEquals(false, continuousQuery.matches("__continuous_query__.cq.count.a.x"));
+    }
+
+    @Test
+    public void testNotAnswer() throws PhysicalException {
+        ContinuousQuery continuousQuery = create();
+        Rollup rollup = continuousQuery.compute(HEADER, generateRows(0, 100));
+
+        // 窗口未对齐
+        assertNull(continuousQuery.query(functions(), 5, 5, 105, 10, rollup));
+        assertNull(continuousQuery.query(functions(), 0, 0, 100, 15, rollup));
+        assertNull(continuousQuery.query(functions(), 0, 0, 95, 10, rollup));
+        // 函数或路径未被覆盖
+        assertNull(continuousQuery.query(Collections.singletonList(new Pair<>("first_value", "a.*")), 0, 0, 100, 10, rollup));
+        assertNull(continuousQuery.query(Collections.singletonList(new Pair<>("avg", "a.x")), 0, 0, 100, 10, rollup));
+        // 缺少需要的分量
+        Rollup partial = new Rollup();
+        rollup.getWindows().forEach((window, windowPartials) -> windowPartials.forEach((series, values) -> {
+            Object[] copy = values.clone();
+            copy[PartialAggregate.Component.SUM.ordinal()] = null;
+            partial.merge(window, rollup.getSeries().get(series), copy);
+        }));
+        assertNull(continuousQuery.query(Collections.singletonList(new Pair<>("avg", "a.*")), 0, 0, 100, 10, partial));
+    }
+
+}
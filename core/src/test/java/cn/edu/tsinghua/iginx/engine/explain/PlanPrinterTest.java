@@ -0,0 +1,129 @@
+package cn.edu.tsinghua.iginx.engine.explain;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.profile.TaskProfile;
+import cn.edu.tsinghua.iginx.engine.physical.task.PhysicalTask;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.physical.task.UnaryMemoryPhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Limit;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.OperatorSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlanPrinterTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Collections.singletonList(new Field("a.a", DataType.LONG)));
+
+    private static Table table(int size) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(HEADER, i, new Object[]{(long) i}));
+        }
+        return new Table(HEADER, rows);
+    }
+
+    private static List<Row> rows(PlanPrinter printer) throws PhysicalException {
+        List<Row> rows = new ArrayList<>();
+        RowStream stream = printer.toTable();
+        while (stream.hasNext()) {
+            rows.add(stream.next());
+        }
+        return rows;
+    }
+
+    private static String text(Row row) {
+        return new String((byte[]) row.getValue(0));
+    }
+
+    private static PhysicalTask plan() {
+        Project project = new Project(new FragmentSource(new FragmentMeta("a", "b", 0, 100)), Collections.singletonList("a.a"), null);
+        Limit limit = new Limit(new OperatorSource(project), 10, 0);
+        StoragePhysicalTask storageTask = new StoragePhysicalTask(Collections.singletonList(project));
+        UnaryMemoryPhysicalTask memoryTask = new UnaryMemoryPhysicalTask(Collections.singletonList(limit), storageTask);
+        storageTask.setFollowerTask(memoryTask);
+        return memoryTask;
+    }
+
+    @Test
+    public void testExplain() throws PhysicalException {
+        PhysicalTask task = plan();
+        Operator limit = task.getOperators().get(0);
+        PlanPrinter printer = new PlanPrinter(false);
+        printer.printLogicalPlan(limit);
+        printer.printPhysicalPlan(task);
+
+        List<Row> rows = rows(printer);
+        assertEquals(1, printer.toTable().getHeader().getFieldSize());
+        assertEquals("Logical Plan:", text(rows.get(0)));
+        assertEquals("  Limit(limit=10, offset=0)", text(rows.get(1)));
+        assertEquals("    Project(patterns=[a.a], fragment=a-b [0, 100))", text(rows.get(2)));
+        assertEquals("Physical Plan:", text(rows.get(3)));
+        assertEquals("  UnaryMemoryTask", text(rows.get(4)));
+        assertEquals("    -> Limit(limit=10, offset=0)", text(rows.get(5)));
+        assertTrue(text(rows.get(6)).startsWith("    StorageTask("));
+        assertEquals("      -> Project(patterns=[a.a], fragment=a-b [0, 100))", text(rows.get(7)));
+        assertEquals(8, rows.size());
+    }
+
+    @Test
+    public void testExplainAnalyze() throws PhysicalException {
+        PhysicalTask task = plan();
+        List<PhysicalTask> tasks = PlanPrinter.getTasks(task);
+        assertEquals(2, tasks.size());
+        tasks.forEach(PhysicalTask::enableProfile);
+
+        // 模拟执行：存储任务返回 100 行，内存任务中的 Limit 输出其中 10 行
+        PhysicalTask storageTask = tasks.get(1);
+        TaskProfile storageProfile = storageTask.getProfile();
+        storageProfile.setQueueWaitNanos(5000);
+        RowStream backend = storageProfile.profileBackend(table(100), System.nanoTime());
+        Operator limit = task.getOperators().get(0);
+        RowStream stream = task.getProfile().profileOperator(limit, backend, System.nanoTime());
+        for (int i = 0; i < 10; i++) {
+            stream.next();
+        }
+        for (int i = 10; i < 100; i++) {
+            backend.next();
+        }
+
+        PlanPrinter printer = new PlanPrinter(true);
+        printer.printPhysicalPlan(task);
+        List<Row> rows = rows(printer);
+        assertEquals(7, printer.toTable().getHeader().getFieldSize());
+
+        Row memoryTaskRow = rows.get(1);
+        assertEquals(100L, memoryTaskRow.getValue(1));
+        assertEquals(10L, memoryTaskRow.getValue(2));
+        assertNull(memoryTaskRow.getValue(5));
+
+        Row limitRow = rows.get(2);
+        assertNull(limitRow.getValue(1));
+        assertEquals(10L, limitRow.getValue(2));
+        assertEquals(160L, limitRow.getValue(6));
+
+        Row storageTaskRow = rows.get(3);
+        assertNull(storageTaskRow.getValue(1));
+        assertEquals(100L, storageTaskRow.getValue(2));
+        assertEquals(5L, storageTaskRow.getValue(4));
+        assertTrue((Long) storageTaskRow.getValue(5) >= 0);
+        assertEquals(1600L, storageTaskRow.getValue(6));
+    }
+
+}
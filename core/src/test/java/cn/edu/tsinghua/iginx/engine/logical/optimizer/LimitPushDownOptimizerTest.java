@@ -0,0 +1,141 @@
+package cn.edu.tsinghua.iginx.engine.logical.optimizer;
+
+import cn.edu.tsinghua.iginx.engine.shared.Constants;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Join;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Limit;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Sort;
+import cn.edu.tsinghua.iginx.engine.shared.operator.UnaryOperator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Union;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.OperatorSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LimitPushDownOptimizerTest {
+
+    private static final List<String> PATHS = Arrays.asList("a.a", "a.b");
+
+    private static Operator source(Operator operator) {
+        return ((OperatorSource) ((UnaryOperator) operator).getSource()).getOperator();
+    }
+
+    private static Project scan(long startTime, long endTime) {
+        return new Project(new FragmentSource(new FragmentMeta("a", "b", startTime, endTime)), PATHS, null);
+    }
+
+    /**
+     * 与 QueryGenerator 生成的查询计划结构相同：Limit - Project - Select - Join(Union(scan, scan), scan)
+     */
+    private static Limit plan(Filter filter, List<String> selectedPaths, Project... scans) {
+        Operator union = new Union(new OperatorSource(scans[0]), new OperatorSource(scans[1]));
+        Operator join = new Join(new OperatorSource(union), new OperatorSource(scans[2]), Constants.TIMESTAMP);
+        Operator select = new Select(new OperatorSource(join), filter, null);
+        Operator project = new Project(new OperatorSource(select), selectedPaths, null);
+        return new Limit(new OperatorSource(project), 10, 5);
+    }
+
+    @Test
+    public void testPushDownToScans() {
+        Project[] scans = new Project[]{scan(0, 100), scan(100, 200), scan(0, 200)};
+        Limit root = plan(new TimeFilter(Op.GE, 50), PATHS, scans);
+        assertSame(root, LimitPushDownOptimizer.getInstance().optimize(root));
+
+        Join join = (Join) source(source(source(root)));
+        Union union = (Union) ((OperatorSource) join.getSourceA()).getOperator();
+        List<Operator> leaves = Arrays.asList(((OperatorSource) union.getSourceA()).getOperator(),
+            ((OperatorSource) union.getSourceB()).getOperator(), ((OperatorSource) join.getSourceB()).getOperator());
+        for (int i = 0; i < leaves.size(); i++) {
+            Limit limit = (Limit) leaves.get(i);
+            assertEquals(15, limit.getLimit());
+            assertEquals(0, limit.getOffset());
+            // 时间条件与分片的时间范围一起在截取之前生效
+            Select select = (Select) source(limit);
+            assertEquals(3, ((AndFilter) select.getFilter()).getChildren().size());
+            assertSame(scans[i], source(select));
+        }
+        assertEquals(10, root.getLimit());
+        assertEquals(5, root.getOffset());
+    }
+
+    /**
+     * ORDER BY time DESC LIMIT 的查询计划：Limit - Sort(time DESC) - Project - Select - Join(Union(scan, scan), scan)
+     */
+    private static Limit descPlan(Limit plan) {
+        Sort sort = new Sort(plan.getSource(), Collections.singletonList(Constants.TIMESTAMP),
+            Collections.singletonList(Sort.SortType.DESC), 15);
+        return new Limit(new OperatorSource(sort), 10, 5);
+    }
+
+    @Test
+    public void testPushDownTailToScans() {
+        Project[] scans = new Project[]{scan(0, 100), scan(100, 200), scan(0, 200)};
+        Limit root = descPlan(plan(new TimeFilter(Op.GE, 50), PATHS, scans));
+        LimitPushDownOptimizer.getInstance().optimize(root);
+
+        // 降序排序仍保留在上层，截取末尾的 Limit 下推到排序之下的各个分片
+        Sort sort = (Sort) source(root);
+        Join join = (Join) source(source(source(sort)));
+        Union union = (Union) ((OperatorSource) join.getSourceA()).getOperator();
+        List<Operator> leaves = Arrays.asList(((OperatorSource) union.getSourceA()).getOperator(),
+            ((OperatorSource) union.getSourceB()).getOperator(), ((OperatorSource) join.getSourceB()).getOperator());
+        for (int i = 0; i < leaves.size(); i++) {
+            Limit limit = (Limit) leaves.get(i);
+            assertTrue(limit.isTail());
+            assertEquals(15, limit.getLimit());
+            assertSame(scans[i], source(source(limit)));
+        }
+        assertFalse(root.isTail());
+        assertEquals(15, sort.getLimit());
+    }
+
+    @Test
+    public void testNotPushDownTailThroughOrdinalJoin() {
+        // 按序号连接时从头开始对齐，两侧的最后若干行连接后不是结果的最后若干行
+        Project[] scans = new Project[]{scan(0, 100), scan(100, 200), scan(0, 200)};
+        Limit root = plan(new TimeFilter(Op.GE, 50), PATHS, scans);
+        Select select = (Select) source(source(root));
+        Join join = (Join) source(select);
+        Join ordinalJoin = new Join(join.getSourceA(), join.getSourceB(), Constants.ORDINAL);
+        select.setSource(new OperatorSource(ordinalJoin));
+        root = descPlan(root);
+        LimitPushDownOptimizer.getInstance().optimize(root);
+        assertSame(scans[2], ((OperatorSource) ordinalJoin.getSourceB()).getOperator());
+    }
+
+    @Test
+    public void testNotPushDown() {
+        // 值过滤条件需要在合并后的行上计算
+        Project[] scans = new Project[]{scan(0, 100), scan(100, 200), scan(0, 200)};
+        Limit root = plan(new ValueFilter("a.a", Op.G, new Value(1)), PATHS, scans);
+        LimitPushDownOptimizer.getInstance().optimize(root);
+        Join join = (Join) source(source(source(root)));
+        assertSame(scans[2], ((OperatorSource) join.getSourceB()).getOperator());
+
+        // 上层 Project 会丢弃只包含其余列的行
+        scans = new Project[]{scan(0, 100), scan(100, 200), scan(0, 200)};
+        root = plan(new TimeFilter(Op.GE, 50), Collections.singletonList("a.a"), scans);
+        LimitPushDownOptimizer.getInstance().optimize(root);
+        join = (Join) source(source(source(root)));
+        assertTrue(((OperatorSource) join.getSourceB()).getOperator().getType() == OperatorType.Project);
+    }
+
+}
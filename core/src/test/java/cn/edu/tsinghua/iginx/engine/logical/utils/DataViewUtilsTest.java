@@ -0,0 +1,97 @@
+package cn.edu.tsinghua.iginx.engine.logical.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DataViewUtilsTest {
+
+    private static final List<String> PATHS = Arrays.asList("a.a", "a.c", "b.a", "b.b", "c.a");
+
+    private static final List<Long> TIMESTAMPS = Arrays.asList(5L, 10L, 15L, 20L, 30L, 45L);
+
+    private static RawData generateRawData() {
+        Object[] valuesList = new Object[PATHS.size()];
+        List<DataType> types = new ArrayList<>();
+        List<Bitmap> bitmaps = new ArrayList<>();
+        for (int i = 0; i < PATHS.size(); i++) {
+            Object[] values = new Object[TIMESTAMPS.size()];
+            Bitmap bitmap = new Bitmap(TIMESTAMPS.size());
+            for (int j = 0; j < TIMESTAMPS.size(); j++) {
+                values[j] = (long) i * 100 + j;
+                bitmap.mark(j);
+            }
+            valuesList[i] = values;
+            types.add(DataType.LONG);
+            bitmaps.add(bitmap);
+        }
+        return new RawData(PATHS, Collections.emptyList(), TIMESTAMPS, valuesList, types, bitmaps, RawDataType.Column);
+    }
+
+    @Test
+    public void testPartition() {
+        RawData rawData = generateRawData();
+        List<FragmentMeta> fragments = Arrays.asList(
+            new FragmentMeta(null, "a.c", 0, 15),
+            new FragmentMeta("a.c", "b.b", 0, 15),
+            new FragmentMeta("b.b", null, 0, 15),
+            new FragmentMeta(null, "b", 15, 20),
+            new FragmentMeta("b", null, 15, 20),
+            // 时间上没有交集
+            new FragmentMeta(null, null, 50, Long.MAX_VALUE),
+            // 序列上没有交集
+            new FragmentMeta("d", null, 20, 50),
+            new FragmentMeta(null, "d", 20, 50)
+        );
+        List<Pair<FragmentMeta, DataView>> sections = DataViewUtils.partition(rawData, fragments);
+        assertEquals(6, sections.size());
+
+        int[][] expected = new int[][]{
+            {0, 1, 0, 2},
+            {1, 3, 0, 2},
+            {3, 5, 0, 2},
+            {0, 2, 2, 3},
+            {2, 5, 2, 3},
+            {0, 5, 3, 6}
+        };
+        int[] fragmentIndexes = new int[]{0, 1, 2, 3, 4, 7};
+        int points = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            assertSame(fragments.get(fragmentIndexes[i]), sections.get(i).k);
+            DataView view = sections.get(i).v;
+            assertTrue(view.isColumnData());
+            assertEquals(expected[i][1] - expected[i][0], view.getPathNum());
+            assertEquals(expected[i][3] - expected[i][2], view.getTimeSize());
+            assertEquals(PATHS.get(expected[i][0]), view.getPath(0));
+            assertEquals((long) TIMESTAMPS.get(expected[i][2]), view.getTimestamp(0));
+            assertEquals((long) expected[i][0] * 100 + expected[i][2], view.getValue(0, 0));
+            points += view.getPathNum() * view.getTimeSize();
+        }
+        // 每个数据点恰好属于一个分片
+        assertEquals(PATHS.size() * TIMESTAMPS.size(), points);
+    }
+
+    @Test
+    public void testNoOverlap() {
+        RawData rawData = generateRawData();
+        assertTrue(DataViewUtils.partition(rawData, Collections.singletonList(new FragmentMeta(null, null, 0, 5))).isEmpty());
+        assertTrue(DataViewUtils.partition(rawData, Collections.singletonList(new FragmentMeta(null, null, 46, 100))).isEmpty());
+        assertTrue(DataViewUtils.partition(rawData, Collections.singletonList(new FragmentMeta(null, "a.a", 0, 100))).isEmpty());
+        assertTrue(DataViewUtils.partition(rawData, Collections.emptyList()).isEmpty());
+    }
+
+}
@@ -27,7 +27,11 @@ import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.function.Accumulator;
 import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionType;
+import cn.edu.tsinghua.iginx.engine.shared.function.MappingType;
+import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
 import cn.edu.tsinghua.iginx.engine.shared.function.manager.FunctionManager;
 import cn.edu.tsinghua.iginx.engine.shared.operator.*;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.*;
@@ -58,6 +62,57 @@ public abstract class AbstractOperatorMemoryExecutorTest {
         }
     }
 
+    // 统计非空值的个数，没有非空值时不产生结果
+    private static class NonNullCount implements SetMappingFunction {
+
+        @Override
+        public FunctionType getFunctionType() {
+            return FunctionType.UDF;
+        }
+
+        @Override
+        public MappingType getMappingType() {
+            return MappingType.SetMapping;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return "non_null_count";
+        }
+
+        @Override
+        public Row transform(RowStream rows, Map<String, Value> params) throws Exception {
+            return Accumulator.accumulateAll(createAccumulator(rows.getHeader(), params), rows);
+        }
+
+        @Override
+        public Accumulator createAccumulator(Header header, Map<String, Value> params) {
+            String path = params.get(PARAM_PATHS).getBinaryVAsString();
+            int index = header.indexOf(path);
+            Header targetHeader = new Header(Collections.singletonList(new Field(getIdentifier() + "(" + path + ")", DataType.LONG)));
+            long[] count = new long[1];
+            return new Accumulator() {
+
+                @Override
+                public Header getHeader() {
+                    return targetHeader;
+                }
+
+                @Override
+                public void accumulate(Row row) {
+                    if (row.getValue(index) != null) {
+                        count[0]++;
+                    }
+                }
+
+                @Override
+                public Row finish() {
+                    return count[0] == 0 ? null : new Row(targetHeader, new Object[] {count[0]});
+                }
+            };
+        }
+    }
+
     protected abstract OperatorMemoryExecutor getExecutor();
 
     private Table generateTableForUnaryOperator(boolean hasTimestamp) {
@@ -247,10 +302,45 @@ public abstract class AbstractOperatorMemoryExecutorTest {
     }
 
 
+    @Test
+    public void testSortByValueDesc() throws PhysicalException {
+        Table table = generateTableForUnaryOperator(true);
+        Sort sort = new Sort(EmptySource.EMPTY_SOURCE, "a.a.b", Sort.SortType.DESC);
+        RowStream stream = getExecutor().executeUnaryOperator(sort, table);
+        assertEquals(table.getHeader(), stream.getHeader());
+        int index = table.getRowSize();
+        while (stream.hasNext()) {
+            index--;
+            assertEquals(table.getRow(index), stream.next());
+        }
+        assertEquals(0, index);
+    }
+
+    @Test
+    public void testSortByMultiFieldsWithLimit() throws PhysicalException {
+        Header header = new Header(Field.TIME, Arrays.asList(
+                new Field("a.a.b", DataType.INTEGER),
+                new Field("a.b.c", DataType.DOUBLE)));
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Row(header, i, new Object[] {i % 3, i % 2 == 0 ? null : (double) i}));
+        }
+        Table table = new Table(header, rows);
+        // 按 a.a.b 升序、a.b.c 降序排列，空值排在最后，只保留前 4 行
+        Sort sort = new Sort(EmptySource.EMPTY_SOURCE, Arrays.asList("a.a.b", "a.b.c"),
+                Arrays.asList(Sort.SortType.ASC, Sort.SortType.DESC), 4);
+        RowStream stream = getExecutor().executeUnaryOperator(sort, table);
+        List<Long> timestamps = new ArrayList<>();
+        while (stream.hasNext()) {
+            timestamps.add(stream.next().getTimestamp());
+        }
+        assertEquals(Arrays.asList(9L, 3L, 0L, 6L), timestamps);
+    }
+
     @Test(expected = InvalidOperatorParameterException.class)
-    public void testSortByOtherField() throws PhysicalException {
+    public void testSortByNotExistedField() throws PhysicalException {
         Table table = generateTableForUnaryOperator(true);
-        Sort sort = new Sort(EmptySource.EMPTY_SOURCE, "a.a.b", Sort.SortType.ASC);
+        Sort sort = new Sort(EmptySource.EMPTY_SOURCE, "a.a.d", Sort.SortType.ASC);
         getExecutor().executeUnaryOperator(sort, table);
         fail();
     }
@@ -271,6 +361,46 @@ public abstract class AbstractOperatorMemoryExecutorTest {
         assertEquals(7, index);
     }
 
+    @Test
+    public void testLimitStopsReadingSource() throws PhysicalException {
+        Table table = generateTableForUnaryOperator(true);
+        int[] fetched = new int[1];
+        boolean[] closed = new boolean[1];
+        RowStream source = new RowStream() {
+            @Override
+            public Header getHeader() {
+                return table.getHeader();
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return table.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                fetched[0]++;
+                return table.next();
+            }
+        };
+        Limit limit = new Limit(EmptySource.EMPTY_SOURCE, 3, 2);
+        RowStream stream = getExecutor().executeUnaryOperator(limit, source);
+        int count = 0;
+        while (stream.hasNext()) {
+            assertEquals(table.getRow(count + 2), stream.next());
+            count++;
+        }
+        assertEquals(3, count);
+        // 读够所需的行后不再从上游拉取，并且上游已经被关闭
+        assertEquals(5, fetched[0]);
+        assertTrue(closed[0]);
+    }
+
     @Test
     public void testLimitWithOutOfRangeA() throws PhysicalException {
         Table table = generateTableForUnaryOperator(true);
@@ -410,4 +540,156 @@ public abstract class AbstractOperatorMemoryExecutorTest {
         assertFalse(stream.hasNext());
     }
 
+    @Test
+    public void testSetTransformWithMultipleFunctions() throws PhysicalException {
+        Table table = generateTableForUnaryOperator(false);
+
+        Map<String, Value> avgParams = new HashMap<>();
+        avgParams.put(PARAM_PATHS, new Value("a.a.b"));
+        Map<String, Value> maxParams = new HashMap<>();
+        maxParams.put(PARAM_PATHS, new Value("a.b.c"));
+
+        SetTransform setTransform = new SetTransform(
+            EmptySource.EMPTY_SOURCE,
+            Arrays.asList(
+                new FunctionCall(FunctionManager.getInstance().getFunction("avg"), avgParams),
+                new FunctionCall(FunctionManager.getInstance().getFunction("max"), maxParams)
+            )
+        );
+
+        RowStream stream = getExecutor().executeUnaryOperator(setTransform, table);
+
+        Header targetHeader = stream.getHeader();
+        assertFalse(targetHeader.hasTimestamp());
+        assertEquals(2, targetHeader.getFields().size());
+        assertEquals("avg(a.a.b)", targetHeader.getFields().get(0).getFullName());
+        assertEquals("max(a.b.c)", targetHeader.getFields().get(1).getFullName());
+
+        assertTrue(stream.hasNext());
+
+        Row targetRow = stream.next();
+        assertEquals(4.5, (double) targetRow.getValue(0), 0.01);
+        assertEquals(10, targetRow.getValue(1));
+
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    public void testDownsampleWithMultipleFunctions() throws PhysicalException {
+        Table table = generateTableForUnaryOperator(true);
+
+        Map<String, Value> avgParams = new HashMap<>();
+        avgParams.put(PARAM_PATHS, new Value("a.a.b"));
+        Map<String, Value> maxParams = new HashMap<>();
+        maxParams.put(PARAM_PATHS, new Value("a.a.b"));
+
+        Downsample downsample = new Downsample(EmptySource.EMPTY_SOURCE, 3,
+            Arrays.asList(
+                new FunctionCall(FunctionManager.getInstance().getFunction("avg"), avgParams),
+                new FunctionCall(FunctionManager.getInstance().getFunction("max"), maxParams)
+            ),
+            new TimeRange(0, 11));
+        RowStream stream = getExecutor().executeUnaryOperator(downsample, table);
+
+        Header targetHeader = stream.getHeader();
+        assertTrue(targetHeader.hasTimestamp());
+        assertEquals(2, targetHeader.getFields().size());
+        assertEquals("avg(a.a.b)", targetHeader.getFields().get(0).getFullName());
+        assertEquals("max(a.a.b)", targetHeader.getFields().get(1).getFullName());
+
+        int index = 0;
+        while (stream.hasNext()) {
+            Row targetRow = stream.next();
+            int sum = 0;
+            int max = 0;
+            int cnt = 0;
+            while (cnt < 3 && index + cnt < table.getRowSize()) {
+                int value = (int) table.getRow(index + cnt).getValue("a.a.b");
+                sum += value;
+                max = Math.max(max, value);
+                cnt++;
+            }
+            assertEquals(index, targetRow.getTimestamp());
+            assertEquals(sum * 1.0 / cnt, (double) targetRow.getValue(0), 0.01);
+            assertEquals(max, targetRow.getValue(1));
+            index += cnt;
+        }
+        assertEquals(table.getRowSize(), index);
+    }
+
+    @Test
+    public void testDownsampleWithFunctionEmptyInFirstWindow() throws PhysicalException {
+        Header header = new Header(Field.TIME, Arrays.asList(new Field("a.a.b", DataType.INTEGER), new Field("a.b.c", DataType.INTEGER)));
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            // a.b.c 在第一个窗口内没有数据
+            rows.add(new Row(header, i, new Object[] {i, i < 3 ? null : i * 2}));
+        }
+        Table table = new Table(header, rows);
+
+        Map<String, Value> maxParams = new HashMap<>();
+        maxParams.put(PARAM_PATHS, new Value("a.a.b"));
+        Map<String, Value> countParams = new HashMap<>();
+        countParams.put(PARAM_PATHS, new Value("a.b.c"));
+
+        Downsample downsample = new Downsample(EmptySource.EMPTY_SOURCE, 3,
+            Arrays.asList(
+                new FunctionCall(FunctionManager.getInstance().getFunction("max"), maxParams),
+                new FunctionCall(new NonNullCount(), countParams)
+            ),
+            new TimeRange(0, 9));
+        RowStream stream = getExecutor().executeUnaryOperator(downsample, table);
+
+        Header targetHeader = stream.getHeader();
+        assertTrue(targetHeader.hasTimestamp());
+        assertEquals(2, targetHeader.getFields().size());
+        assertEquals("max(a.a.b)", targetHeader.getFields().get(0).getFullName());
+        assertEquals("non_null_count(a.b.c)", targetHeader.getFields().get(1).getFullName());
+
+        long[] expectedCounts = new long[] {0, 3, 3};
+        int index = 0;
+        while (stream.hasNext()) {
+            Row targetRow = stream.next();
+            assertEquals(index * 3, targetRow.getTimestamp());
+            assertEquals(index * 3 + 2, targetRow.getValue(0));
+            assertEquals(index == 0 ? null : (Object) expectedCounts[index], targetRow.getValue(1));
+            index++;
+        }
+        assertEquals(3, index);
+    }
+
+    @Test
+    public void testMergeUnion() throws PhysicalException {
+        List<Table> tables = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Header header = new Header(Field.TIME, Collections.singletonList(new Field("a.a." + i, DataType.INTEGER)));
+            List<Row> rows = new ArrayList<>();
+            // 各个表的时间戳交错，且第 0 行的时间戳相同
+            for (int j = 0; j < 4; j++) {
+                rows.add(new Row(header, j == 0 ? 0 : j * 3 + i, new Object[] {i}));
+            }
+            tables.add(new Table(header, rows));
+        }
+        List<Source> sources = Arrays.asList(EmptySource.EMPTY_SOURCE, EmptySource.EMPTY_SOURCE, EmptySource.EMPTY_SOURCE);
+        RowStream stream = getExecutor().executeMultipleOperator(new MergeUnion(sources), new ArrayList<>(tables));
+
+        Header targetHeader = stream.getHeader();
+        assertTrue(targetHeader.hasTimestamp());
+        assertEquals(3, targetHeader.getFields().size());
+
+        long[] expectedTimestamps = new long[] {0, 0, 0, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+        int[] expectedTables = new int[] {0, 1, 2, 0, 1, 2, 0, 1, 2, 0, 1, 2};
+        int index = 0;
+        while (stream.hasNext()) {
+            Row targetRow = stream.next();
+            assertEquals(expectedTimestamps[index], targetRow.getTimestamp());
+            for (int i = 0; i < 3; i++) {
+                Object value = targetRow.getValue("a.a." + i);
+                assertEquals(i == expectedTables[index] ? (Object) i : null, value);
+            }
+            index++;
+        }
+        assertEquals(expectedTimestamps.length, index);
+    }
+
 }
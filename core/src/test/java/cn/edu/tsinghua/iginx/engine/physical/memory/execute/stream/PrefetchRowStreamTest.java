@@ -0,0 +1,113 @@
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.stream;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrefetchRowStreamTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Collections.singletonList(new Field("a.a", DataType.LONG)));
+
+    private static Table generateTable(int size) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(HEADER, i, new Object[] {(long) i}));
+        }
+        return new Table(HEADER, rows);
+    }
+
+    @Test
+    public void testPrefetch() throws PhysicalException {
+        // 线程数少于输入数，预读任务不能因缓存写满而占住线程
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            List<RowStream> streams = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                streams.add(new PrefetchRowStream(generateTable(1000), 16, executor));
+            }
+            int index = 0;
+            while (index < 1000) {
+                for (RowStream stream : streams) {
+                    assertTrue(stream.hasNext());
+                    Row row = stream.next();
+                    assertEquals(index, row.getTimestamp());
+                    assertEquals((long) index, row.getValue(0));
+                }
+                index++;
+            }
+            for (RowStream stream : streams) {
+                assertFalse(stream.hasNext());
+                stream.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchFailure() throws PhysicalException {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Table table = generateTable(10);
+            RowStream failed = new RowStream() {
+
+                private int count = 0;
+
+                @Override
+                public Header getHeader() {
+                    return HEADER;
+                }
+
+                @Override
+                public void close() {
+                }
+
+                @Override
+                public boolean hasNext() throws PhysicalException {
+                    if (count == 5) {
+                        throw new PhysicalException("read failure");
+                    }
+                    return table.hasNext();
+                }
+
+                @Override
+                public Row next() throws PhysicalException {
+                    count++;
+                    return table.next();
+                }
+            };
+            RowStream stream = new PrefetchRowStream(failed, 4, executor);
+            int count = 0;
+            try {
+                while (stream.hasNext()) {
+                    stream.next();
+                    count++;
+                }
+                fail();
+            } catch (PhysicalException e) {
+                // 失败前已读取的行仍然可以被消费
+                assertEquals(5, count);
+            }
+            stream.close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Sort;
+import cn.edu.tsinghua.iginx.engine.shared.source.GlobalSource;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalRowSorterTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Arrays.asList(
+        new Field("a.long", DataType.LONG),
+        new Field("a.str", DataType.BINARY),
+        new Field("a.double", DataType.DOUBLE)
+    ));
+
+    private final Random random = new Random(12);
+
+    private List<Row> randomRows(int size) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Object[] values = new Object[]{
+                random.nextInt(10) == 0 ? null : (long) random.nextInt(20),
+                ("s" + random.nextInt(5)).getBytes(),
+                random.nextInt(10) == 0 ? null : random.nextDouble()
+            };
+            rows.add(new Row(HEADER, i, values));
+        }
+        return rows;
+    }
+
+    private static Comparator<Row> comparator() throws PhysicalException {
+        Sort sort = new Sort(new GlobalSource(), Arrays.asList("a.long", "a.str"), Arrays.asList(Sort.SortType.DESC, Sort.SortType.ASC), -1);
+        return RowSortUtils.buildComparator(sort, HEADER);
+    }
+
+    private static void assertRowEquals(Row expected, Row actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getValue(0), actual.getValue(0));
+        assertArrayEquals((byte[]) expected.getValue(1), (byte[]) actual.getValue(1));
+        assertEquals(expected.getValue(2), actual.getValue(2));
+    }
+
+    @Test
+    public void testSortWithSpill() throws PhysicalException {
+        List<Row> rows = randomRows(1000);
+        Comparator<Row> comparator = comparator();
+        ExternalRowSorter sorter = new ExternalRowSorter(HEADER, comparator, 2048, null);
+        for (Row row : rows) {
+            sorter.add(row);
+        }
+        assertTrue(sorter.getSpilledRunCount() > 1);
+
+        List<Row> expected = new ArrayList<>(rows);
+        expected.sort(comparator);
+        RowStream stream = sorter.sort();
+        int index = 0;
+        while (stream.hasNext()) {
+            // 排序稳定，溢写前后行的顺序与内存中排序一致
+            assertRowEquals(expected.get(index++), stream.next());
+        }
+        assertEquals(rows.size(), index);
+        stream.close();
+        assertEquals(0, sorter.getSpilledRunCount());
+    }
+
+    @Test
+    public void testTopK() throws PhysicalException {
+        List<Row> rows = randomRows(200);
+        Comparator<Row> comparator = comparator();
+        List<Row> expected = new ArrayList<>(rows);
+        expected.sort(comparator);
+        List<Row> actual = RowSortUtils.topK(rows.iterator(), comparator, 15);
+        assertEquals(expected.subList(0, 15), actual);
+        assertEquals(rows.size(), RowSortUtils.topK(rows.iterator(), comparator, 500).size());
+        assertEquals(0, RowSortUtils.topK(rows.iterator(), comparator, 0).size());
+    }
+
+}
@@ -0,0 +1,101 @@
+package cn.edu.tsinghua.iginx.engine.physical.memory.execute.utils;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.NotFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.OrFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.PathFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+
+public class FilterUtilsTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Arrays.asList(
+        new Field("a.int", DataType.INTEGER),
+        new Field("a.long", DataType.LONG),
+        new Field("a.float", DataType.FLOAT),
+        new Field("a.double", DataType.DOUBLE),
+        new Field("a.bool", DataType.BOOLEAN),
+        new Field("a.str", DataType.BINARY)
+    ));
+
+    private final Random random = new Random(11);
+
+    private Object[] randomValues() {
+        Object[] values = new Object[6];
+        values[0] = random.nextInt(5);
+        values[1] = (long) random.nextInt(5);
+        values[2] = (float) random.nextInt(5);
+        values[3] = random.nextInt(10) / 2.0;
+        values[4] = random.nextBoolean();
+        values[5] = ("s" + random.nextInt(5)).getBytes();
+        for (int i = 0; i < values.length; i++) {
+            if (random.nextInt(5) == 0) {
+                values[i] = null;
+            }
+        }
+        return values;
+    }
+
+    private static List<Filter> leafFilters() {
+        List<Filter> filters = new ArrayList<>();
+        for (Op op : Op.values()) {
+            filters.add(new TimeFilter(op, 3L));
+            filters.add(new ValueFilter("a.int", op, new Value(2)));
+            filters.add(new ValueFilter("a.int", op, new Value(2.5)));
+            filters.add(new ValueFilter("a.long", op, new Value(2L)));
+            filters.add(new ValueFilter("a.float", op, new Value(2)));
+            filters.add(new ValueFilter("a.double", op, new Value(1.5)));
+            filters.add(new ValueFilter("a.bool", op, new Value(true)));
+            filters.add(new ValueFilter("a.str", op, new Value("s2")));
+            filters.add(new ValueFilter("a.str", op, new Value(2)));
+            filters.add(new ValueFilter("a.missing", op, new Value(2)));
+            filters.add(new PathFilter("a.int", op, "a.long"));
+            filters.add(new PathFilter("a.long", op, "a.double"));
+            filters.add(new PathFilter("a.str", op, "a.int"));
+        }
+        filters.add(new ValueFilter("a.str", Op.LIKE, new Value("s[1-3]")));
+        filters.add(new ValueFilter("a.str", Op.LIKE, new Value("s")));
+        return filters;
+    }
+
+    @Test
+    public void testCompileMatchesValidate() {
+        List<Filter> filters = leafFilters();
+        int leafCount = filters.size();
+        for (int i = 0; i < leafCount; i++) {
+            Filter left = filters.get(i);
+            Filter right = filters.get(random.nextInt(leafCount));
+            filters.add(new AndFilter(Arrays.asList(left, right)));
+            filters.add(new OrFilter(Arrays.asList(left, right)));
+            filters.add(new NotFilter(left));
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(new Row(HEADER, i % 7, randomValues()));
+        }
+        for (Filter filter : filters) {
+            Predicate<Row> predicate = FilterUtils.compile(filter, HEADER);
+            for (Row row : rows) {
+                assertEquals(filter.toString(), FilterUtils.validate(filter, row), predicate.test(row));
+            }
+        }
+    }
+
+}
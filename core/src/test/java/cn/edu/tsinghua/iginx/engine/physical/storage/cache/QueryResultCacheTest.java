@@ -0,0 +1,152 @@
+package cn.edu.tsinghua.iginx.engine.physical.storage.cache;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Limit;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.engine.shared.source.OperatorSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class QueryResultCacheTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Collections.singletonList(new Field("a.a", DataType.LONG)));
+
+    private static StoragePhysicalTask task(FragmentMeta fragment, String... patterns) {
+        Project project = new Project(new FragmentSource(fragment), Arrays.asList(patterns), null);
+        List<Operator> operators = new ArrayList<>();
+        operators.add(project);
+        return new StoragePhysicalTask(operators);
+    }
+
+    private static RowStream rows(int size) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(HEADER, i, new Object[]{(long) i}));
+        }
+        return new Table(HEADER, rows);
+    }
+
+    private static int drain(RowStream stream) throws PhysicalException {
+        int count = 0;
+        while (stream.hasNext()) {
+            stream.next();
+            count++;
+        }
+        stream.close();
+        return count;
+    }
+
+    private static void execute(QueryResultCache cache, StoragePhysicalTask task, int size) throws PhysicalException {
+        drain(cache.cache(cache.ticket(task), rows(size)));
+    }
+
+    @Test
+    public void testHitAndInvalidate() throws PhysicalException {
+        QueryResultCache cache = new QueryResultCache(1 << 20, 1 << 20, 0);
+        FragmentMeta fragment = new FragmentMeta("a", "b", 0, 100);
+        StoragePhysicalTask task = task(fragment, "a.a");
+        assertNull(cache.get(task));
+        execute(cache, task, 10);
+
+        RowStream cached = cache.get(task(new FragmentMeta("a", "b", 0, 100), "a.a"));
+        assertNotNull(cached);
+        assertEquals(10, drain(cached));
+        // 不同的列、不同的下推算子对应不同的结果
+        assertNull(cache.get(task(fragment, "a.b")));
+        StoragePhysicalTask limitTask = task(fragment, "a.a");
+        limitTask.getOperators().add(new Limit(new OperatorSource(limitTask.getOperators().get(0)), 5, 0));
+        assertNull(cache.get(limitTask));
+        assertEquals(1, cache.getHitCount());
+
+        cache.invalidate(fragment);
+        assertNull(cache.get(task));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static StoragePhysicalTask limitTask(FragmentMeta fragment, boolean tail) {
+        StoragePhysicalTask task = task(fragment, "a.a");
+        task.getOperators().add(new Limit(new OperatorSource(task.getOperators().get(0)), 5, 0, tail));
+        return task;
+    }
+
+    @Test
+    public void testHeadAndTailLimit() throws PhysicalException {
+        QueryResultCache cache = new QueryResultCache(1 << 20, 1 << 20, 0);
+        FragmentMeta fragment = new FragmentMeta("a", "b", 0, 100);
+        // 分片中有 10 行，截取开头与末尾的 5 行分别得到前 5 行与后 5 行
+        List<Row> all = new ArrayList<>();
+        RowStream stream = rows(10);
+        while (stream.hasNext()) {
+            all.add(stream.next());
+        }
+        drain(cache.cache(cache.ticket(limitTask(fragment, false)), new Table(HEADER, new ArrayList<>(all.subList(0, 5)))));
+        assertNull(cache.get(limitTask(fragment, true)));
+        drain(cache.cache(cache.ticket(limitTask(fragment, true)), new Table(HEADER, new ArrayList<>(all.subList(5, 10)))));
+
+        RowStream head = cache.get(limitTask(fragment, false));
+        RowStream tail = cache.get(limitTask(fragment, true));
+        assertNotNull(head);
+        assertNotNull(tail);
+        assertEquals(0L, head.next().getTimestamp());
+        assertEquals(5L, tail.next().getTimestamp());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void testNotCached() throws PhysicalException {
+        QueryResultCache cache = new QueryResultCache(1 << 20, 1 << 20, 0);
+        // 仍在写入的最新分片
+        StoragePhysicalTask openTask = task(new FragmentMeta("a", "b", 0, Long.MAX_VALUE), "a.a");
+        assertNull(cache.ticket(openTask));
+
+        // 执行期间分片被写入
+        FragmentMeta fragment = new FragmentMeta("a", "b", 0, 100);
+        StoragePhysicalTask task = task(fragment, "a.a");
+        RowStream stream = cache.cache(cache.ticket(task), rows(10));
+        cache.invalidate(fragment);
+        drain(stream);
+        assertNull(cache.get(task));
+
+        // 超出单个结果的大小上限
+        cache = new QueryResultCache(1 << 20, 100, 0);
+        execute(cache, task, 10);
+        assertNull(cache.get(task));
+    }
+
+    @Test
+    public void testEviction() throws PhysicalException {
+        QueryResultCache cache = new QueryResultCache(400, 400, 0);
+        FragmentMeta first = new FragmentMeta("a", "b", 0, 100);
+        FragmentMeta second = new FragmentMeta("a", "b", 100, 200);
+        FragmentMeta third = new FragmentMeta("a", "b", 200, 300);
+        execute(cache, task(first, "a.a"), 10);
+        execute(cache, task(second, "a.a"), 10);
+        // 访问第一个结果后，最久未使用的是第二个
+        assertNotNull(cache.get(task(first, "a.a")));
+        execute(cache, task(third, "a.a"), 10);
+        assertEquals(2, cache.getEntryCount());
+        assertNull(cache.get(task(second, "a.a")));
+        assertNotNull(cache.get(task(first, "a.a")));
+        assertNotNull(cache.get(task(third, "a.a")));
+    }
+
+}
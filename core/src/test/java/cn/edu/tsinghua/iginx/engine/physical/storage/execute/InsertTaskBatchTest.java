@@ -0,0 +1,108 @@
+package cn.edu.tsinghua.iginx.engine.physical.storage.execute;
+
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawData;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RawDataType;
+import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InsertTaskBatchTest {
+
+    private static final FragmentMeta FRAGMENT = new FragmentMeta("a", "b", 0L, Long.MAX_VALUE);
+
+    private static Bitmap bitmap(int size, int... marks) {
+        Bitmap bitmap = new Bitmap(size);
+        for (int mark : marks) {
+            bitmap.mark(mark);
+        }
+        return bitmap;
+    }
+
+    private static StoragePhysicalTask task(FragmentMeta fragment, DataView data) {
+        Insert insert = new Insert(new FragmentSource(fragment), data);
+        return new StoragePhysicalTask(Collections.singletonList(insert), fragment, true, false);
+    }
+
+    private static StoragePhysicalTask columnTask(List<String> paths, List<DataType> types, List<Long> timestamps,
+                                                  Object[] valuesList, List<Bitmap> bitmaps) {
+        RawData data = new RawData(paths, Collections.emptyList(), timestamps, valuesList, types, bitmaps, RawDataType.Column);
+        return task(FRAGMENT, new ColumnDataView(data, 0, paths.size(), 0, timestamps.size()));
+    }
+
+    @Test
+    public void testMergeColumnAndRowTasks() {
+        StoragePhysicalTask first = columnTask(Arrays.asList("a.a", "a.b"), Arrays.asList(DataType.LONG, DataType.DOUBLE),
+            Arrays.asList(1L, 3L), new Object[]{new Object[]{1L, 3L}, new Object[]{3.0}},
+            Arrays.asList(bitmap(2, 0, 1), bitmap(2, 1)));
+        RawData rowData = new RawData(Arrays.asList("a.a", "a.c"), Collections.emptyList(), Arrays.asList(2L, 3L),
+            new Object[]{new Object[]{2L, true}, new Object[]{30L}}, Arrays.asList(DataType.LONG, DataType.BOOLEAN),
+            Arrays.asList(bitmap(2, 0, 1), bitmap(2, 0)), RawDataType.Row);
+        StoragePhysicalTask second = task(FRAGMENT, new RowDataView(rowData, 0, 2, 0, 2));
+
+        InsertTaskBatch batch = new InsertTaskBatch(first, 100);
+        assertTrue(batch.tryAdd(second));
+        assertEquals(2, batch.size());
+
+        StoragePhysicalTask merged = batch.build();
+        DataView data = ((Insert) merged.getOperators().get(0)).getData();
+        assertEquals(RawDataType.Column, data.getRawDataType());
+        assertEquals(3, data.getPathNum());
+        assertEquals(3, data.getTimeSize());
+        assertEquals(Arrays.asList("a.a", "a.b", "a.c"), Arrays.asList(data.getPath(0), data.getPath(1), data.getPath(2)));
+        assertEquals(1L, data.getTimestamp(0));
+        assertEquals(3L, data.getTimestamp(2));
+
+        // 后提交的任务覆盖先前写入的同一数据点
+        BitmapView bitmapView = data.getBitmapView(0);
+        assertTrue(bitmapView.get(0) && bitmapView.get(1) && bitmapView.get(2));
+        assertEquals(1L, data.getValue(0, 0));
+        assertEquals(2L, data.getValue(0, 1));
+        assertEquals(30L, data.getValue(0, 2));
+
+        bitmapView = data.getBitmapView(2);
+        assertFalse(bitmapView.get(0));
+        assertTrue(bitmapView.get(1));
+        assertEquals(true, data.getValue(2, 0));
+    }
+
+    @Test
+    public void testRejectIncompatibleTasks() {
+        StoragePhysicalTask first = columnTask(Collections.singletonList("a.a"), Collections.singletonList(DataType.LONG),
+            Collections.singletonList(1L), new Object[]{new Object[]{1L}}, Collections.singletonList(bitmap(1, 0)));
+        InsertTaskBatch batch = new InsertTaskBatch(first, 2);
+
+        // 数据类型冲突
+        assertFalse(batch.tryAdd(columnTask(Collections.singletonList("a.a"), Collections.singletonList(DataType.DOUBLE),
+            Collections.singletonList(2L), new Object[]{new Object[]{2.0}}, Collections.singletonList(bitmap(1, 0)))));
+        // 不同分片
+        RawData data = new RawData(Collections.singletonList("a.a"), Collections.emptyList(), Collections.singletonList(2L),
+            new Object[]{new Object[]{2L}}, Collections.singletonList(DataType.LONG), Collections.singletonList(bitmap(1, 0)), RawDataType.Column);
+        assertFalse(batch.tryAdd(task(new FragmentMeta("a", "b", 0L, 100L), new ColumnDataView(data, 0, 1, 0, 1))));
+        // 超出数据点上限
+        assertFalse(batch.tryAdd(columnTask(Arrays.asList("a.b", "a.c"), Arrays.asList(DataType.LONG, DataType.LONG),
+            Collections.singletonList(2L), new Object[]{new Object[]{2L}, new Object[]{2L}}, Arrays.asList(bitmap(1, 0), bitmap(1, 0)))));
+        assertEquals(1, batch.size());
+        assertSame(first, batch.build());
+
+        assertTrue(batch.tryAdd(task(FRAGMENT, new ColumnDataView(data, 0, 1, 0, 1))));
+        assertTrue(batch.isFull());
+    }
+
+}
@@ -0,0 +1,113 @@
+package cn.edu.tsinghua.iginx.engine.physical.storage.queue;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskCancelledException;
+import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Delete;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
+import cn.edu.tsinghua.iginx.engine.shared.source.FragmentSource;
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StoragePhysicalTaskQueueTest {
+
+    private static final FragmentMeta FRAGMENT = new FragmentMeta("a", "b", 0L, Long.MAX_VALUE);
+
+    private static StoragePhysicalTask readTask() {
+        return new StoragePhysicalTask(Collections.emptyList(), FRAGMENT, true, false);
+    }
+
+    private static StoragePhysicalTask writeTask() {
+        Operator delete = new Delete(new FragmentSource(FRAGMENT), null, Collections.singletonList("a.*"));
+        return new StoragePhysicalTask(Collections.singletonList(delete), FRAGMENT, true, true);
+    }
+
+    @Test
+    public void testWeightedLanes() {
+        StoragePhysicalTaskQueue queue = new StoragePhysicalTaskQueue(0, 2, 1);
+        List<StoragePhysicalTask> writes = new ArrayList<>();
+        List<StoragePhysicalTask> reads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            StoragePhysicalTask write = writeTask();
+            writes.add(write);
+            queue.addTask(write);
+        }
+        for (int i = 0; i < 4; i++) {
+            StoragePhysicalTask read = readTask();
+            reads.add(read);
+            queue.addTask(read);
+        }
+        // 两个读任务后跟一个写任务，各通道内部保持提交顺序
+        assertSame(reads.get(0), queue.getTask());
+        assertSame(reads.get(1), queue.getTask());
+        assertSame(writes.get(0), queue.getTask());
+        assertSame(reads.get(2), queue.getTask());
+        assertSame(reads.get(3), queue.getTask());
+        assertSame(writes.get(1), queue.getTask());
+        assertSame(writes.get(2), queue.getTask());
+
+        // 取出的写任务放回后仍位于写通道队首
+        assertSame(writes.get(3), queue.pollWriteTask(0));
+        assertNull(queue.pollWriteTask(0));
+        queue.returnWriteTask(writes.get(3));
+        assertSame(writes.get(3), queue.getTask());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testBoundedCapacity() throws Exception {
+        StoragePhysicalTaskQueue queue = new StoragePhysicalTaskQueue(2, 1, 1);
+        assertTrue(queue.offerTask(readTask(), 10));
+        assertTrue(queue.offerTask(writeTask(), 10));
+        assertFalse(queue.offerTask(readTask(), 10));
+
+        // 队列腾出空间后阻塞的提交方继续执行
+        StoragePhysicalTask task = readTask();
+        boolean[] offered = new boolean[1];
+        Thread producer = new Thread(() -> offered[0] = queue.offerTask(task, 10000));
+        producer.start();
+        queue.getTask();
+        producer.join();
+        assertTrue(offered[0]);
+        assertEquals(2, queue.size());
+
+        // 内部提交不受容量限制
+        queue.addTask(writeTask());
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    public void testCancelledTask() throws Exception {
+        StoragePhysicalTaskQueue queue = new StoragePhysicalTaskQueue(1, 1, 1);
+        StoragePhysicalTask queued = readTask();
+        assertTrue(queue.offerTask(queued, 10));
+
+        // 等待提交的任务被取消后不再等待
+        StoragePhysicalTask task = readTask();
+        boolean[] offered = new boolean[]{true};
+        Thread producer = new Thread(() -> offered[0] = queue.offerTask(task, 0));
+        producer.start();
+        Thread.sleep(50);
+        task.cancel(new PhysicalTaskCancelledException("cancelled"));
+        assertFalse(queue.removeTask(task));
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        assertFalse(offered[0]);
+
+        // 队列中被取消的任务被移除，腾出容量
+        assertTrue(queue.removeTask(queued));
+        assertFalse(queue.removeTask(queued));
+        assertEquals(0, queue.size());
+        assertTrue(queue.offerTask(readTask(), 10));
+    }
+
+}
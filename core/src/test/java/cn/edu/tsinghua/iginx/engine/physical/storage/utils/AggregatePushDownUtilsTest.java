@@ -0,0 +1,140 @@
+package cn.edu.tsinghua.iginx.engine.physical.storage.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils.AggregateColumn;
+import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.Value;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.SetMappingFunction;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Count;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Max;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Sum;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.engine.shared.operator.filter.ValueFilter;
+import cn.edu.tsinghua.iginx.engine.shared.source.Source;
+import cn.edu.tsinghua.iginx.engine.shared.source.SourceType;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.edu.tsinghua.iginx.engine.shared.Constants.PARAM_PATHS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AggregatePushDownUtilsTest {
+
+    private static class EmptySource implements Source {
+
+        public static final EmptySource EMPTY_SOURCE = new EmptySource();
+
+        @Override
+        public SourceType getType() {
+            return null;
+        }
+
+        @Override
+        public Source copy() {
+            return null;
+        }
+    }
+
+    private static FunctionCall functionCall(SetMappingFunction function, String path) {
+        Map<String, Value> params = new HashMap<>();
+        params.put(PARAM_PATHS, new Value(path));
+        return new FunctionCall(function, params);
+    }
+
+    @Test
+    public void testResolveColumnsMatchesMemoryFunctions() throws Exception {
+        List<Field> rawFields = Arrays.asList(
+            new Field("a.a.b", DataType.INTEGER),
+            new Field("a.b.c", DataType.DOUBLE),
+            new Field("a.a.c", DataType.LONG)
+        );
+        List<FunctionCall> functionCallList = Arrays.asList(
+            functionCall(Avg.getInstance(), "a.a.*"),
+            functionCall(Sum.getInstance(), "a.*"),
+            functionCall(Count.getInstance(), "a.b.c"),
+            functionCall(Max.getInstance(), "a.a.b")
+        );
+        List<AggregateColumn> columns = AggregatePushDownUtils.resolveColumns(functionCallList, rawFields);
+
+        // 与内存中逐个函数计算得到的列一一对应
+        Header rawHeader = new Header(Field.TIME, rawFields);
+        List<Field> expected = new ArrayList<>();
+        for (FunctionCall functionCall : functionCallList) {
+            SetMappingFunction function = (SetMappingFunction) functionCall.getFunction();
+            Row row = function.transform(new Table(rawHeader, Collections.emptyList()), functionCall.getParams());
+            expected.addAll(row.getHeader().getFields());
+        }
+        assertEquals(expected.size(), columns.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), columns.get(i).getField().getName());
+            assertEquals(expected.get(i).getType(), columns.get(i).getField().getType());
+        }
+        assertEquals(0, columns.get(0).getRawIndex());
+        assertEquals(2, columns.get(1).getRawIndex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResolveColumnsRejectsNonNumericAverage() {
+        List<Field> rawFields = Collections.singletonList(new Field("a.a.b", DataType.BINARY));
+        AggregatePushDownUtils.resolveColumns(Collections.singletonList(functionCall(Avg.getInstance(), "a.a.b")), rawFields);
+    }
+
+    @Test
+    public void testEmptyWindow() {
+        List<AggregateColumn> columns = Arrays.asList(
+            new AggregateColumn(Count.COUNT, 0, new Field("count(a.b)", DataType.LONG)),
+            new AggregateColumn(Avg.AVG, 0, new Field("avg(a.b)", DataType.DOUBLE))
+        );
+        assertTrue(AggregatePushDownUtils.isEmptyWindow(columns, new Object[]{0L, null}));
+        assertFalse(AggregatePushDownUtils.isEmptyWindow(columns, new Object[]{1L, 1.0}));
+
+        Object[] values = new Object[]{null, 2.0};
+        AggregatePushDownUtils.fillEmptyCounts(columns, values);
+        assertEquals(0L, values[0]);
+    }
+
+    @Test
+    public void testWindowAndTimeRange() {
+        assertEquals(10L, AggregatePushDownUtils.getWindowStart(15L, 0L, 10L));
+        assertEquals(13L, AggregatePushDownUtils.getWindowStart(15L, 3L, 10L));
+
+        Downsample downsample = new Downsample(EmptySource.EMPTY_SOURCE, 10L,
+            functionCall(Avg.getInstance(), "a.b"), new TimeRange(0L, 100L));
+        TimeInterval fragmentInterval = new TimeInterval(50L, Long.MAX_VALUE);
+
+        TimeRange range = AggregatePushDownUtils.getPushDownTimeRange(fragmentInterval, downsample, null);
+        assertEquals(50L, range.getBeginTime());
+        assertEquals(100L, range.getEndTime());
+
+        Select select = new Select(EmptySource.EMPTY_SOURCE,
+            new AndFilter(Arrays.asList(new TimeFilter(Op.G, 60L), new TimeFilter(Op.LE, 80L))), null);
+        assertTrue(AggregatePushDownUtils.isTimeRangeFilter(select.getFilter()));
+        range = AggregatePushDownUtils.getPushDownTimeRange(fragmentInterval, downsample, select);
+        assertEquals(61L, range.getBeginTime());
+        assertEquals(81L, range.getEndTime());
+
+        assertNull(AggregatePushDownUtils.getPushDownTimeRange(new TimeInterval(100L, 200L), downsample, null));
+        assertFalse(AggregatePushDownUtils.isTimeRangeFilter(new ValueFilter("a.b", Op.G, new Value(1L))));
+    }
+
+}
@@ -0,0 +1,89 @@
+package cn.edu.tsinghua.iginx.engine.physical.task;
+
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
+import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskCancelledException;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractPhysicalTaskTest {
+
+    private static class CountingRowStream implements RowStream {
+
+        private int closeCount = 0;
+
+        @Override
+        public Header getHeader() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closeCount++;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public Row next() {
+            return null;
+        }
+    }
+
+    private static PhysicalTask newTask() {
+        return new StoragePhysicalTask(Collections.emptyList(), null, true, false);
+    }
+
+    @Test
+    public void testSetResult() {
+        PhysicalTask task = newTask();
+        CountingRowStream stream = new CountingRowStream();
+        task.setResult(new TaskExecuteResult(stream));
+        assertTrue(task.getResultFuture().isDone());
+        assertSame(stream, task.getResult().getRowStream());
+        assertFalse(task.isCancelled());
+
+        // 已完成的任务再取消不会覆盖结果
+        task.cancel(new PhysicalTaskCancelledException("cancelled"));
+        assertSame(stream, task.getResult().getRowStream());
+        assertEquals(0, stream.closeCount);
+    }
+
+    @Test
+    public void testCancelBeforeResult() {
+        PhysicalTask task = newTask();
+        AtomicInteger hookCount = new AtomicInteger();
+        task.addCancelHook(hookCount::incrementAndGet);
+
+        PhysicalException reason = new PhysicalTaskCancelledException("cancelled");
+        task.cancel(reason);
+        assertTrue(task.isCancelled());
+        assertEquals(1, hookCount.get());
+        assertSame(reason, task.getResult().getException());
+        assertNull(task.getResult().getRowStream());
+
+        // 取消后产生的结果没有消费者，需要被释放
+        CountingRowStream stream = new CountingRowStream();
+        task.setResult(new TaskExecuteResult(stream));
+        assertEquals(1, stream.closeCount);
+        assertSame(reason, task.getResult().getException());
+
+        // 取消后注册的回调立即执行
+        task.addCancelHook(hookCount::incrementAndGet);
+        assertEquals(2, hookCount.get());
+    }
+
+}
@@ -0,0 +1,178 @@
+package cn.edu.tsinghua.iginx.engine.shared.data.write;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.utils.Bitmap;
+import cn.edu.tsinghua.iginx.utils.ByteUtils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RawDataTest {
+
+    private static final List<DataType> TYPES = Arrays.asList(DataType.BOOLEAN, DataType.INTEGER, DataType.LONG,
+        DataType.FLOAT, DataType.DOUBLE, DataType.BINARY);
+
+    private static final List<String> PATHS = Arrays.asList("a.a", "a.b", "a.c", "a.d", "a.e", "a.f");
+
+    private static final int TIME_SIZE = 20;
+
+    private final Random random = new Random(7);
+
+    private Object randomValue(DataType type) {
+        if (random.nextInt(4) == 0) {
+            return null;
+        }
+        switch (type) {
+            case BOOLEAN:
+                return random.nextBoolean();
+            case INTEGER:
+                return random.nextInt();
+            case LONG:
+                return random.nextLong();
+            case FLOAT:
+                return random.nextFloat();
+            case DOUBLE:
+                return random.nextDouble();
+            default:
+                byte[] bytes = new byte[random.nextInt(5)];
+                random.nextBytes(bytes);
+                return bytes;
+        }
+    }
+
+    private static List<Long> timestamps() {
+        List<Long> timestamps = new ArrayList<>();
+        for (int i = 0; i < TIME_SIZE; i++) {
+            timestamps.add(100L + i);
+        }
+        return timestamps;
+    }
+
+    private static long[] toArray(List<Long> list) {
+        return list.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Object[] nonNull(Object[] values) {
+        return Arrays.stream(values).filter(v -> v != null).toArray();
+    }
+
+    // 缓冲区不从 0 开始时也能正确读取
+    private static ByteBuffer shift(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining() + 3];
+        buffer.get(bytes, 3, buffer.remaining());
+        return ByteBuffer.wrap(bytes, 3, bytes.length - 3);
+    }
+
+    private static void assertSameValue(DataView expected, DataView actual, int index1, int index2, DataType type) {
+        switch (type) {
+            case BOOLEAN:
+                assertEquals(expected.getValue(index1, index2), actual.getBoolean(index1, index2));
+                break;
+            case INTEGER:
+                assertEquals(expected.getValue(index1, index2), actual.getInt(index1, index2));
+                break;
+            case LONG:
+                assertEquals(expected.getValue(index1, index2), actual.getLong(index1, index2));
+                break;
+            case FLOAT:
+                assertEquals(expected.getValue(index1, index2), actual.getFloat(index1, index2));
+                break;
+            case DOUBLE:
+                assertEquals(expected.getValue(index1, index2), actual.getDouble(index1, index2));
+                break;
+            default:
+                assertArrayEquals((byte[]) expected.getValue(index1, index2), actual.getBinary(index1, index2));
+                assertArrayEquals((byte[]) expected.getValue(index1, index2), (byte[]) actual.getValue(index1, index2));
+                return;
+        }
+        assertEquals(expected.getValue(index1, index2), actual.getValue(index1, index2));
+    }
+
+    @Test
+    public void testColumnData() {
+        Object[] valuesList = new Object[PATHS.size()];
+        List<ByteBuffer> buffers = new ArrayList<>();
+        List<Bitmap> bitmaps = new ArrayList<>();
+        for (int i = 0; i < PATHS.size(); i++) {
+            Object[] values = new Object[TIME_SIZE];
+            Bitmap bitmap = new Bitmap(TIME_SIZE);
+            for (int j = 0; j < TIME_SIZE; j++) {
+                values[j] = randomValue(TYPES.get(i));
+                if (values[j] != null) {
+                    bitmap.mark(j);
+                }
+            }
+            valuesList[i] = nonNull(values);
+            buffers.add(shift(ByteUtils.getColumnByteBuffer(values, TYPES.get(i))));
+            bitmaps.add(bitmap);
+        }
+        RawData decoded = new RawData(PATHS, Collections.emptyList(), timestamps(), valuesList, TYPES, bitmaps, RawDataType.Column);
+        RawData buffered = new RawData(PATHS, Collections.emptyList(), toArray(timestamps()), buffers, TYPES, bitmaps, RawDataType.Column);
+        assertTrue(buffered.isBuffered());
+
+        DataView expected = new ColumnDataView(decoded, 1, 6, 3, 17);
+        DataView actual = new ColumnDataView(buffered, 1, 6, 3, 17);
+        for (int i = 0; i < actual.getPathNum(); i++) {
+            BitmapView bitmapView = actual.getBitmapView(i);
+            int index = 0;
+            for (int j = 0; j < actual.getTimeSize(); j++) {
+                assertEquals(expected.getTimestamp(j), actual.getTimestamp(j));
+                if (bitmapView.get(j)) {
+                    assertSameValue(expected, actual, i, index, actual.getDataType(i));
+                    index++;
+                }
+            }
+        }
+        assertEquals(decoded.getTimestamps(), buffered.getTimestamps());
+        for (int i = 0; i < PATHS.size(); i++) {
+            Object[] values = (Object[]) decoded.getValuesList()[i];
+            assertEquals(values.length, ((Object[]) buffered.getValuesList()[i]).length);
+        }
+    }
+
+    @Test
+    public void testRowData() {
+        Object[] valuesList = new Object[TIME_SIZE];
+        List<ByteBuffer> buffers = new ArrayList<>();
+        List<Bitmap> bitmaps = new ArrayList<>();
+        for (int i = 0; i < TIME_SIZE; i++) {
+            Object[] values = new Object[PATHS.size()];
+            Bitmap bitmap = new Bitmap(PATHS.size());
+            for (int j = 0; j < PATHS.size(); j++) {
+                values[j] = randomValue(TYPES.get(j));
+                if (values[j] != null) {
+                    bitmap.mark(j);
+                }
+            }
+            valuesList[i] = nonNull(values);
+            buffers.add(shift(ByteUtils.getRowByteBuffer(values, TYPES)));
+            bitmaps.add(bitmap);
+        }
+        RawData decoded = new RawData(PATHS, Collections.emptyList(), timestamps(), valuesList, TYPES, bitmaps, RawDataType.Row);
+        RawData buffered = new RawData(PATHS, Collections.emptyList(), toArray(timestamps()), buffers, TYPES, bitmaps, RawDataType.Row);
+
+        DataView expected = new RowDataView(decoded, 2, 5, 4, 19);
+        DataView actual = new RowDataView(buffered, 2, 5, 4, 19);
+        for (int i = 0; i < actual.getTimeSize(); i++) {
+            assertEquals(expected.getTimestamp(i), actual.getTimestamp(i));
+            BitmapView bitmapView = actual.getBitmapView(i);
+            int index = 0;
+            for (int j = 0; j < actual.getPathNum(); j++) {
+                if (bitmapView.get(j)) {
+                    assertSameValue(expected, actual, i, index, actual.getDataType(j));
+                    index++;
+                }
+            }
+        }
+    }
+
+}
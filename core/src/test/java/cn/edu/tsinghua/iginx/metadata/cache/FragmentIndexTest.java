@@ -0,0 +1,141 @@
+package cn.edu.tsinghua.iginx.metadata.cache;
+
+import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
+import cn.edu.tsinghua.iginx.metadata.entity.TimeSeriesInterval;
+import cn.edu.tsinghua.iginx.utils.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FragmentIndexTest {
+
+    private static final String[] PREFIXES = new String[]{"a", "a.b", "a.c", "b", "b.a", "c", "c.d.e", "d"};
+
+    // 逐个扫描的参照实现
+    private static List<TimeSeriesInterval> scan(List<TimeSeriesInterval> sortedList, TimeSeriesInterval tsInterval) {
+        List<TimeSeriesInterval> resultList = new ArrayList<>();
+        for (TimeSeriesInterval interval : sortedList) {
+            if (interval.isCompletelyAfter(tsInterval)) {
+                break;
+            }
+            if (interval.isIntersect(tsInterval)) {
+                resultList.add(interval);
+            }
+        }
+        return resultList;
+    }
+
+    private static List<TimeSeriesInterval> scan(List<TimeSeriesInterval> sortedList, String tsName) {
+        List<TimeSeriesInterval> resultList = new ArrayList<>();
+        for (TimeSeriesInterval interval : sortedList) {
+            if (interval.isAfter(tsName)) {
+                break;
+            }
+            if (interval.isContain(tsName)) {
+                resultList.add(interval);
+            }
+        }
+        return resultList;
+    }
+
+    private static String randomPrefix(Random random) {
+        return random.nextInt(5) == 0 ? null : PREFIXES[random.nextInt(PREFIXES.length)];
+    }
+
+    private static List<TimeSeriesInterval> keys(List<Pair<TimeSeriesInterval, List<FragmentMeta>>> list) {
+        return list.stream().map(e -> e.k).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSearchMatchesScan() {
+        Random random = new Random(0);
+        FragmentIndex index = new FragmentIndex();
+        List<TimeSeriesInterval> sortedList = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String start = randomPrefix(random);
+            String end = randomPrefix(random);
+            if (start != null && end != null && start.compareTo(end) >= 0) {
+                continue;
+            }
+            TimeSeriesInterval tsInterval = new TimeSeriesInterval(start, end);
+            if (sortedList.contains(tsInterval)) {
+                continue;
+            }
+            sortedList.add(tsInterval);
+            index.addFragment(new FragmentMeta(start, end, 0L, Long.MAX_VALUE));
+        }
+        sortedList.sort(TimeSeriesInterval::compareTo);
+        assertEquals(sortedList, keys(index.getFragmentSeriesList()));
+
+        for (int i = 0; i < 500; i++) {
+            String start = randomPrefix(random);
+            String end = randomPrefix(random);
+            if (start != null && random.nextBoolean()) {
+                start = start + ".*";
+            }
+            if (end != null && random.nextBoolean()) {
+                end = end + ".*";
+            }
+            TimeSeriesInterval query = new TimeSeriesInterval(start, end);
+            assertEquals(scan(sortedList, query), keys(index.searchFragmentSeriesList(query)));
+
+            String tsName = PREFIXES[random.nextInt(PREFIXES.length)] + (random.nextBoolean() ? ".*" : ".x");
+            assertEquals(scan(sortedList, tsName), keys(index.searchFragmentSeriesList(tsName)));
+        }
+    }
+
+    @Test
+    public void testSearchFragmentList() {
+        List<FragmentMeta> fragments = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            fragments.add(new FragmentMeta(null, null, i * 10, i == 9 ? Long.MAX_VALUE : (i + 1) * 10));
+        }
+        List<FragmentMeta> resultList = FragmentIndex.searchFragmentList(fragments, new TimeInterval(25L, 40L));
+        assertEquals(3, resultList.size());
+        assertEquals(20L, resultList.get(0).getTimeInterval().getStartTime());
+        assertEquals(40L, resultList.get(2).getTimeInterval().getStartTime());
+
+        resultList = FragmentIndex.searchFragmentList(fragments, new TimeInterval(1000L, 2000L));
+        assertEquals(1, resultList.size());
+        assertEquals(90L, resultList.get(0).getTimeInterval().getStartTime());
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        FragmentIndex index = new FragmentIndex();
+        Map<TimeSeriesInterval, List<FragmentMeta>> fragmentListMap = new HashMap<>();
+        List<FragmentMeta> fragments = new ArrayList<>();
+        fragments.add(new FragmentMeta("a", "b", 10L, Long.MAX_VALUE));
+        fragments.add(new FragmentMeta("a", "b", 0L, 10L));
+        fragmentListMap.put(new TimeSeriesInterval("a", "b"), fragments);
+        index.init(fragmentListMap);
+
+        List<FragmentMeta> before = index.searchFragmentSeriesList("a.c").get(0).v;
+        assertEquals(0L, before.get(0).getTimeInterval().getStartTime());
+
+        index.updateLatestFragment(new FragmentMeta("a", "b", 10L, 20L));
+        index.addFragment(new FragmentMeta("a", "b", 20L, Long.MAX_VALUE));
+        index.addFragment(new FragmentMeta("b", null, 20L, Long.MAX_VALUE));
+
+        // 已返回给读者的列表不受后续写入影响
+        assertEquals(2, before.size());
+        assertEquals(Long.MAX_VALUE, before.get(1).getTimeInterval().getEndTime());
+
+        List<FragmentMeta> after = index.searchFragmentSeriesList("a.c").get(0).v;
+        assertEquals(3, after.size());
+        assertEquals(20L, after.get(1).getTimeInterval().getEndTime());
+
+        assertEquals(2, index.removeFirstFragments(0L).size() + index.removeFirstFragments(20L).size());
+        assertEquals(2, index.getFragmentCount());
+        assertTrue(index.searchFragmentSeriesList("b.c").get(0).v.isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+package cn.edu.tsinghua.iginx.metadata.storage.file;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetaLogTest {
+
+    private static final String NAME = "test";
+
+    // 记录内容为 "key value"
+    private static MetaLog open(Path dir, int compactThreshold) throws IOException {
+        return new MetaLog(dir, NAME, e -> e.split(" ", 2)[0], compactThreshold);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        Path dir = Files.createTempDirectory("meta");
+        try {
+            MetaLog log = open(dir, 100);
+            assertTrue(log.isEmpty());
+            log.update("a", "a 1");
+            log.update("b", "b 1");
+            log.update("a", "a 2");
+            log.update("c", "c 1");
+            log.remove("b");
+            log.close();
+
+            log = open(dir, 100);
+            // 按最后一次更新的顺序排列
+            assertEquals(Arrays.asList("a 2", "c 1"), log.values());
+            assertFalse(Files.exists(dir.resolve(NAME + ".snapshot")));
+            log.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        Path dir = Files.createTempDirectory("meta");
+        try {
+            MetaLog log = open(dir, 10);
+            for (int i = 0; i < 25; i++) {
+                log.update("k" + (i % 5), "k" + (i % 5) + " " + i);
+            }
+            log.remove("k0");
+            assertTrue(Files.exists(dir.resolve(NAME + ".snapshot")));
+            assertEquals(6, Files.readAllLines(dir.resolve(NAME + ".log")).size());
+            log.close();
+
+            log = open(dir, 10);
+            assertEquals(Arrays.asList("k1 21", "k2 22", "k3 23", "k4 24"), log.values());
+            log.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testLegacyLogAndTornRecord() throws IOException {
+        Path dir = Files.createTempDirectory("meta");
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                builder.append("update k").append(i % 3).append(" ").append(i).append("\n");
+            }
+            // 最后一行只写入了一部分
+            builder.append("update k0 10");
+            Files.write(dir.resolve(NAME + ".log"), builder.toString().getBytes(StandardCharsets.UTF_8));
+
+            // 启动时日志超过阈值，合并为快照并清空日志
+            MetaLog log = open(dir, 10);
+            assertEquals(Arrays.asList("k2 17", "k0 18", "k1 19"), log.values());
+            assertEquals(0L, Files.size(dir.resolve(NAME + ".log")));
+            log.update("k3", "k3 0");
+            log.close();
+
+            log = open(dir, 10);
+            assertEquals(Arrays.asList("k2 17", "k0 18", "k1 19", "k3 0"), log.values());
+            log.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testCorruptedSnapshot() throws IOException {
+        Path dir = Files.createTempDirectory("meta");
+        try {
+            MetaLog log = open(dir, 2);
+            log.update("a", "a 1");
+            log.update("b", "b 1");
+            log.close();
+            Path snapshot = dir.resolve(NAME + ".snapshot");
+            byte[] bytes = Files.readAllBytes(snapshot);
+            bytes[bytes.length - 10] ^= 1;
+            Files.write(snapshot, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+            boolean failed = false;
+            try {
+                open(dir, 2);
+            } catch (IOException e) {
+                failed = true;
+            }
+            assertTrue(failed);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        Path dir = Files.createTempDirectory("meta");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            MetaLog log = open(dir, 50);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread * 100;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        log.update("k" + (offset + i), "k" + (offset + i) + " " + i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(800, log.values().size());
+            log.close();
+
+            MetaLog reopened = open(dir, 50);
+            assertEquals(new HashSet<>(log.values()), new HashSet<>(reopened.values()));
+            reopened.close();
+        } finally {
+            executor.shutdown();
+            delete(dir);
+        }
+    }
+
+}
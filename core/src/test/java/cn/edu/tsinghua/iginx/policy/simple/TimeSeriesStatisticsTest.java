@@ -0,0 +1,55 @@
+package cn.edu.tsinghua.iginx.policy.simple;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeSeriesStatisticsTest {
+
+    @Test
+    public void testSnapshotMatchesMerge() {
+        TimeSeriesStatistics statistics = new TimeSeriesStatistics("a.b.c");
+        TimeSeriesCalDO expected = new TimeSeriesCalDO();
+        expected.setTimeSeries("a.b.c");
+
+        statistics.update(100L, 10L, 20L, 3, 24L);
+        expected.merge(100L, 10L, 20L, 3, 24L);
+        statistics.update(200L, 5L, 15L, 2, 16L);
+        expected.merge(200L, 5L, 15L, 2, 16L);
+
+        TimeSeriesCalDO snapshot = statistics.snapshot();
+        assertEquals(expected, snapshot);
+        assertEquals(expected.getValue(), snapshot.getValue(), 1e-9);
+    }
+
+    @Test
+    public void testConcurrentUpdate() throws Exception {
+        TimeSeriesStatistics statistics = new TimeSeriesStatistics("a.b.c");
+        int threadNum = 8;
+        int updateNum = 10000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadNum; i++) {
+            int offset = i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < updateNum; j++) {
+                    statistics.update(j, offset * updateNum + j, offset * updateNum + j, 1, 8L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        TimeSeriesCalDO snapshot = statistics.snapshot();
+        assertEquals(threadNum * updateNum, (int) snapshot.getCount());
+        assertEquals(8L * threadNum * updateNum, (long) snapshot.getTotalByte());
+        assertEquals(0L, (long) snapshot.getFirstTimestamp());
+        assertEquals((long) threadNum * updateNum - 1, (long) snapshot.getLastTimestamp());
+        assertEquals(updateNum - 1, (long) snapshot.getRecentTimeStamp());
+    }
+}
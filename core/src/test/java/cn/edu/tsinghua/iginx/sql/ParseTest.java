@@ -150,16 +150,27 @@ public class ParseTest {
 
         String orderBy = "SELECT a FROM test ORDER BY timestamp";
         statement = (SelectStatement) TestUtils.buildStatement(orderBy);
-        assertEquals(SQLConstant.TIME, statement.getOrderByPath());
-        assertTrue(statement.isAscending());
+        assertEquals(Collections.singletonList(SQLConstant.TIME), statement.getOrderByPaths());
+        assertEquals(Collections.singletonList(true), statement.getAscendingList());
 
         String orderByAndLimit = "SELECT a FROM test ORDER BY test.a DESC LIMIT 10 OFFSET 5;";
         statement = (SelectStatement) TestUtils.buildStatement(orderByAndLimit);
-        assertEquals("test.a", statement.getOrderByPath());
-        assertFalse(statement.isAscending());
+        assertEquals(Collections.singletonList("test.a"), statement.getOrderByPaths());
+        assertEquals(Collections.singletonList(false), statement.getAscendingList());
         assertEquals(5, statement.getOffset());
         assertEquals(10, statement.getLimit());
 
+        String multiOrderBy = "SELECT a, b FROM test ORDER BY test.a DESC, test.b, TIME DESC;";
+        statement = (SelectStatement) TestUtils.buildStatement(multiOrderBy);
+        assertEquals(Arrays.asList("test.a", "test.b", SQLConstant.TIME), statement.getOrderByPaths());
+        assertEquals(Arrays.asList(false, true, false), statement.getAscendingList());
+
+        String orderByAggregate = "SELECT max(a) FROM test GROUP [0, 100) BY 10ms ORDER BY max(test.a) DESC LIMIT 3;";
+        statement = (SelectStatement) TestUtils.buildStatement(orderByAggregate);
+        assertEquals(Collections.singletonList("max(test.a)"), statement.getOrderByPaths());
+        assertEquals(Collections.singletonList(false), statement.getAscendingList());
+        assertEquals(3, statement.getLimit());
+
         String groupBy = "SELECT max(a) FROM test GROUP (10, 120] BY 5ms";
         statement = (SelectStatement) TestUtils.buildStatement(groupBy);
 
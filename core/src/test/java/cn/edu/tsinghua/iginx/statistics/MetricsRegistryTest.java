@@ -0,0 +1,55 @@
+package cn.edu.tsinghua.iginx.statistics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testHistogramQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000L * 10001 / 2, histogram.getSum());
+        assertEquals(10000, histogram.getMax());
+        // 分桶的相对误差不超过 1/32
+        for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+            long expected = (long) (quantile * 10000);
+            long actual = histogram.getValueAtQuantile(quantile);
+            assertTrue(actual >= expected && actual <= expected + expected / 32 + 1);
+        }
+        assertEquals(10000, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testPrometheusText() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.describe("test_latency_seconds", "Test latency.");
+        registry.histogram("test_latency_seconds", "stage", "parse").record(2_000_000);
+        registry.counter("test_points_total").add(3);
+        registry.gauge(() -> 7, "test_depth", "unit", "a\"b");
+
+        String text = registry.toPrometheusText();
+        assertTrue(text.contains("# HELP test_latency_seconds Test latency.\n# TYPE test_latency_seconds summary\n"));
+        assertTrue(text.contains("test_latency_seconds{stage=\"parse\",quantile=\"0.5\"} 2\n"));
+        assertTrue(text.contains("test_latency_seconds_count{stage=\"parse\"} 1\n"));
+        assertTrue(text.contains("# TYPE test_points_total counter\ntest_points_total 3\n"));
+        assertTrue(text.contains("test_depth{unit=\"a\\\"b\"} 7\n"));
+    }
+
+}
@@ -0,0 +1,70 @@
+package cn.edu.tsinghua.iginx.transform.data;
+
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.transform.api.Reader;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchReaderTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Collections.singletonList(new Field("a", DataType.LONG)));
+
+    @Test
+    public void testReadInOrder() {
+        BatchData batchData = new BatchData(HEADER);
+        for (long t = 0; t < 10; t++) {
+            batchData.appendRow(new Row(HEADER, t, new Object[]{t}));
+        }
+        PrefetchReader reader = new PrefetchReader(new SplitReader(batchData, 3), 1);
+        long timestamp = 0;
+        int batches = 0;
+        while (reader.hasNextBatch()) {
+            for (Row row : reader.loadNextBatch().getRowList()) {
+                assertEquals(timestamp++, row.getTimestamp());
+            }
+            batches++;
+        }
+        assertEquals(10, timestamp);
+        assertEquals(4, batches);
+        assertNull(reader.loadNextBatch());
+        reader.close();
+    }
+
+    @Test
+    public void testCloseWhilePrefetching() throws InterruptedException {
+        boolean[] closed = new boolean[]{false};
+        Reader endless = new Reader() {
+            @Override
+            public boolean hasNextBatch() {
+                return true;
+            }
+
+            @Override
+            public BatchData loadNextBatch() {
+                return new BatchData(HEADER);
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        PrefetchReader reader = new PrefetchReader(endless, 2);
+        assertTrue(reader.hasNextBatch());
+        // 队列已满，后台线程阻塞在 put 上
+        Thread.sleep(50);
+        assertFalse(closed[0]);
+        reader.close();
+        assertTrue(closed[0]);
+    }
+
+}
@@ -0,0 +1,86 @@
+package cn.edu.tsinghua.iginx.transform.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArrowChannelTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Arrays.asList(
+        new Field("a.long", DataType.LONG),
+        new Field("a.str", DataType.BINARY)
+    ));
+
+    private static List<Row> rows(long startTime, int size) {
+        Row[] rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            long t = startTime + i;
+            rows[i] = new Row(HEADER, t, new Object[]{t % 2 == 0 ? null : t, ("s" + t).getBytes()});
+        }
+        return Arrays.asList(rows);
+    }
+
+    private static void assertRows(List<Row> expected, Table actual) {
+        for (Row expectedRow : expected) {
+            Row actualRow = actual.next();
+            assertEquals(expectedRow.getTimestamp(), actualRow.getTimestamp());
+            assertEquals(expectedRow.getValue(0), actualRow.getValue(0));
+            assertArrayEquals((byte[]) expectedRow.getValue(1), (byte[]) actualRow.getValue(1));
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    @Test
+    public void testSchemaSentOnce() throws IOException {
+        try (ArrowChannel sender = new ArrowChannel(); ArrowChannel receiver = new ArrowChannel()) {
+            byte[] first = sender.write(HEADER, rows(0, 4));
+            assertRows(rows(0, 4), receiver.read(first));
+
+            // 表头不变时只发送 record batch，接收方沿用之前的 schema，发送方复用向量
+            byte[] second = sender.write(HEADER, rows(4, 4));
+            assertTrue(second.length < first.length);
+            Table table = receiver.read(second);
+            assertTrue(table.getHeader().hasTimestamp());
+            assertEquals(HEADER.getFields(), table.getHeader().getFields());
+            assertRows(rows(4, 4), table);
+
+            // 更大的批次
+            assertRows(rows(8, 100), receiver.read(sender.write(HEADER, rows(8, 100))));
+        }
+    }
+
+    @Test
+    public void testSchemaChange() throws IOException {
+        try (ArrowChannel sender = new ArrowChannel(); ArrowChannel receiver = new ArrowChannel()) {
+            receiver.read(sender.write(HEADER, rows(0, 2)));
+            Header header = new Header(Collections.singletonList(new Field("b.double", DataType.DOUBLE)));
+            Table table = receiver.read(sender.write(header, Collections.singletonList(new Row(header, new Object[]{1.5}))));
+            assertFalse(table.getHeader().hasTimestamp());
+            assertEquals(header.getFields(), table.getHeader().getFields());
+            assertEquals(1.5, table.next().getValue(0));
+            assertFalse(table.hasNext());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testBatchWithoutSchema() throws IOException {
+        try (ArrowChannel sender = new ArrowChannel(); ArrowChannel receiver = new ArrowChannel()) {
+            sender.write(HEADER, rows(0, 2));
+            receiver.read(sender.write(HEADER, rows(2, 2)));
+        }
+    }
+
+}
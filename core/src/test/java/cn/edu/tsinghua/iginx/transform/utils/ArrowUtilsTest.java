@@ -0,0 +1,61 @@
+package cn.edu.tsinghua.iginx.transform.utils;
+
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ArrowUtilsTest {
+
+    private static final Header HEADER = new Header(Field.TIME, Arrays.asList(
+        new Field("a.long", DataType.LONG),
+        new Field("a.str", DataType.BINARY),
+        new Field("a.double", DataType.DOUBLE)
+    ));
+
+    private static final List<Row> ROWS = Arrays.asList(
+        new Row(HEADER, 1, new Object[]{1L, "x".getBytes(), 1.5}),
+        new Row(HEADER, 2, new Object[]{null, "y".getBytes(), null}),
+        new Row(HEADER, 3, new Object[]{3L, null, 3.5})
+    );
+
+    @Test
+    public void testEncodeAndDecode() throws IOException {
+        Table table = ArrowUtils.decode(ArrowUtils.encode(HEADER, ROWS, Arrays.asList(0, 1, 2), true));
+        Header header = table.getHeader();
+        assertTrue(header.hasTimestamp());
+        assertEquals(3, header.getFieldSize());
+        assertEquals(DataType.BINARY, header.getField(1).getType());
+        for (Row expected : ROWS) {
+            Row actual = table.next();
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getValue(0), actual.getValue(0));
+            assertArrayEquals((byte[]) expected.getValue(1), (byte[]) actual.getValue(1));
+            assertEquals(expected.getValue(2), actual.getValue(2));
+        }
+        assertFalse(table.hasNext());
+    }
+
+    @Test
+    public void testEncodeSelectedColumns() throws IOException {
+        Table table = ArrowUtils.decode(ArrowUtils.encode(HEADER, ROWS, Collections.singletonList(2), false));
+        assertFalse(table.getHeader().hasTimestamp());
+        assertEquals(Collections.singletonList(new Field("a.double", DataType.DOUBLE)), table.getHeader().getFields());
+        assertEquals(1.5, table.next().getValue(0));
+        assertNull(table.next().getValue(0));
+    }
+
+}
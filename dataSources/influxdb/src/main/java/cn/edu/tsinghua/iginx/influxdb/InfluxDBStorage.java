@@ -22,20 +22,36 @@ import cn.edu.tsinghua.iginx.engine.physical.exception.NonExecutablePhysicalTask
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.StorageInitializationException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.Timeseries;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils.AggregateColumn;
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.TaskExecuteResult;
 import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.engine.shared.function.FunctionCall;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Count;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.FirstValue;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.LastValue;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Max;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Min;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Sum;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Delete;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Select;
 import cn.edu.tsinghua.iginx.engine.shared.operator.tag.TagFilter;
 import cn.edu.tsinghua.iginx.influxdb.query.entity.InfluxDBHistoryQueryRowStream;
 import cn.edu.tsinghua.iginx.influxdb.query.entity.InfluxDBQueryRowStream;
@@ -46,6 +62,7 @@ import cn.edu.tsinghua.iginx.metadata.entity.FragmentMeta;
 import cn.edu.tsinghua.iginx.metadata.entity.StorageEngineMeta;
 import cn.edu.tsinghua.iginx.metadata.entity.TimeInterval;
 import cn.edu.tsinghua.iginx.metadata.entity.TimeSeriesInterval;
+import cn.edu.tsinghua.iginx.thrift.DataType;
 import cn.edu.tsinghua.iginx.utils.Pair;
 import cn.edu.tsinghua.iginx.utils.StringUtils;
 import com.influxdb.client.InfluxDBClient;
@@ -68,6 +85,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import static cn.edu.tsinghua.iginx.influxdb.tools.DataTypeTransformer.fromInfluxDB;
 import static com.influxdb.client.domain.WritePrecision.MS;
 
 public class InfluxDBStorage implements IStorage {
@@ -84,6 +102,20 @@ public class InfluxDBStorage implements IStorage {
 
     private static final String DELETE_DATA = "_measurement=\"%s\" AND _field=\"%s\"";
 
+    private static final String AGGREGATE_WINDOW = " |> aggregateWindow(every: %dms, offset: %dms, fn: %s, timeSrc: \"_start\", createEmpty: false)";
+
+    private static final Map<String, String> AGGREGATE_FUNCTIONS = new HashMap<>();
+
+    static {
+        AGGREGATE_FUNCTIONS.put(Avg.AVG, "mean");
+        AGGREGATE_FUNCTIONS.put(Count.COUNT, "count");
+        AGGREGATE_FUNCTIONS.put(Sum.SUM, "sum");
+        AGGREGATE_FUNCTIONS.put(Max.MAX, "max");
+        AGGREGATE_FUNCTIONS.put(Min.MIN, "min");
+        AGGREGATE_FUNCTIONS.put(FirstValue.FIRST_VALUE, "first");
+        AGGREGATE_FUNCTIONS.put(LastValue.LAST_VALUE, "last");
+    }
+
     private final StorageEngineMeta meta;
 
     private final InfluxDBClient client;
@@ -195,7 +227,8 @@ public class InfluxDBStorage implements IStorage {
     @Override
     public TaskExecuteResult execute(StoragePhysicalTask task) {
         List<Operator> operators = task.getOperators();
-        if (operators.size() != 1) {
+        Operator aggregate = AggregatePushDownUtils.getAggregateOperator(operators);
+        if (operators.size() != 1 && aggregate == null) {
             return new TaskExecuteResult(new NonExecutablePhysicalTaskException("unsupported physical task"));
         }
         FragmentMeta fragment = task.getTargetFragment();
@@ -204,6 +237,9 @@ public class InfluxDBStorage implements IStorage {
         boolean isDummyStorageUnit = task.isDummyStorageUnit();
         if (op.getType() == OperatorType.Project) { // 目前只实现 project 操作符
             Project project = (Project) op;
+            if (aggregate != null) {
+                return executeAggregateTask(fragment.getTimeInterval(), storageUnit, project, AggregatePushDownUtils.getSelectOperator(operators), aggregate);
+            }
             return isDummyStorageUnit ? executeHistoryProjectTask(fragment.getTimeInterval(), project) : executeProjectTask(fragment.getTimeInterval(), fragment.getTsInterval(), storageUnit, project);
         } else if (op.getType() == OperatorType.Insert) {
             Insert insert = (Insert) op;
@@ -215,6 +251,115 @@ public class InfluxDBStorage implements IStorage {
         return new TaskExecuteResult(new NonExecutablePhysicalTaskException("unsupported physical task"));
     }
 
+    @Override
+    public Set<String> getSupportedAggregateFunctions() {
+        return AGGREGATE_FUNCTIONS.keySet();
+    }
+
+    @Override
+    public boolean isSupportDownsample(long precision) {
+        return precision > 0;
+    }
+
+    private TaskExecuteResult executeAggregateTask(TimeInterval timeInterval, String storageUnit, Project project, Select select, Operator aggregate) {
+        boolean isDownsample = aggregate.getType() == OperatorType.Downsample;
+        List<FunctionCall> functionCallList = AggregatePushDownUtils.getFunctionCallList(aggregate);
+        TimeRange range = AggregatePushDownUtils.getPushDownTimeRange(timeInterval, aggregate, select);
+
+        // 每个函数一条 flux 查询，结果按序列路径组织
+        Map<String, Map<String, FluxTable>> results = new HashMap<>();
+        Map<String, DataType> rawTypes = new LinkedHashMap<>();
+        if (range != null && client.getBucketsApi().findBucketByName(storageUnit) != null) {
+            String statement = generateQueryStatement(storageUnit, project.getPatterns(), project.getTagFilter(), range.getBeginTime(), range.getEndTime());
+            for (FunctionCall functionCall : functionCallList) {
+                String identifier = functionCall.getFunction().getIdentifier();
+                if (results.containsKey(identifier)) {
+                    continue;
+                }
+                String query = statement;
+                if (isDownsample) {
+                    Downsample downsample = (Downsample) aggregate;
+                    long precision = downsample.getPrecision();
+                    query += String.format(AGGREGATE_WINDOW, precision, Math.floorMod(downsample.getTimeRange().getBeginTime(), precision), AGGREGATE_FUNCTIONS.get(identifier));
+                } else {
+                    query += " |> " + AGGREGATE_FUNCTIONS.get(identifier) + "()";
+                }
+                logger.info("execute aggregate query: " + query);
+                Map<String, FluxTable> tables = new HashMap<>();
+                for (FluxTable table : client.getQueryApi().query(query, organization.getId())) {
+                    if (table.getRecords().isEmpty()) {
+                        continue;
+                    }
+                    String path = getPath(table.getRecords().get(0));
+                    tables.put(path, table);
+                    // mean 与 count 的结果类型与原始序列不同，只在没有其他函数时作为原始类型
+                    DataType dataType = fromInfluxDB(table.getColumns().stream().filter(x -> x.getLabel().equals("_value")).collect(Collectors.toList()).get(0).getDataType());
+                    if (!rawTypes.containsKey(path) || (!identifier.equals(Avg.AVG) && !identifier.equals(Count.COUNT))) {
+                        rawTypes.put(path, dataType);
+                    }
+                }
+                results.put(identifier, tables);
+            }
+        }
+
+        List<Field> rawFields = new ArrayList<>();
+        rawTypes.forEach((path, dataType) -> rawFields.add(new Field(path, dataType)));
+        List<AggregateColumn> columns;
+        try {
+            columns = AggregatePushDownUtils.resolveColumns(functionCallList, rawFields);
+        } catch (IllegalArgumentException e) {
+            return new TaskExecuteResult(new PhysicalTaskExecuteFailureException("execute aggregate task in influxdb failure", e));
+        }
+        List<Field> fields = columns.stream().map(AggregateColumn::getField).collect(Collectors.toList());
+        List<Row> rows = new ArrayList<>();
+        if (!isDownsample) {
+            Header header = new Header(fields);
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                AggregateColumn column = columns.get(i);
+                FluxTable table = results.get(column.getIdentifier()).get(rawFields.get(column.getRawIndex()).getName());
+                if (table != null) {
+                    values[i] = AggregatePushDownUtils.castValue(table.getRecords().get(0).getValue(), column.getField().getType());
+                }
+            }
+            rows.add(new Row(header, values));
+            return new TaskExecuteResult(new Table(header, rows));
+        }
+
+        Header header = new Header(Field.TIME, fields);
+        Downsample downsample = (Downsample) aggregate;
+        int columnSize = columns.size();
+        TreeMap<Long, Object[]> windows = new TreeMap<>();
+        for (int i = 0; i < columnSize; i++) {
+            AggregateColumn column = columns.get(i);
+            FluxTable table = results.get(column.getIdentifier()).get(rawFields.get(column.getRawIndex()).getName());
+            if (table == null) {
+                continue;
+            }
+            for (FluxRecord record : table.getRecords()) {
+                // 第一个窗口的起点会被截断到查询范围的起点，需要重新对齐
+                long timestamp = AggregatePushDownUtils.getWindowStart(record.getTime().toEpochMilli(), downsample.getTimeRange().getBeginTime(), downsample.getPrecision());
+                windows.computeIfAbsent(timestamp, k -> new Object[columnSize])[i] = AggregatePushDownUtils.castValue(record.getValue(), column.getField().getType());
+            }
+        }
+        for (Map.Entry<Long, Object[]> entry : windows.entrySet()) {
+            Object[] values = entry.getValue();
+            if (AggregatePushDownUtils.isEmptyWindow(columns, values)) {
+                continue;
+            }
+            AggregatePushDownUtils.fillEmptyCounts(columns, values);
+            rows.add(new Row(header, entry.getKey(), values));
+        }
+        return new TaskExecuteResult(new Table(header, rows));
+    }
+
+    private static String getPath(FluxRecord record) {
+        if (record.getValueByKey(InfluxDBSchema.TAG) == null) {
+            return record.getMeasurement() + "." + record.getField();
+        }
+        return record.getMeasurement() + "." + record.getValueByKey(InfluxDBSchema.TAG) + "." + record.getField();
+    }
+
     private TaskExecuteResult executeHistoryProjectTask(TimeInterval timeInterval, Project project) {
         Map<String, String> bucketQueries = new HashMap<>();
         TagFilter tagFilter = project.getTagFilter();
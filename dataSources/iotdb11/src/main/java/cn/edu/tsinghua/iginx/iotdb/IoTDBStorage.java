@@ -42,6 +42,7 @@ import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.exceptions.UnsupportedDataTypeException;
 import cn.edu.tsinghua.iginx.iotdb.query.entity.IoTDBQueryRowStream;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.ClearEmptyRowStreamWrapper;
 import cn.edu.tsinghua.iginx.iotdb.tools.DataViewWrapper;
@@ -533,14 +534,9 @@ public class IoTDBStorage implements IStorage {
                     if (bitmapView.get(i)) {
                         int row = tablet.rowSize++;
                         tablet.addTimestamp(row, data.getTimestamp(i));
-                        for (Integer j : entry.getValue()) {
-                            String path = data.getPath(j);
-                            String measurement = path.substring(path.lastIndexOf('.') + 1);
-                            if (data.getDataType(j) == BINARY) {
-                                tablet.addValue(measurement, row, new Binary((byte[]) data.getValue(j, indexes[j])));
-                            } else {
-                                tablet.addValue(measurement, row, data.getValue(j, indexes[j]));
-                            }
+                        for (int k = 0; k < entry.getValue().size(); k++) {
+                            int j = entry.getValue().get(k);
+                            setTabletValue(tablet, k, row, data, j, indexes[j]);
                             indexes[j]++;
                         }
                     }
@@ -600,18 +596,13 @@ public class IoTDBStorage implements IStorage {
                     int index = entry.getValue().get(i);
                     String path = data.getPath(index);
                     String deviceId = PREFIX + storageUnit + "." + path.substring(0, path.lastIndexOf('.'));
-                    String measurement = path.substring(path.lastIndexOf('.') + 1);
                     Tablet tablet = tabletsMap.get(entry.getKey()).get(deviceId);
                     for (int j = cnt; j < cnt + size; j++) {
                         BitmapView bitmapView = data.getBitmapView(index);
                         if (bitmapView.get(j)) {
                             int row = tablet.rowSize++;
                             tablet.addTimestamp(row, data.getTimestamp(j));
-                            if (data.getDataType(index) == BINARY) {
-                                tablet.addValue(measurement, row, new Binary((byte[]) data.getValue(index, indexesOfBitmap[i])));
-                            } else {
-                                tablet.addValue(measurement, row, data.getValue(index, indexesOfBitmap[i]));
-                            }
+                            setTabletValue(tablet, 0, row, data, index, indexesOfBitmap[i]);
                             indexesOfBitmap[i]++;
                         }
                     }
@@ -633,6 +624,34 @@ public class IoTDBStorage implements IStorage {
         return null;
     }
 
+    /**
+     * 按数据类型直接写入 tablet 的列数组，避免对值装箱
+     */
+    private static void setTabletValue(Tablet tablet, int column, int row, DataViewWrapper data, int index1, int index2) {
+        switch (data.getDataType(index1)) {
+            case BOOLEAN:
+                ((boolean[]) tablet.values[column])[row] = data.getBoolean(index1, index2);
+                break;
+            case INTEGER:
+                ((int[]) tablet.values[column])[row] = data.getInt(index1, index2);
+                break;
+            case LONG:
+                ((long[]) tablet.values[column])[row] = data.getLong(index1, index2);
+                break;
+            case FLOAT:
+                ((float[]) tablet.values[column])[row] = data.getFloat(index1, index2);
+                break;
+            case DOUBLE:
+                ((double[]) tablet.values[column])[row] = data.getDouble(index1, index2);
+                break;
+            case BINARY:
+                ((Binary[]) tablet.values[column])[row] = new Binary(data.getBinary(index1, index2));
+                break;
+            default:
+                throw new UnsupportedDataTypeException(data.getDataType(index1).toString());
+        }
+    }
+
     private TaskExecuteResult executeDeleteTask(String storageUnit, Delete delete) {
         if (delete.getTimeRanges() == null || delete.getTimeRanges().size() == 0) { // 没有传任何 time range
             List<String> paths = delete.getPatterns();
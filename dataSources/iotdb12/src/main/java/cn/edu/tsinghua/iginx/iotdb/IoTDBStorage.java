@@ -22,18 +22,33 @@ import cn.edu.tsinghua.iginx.engine.physical.exception.NonExecutablePhysicalTask
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.StorageInitializationException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.Timeseries;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils.AggregateColumn;
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.TaskExecuteResult;
 import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Count;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.FirstValue;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.LastValue;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Max;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Min;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Sum;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Delete;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Limit;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Project;
@@ -42,7 +57,9 @@ import cn.edu.tsinghua.iginx.engine.shared.operator.filter.AndFilter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Filter;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.Op;
 import cn.edu.tsinghua.iginx.engine.shared.operator.filter.TimeFilter;
+import cn.edu.tsinghua.iginx.exceptions.UnsupportedDataTypeException;
 import cn.edu.tsinghua.iginx.iotdb.query.entity.IoTDBQueryRowStream;
+import cn.edu.tsinghua.iginx.iotdb.tools.DataTypeTransformer;
 import cn.edu.tsinghua.iginx.iotdb.tools.DataViewWrapper;
 import cn.edu.tsinghua.iginx.iotdb.tools.FilterTransformer;
 import cn.edu.tsinghua.iginx.iotdb.tools.TagKVUtils;
@@ -69,12 +86,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static cn.edu.tsinghua.iginx.iotdb.tools.DataTypeTransformer.toIoTDB;
 import static cn.edu.tsinghua.iginx.thrift.DataType.BINARY;
+import static org.apache.iotdb.tsfile.file.metadata.enums.TSDataType.TEXT;
 
 public class IoTDBStorage implements IStorage {
 
@@ -98,8 +118,28 @@ public class IoTDBStorage implements IStorage {
 
     private static final String QUERY_DATA = "SELECT %s FROM " + PREFIX + "%s WHERE %s";
 
+    private static final String QUERY_LIMIT = " LIMIT %d";
+
+    private static final String QUERY_TAIL_LIMIT = " ORDER BY TIME DESC LIMIT %d";
+
     private static final String QUERY_HISTORY_DATA = "SELECT %s FROM root WHERE %s";
 
+    private static final String QUERY_SCHEMA = "SELECT %s FROM " + PREFIX + "%s WHERE %s LIMIT 1";
+
+    private static final String GROUP_BY_TIME = " GROUP BY ([%d, %d), %dms)";
+
+    private static final Map<String, String> AGGREGATE_FUNCTIONS = new HashMap<>();
+
+    static {
+        AGGREGATE_FUNCTIONS.put(Avg.AVG, "avg");
+        AGGREGATE_FUNCTIONS.put(Count.COUNT, "count");
+        AGGREGATE_FUNCTIONS.put(Sum.SUM, "sum");
+        AGGREGATE_FUNCTIONS.put(Max.MAX, "max_value");
+        AGGREGATE_FUNCTIONS.put(Min.MIN, "min_value");
+        AGGREGATE_FUNCTIONS.put(FirstValue.FIRST_VALUE, "first_value");
+        AGGREGATE_FUNCTIONS.put(LastValue.LAST_VALUE, "last_value");
+    }
+
     private static final String DELETE_STORAGE_GROUP_CLAUSE = "DELETE STORAGE GROUP " + PREFIX + "%s";
 
     private static final String DELETE_TIMESERIES_CLAUSE = "DELETE TIMESERIES " + PREFIX + "%s";
@@ -160,14 +200,21 @@ public class IoTDBStorage implements IStorage {
         boolean isDummyStorageUnit = task.isDummyStorageUnit();
         if (op.getType() == OperatorType.Project) {
             Project project = (Project) op;
+            Select select = AggregatePushDownUtils.getSelectOperator(operators);
+            Operator aggregate = AggregatePushDownUtils.getAggregateOperator(operators);
+            if (aggregate != null) {
+                return executeAggregateQueryTask(task, storageUnit, project, task.getTargetFragment(), select, aggregate);
+            }
             Filter filter;
-            if (operators.size() == 2) {
-                filter = ((Select) operators.get(1)).getFilter();
+            if (select != null) {
+                filter = select.getFilter();
             } else {
                 FragmentMeta fragment = task.getTargetFragment();
                 filter = new AndFilter(Arrays.asList(new TimeFilter(Op.GE, fragment.getTimeInterval().getStartTime()), new TimeFilter(Op.L, fragment.getTimeInterval().getEndTime())));
             }
-            return isDummyStorageUnit ? executeQueryHistoryTask(project, filter) : executeQueryTask(storageUnit, project, filter);
+            Operator last = operators.get(operators.size() - 1);
+            Limit limit = last.getType() == OperatorType.Limit ? (Limit) last : null;
+            return isDummyStorageUnit ? executeQueryHistoryTask(project, filter) : executeQueryTask(storageUnit, project, filter, limit);
         } else if (op.getType() == OperatorType.Insert) {
             Insert insert = (Insert) op;
             return executeInsertTask(storageUnit, insert);
@@ -178,6 +225,31 @@ public class IoTDBStorage implements IStorage {
         return new TaskExecuteResult(new NonExecutablePhysicalTaskException("unsupported physical task"));
     }
 
+    @Override
+    public Set<String> getSupportedAggregateFunctions() {
+        return AGGREGATE_FUNCTIONS.keySet();
+    }
+
+    @Override
+    public boolean isSupportDownsample(long precision) {
+        return precision > 0;
+    }
+
+    @Override
+    public boolean isSupportValueFilterPushDown() {
+        return true;
+    }
+
+    @Override
+    public boolean isSupportLimitPushDown() {
+        return true;
+    }
+
+    @Override
+    public boolean isSupportTailLimitPushDown() {
+        return true;
+    }
+
     public Pair<TimeSeriesInterval, TimeInterval> getBoundaryOfStorage() throws PhysicalException {
         List<String> paths = new ArrayList<>();
         try {
@@ -271,7 +343,7 @@ public class IoTDBStorage implements IStorage {
         return timeseries;
     }
 
-    private TaskExecuteResult executeQueryTask(String storageUnit, Project project, Filter filter) { // 未来可能要用 tsInterval 对查询出来的数据进行过滤
+    private TaskExecuteResult executeQueryTask(String storageUnit, Project project, Filter filter, Limit limit) { // 未来可能要用 tsInterval 对查询出来的数据进行过滤
         try {
             StringBuilder builder = new StringBuilder();
             for (String path : project.getPatterns()) {
@@ -279,15 +351,146 @@ public class IoTDBStorage implements IStorage {
                 builder.append(',');
             }
             String statement = String.format(QUERY_DATA, builder.deleteCharAt(builder.length() - 1).toString(), storageUnit, FilterTransformer.toString(filter));
+            // 按标签过滤会去掉部分列，截取的行在过滤后可能为空，此时不能在 IoTDB 中截取
+            boolean pushDownLimit = limit != null && project.getTagFilter() == null;
+            if (pushDownLimit) {
+                statement += String.format(limit.isTail() ? QUERY_TAIL_LIMIT : QUERY_LIMIT, limit.getLimit());
+            }
             logger.info("[Query] execute query: " + statement);
             RowStream rowStream = new IoTDBQueryRowStream(sessionPool.executeQueryStatement(statement), true, project);
+            if (pushDownLimit && limit.isTail()) {
+                // 降序读出的至多 limit 行，翻转为升序
+                List<Row> rows = new ArrayList<>();
+                while (rowStream.hasNext()) {
+                    rows.add(rowStream.next());
+                }
+                rowStream.close();
+                Collections.reverse(rows);
+                rowStream = new Table(rowStream.getHeader(), rows);
+            }
             return new TaskExecuteResult(rowStream);
-        } catch (IoTDBConnectionException | StatementExecutionException e) {
+        } catch (IoTDBConnectionException | StatementExecutionException | PhysicalException e) {
             logger.error(e.getMessage());
             return new TaskExecuteResult(new PhysicalTaskExecuteFailureException("execute project task in iotdb12 failure", e));
         }
     }
 
+    /**
+     * 连接池中的会话不能被其他线程关闭，因此取消时不中止正在执行的请求，而是在两次查询之间和读取每一行之前检查任务是否已被取消
+     */
+    private TaskExecuteResult executeAggregateQueryTask(StoragePhysicalTask task, String storageUnit, Project project, FragmentMeta fragment, Select select, Operator aggregate) {
+        SessionDataSetWrapper dataSet = null;
+        try {
+            boolean isDownsample = aggregate.getType() == OperatorType.Downsample;
+            TimeRange range = null;
+            if (isDownsample) {
+                range = AggregatePushDownUtils.getDownsampleRange(fragment.getTimeInterval(), (Downsample) aggregate);
+            }
+            String filter = FilterTransformer.toString(AggregatePushDownUtils.getPushDownFilter(fragment.getTimeInterval(), aggregate, select));
+
+            // 先获取原始查询会返回的序列及其类型，从而得到与内存中聚合一致的结果列
+            StringBuilder builder = new StringBuilder();
+            for (String path : project.getPatterns()) {
+                builder.append(path);
+                builder.append(',');
+            }
+            String statement = String.format(QUERY_SCHEMA, builder.deleteCharAt(builder.length() - 1).toString(), storageUnit, filter);
+            dataSet = sessionPool.executeQueryStatement(statement);
+            List<String> rawPaths = new ArrayList<>();
+            List<Field> rawFields = new ArrayList<>();
+            List<String> names = dataSet.getColumnNames();
+            List<String> types = dataSet.getColumnTypes();
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                if (i == 0 && name.equals("Time")) {
+                    continue;
+                }
+                name = name.substring(name.indexOf('.', PREFIX.length()) + 1);
+                Pair<String, Map<String, String>> pair = TagKVUtils.splitFullName(name);
+                rawPaths.add(name);
+                rawFields.add(new Field(pair.k, DataTypeTransformer.strFromIoTDB(types.get(i)), pair.v));
+            }
+            dataSet.close();
+            dataSet = null;
+
+            List<AggregateColumn> columns = AggregatePushDownUtils.resolveColumns(AggregatePushDownUtils.getFunctionCallList(aggregate), rawFields);
+            List<Field> fields = new ArrayList<>();
+            columns.forEach(column -> fields.add(column.getField()));
+            Header header = isDownsample ? new Header(Field.TIME, fields) : new Header(fields);
+            List<Row> rows = new ArrayList<>();
+            if (columns.isEmpty() || (isDownsample && range == null)) {
+                if (!isDownsample) {
+                    rows.add(new Row(header, new Object[0]));
+                }
+                return new TaskExecuteResult(new Table(header, rows));
+            }
+
+            Map<String, Integer> expressions = new LinkedHashMap<>();
+            for (AggregateColumn column : columns) {
+                String expression = AGGREGATE_FUNCTIONS.get(column.getIdentifier()) + "(" + rawPaths.get(column.getRawIndex()) + ")";
+                expressions.putIfAbsent(expression, expressions.size());
+            }
+            statement = String.format(QUERY_DATA, String.join(",", expressions.keySet()), storageUnit, filter);
+            if (isDownsample) {
+                Downsample downsample = (Downsample) aggregate;
+                long precision = downsample.getPrecision();
+                long windowStart = AggregatePushDownUtils.getWindowStart(range.getBeginTime(), downsample.getTimeRange().getBeginTime(), precision);
+                statement += String.format(GROUP_BY_TIME, windowStart, range.getEndTime(), precision);
+            }
+            if (task.isCancelled()) {
+                return task.getResult();
+            }
+            logger.info("[Query] execute aggregate query: " + statement);
+            dataSet = sessionPool.executeQueryStatement(statement);
+
+            // 结果列名形如 avg(root.unit.a.b)，按名称定位每个表达式的结果
+            names = dataSet.getColumnNames();
+            int offset = !names.isEmpty() && names.get(0).equals("Time") ? 1 : 0;
+            String storageUnitPrefix = PREFIX + storageUnit + ".";
+            int[] indices = new int[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                AggregateColumn column = columns.get(i);
+                String rawPath = rawPaths.get(column.getRawIndex());
+                String function = AGGREGATE_FUNCTIONS.get(column.getIdentifier());
+                int index = names.indexOf(function + "(" + storageUnitPrefix + rawPath + ")");
+                indices[i] = index == -1 ? expressions.get(function + "(" + rawPath + ")") : index - offset;
+            }
+            while (!task.isCancelled() && dataSet.hasNext()) {
+                RowRecord record = dataSet.next();
+                Object[] values = new Object[columns.size()];
+                for (int i = 0; i < columns.size(); i++) {
+                    org.apache.iotdb.tsfile.read.common.Field field = record.getFields().get(indices[i]);
+                    Object value = null;
+                    if (field != null && field.getDataType() != null) {
+                        value = field.getDataType() == TEXT ? field.getBinaryV().getValues() : field.getObjectValue(field.getDataType());
+                    }
+                    values[i] = AggregatePushDownUtils.castValue(value, columns.get(i).getField().getType());
+                }
+                if (!isDownsample) {
+                    rows.add(new Row(header, values));
+                    break;
+                }
+                if (!AggregatePushDownUtils.isEmptyWindow(columns, values)) {
+                    rows.add(new Row(header, record.getTimestamp(), values));
+                }
+            }
+            if (task.isCancelled()) {
+                return task.getResult();
+            }
+            if (!isDownsample && rows.isEmpty()) {
+                rows.add(new Row(header, new Object[columns.size()]));
+            }
+            return new TaskExecuteResult(new Table(header, rows));
+        } catch (IoTDBConnectionException | StatementExecutionException | IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            return new TaskExecuteResult(new PhysicalTaskExecuteFailureException("execute aggregate task in iotdb12 failure", e));
+        } finally {
+            if (dataSet != null) {
+                dataSet.close();
+            }
+        }
+    }
+
     private TaskExecuteResult executeQueryHistoryTask(Project project, Filter filter) { // 未来可能要用 tsInterval 对查询出来的数据进行过滤
         try {
             StringBuilder builder = new StringBuilder();
@@ -531,14 +734,9 @@ public class IoTDBStorage implements IStorage {
                     if (bitmapView.get(i)) {
                         int row = tablet.rowSize++;
                         tablet.addTimestamp(row, data.getTimestamp(i));
-                        for (Integer j : entry.getValue()) {
-                            String path = data.getPath(j);
-                            String measurement = path.substring(path.lastIndexOf('.') + 1);
-                            if (data.getDataType(j) == BINARY) {
-                                tablet.addValue(measurement, row, new Binary((byte[]) data.getValue(j, indexes[j])));
-                            } else {
-                                tablet.addValue(measurement, row, data.getValue(j, indexes[j]));
-                            }
+                        for (int k = 0; k < entry.getValue().size(); k++) {
+                            int j = entry.getValue().get(k);
+                            setTabletValue(tablet, k, row, data, j, indexes[j]);
                             indexes[j]++;
                         }
                     }
@@ -598,18 +796,13 @@ public class IoTDBStorage implements IStorage {
                     int index = entry.getValue().get(i);
                     String path = data.getPath(index);
                     String deviceId = PREFIX + storageUnit + "." + path.substring(0, path.lastIndexOf('.'));
-                    String measurement = path.substring(path.lastIndexOf('.') + 1);
                     Tablet tablet = tabletsMap.get(entry.getKey()).get(deviceId);
                     BitmapView bitmapView = data.getBitmapView(index);
                     for (int j = cnt; j < cnt + size; j++) {
                         if (bitmapView.get(j)) {
                             int row = tablet.rowSize++;
                             tablet.addTimestamp(row, data.getTimestamp(j));
-                            if (data.getDataType(index) == BINARY) {
-                                tablet.addValue(measurement, row, new Binary((byte[]) data.getValue(index, indexesOfBitmap[i])));
-                            } else {
-                                tablet.addValue(measurement, row, data.getValue(index, indexesOfBitmap[i]));
-                            }
+                            setTabletValue(tablet, 0, row, data, index, indexesOfBitmap[i]);
                             indexesOfBitmap[i]++;
                         }
                     }
@@ -631,6 +824,34 @@ public class IoTDBStorage implements IStorage {
         return null;
     }
 
+    /**
+     * 按数据类型直接写入 tablet 的列数组，避免对值装箱
+     */
+    private static void setTabletValue(Tablet tablet, int column, int row, DataViewWrapper data, int index1, int index2) {
+        switch (data.getDataType(index1)) {
+            case BOOLEAN:
+                ((boolean[]) tablet.values[column])[row] = data.getBoolean(index1, index2);
+                break;
+            case INTEGER:
+                ((int[]) tablet.values[column])[row] = data.getInt(index1, index2);
+                break;
+            case LONG:
+                ((long[]) tablet.values[column])[row] = data.getLong(index1, index2);
+                break;
+            case FLOAT:
+                ((float[]) tablet.values[column])[row] = data.getFloat(index1, index2);
+                break;
+            case DOUBLE:
+                ((double[]) tablet.values[column])[row] = data.getDouble(index1, index2);
+                break;
+            case BINARY:
+                ((Binary[]) tablet.values[column])[row] = new Binary(data.getBinary(index1, index2));
+                break;
+            default:
+                throw new UnsupportedDataTypeException(data.getDataType(index1).toString());
+        }
+    }
+
     private TaskExecuteResult executeDeleteTask(String storageUnit, Delete delete) {
         if (delete.getTimeRanges() == null || delete.getTimeRanges().size() == 0) { // 没有传任何 time range
             List<String> paths = delete.getPatterns();
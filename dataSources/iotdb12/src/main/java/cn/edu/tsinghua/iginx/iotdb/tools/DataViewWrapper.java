@@ -75,6 +75,30 @@ public class DataViewWrapper {
         return dataView.getValue(index1, index2);
     }
 
+    public boolean getBoolean(int index1, int index2) {
+        return dataView.getBoolean(index1, index2);
+    }
+
+    public int getInt(int index1, int index2) {
+        return dataView.getInt(index1, index2);
+    }
+
+    public long getLong(int index1, int index2) {
+        return dataView.getLong(index1, index2);
+    }
+
+    public float getFloat(int index1, int index2) {
+        return dataView.getFloat(index1, index2);
+    }
+
+    public double getDouble(int index1, int index2) {
+        return dataView.getDouble(index1, index2);
+    }
+
+    public byte[] getBinary(int index1, int index2) {
+        return dataView.getBinary(index1, index2);
+    }
+
     public BitmapView getBitmapView(int index) {
         return dataView.getBitmapView(index);
     }
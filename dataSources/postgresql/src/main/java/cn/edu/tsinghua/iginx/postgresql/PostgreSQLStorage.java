@@ -22,18 +22,31 @@ import cn.edu.tsinghua.iginx.engine.physical.exception.NonExecutablePhysicalTask
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.PhysicalTaskExecuteFailureException;
 import cn.edu.tsinghua.iginx.engine.physical.exception.StorageInitializationException;
+import cn.edu.tsinghua.iginx.engine.physical.memory.execute.Table;
 import cn.edu.tsinghua.iginx.engine.physical.storage.IStorage;
 import cn.edu.tsinghua.iginx.engine.physical.storage.domain.Timeseries;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils;
+import cn.edu.tsinghua.iginx.engine.physical.storage.utils.AggregatePushDownUtils.AggregateColumn;
 import cn.edu.tsinghua.iginx.engine.physical.task.StoragePhysicalTask;
 import cn.edu.tsinghua.iginx.engine.physical.task.TaskExecuteResult;
 import cn.edu.tsinghua.iginx.engine.shared.TimeRange;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.Field;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Header;
+import cn.edu.tsinghua.iginx.engine.shared.data.read.Row;
 import cn.edu.tsinghua.iginx.engine.shared.data.read.RowStream;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.BitmapView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.ColumnDataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.DataView;
 import cn.edu.tsinghua.iginx.engine.shared.data.write.RowDataView;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Avg;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Count;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.FirstValue;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.LastValue;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Max;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Min;
+import cn.edu.tsinghua.iginx.engine.shared.function.system.Sum;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Delete;
+import cn.edu.tsinghua.iginx.engine.shared.operator.Downsample;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Insert;
 import cn.edu.tsinghua.iginx.engine.shared.operator.Operator;
 import cn.edu.tsinghua.iginx.engine.shared.operator.OperatorType;
@@ -62,9 +75,14 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -98,6 +116,23 @@ public class PostgreSQLStorage implements IStorage {
 
   private static final String DELETE_DATA = "DELETE FROM %s WHERE time >= to_timestamp(%d) and time < to_timestamp(%d)";
 
+  private static final String QUERY_AGGREGATE = "SELECT %s FROM %s WHERE %s";
+
+  // 时间以秒保存，extract(epoch from time) 得到秒，乘以 1000 后与毫秒的 bias 和 precision 计算窗口
+  private static final String QUERY_DOWNSAMPLE = "SELECT CAST(floor((extract(epoch from time) * 1000 - %d) / %d) * %d + %d AS BIGINT) AS window_start, %s FROM %s WHERE %s GROUP BY window_start ORDER BY window_start";
+
+  private static final Map<String, String> AGGREGATE_FUNCTIONS = new HashMap<>();
+
+  static {
+    AGGREGATE_FUNCTIONS.put(Avg.AVG, "avg(%s)");
+    AGGREGATE_FUNCTIONS.put(Count.COUNT, "count(%s)");
+    AGGREGATE_FUNCTIONS.put(Sum.SUM, "sum(%s)");
+    AGGREGATE_FUNCTIONS.put(Max.MAX, "max(%s)");
+    AGGREGATE_FUNCTIONS.put(Min.MIN, "min(%s)");
+    AGGREGATE_FUNCTIONS.put(FirstValue.FIRST_VALUE, "first(%s, time)");
+    AGGREGATE_FUNCTIONS.put(LastValue.LAST_VALUE, "last(%s, time)");
+  }
+
   private static final String IGINX_SEPARATOR = ".";
 
   private static final String POSTGRESQL_SEPARATOR = "$";
@@ -110,6 +145,9 @@ public class PostgreSQLStorage implements IStorage {
 
   private Connection connection;
 
+  // 正在执行的查询任务所创建的语句，任务被取消时用于中止后端的查询
+  private final Map<StoragePhysicalTask, List<Statement>> runningStatements = new ConcurrentHashMap<>();
+
   public PostgreSQLStorage(StorageEngineMeta meta) throws StorageInitializationException {
     this.meta = meta;
     if (!testConnection()) {
@@ -147,7 +185,8 @@ public class PostgreSQLStorage implements IStorage {
   @Override
   public TaskExecuteResult execute(StoragePhysicalTask task) {
     List<Operator> operators = task.getOperators();
-    if (operators.size() != 1) {
+    Operator aggregate = AggregatePushDownUtils.getAggregateOperator(operators);
+    if (operators.size() != 1 && aggregate == null) {
       return new TaskExecuteResult(
           new NonExecutablePhysicalTaskException("unsupported physical task"));
     }
@@ -159,15 +198,24 @@ public class PostgreSQLStorage implements IStorage {
 
     if (op.getType() == OperatorType.Project) { // 目前只实现 project 操作符
       Project project = (Project) op;
-      Filter filter;
-      if (operators.size() == 2) {
-        filter = ((Select) operators.get(1)).getFilter();
-      } else {
-        filter = new AndFilter(Arrays
-            .asList(new TimeFilter(Op.GE, fragment.getTimeInterval().getStartTime()),
-                new TimeFilter(Op.L, fragment.getTimeInterval().getEndTime())));
+      try {
+        if (aggregate != null) {
+          return executeAggregateTask(task, fragment.getTimeInterval(), project,
+              AggregatePushDownUtils.getSelectOperator(operators), aggregate);
+        }
+        Filter filter;
+        if (operators.size() == 2) {
+          filter = ((Select) operators.get(1)).getFilter();
+        } else {
+          filter = new AndFilter(Arrays
+              .asList(new TimeFilter(Op.GE, fragment.getTimeInterval().getStartTime()),
+                  new TimeFilter(Op.L, fragment.getTimeInterval().getEndTime())));
+        }
+        return executeProjectTask(task, project, filter);
+      } finally {
+        // 返回之后的读取由结果流的 close 中止
+        runningStatements.remove(task);
       }
-      return executeProjectTask(project, filter);
     } else if (op.getType() == OperatorType.Insert) {
       Insert insert = (Insert) op;
       return executeInsertTask(insert);
@@ -179,6 +227,44 @@ public class PostgreSQLStorage implements IStorage {
         new NonExecutablePhysicalTaskException("unsupported physical task"));
   }
 
+  @Override
+  public void cancel(StoragePhysicalTask task) {
+    List<Statement> statements = runningStatements.remove(task);
+    if (statements == null) {
+      return;
+    }
+    for (Statement stmt : statements) {
+      try {
+        stmt.cancel();
+      } catch (SQLException e) {
+        logger.warn("cancel statement of task " + task + " failure: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * 创建语句并登记到任务上，任务已被取消时不再访问后端
+   */
+  private Statement createStatement(StoragePhysicalTask task) throws SQLException {
+    Statement stmt = connection.createStatement();
+    runningStatements.computeIfAbsent(task, k -> new CopyOnWriteArrayList<>()).add(stmt);
+    if (task.isCancelled()) {
+      stmt.close();
+      throw new SQLException("task " + task + " has been cancelled");
+    }
+    return stmt;
+  }
+
+  @Override
+  public Set<String> getSupportedAggregateFunctions() {
+    return AGGREGATE_FUNCTIONS.keySet();
+  }
+
+  @Override
+  public boolean isSupportDownsample(long precision) {
+    return precision > 0;
+  }
+
   @Override
   public List<Timeseries> getTimeSeries() throws PhysicalException {
     List<Timeseries> timeseries = new ArrayList<>();
@@ -252,7 +338,7 @@ public class PostgreSQLStorage implements IStorage {
         new TimeInterval(minTime, maxTime + 1));
   }
 
-  private TaskExecuteResult executeProjectTask(Project project,
+  private TaskExecuteResult executeProjectTask(StoragePhysicalTask task, Project project,
       Filter filter) { // 未来可能要用 tsInterval 对查询出来的数据进行过滤
     try {
       List<ResultSet> resultSets = new ArrayList<>();
@@ -275,7 +361,7 @@ public class PostgreSQLStorage implements IStorage {
               .format(QUERY_DATA, field, table,
                   TagFilterUtils.transformToFilterStr(project.getTagFilter()),
                   FilterTransformer.toString(filter));
-          Statement stmt = connection.createStatement();
+          Statement stmt = createStatement(task);
           ResultSet rs = stmt.executeQuery(statement);
           resultSets.add(rs);
         }
@@ -289,6 +375,108 @@ public class PostgreSQLStorage implements IStorage {
     }
   }
 
+  private TaskExecuteResult executeAggregateTask(StoragePhysicalTask task, TimeInterval timeInterval, Project project,
+      Select select, Operator aggregate) {
+    boolean isDownsample = aggregate.getType() == OperatorType.Downsample;
+    try {
+      // 与 executeProjectTask 一致，逐个路径获取序列的类型
+      List<Field> rawFields = new ArrayList<>();
+      List<String> tables = new ArrayList<>();
+      List<String> columnNames = new ArrayList<>();
+      for (String path : project.getPatterns()) {
+        String table = path.substring(0, path.lastIndexOf('.'));
+        table = table.replace(IGINX_SEPARATOR, POSTGRESQL_SEPARATOR);
+        String field = path.substring(path.lastIndexOf('.') + 1);
+        field = field.replace(IGINX_SEPARATOR, POSTGRESQL_SEPARATOR);
+        DatabaseMetaData databaseMetaData = connection.getMetaData();
+        ResultSet columnSet = databaseMetaData.getColumns(null, "%", table, field);
+        if (columnSet.next()) {
+          String typeName = columnSet.getString("TYPE_NAME");//列字段类型
+          rawFields
+              .add(new Field(table.replace(POSTGRESQL_SEPARATOR, IGINX_SEPARATOR) + IGINX_SEPARATOR
+                  + field.replace(POSTGRESQL_SEPARATOR, IGINX_SEPARATOR)
+                  , DataTypeTransformer.fromPostgreSQL(typeName)));
+          tables.add(table);
+          columnNames.add(field);
+        }
+      }
+      List<AggregateColumn> columns = AggregatePushDownUtils
+          .resolveColumns(AggregatePushDownUtils.getFunctionCallList(aggregate), rawFields);
+      List<Field> fields = new ArrayList<>();
+      columns.forEach(column -> fields.add(column.getField()));
+      Header header = isDownsample ? new Header(Field.TIME, fields) : new Header(fields);
+      Object[] setValues = new Object[columns.size()];
+      TreeMap<Long, Object[]> windows = new TreeMap<>();
+
+      TimeRange range = AggregatePushDownUtils.getPushDownTimeRange(timeInterval, aggregate, select);
+      if (range != null) {
+        String filter = FilterTransformer.toString(new AndFilter(Arrays
+            .asList(new TimeFilter(Op.GE, range.getBeginTime()),
+                new TimeFilter(Op.L, range.getEndTime()))));
+        // 每个序列一条查询，该序列上的所有聚合函数共享一次扫描
+        for (int i = 0; i < rawFields.size(); i++) {
+          List<Integer> indices = new ArrayList<>();
+          StringBuilder expressions = new StringBuilder();
+          for (int j = 0; j < columns.size(); j++) {
+            AggregateColumn column = columns.get(j);
+            if (column.getRawIndex() != i) {
+              continue;
+            }
+            if (!indices.isEmpty()) {
+              expressions.append(", ");
+            }
+            expressions.append(String.format(AGGREGATE_FUNCTIONS.get(column.getIdentifier()), columnNames.get(i)));
+            indices.add(j);
+          }
+          if (indices.isEmpty()) {
+            continue;
+          }
+          String statement;
+          if (isDownsample) {
+            Downsample downsample = (Downsample) aggregate;
+            long bias = downsample.getTimeRange().getBeginTime();
+            long precision = downsample.getPrecision();
+            statement = String.format(QUERY_DOWNSAMPLE, bias, precision, precision, bias, expressions, tables.get(i), filter);
+          } else {
+            statement = String.format(QUERY_AGGREGATE, expressions, tables.get(i), filter);
+          }
+          logger.info("execute aggregate query: " + statement);
+          Statement stmt = createStatement(task);
+          ResultSet rs = stmt.executeQuery(statement);
+          while (rs.next()) {
+            Object[] values = isDownsample ? windows.computeIfAbsent(rs.getLong(1), k -> new Object[columns.size()]) : setValues;
+            int offset = isDownsample ? 2 : 1;
+            for (int k = 0; k < indices.size(); k++) {
+              int index = indices.get(k);
+              values[index] = AggregatePushDownUtils.castValue(rs.getObject(k + offset), columns.get(index).getField().getType());
+            }
+          }
+          rs.close();
+          stmt.close();
+        }
+      }
+
+      List<Row> rows = new ArrayList<>();
+      if (!isDownsample) {
+        rows.add(new Row(header, setValues));
+      } else {
+        for (Entry<Long, Object[]> entry : windows.entrySet()) {
+          Object[] values = entry.getValue();
+          if (AggregatePushDownUtils.isEmptyWindow(columns, values)) {
+            continue;
+          }
+          AggregatePushDownUtils.fillEmptyCounts(columns, values);
+          rows.add(new Row(header, entry.getKey(), values));
+        }
+      }
+      return new TaskExecuteResult(new Table(header, rows));
+    } catch (SQLException | IllegalArgumentException e) {
+      return new TaskExecuteResult(
+          new PhysicalTaskExecuteFailureException("execute aggregate task in timescaledb failure",
+              e));
+    }
+  }
+
   private TaskExecuteResult executeInsertTask(Insert insert) {
     DataView dataView = insert.getData();
     Exception e = null;
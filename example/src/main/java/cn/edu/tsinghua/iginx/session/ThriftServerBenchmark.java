@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.session;
+
+import cn.edu.tsinghua.iginx.thrift.DataType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对比不同 thriftServerType、thriftProtocol 配置下服务端的吞吐与连接开销。
+ * 先建立若干空闲连接模拟大量只偶尔访问的客户端，再由多个线程并发写入并统计吞吐，
+ * 运行期间可以通过 jcmd 或 top 观察服务端的线程数与内存占用。
+ *
+ * 参数：host port framedTransport compactProtocol idleSessions writerThreads batches
+ */
+public class ThriftServerBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int SERIES_NUM = 10;
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6888;
+        boolean framedTransport = args.length > 2 && Boolean.parseBoolean(args[2]);
+        boolean compactProtocol = args.length > 3 && Boolean.parseBoolean(args[3]);
+        int idleSessionNum = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        int writerThreads = args.length > 5 ? Integer.parseInt(args[5]) : 16;
+        int batches = args.length > 6 ? Integer.parseInt(args[6]) : 100;
+
+        List<Session> idleSessions = new ArrayList<>();
+        for (int i = 0; i < idleSessionNum; i++) {
+            idleSessions.add(openSession(host, port, 1, framedTransport, compactProtocol));
+        }
+        System.out.printf("opened %d idle sessions%n", idleSessionNum);
+
+        Session session = openSession(host, port, writerThreads, framedTransport, compactProtocol);
+        List<String> paths = new ArrayList<>();
+        List<DataType> dataTypeList = new ArrayList<>();
+        for (int i = 0; i < SERIES_NUM; i++) {
+            paths.add("benchmark.s" + i);
+            dataTypeList.add(DataType.LONG);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writerThreads);
+        AtomicLong points = new AtomicLong();
+        long startTime = System.currentTimeMillis();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < writerThreads; thread++) {
+            long offset = (long) thread * batches * BATCH_SIZE;
+            futures.add(executor.submit(() -> {
+                for (int batch = 0; batch < batches; batch++) {
+                    long[] timestamps = new long[BATCH_SIZE];
+                    Object[] valuesList = new Object[SERIES_NUM];
+                    for (int i = 0; i < BATCH_SIZE; i++) {
+                        timestamps[i] = offset + (long) batch * BATCH_SIZE + i;
+                    }
+                    for (int i = 0; i < SERIES_NUM; i++) {
+                        Object[] values = new Object[BATCH_SIZE];
+                        for (int j = 0; j < BATCH_SIZE; j++) {
+                            values[j] = timestamps[j] + i;
+                        }
+                        valuesList[i] = values;
+                    }
+                    session.insertNonAlignedColumnRecords(new ArrayList<>(paths), timestamps, valuesList, dataTypeList);
+                    points.addAndGet((long) BATCH_SIZE * SERIES_NUM);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long cost = System.currentTimeMillis() - startTime;
+        executor.shutdown();
+
+        System.out.printf("wrote %d points with %d threads in %d ms, %.2f points/s%n", points.get(), writerThreads, cost,
+            points.get() * 1000.0 / Math.max(cost, 1));
+
+        session.deleteColumns(Collections.singletonList("benchmark.*"));
+        session.closeSession();
+        for (Session idleSession : idleSessions) {
+            idleSession.closeSession();
+        }
+    }
+
+    private static Session openSession(String host, int port, int connections, boolean framedTransport, boolean compactProtocol) throws Exception {
+        Session session = new Session(host, port, "root", "root", connections, false);
+        session.setFramedTransport(framedTransport);
+        session.setCompactProtocol(compactProtocol);
+        session.openSession();
+        return session;
+    }
+
+}
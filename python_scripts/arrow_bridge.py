@@ -0,0 +1,68 @@
+"""
+Wraps a vectorized udf so that data is exchanged with the JVM as Arrow IPC streams.
+The wrapped udf receives a pyarrow.Table and may return a pyarrow.Table, a RecordBatch,
+a pandas.DataFrame, a dict of columns, a list of values (one row) or a list of rows.
+"""
+import pyarrow as pa
+import pandas as pd
+
+
+class ArrowBridge:
+    def __init__(self, udf):
+        self._udf = udf
+        # transform_stream 两个方向上最近一次使用的 schema
+        self._in_schema = None
+        self._out_schema = None
+
+    def transform(self, data):
+        table = pa.ipc.open_stream(pa.py_buffer(data)).read_all()
+        return self._to_bytes(self._to_table(self._udf.transform(table)))
+
+    def transform_stream(self, data):
+        """
+        Used by transform stages that call the udf once per batch. Only Arrow messages are exchanged:
+        a schema message is sent when it is new or changed, otherwise only record batches are sent.
+        """
+        batches = []
+        for message in pa.ipc.MessageReader.open_stream(pa.py_buffer(data)):
+            if message.type == "schema":
+                self._in_schema = pa.ipc.read_schema(message)
+            else:
+                batches.append(pa.ipc.read_record_batch(message, self._in_schema))
+        table = pa.Table.from_batches(batches, schema=self._in_schema)
+        res = self._to_table(self._udf.transform(table))
+        sink = pa.BufferOutputStream()
+        if self._out_schema is None or not res.schema.equals(self._out_schema):
+            self._out_schema = res.schema
+            sink.write(res.schema.serialize())
+        for batch in res.to_batches():
+            sink.write(batch.serialize())
+        return sink.getvalue().to_pybytes()
+
+    @staticmethod
+    def _to_table(res):
+        if isinstance(res, pa.Table):
+            return res
+        if isinstance(res, pa.RecordBatch):
+            return pa.Table.from_batches([res])
+        if isinstance(res, pd.DataFrame):
+            return pa.Table.from_pandas(res, preserve_index=False)
+        if isinstance(res, dict):
+            return pa.table(res)
+        if isinstance(res, (list, tuple)):
+            rows = list(res)
+            if len(rows) == 0:
+                return pa.table({})
+            # 一维列表视为一行
+            if not isinstance(rows[0], (list, tuple)):
+                rows = [rows]
+            columns = list(zip(*rows))
+            return pa.table({"col%d" % i: list(column) for i, column in enumerate(columns)})
+        raise TypeError("unsupported udf result type: %s" % type(res))
+
+    @staticmethod
+    def _to_bytes(table):
+        sink = pa.BufferOutputStream()
+        with pa.ipc.new_stream(sink, table.schema) as writer:
+            writer.write_table(table)
+        return sink.getvalue().to_pybytes()
@@ -0,0 +1,530 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.session;
+
+import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
+import cn.edu.tsinghua.iginx.thrift.CloseSessionReq;
+import cn.edu.tsinghua.iginx.thrift.GetClusterInfoReq;
+import cn.edu.tsinghua.iginx.thrift.GetClusterInfoResp;
+import cn.edu.tsinghua.iginx.thrift.IService;
+import cn.edu.tsinghua.iginx.thrift.IginxInfo;
+import cn.edu.tsinghua.iginx.thrift.OpenSessionReq;
+import cn.edu.tsinghua.iginx.thrift.OpenSessionResp;
+import cn.edu.tsinghua.iginx.thrift.Status;
+import cn.edu.tsinghua.iginx.utils.RpcUtils;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolDecorator;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 客户端连接池，为每个 IginX 节点维护若干条连接，每条连接同一时刻只被一个请求使用。
+ * 请求优先发往正在执行的请求最少的节点，重定向时沿用原有的重定向逻辑。
+ * 连接断开时，只有请求尚未完整发出，或者请求是幂等的读请求，才换用其他连接重试，其余情况直接抛出异常，避免重复执行写入等请求。
+ * 开启节点发现后，连接池通过 getClusterInfo 获取集群中的全部节点，并由后台线程定期重连失效的连接、加入新节点
+ */
+public class ConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final int MAX_REDIRECT_TIME = 3;
+
+    private static final int MAX_RETRY_TIME = 3;
+
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    private static final long BORROW_TIMEOUT = 60000L;
+
+    private static final long HEALTH_CHECK_INTERVAL = 5000L;
+
+    // 查询结果可能很大，不额外限制帧的大小
+    private static final int MAX_FRAME_SIZE = Integer.MAX_VALUE;
+
+    private final String host;
+
+    private final int port;
+
+    private final String username;
+
+    private final String password;
+
+    private final int connectionsPerNode;
+
+    private final boolean discoverNodes;
+
+    private volatile boolean framedTransport;
+
+    private volatile boolean compactProtocol;
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    private int cursor;
+
+    private boolean isClosed;
+
+    private ScheduledExecutorService healthCheckService;
+
+    public ConnectionPool(String host, int port, String username, String password, int connectionsPerNode, boolean discoverNodes) {
+        if (connectionsPerNode <= 0) {
+            throw new IllegalArgumentException("connectionsPerNode should be positive");
+        }
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.connectionsPerNode = connectionsPerNode;
+        this.discoverNodes = discoverNodes;
+        this.isClosed = true;
+    }
+
+    public synchronized void open() throws SessionException {
+        if (!isClosed) {
+            return;
+        }
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < connectionsPerNode; i++) {
+                Connection connection = new Connection(host, port);
+                connection.open();
+                opened.add(connection);
+            }
+        } catch (SessionException e) {
+            opened.forEach(Connection::close);
+            throw e;
+        }
+        connections.addAll(opened);
+        isClosed = false;
+
+        // 单条连接时保持原有行为，不启动后台线程
+        if (discoverNodes || connectionsPerNode > 1) {
+            healthCheckService = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "iginx-connection-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthCheckService.scheduleWithFixedDelay(this::checkHealth, discoverNodes ? 0 : HEALTH_CHECK_INTERVAL,
+                HEALTH_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void close() {
+        List<Connection> closing;
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            closing = new ArrayList<>(connections);
+            connections.clear();
+            notifyAll();
+        }
+        if (healthCheckService != null) {
+            healthCheckService.shutdownNow();
+            healthCheckService = null;
+        }
+        closing.forEach(Connection::close);
+    }
+
+    public synchronized boolean isClosed() {
+        return isClosed;
+    }
+
+    /**
+     * 服务端使用 threadedSelector 模式时需要开启，在下一次建立连接时生效
+     */
+    public void setFramedTransport(boolean framedTransport) {
+        this.framedTransport = framedTransport;
+    }
+
+    /**
+     * 需要与服务端的 thriftProtocol 配置保持一致，在下一次建立连接时生效
+     */
+    public void setCompactProtocol(boolean compactProtocol) {
+        this.compactProtocol = compactProtocol;
+    }
+
+    public Status call(Rpc<Status> rpc) throws SessionException, TException {
+        return call(null, rpc, status -> status);
+    }
+
+    public <T> T call(Rpc<T> rpc, Function<T, Status> statusGetter) throws SessionException, TException {
+        return call(null, rpc, statusGetter);
+    }
+
+    /**
+     * 用于幂等的读请求，请求发出之后连接断开也可以换用其他连接重试
+     */
+    public <T> T callIdempotent(Rpc<T> rpc, Function<T, Status> statusGetter) throws SessionException, TException {
+        return call(null, true, rpc, statusGetter);
+    }
+
+    /**
+     * address 不为空时只使用连向该节点的连接，适用于必须在同一节点上执行的请求，例如拉取查询结果
+     */
+    public <T> T call(String address, Rpc<T> rpc, Function<T, Status> statusGetter) throws SessionException, TException {
+        return call(address, false, rpc, statusGetter);
+    }
+
+    private <T> T call(String address, boolean idempotent, Rpc<T> rpc, Function<T, Status> statusGetter) throws SessionException, TException {
+        int redirectTimes = 0;
+        int retryTimes = 0;
+        while (true) {
+            Connection connection = borrow(address);
+            try {
+                T resp;
+                try {
+                    connection.protocol.sent = false;
+                    resp = rpc.call(connection);
+                } catch (TException e) {
+                    // 出错后连接的状态未知，直接关闭，由后续请求或后台线程重连
+                    boolean sent = connection.protocol.sent;
+                    connection.close();
+                    retryTimes++;
+                    // 请求已经发出时服务端可能已经执行，非幂等的请求不能重试
+                    if (!(e instanceof TTransportException) || address != null || (sent && !idempotent) || retryTimes > MAX_RETRY_TIME) {
+                        throw e;
+                    }
+                    logger.warn("connection to {} is broken, retry with another connection", connection.getAddress());
+                    continue;
+                }
+
+                Status status = statusGetter.apply(resp);
+                if (RpcUtils.verifyNoRedirect(status)) {
+                    return resp;
+                }
+                redirectTimes++;
+                if (address != null || redirectTimes > MAX_REDIRECT_TIME) {
+                    throw new SessionException("重定向次数过多！");
+                }
+                connection.close();
+                connection.redirect(status);
+                connection.open();
+            } finally {
+                release(connection);
+            }
+        }
+    }
+
+    private Connection borrow(String address) throws SessionException {
+        Connection connection = acquire(address);
+        if (connection.isHealthy()) {
+            return connection;
+        }
+        // 没有可用的连接时就地重连
+        try {
+            connection.open();
+        } catch (SessionException e) {
+            release(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    private synchronized Connection acquire(String address) throws SessionException {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+        while (true) {
+            if (isClosed) {
+                throw new SessionException("connection pool has been closed");
+            }
+            Connection connection = select(address);
+            if (connection != null) {
+                connection.busy = true;
+                return connection;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SessionException("borrow connection timeout");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SessionException(e);
+            }
+        }
+    }
+
+    /**
+     * 在空闲的可用连接中选择所在节点负载最低的一条，负载相同时轮流选择；
+     * 全部连接都已失效时返回一条空闲的失效连接，由调用者重连
+     */
+    private Connection select(String address) throws SessionException {
+        Map<String, Integer> loads = new HashMap<>();
+        boolean hasHealthy = false;
+        Connection broken = null;
+        for (Connection connection : connections) {
+            if (address != null && !address.equals(connection.getAddress())) {
+                continue;
+            }
+            hasHealthy |= connection.isHealthy();
+            if (connection.busy) {
+                loads.merge(connection.getAddress(), 1, Integer::sum);
+            } else if (!connection.isHealthy() && broken == null) {
+                broken = connection;
+            }
+        }
+        if (!hasHealthy && broken == null) {
+            if (loads.isEmpty()) {
+                throw new SessionException("no connection to " + (address == null ? "iginx" : address));
+            }
+            return null;
+        }
+
+        Connection selected = null;
+        int selectedLoad = Integer.MAX_VALUE;
+        int size = connections.size();
+        for (int i = 0; i < size; i++) {
+            Connection connection = connections.get((cursor + i) % size);
+            if (connection.busy || !connection.isHealthy() || (address != null && !address.equals(connection.getAddress()))) {
+                continue;
+            }
+            int load = loads.getOrDefault(connection.getAddress(), 0);
+            if (load < selectedLoad) {
+                selected = connection;
+                selectedLoad = load;
+            }
+        }
+        cursor = (cursor + 1) % size;
+        return selected != null || hasHealthy ? selected : broken;
+    }
+
+    private synchronized void release(Connection connection) {
+        connection.busy = false;
+        notifyAll();
+    }
+
+    private void checkHealth() {
+        try {
+            if (discoverNodes) {
+                discover();
+            }
+            List<Connection> brokenConnections = new ArrayList<>();
+            synchronized (this) {
+                for (Connection connection : connections) {
+                    if (!connection.busy && !connection.isHealthy()) {
+                        connection.busy = true;
+                        brokenConnections.add(connection);
+                    }
+                }
+            }
+            for (Connection connection : brokenConnections) {
+                try {
+                    connection.open();
+                    logger.info("reconnect to {} successfully", connection.getAddress());
+                } catch (SessionException e) {
+                    logger.debug("reconnect to {} failure: ", connection.getAddress(), e);
+                } finally {
+                    release(connection);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("unexpected error during connection health check: ", e);
+        }
+    }
+
+    private void discover() {
+        GetClusterInfoResp resp;
+        try {
+            resp = callIdempotent(connection -> connection.getClient().getClusterInfo(new GetClusterInfoReq(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | ExecutionException | TException e) {
+            logger.warn("discover iginx nodes failure: ", e);
+            return;
+        }
+
+        Set<String> addresses = new HashSet<>();
+        synchronized (this) {
+            connections.forEach(connection -> addresses.add(connection.getAddress()));
+        }
+        for (IginxInfo info : resp.getIginxInfos()) {
+            if (addresses.contains(info.getIp() + ":" + info.getPort())) {
+                continue;
+            }
+            List<Connection> discovered = new ArrayList<>();
+            for (int i = 0; i < connectionsPerNode; i++) {
+                Connection connection = new Connection(info.getIp(), info.getPort());
+                try {
+                    connection.open();
+                } catch (SessionException e) {
+                    logger.warn("connect to iginx {}:{} failure: ", info.getIp(), info.getPort(), e);
+                }
+                discovered.add(connection);
+            }
+            synchronized (this) {
+                if (isClosed) {
+                    discovered.forEach(Connection::close);
+                    return;
+                }
+                connections.addAll(discovered);
+                notifyAll();
+            }
+            logger.info("add {} connections to iginx {}:{}", connectionsPerNode, info.getIp(), info.getPort());
+        }
+    }
+
+    @FunctionalInterface
+    public interface Rpc<T> {
+
+        T call(Connection connection) throws TException;
+
+    }
+
+    public class Connection {
+
+        private volatile String host;
+
+        private volatile int port;
+
+        private TTransport transport;
+
+        private IService.Iface client;
+
+        private RequestTrackingProtocol protocol;
+
+        private long sessionId;
+
+        private volatile boolean healthy;
+
+        private boolean busy;
+
+        private Connection(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public IService.Iface getClient() {
+            return client;
+        }
+
+        public long getSessionId() {
+            return sessionId;
+        }
+
+        public String getAddress() {
+            return host + ":" + port;
+        }
+
+        boolean isHealthy() {
+            return healthy;
+        }
+
+        private void open() throws SessionException {
+            int redirectTimes = 0;
+            while (true) {
+                TSocket socket = new TSocket(host, port, 0, CONNECT_TIMEOUT);
+                transport = framedTransport ? new TFramedTransport(socket, MAX_FRAME_SIZE) : socket;
+                OpenSessionResp resp;
+                try {
+                    transport.open();
+                    protocol = new RequestTrackingProtocol(compactProtocol ? new TCompactProtocol(transport) : new TBinaryProtocol(transport));
+                    client = new IService.Client(protocol);
+
+                    OpenSessionReq req = new OpenSessionReq();
+                    req.setUsername(username);
+                    req.setPassword(password);
+                    resp = client.openSession(req);
+                } catch (TException e) {
+                    transport.close();
+                    throw new SessionException(e);
+                }
+
+                if (RpcUtils.verifyNoRedirect(resp.status)) {
+                    sessionId = resp.getSessionId();
+                    healthy = true;
+                    return;
+                }
+                transport.close();
+
+                redirectTimes++;
+                if (redirectTimes > MAX_REDIRECT_TIME) {
+                    throw new SessionException("重定向次数过多！");
+                }
+                redirect(resp.status);
+            }
+        }
+
+        private void redirect(Status status) throws SessionException {
+            String[] targetAddress = status.getMessage().split(":");
+            if (targetAddress.length != 2) {
+                throw new SessionException("unexpected redirect address " + status.getMessage());
+            }
+            logger.info("当前请求将被重定向到：" + status.getMessage());
+            this.host = targetAddress[0];
+            this.port = Integer.parseInt(targetAddress[1]);
+        }
+
+        private void close() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                if (healthy) {
+                    client.closeSession(new CloseSessionReq(sessionId));
+                }
+            } catch (TException e) {
+                logger.debug("close session of {} failure: ", getAddress(), e);
+            } finally {
+                healthy = false;
+                transport.close();
+            }
+        }
+
+    }
+
+    /**
+     * 客户端在请求完整写出并 flush 之后才开始读取响应，据此判断请求是否已经发出
+     */
+    private static class RequestTrackingProtocol extends TProtocolDecorator {
+
+        private volatile boolean sent;
+
+        RequestTrackingProtocol(TProtocol protocol) {
+            super(protocol);
+        }
+
+        @Override
+        public TMessage readMessageBegin() throws TException {
+            sent = true;
+            return super.readMessageBegin();
+        }
+
+    }
+
+}
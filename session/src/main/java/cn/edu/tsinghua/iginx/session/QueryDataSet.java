@@ -21,13 +21,16 @@ package cn.edu.tsinghua.iginx.session;
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
 import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.thrift.DataType;
+import cn.edu.tsinghua.iginx.thrift.FetchResultsResp;
 import cn.edu.tsinghua.iginx.thrift.QueryDataSetV2;
+import cn.edu.tsinghua.iginx.thrift.QueryDataSetV3;
 import cn.edu.tsinghua.iginx.utils.Bitmap;
-import cn.edu.tsinghua.iginx.utils.Pair;
 
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import static cn.edu.tsinghua.iginx.utils.ByteUtils.getBytesFromByteBuffer;
+import static cn.edu.tsinghua.iginx.utils.ByteUtils.getColumnValuesWithNullByDataType;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getValueFromByteBufferByDataType;
 
 public class QueryDataSet {
@@ -40,6 +43,9 @@ public class QueryDataSet {
 
     private final Session session;
 
+    // 执行查询的节点地址，后续拉取结果需要发往同一节点
+    private final String address;
+
     private final long queryId;
 
     private final List<String> columnList;
@@ -48,57 +54,72 @@ public class QueryDataSet {
 
     private final int fetchSize;
 
+    // 按行编码的一批结果
     private List<ByteBuffer> valuesList;
 
     private List<ByteBuffer> bitmapList;
 
+    // 按列编码的一批结果，解码后每列一个数组
+    private Object[][] columnValues;
+
+    private int size;
+
     private State state;
 
     private int index;
 
-    public QueryDataSet(Session session, long queryId, List<String> columnList, List<DataType> dataTypeList, int fetchSize, List<ByteBuffer> valuesList, List<ByteBuffer> bitmapList) {
+    public QueryDataSet(Session session, String address, long queryId, List<String> columnList, List<DataType> dataTypeList, int fetchSize, QueryDataSetV2 rowDataSet, QueryDataSetV3 columnDataSet) {
         this.session = session;
+        this.address = address;
         this.queryId = queryId;
         this.columnList = columnList;
         this.dataTypeList = dataTypeList;
         this.fetchSize = fetchSize;
-        this.valuesList = valuesList;
-        this.bitmapList = bitmapList;
         this.state = State.UNKNOWN;
-        this.index = 0;
+        load(rowDataSet, columnDataSet);
     }
 
     public void close() throws SessionException, ExecutionException {
-        session.closeQuery(queryId);
+        session.closeQuery(address, queryId);
     }
 
-    private void fetch() throws SessionException, ExecutionException {
-        if (bitmapList != null && index != bitmapList.size()) { // 只有之前的被消费完才有可能继续取数据
-            return;
-        }
-        bitmapList = null;
+    private void load(QueryDataSetV2 rowDataSet, QueryDataSetV3 columnDataSet) {
         valuesList = null;
+        bitmapList = null;
+        columnValues = null;
+        size = 0;
         index = 0;
+        if (columnDataSet != null) {
+            size = columnDataSet.getRowCount();
+            columnValues = new Object[dataTypeList.size()][];
+            for (int i = 0; i < dataTypeList.size(); i++) {
+                columnValues[i] = getColumnValuesWithNullByDataType(columnDataSet.getValuesList().get(i),
+                    columnDataSet.getBitmapList().get(i), dataTypeList.get(i), size);
+            }
+        } else if (rowDataSet != null) {
+            valuesList = rowDataSet.getValuesList();
+            bitmapList = rowDataSet.getBitmapList();
+            size = valuesList.size();
+        }
+    }
 
-        Pair<QueryDataSetV2, Boolean> pair = session.fetchResult(queryId, fetchSize);
-        if (pair.k != null) {
-            bitmapList = pair.k.bitmapList;
-            valuesList = pair.k.valuesList;
+    private void fetch() throws SessionException, ExecutionException {
+        if (index != size) { // 只有之前的被消费完才有可能继续取数据
+            return;
         }
-        state = pair.v ? State.HAS_MORE : State.NO_MORE;
+        FetchResultsResp resp = session.fetchResult(address, queryId, fetchSize);
+        load(resp.getQueryDataSet(), resp.getColumnDataSet());
+        state = resp.isHasMoreResults() ? State.HAS_MORE : State.NO_MORE;
     }
 
     public boolean hasMore() throws SessionException, ExecutionException {
-        if (valuesList != null && index < valuesList.size()) {
+        if (index < size) {
             return true;
         }
-        bitmapList = null;
-        valuesList = null;
-        index = 0;
         if (state == State.HAS_MORE || state == State.UNKNOWN) {
             fetch();
         }
-        return valuesList != null;
+        return index < size;
     }
 
     public Object[] nextRow() throws SessionException, ExecutionException {
@@ -106,11 +127,18 @@ public class QueryDataSet {
             return null;
         }
         // nextRow 只会返回本地的 row，如果本地没有，在进行 hasMore 操作时候，就一定也已经取回来了
+        Object[] values = new Object[dataTypeList.size()];
+        if (columnValues != null) {
+            for (int i = 0; i < dataTypeList.size(); i++) {
+                values[i] = columnValues[i][index];
+            }
+            index++;
+            return values;
+        }
         ByteBuffer valuesBuffer = valuesList.get(index);
         ByteBuffer bitmapBuffer = bitmapList.get(index);
         index++;
-        Bitmap bitmap = new Bitmap(dataTypeList.size(), bitmapBuffer.array());
-        Object[] values = new Object[dataTypeList.size()];
+        Bitmap bitmap = new Bitmap(dataTypeList.size(), getBytesFromByteBuffer(bitmapBuffer));
         for (int i = 0; i < dataTypeList.size(); i++) {
             if (bitmap.get(i)) {
                 values[i] = getValueFromByteBufferByDataType(valuesBuffer, dataTypeList.get(i));
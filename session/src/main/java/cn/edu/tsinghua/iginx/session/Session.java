@@ -27,10 +27,6 @@ import cn.edu.tsinghua.iginx.utils.Pair;
 import cn.edu.tsinghua.iginx.utils.RpcUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.transport.TSocket;
-import org.apache.thrift.transport.TTransport;
-import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,8 +38,6 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getByteArrayFromLongArray;
@@ -52,22 +46,11 @@ public class Session {
 
     private static final Logger logger = LoggerFactory.getLogger(Session.class);
 
-    private static final int MAX_REDIRECT_TIME = 3;
-
     private static final String USERNAME = "root";
 
     private static final String PASSWORD = "root";
 
-    private final String username;
-    private final String password;
-    private final ReadWriteLock lock;
-    private String host;
-    private int port;
-    private IService.Iface client;
-    private long sessionId;
-    private TTransport transport;
-    private boolean isClosed;
-    private int redirectTimes;
+    private final ConnectionPool pool;
 
     public Session(String host, int port) {
         this(host, port, USERNAME, PASSWORD);
@@ -82,145 +65,37 @@ public class Session {
     }
 
     public Session(String host, int port, String username, String password) {
-        this.host = host;
-        this.port = port;
-        this.username = username;
-        this.password = password;
-        this.isClosed = true;
-        this.redirectTimes = 0;
-        this.lock = new ReentrantReadWriteLock();
+        this(host, port, username, password, 1, false);
     }
 
-    private synchronized boolean checkRedirect(Status status) throws SessionException, TException {
-        if (RpcUtils.verifyNoRedirect(status)) {
-            redirectTimes = 0;
-            return false;
-        }
-
-        redirectTimes += 1;
-        if (redirectTimes > MAX_REDIRECT_TIME) {
-            throw new SessionException("重定向次数过多！");
-        }
-
-        lock.writeLock().lock();
-
-        try {
-            tryCloseSession();
-
-            while (redirectTimes <= MAX_REDIRECT_TIME) {
-
-                String[] targetAddress = status.getMessage().split(":");
-                if (targetAddress.length != 2) {
-                    throw new SessionException("unexpected redirect address " + status.getMessage());
-                }
-                logger.info("当前请求将被重定向到：" + status.getMessage());
-                this.host = targetAddress[0];
-                this.port = Integer.parseInt(targetAddress[1]);
-
-                OpenSessionResp resp = tryOpenSession();
-
-                if (RpcUtils.verifyNoRedirect(resp.status)) {
-                    sessionId = resp.getSessionId();
-                    break;
-                }
-
-                status = resp.status;
-
-                redirectTimes += 1;
-            }
-
-            if (redirectTimes > MAX_REDIRECT_TIME) {
-                throw new SessionException("重定向次数过多！");
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
-
-        return true;
+    /**
+     * @param connectionsPerNode 与每个 IginX 节点建立的连接数，多个线程可以同时使用不同的连接发送请求
+     * @param discoverNodes 是否通过 getClusterInfo 发现集群中的其他节点，并将请求分摊到全部节点上
+     */
+    public Session(String host, int port, String username, String password, int connectionsPerNode, boolean discoverNodes) {
+        this.pool = new ConnectionPool(host, port, username, password, connectionsPerNode, discoverNodes);
     }
 
-    private OpenSessionResp tryOpenSession() throws SessionException, TException {
-        transport = new TSocket(host, port);
-        if (!transport.isOpen()) {
-            try {
-                transport.open();
-            } catch (TTransportException e) {
-                throw new SessionException(e);
-            }
-        }
-
-        client = new IService.Client(new TBinaryProtocol(transport));
-
-        OpenSessionReq req = new OpenSessionReq();
-        req.setUsername(username);
-        req.setPassword(password);
-
-        return client.openSession(req);
+    /**
+     * 服务端的 thriftServerType 为 threadedSelector 时需要在打开会话前开启
+     */
+    public void setFramedTransport(boolean framedTransport) {
+        pool.setFramedTransport(framedTransport);
     }
 
-    private void tryCloseSession() throws SessionException {
-        CloseSessionReq req = new CloseSessionReq(sessionId);
-        try {
-            client.closeSession(req);
-        } catch (TException e) {
-            throw new SessionException(e);
-        } finally {
-            if (transport != null) {
-                transport.close();
-            }
-        }
+    /**
+     * 服务端的 thriftProtocol 为 compact 时需要在打开会话前开启
+     */
+    public void setCompactProtocol(boolean compactProtocol) {
+        pool.setCompactProtocol(compactProtocol);
     }
 
-    public synchronized void openSession() throws SessionException {
-        if (!isClosed) {
-            return;
-        }
-
-        try {
-            do {
-                OpenSessionResp resp = tryOpenSession();
-
-                if (RpcUtils.verifyNoRedirect(resp.status)) {
-                    sessionId = resp.getSessionId();
-                    break;
-                }
-
-                transport.close();
-
-                String[] targetAddress = resp.status.getMessage().split(":");
-                if (targetAddress.length != 2) {
-                    throw new SessionException("unexpected redirect address " + resp.status.getMessage());
-                }
-                logger.info("当前请求将被重定向到：" + resp.status.getMessage());
-
-                this.host = targetAddress[0];
-                this.port = Integer.parseInt(targetAddress[1]);
-                redirectTimes += 1;
-
-            } while (redirectTimes <= MAX_REDIRECT_TIME);
-
-            if (redirectTimes > MAX_REDIRECT_TIME) {
-                throw new SessionException("重定向次数过多！");
-            }
-            redirectTimes = 0;
-
-        } catch (TException e) {
-            transport.close();
-            throw new SessionException(e);
-        }
-
-        isClosed = false;
+    public void openSession() throws SessionException {
+        pool.open();
     }
 
-    public synchronized void closeSession() throws SessionException {
-        if (isClosed) {
-            return;
-        }
-        try {
-            tryCloseSession();
-        } finally {
-            isClosed = true;
-        }
+    public void closeSession() throws SessionException {
+        pool.close();
     }
 
     public void addStorageEngine(String ip, int port, String type, Map<String, String> extraParams) throws SessionException, ExecutionException {
@@ -229,18 +104,10 @@ public class Session {
     }
 
     public void addStorageEngines(List<StorageEngine> storageEngines) throws SessionException, ExecutionException {
-        AddStorageEnginesReq req = new AddStorageEnginesReq(sessionId, storageEngines);
+        AddStorageEnginesReq req = new AddStorageEnginesReq().setStorageEngines(storageEngines);
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.addStorageEngines(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().addStorageEngines(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -248,18 +115,12 @@ public class Session {
     }
 
     public List<Column> showColumns() throws SessionException, ExecutionException {
-        ShowColumnsReq req = new ShowColumnsReq(sessionId);
+        ShowColumnsReq req = new ShowColumnsReq();
 
         ShowColumnsResp resp;
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.showColumns(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().showColumns(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -279,18 +140,10 @@ public class Session {
     }
 
     public void deleteColumns(List<String> paths) throws SessionException, ExecutionException {
-        DeleteColumnsReq req = new DeleteColumnsReq(sessionId, mergeAndSortPaths(paths));
+        DeleteColumnsReq req = new DeleteColumnsReq().setPaths(mergeAndSortPaths(paths));
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.deleteColumns(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().deleteColumns(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -369,7 +222,6 @@ public class Session {
         }
 
         InsertColumnRecordsReq req = new InsertColumnRecordsReq();
-        req.setSessionId(sessionId);
         req.setPaths(paths);
         req.setTimestamps(getByteArrayFromLongArray(timestamps));
         req.setValuesList(valueBufferList);
@@ -378,15 +230,7 @@ public class Session {
         req.setTagsList(sortedTagsList);
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.insertColumnRecords(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().insertColumnRecords(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -465,7 +309,6 @@ public class Session {
         }
 
         InsertNonAlignedColumnRecordsReq req = new InsertNonAlignedColumnRecordsReq();
-        req.setSessionId(sessionId);
         req.setPaths(paths);
         req.setTimestamps(getByteArrayFromLongArray(timestamps));
         req.setValuesList(valueBufferList);
@@ -474,15 +317,7 @@ public class Session {
         req.setTagsList(sortedTagsList);
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.insertNonAlignedColumnRecords(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().insertNonAlignedColumnRecords(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -562,7 +397,6 @@ public class Session {
         }
 
         InsertRowRecordsReq req = new InsertRowRecordsReq();
-        req.setSessionId(sessionId);
         req.setPaths(paths);
         req.setTimestamps(getByteArrayFromLongArray(timestamps));
         req.setValuesList(valueBufferList);
@@ -571,15 +405,7 @@ public class Session {
         req.setTagsList(sortedTagsList);
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.insertRowRecords(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().insertRowRecords(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -664,7 +490,6 @@ public class Session {
         }
 
         InsertNonAlignedRowRecordsReq req = new InsertNonAlignedRowRecordsReq();
-        req.setSessionId(sessionId);
         req.setPaths(paths);
         req.setTimestamps(getByteArrayFromLongArray(timestamps));
         req.setValuesList(valueBufferList);
@@ -673,15 +498,7 @@ public class Session {
         req.setTagsList(sortedTagsList);
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.insertNonAlignedRowRecords(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().insertNonAlignedRowRecords(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -695,18 +512,13 @@ public class Session {
     }
 
     public void deleteDataInColumns(List<String> paths, long startTime, long endTime) throws SessionException, ExecutionException {
-        DeleteDataInColumnsReq req = new DeleteDataInColumnsReq(sessionId, mergeAndSortPaths(paths), startTime, endTime);
+        DeleteDataInColumnsReq req = new DeleteDataInColumnsReq()
+            .setPaths(mergeAndSortPaths(paths))
+            .setStartTime(startTime)
+            .setEndTime(endTime);
 
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.deleteDataInColumns(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().deleteDataInColumns(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -724,7 +536,10 @@ public class Session {
             logger.error("Invalid query request!");
             return null;
         }
-        QueryDataReq req = new QueryDataReq(sessionId, mergeAndSortPaths(paths), startTime, endTime);
+        QueryDataReq req = new QueryDataReq()
+            .setPaths(mergeAndSortPaths(paths))
+            .setStartTime(startTime)
+            .setEndTime(endTime);
 
         if (tagsList != null && !tagsList.isEmpty()) {
             req.setTagsList(tagsList);
@@ -733,14 +548,8 @@ public class Session {
         QueryDataResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.queryData(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().queryData(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -756,7 +565,11 @@ public class Session {
 
     public SessionAggregateQueryDataSet aggregateQuery(List<String> paths, long startTime, long endTime, AggregateType aggregateType, Map<String, List<String>> tagsList)
             throws SessionException, ExecutionException {
-        AggregateQueryReq req = new AggregateQueryReq(sessionId, mergeAndSortPaths(paths), startTime, endTime, aggregateType);
+        AggregateQueryReq req = new AggregateQueryReq()
+            .setPaths(mergeAndSortPaths(paths))
+            .setStartTime(startTime)
+            .setEndTime(endTime)
+            .setAggregateType(aggregateType);
 
         if (tagsList != null && !tagsList.isEmpty()) {
             req.setTagsList(tagsList);
@@ -764,14 +577,8 @@ public class Session {
 
         AggregateQueryResp resp;
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.aggregateQuery(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().aggregateQuery(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -787,8 +594,12 @@ public class Session {
 
     public SessionQueryDataSet downsampleQuery(List<String> paths, long startTime, long endTime, AggregateType aggregateType, long precision, Map<String, List<String>> tagsList)
         throws SessionException, ExecutionException {
-        DownsampleQueryReq req = new DownsampleQueryReq(sessionId, mergeAndSortPaths(paths), startTime, endTime,
-                aggregateType, precision);
+        DownsampleQueryReq req = new DownsampleQueryReq()
+            .setPaths(mergeAndSortPaths(paths))
+            .setStartTime(startTime)
+            .setEndTime(endTime)
+            .setAggregateType(aggregateType)
+            .setPrecision(precision);
 
         if (tagsList != null && !tagsList.isEmpty()) {
             req.setTagsList(tagsList);
@@ -797,14 +608,8 @@ public class Session {
         DownsampleQueryResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.downsampleQuery(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().downsampleQuery(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -814,18 +619,12 @@ public class Session {
     }
 
     public int getReplicaNum() throws SessionException, ExecutionException {
-        GetReplicaNumReq req = new GetReplicaNumReq(sessionId);
+        GetReplicaNumReq req = new GetReplicaNumReq();
         GetReplicaNumResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.getReplicaNum(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().getReplicaNum(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -835,18 +634,12 @@ public class Session {
     }
 
     public SessionExecuteSqlResult executeSql(String statement) throws SessionException, ExecutionException {
-        ExecuteSqlReq req = new ExecuteSqlReq(sessionId, statement);
+        ExecuteSqlReq req = new ExecuteSqlReq().setStatement(statement);
         ExecuteSqlResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.executeSql(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.call(connection -> connection.getClient().executeSql(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             e.printStackTrace();
@@ -868,7 +661,9 @@ public class Session {
             return null;
         }
 
-        LastQueryReq req = new LastQueryReq(sessionId, mergeAndSortPaths(paths), startTime);
+        LastQueryReq req = new LastQueryReq()
+            .setPaths(mergeAndSortPaths(paths))
+            .setStartTime(startTime);
         if (tagsList != null && !tagsList.isEmpty()) {
             req.setTagsList(tagsList);
         }
@@ -876,14 +671,8 @@ public class Session {
         LastQueryResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.lastQuery(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().lastQuery(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -893,17 +682,12 @@ public class Session {
     }
 
     public void addUser(String username, String password, Set<AuthType> auths) throws SessionException, ExecutionException  {
-        AddUserReq req = new AddUserReq(sessionId, username, password, auths);
+        AddUserReq req = new AddUserReq()
+            .setUsername(username)
+            .setPassword(password)
+            .setAuths(auths);
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.addUser(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().addUser(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -911,7 +695,7 @@ public class Session {
     }
 
     public void updateUser(String username, String password, Set<AuthType> auths) throws SessionException, ExecutionException {
-        UpdateUserReq req = new UpdateUserReq(sessionId, username);
+        UpdateUserReq req = new UpdateUserReq().setUsername(username);
         if (password != null) {
             req.setPassword(password);
         }
@@ -919,15 +703,7 @@ public class Session {
             req.setAuths(auths);
         }
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.updateUser(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().updateUser(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -935,17 +711,9 @@ public class Session {
     }
 
     public void deleteUser(String username) throws SessionException, ExecutionException {
-        DeleteUserReq req = new DeleteUserReq(sessionId, username);
+        DeleteUserReq req = new DeleteUserReq().setUsername(username);
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.deleteUser(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().deleteUser(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -953,19 +721,13 @@ public class Session {
     }
 
     public ClusterInfo getClusterInfo() throws SessionException, ExecutionException {
-        GetClusterInfoReq req = new GetClusterInfoReq(sessionId);
+        GetClusterInfoReq req = new GetClusterInfoReq();
 
         GetClusterInfoResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.getClusterInfo(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().getClusterInfo(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -1012,68 +774,51 @@ public class Session {
     }
 
     public QueryDataSet executeQuery(String statement, int fetchSize) throws SessionException, ExecutionException  {
-        ExecuteStatementReq req = new ExecuteStatementReq(sessionId, statement);
+        ExecuteStatementReq req = new ExecuteStatementReq().setStatement(statement);
         req.setFetchSize(fetchSize);
-        ExecuteStatementResp resp;
+        req.setEnableColumnDataSet(true);
+        // 查询结果保存在执行查询的节点上，记录节点地址以便后续拉取
+        Pair<ExecuteStatementResp, String> pair;
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.executeStatement(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
-            RpcUtils.verifySuccess(resp.status);
+            pair = pool.call(connection -> new Pair<>(connection.getClient().executeStatement(req.setSessionId(connection.getSessionId())),
+                connection.getAddress()), p -> p.k.status);
+            RpcUtils.verifySuccess(pair.k.status);
         } catch (TException e) {
             e.printStackTrace();
             throw new SessionException(e);
         }
 
+        ExecuteStatementResp resp = pair.k;
         long queryId = resp.getQueryId();
         List<String> columns = resp.getColumns();
         List<DataType> dataTypes = resp.getDataTypeList();
-        QueryDataSetV2 dataSetV2 = resp.getQueryDataSet();
 
-        return new QueryDataSet(this, queryId, columns, dataTypes, fetchSize, dataSetV2.valuesList, dataSetV2.bitmapList);
+        return new QueryDataSet(this, pair.v, queryId, columns, dataTypes, fetchSize, resp.getQueryDataSet(), resp.getColumnDataSet());
     }
 
-    Pair<QueryDataSetV2, Boolean> fetchResult(long queryId, int fetchSize) throws SessionException, ExecutionException {
-        FetchResultsReq req = new FetchResultsReq(sessionId, queryId);
+    FetchResultsResp fetchResult(String address, long queryId, int fetchSize) throws SessionException, ExecutionException {
+        FetchResultsReq req = new FetchResultsReq().setQueryId(queryId);
         req.setFetchSize(fetchSize);
         FetchResultsResp resp;
 
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.fetchResults(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.call(address, connection -> connection.getClient().fetchResults(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             e.printStackTrace();
             throw new SessionException(e);
         }
 
-        return new Pair<>(resp.getQueryDataSet(), resp.isHasMoreResults());
+        return resp;
     }
 
 
-    void closeQuery(long queryId) throws SessionException, ExecutionException {
-        CloseStatementReq req = new CloseStatementReq(sessionId, queryId);
+    void closeQuery(String address, long queryId) throws SessionException, ExecutionException {
+        CloseStatementReq req = new CloseStatementReq().setQueryId(queryId);
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.closeStatement(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(status));
+            Status status = pool.call(address, connection -> connection.getClient().closeStatement(req.setSessionId(connection.getSessionId())),
+                s -> s);
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -1082,21 +827,17 @@ public class Session {
 
     public long commitTransformJob(List<TaskInfo> taskInfoList, ExportType exportType,
                                    String fileName) throws SessionException, ExecutionException {
-        CommitTransformJobReq req = new CommitTransformJobReq(sessionId, taskInfoList, exportType);
+        CommitTransformJobReq req = new CommitTransformJobReq()
+            .setTaskList(taskInfoList)
+            .setExportType(exportType);
         if (fileName != null) {
             req.setFileName(fileName);
         }
 
         CommitTransformJobResp resp;
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.commitTransformJob(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while (checkRedirect(resp.status));
+            resp = pool.call(connection -> connection.getClient().commitTransformJob(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             e.printStackTrace();
@@ -1106,17 +847,11 @@ public class Session {
     }
 
     public JobState queryTransformJobStatus(long jobId) throws SessionException, ExecutionException {
-        QueryTransformJobStatusReq req = new QueryTransformJobStatusReq(sessionId, jobId);
+        QueryTransformJobStatusReq req = new QueryTransformJobStatusReq().setJobId(jobId);
         QueryTransformJobStatusResp resp;
         try {
-            do {
-                lock.readLock().lock();
-                try {
-                    resp = client.queryTransformJobStatus(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(resp.status));
+            resp = pool.callIdempotent(connection -> connection.getClient().queryTransformJobStatus(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
             RpcUtils.verifySuccess(resp.status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -1125,17 +860,9 @@ public class Session {
     }
 
     public void cancelTransformJob(long jobId) throws SessionException, ExecutionException {
-        CancelTransformJobReq req = new CancelTransformJobReq(sessionId, jobId);
+        CancelTransformJobReq req = new CancelTransformJobReq().setJobId(jobId);
         try {
-            Status status;
-            do {
-                lock.readLock().lock();
-                try {
-                    status = client.cancelTransformJob(req);
-                } finally {
-                    lock.readLock().unlock();
-                }
-            } while(checkRedirect(status));
+            Status status = pool.call(connection -> connection.getClient().cancelTransformJob(req.setSessionId(connection.getSessionId())));
             RpcUtils.verifySuccess(status);
         } catch (TException e) {
             throw new SessionException(e);
@@ -26,6 +26,7 @@ import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
+import static cn.edu.tsinghua.iginx.utils.ByteUtils.getBytesFromByteBuffer;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getLongArrayFromByteBuffer;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getValueFromByteBufferByDataType;
 
@@ -113,7 +114,7 @@ public class SessionExecuteSqlResult {
             List<Object> tempValues = new ArrayList<>();
             ByteBuffer valuesBuffer = valuesList.get(i);
             ByteBuffer bitmapBuffer = bitmapList.get(i);
-            Bitmap bitmap = new Bitmap(dataTypeList.size(), bitmapBuffer.array());
+            Bitmap bitmap = new Bitmap(dataTypeList.size(), getBytesFromByteBuffer(bitmapBuffer));
             for (int j = 0; j < dataTypeList.size(); j++) {
                 if (bitmap.get(j)) {
                     tempValues.add(getValueFromByteBufferByDataType(valuesBuffer, dataTypeList.get(j)));
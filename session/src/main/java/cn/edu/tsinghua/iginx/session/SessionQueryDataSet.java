@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static cn.edu.tsinghua.iginx.utils.ByteUtils.getBytesFromByteBuffer;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getLongArrayFromByteBuffer;
 import static cn.edu.tsinghua.iginx.utils.ByteUtils.getValueFromByteBufferByDataType;
 
@@ -74,7 +75,7 @@ public class SessionQueryDataSet {
             List<Object> tempValues = new ArrayList<>();
             ByteBuffer valuesBuffer = valuesList.get(i);
             ByteBuffer bitmapBuffer = bitmapList.get(i);
-            Bitmap bitmap = new Bitmap(dataTypeList.size(), bitmapBuffer.array());
+            Bitmap bitmap = new Bitmap(dataTypeList.size(), getBytesFromByteBuffer(bitmapBuffer));
             for (int j = 0; j < dataTypeList.size(); j++) {
                 if (bitmap.get(j)) {
                     tempValues.add(getValueFromByteBufferByDataType(valuesBuffer, dataTypeList.get(j)));
@@ -85,6 +85,12 @@ public final class Arguments {
         }
     }
 
+    public static void checkPositive(final long number, final String name) {
+        if (number <= 0) {
+            throw new IllegalArgumentException("Expecting a positive number for " + name);
+        }
+    }
+
     public static void checkTaskType(TaskType expected, TaskType actual) {
         if (actual != null && !expected.equals(actual)) {
             throw new IllegalArgumentException("Expecting task type: " + expected + ", actual: " + actual);
@@ -23,22 +23,31 @@ import cn.edu.tsinghua.iginx.session_v2.write.Record;
 import cn.edu.tsinghua.iginx.session_v2.write.Table;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * 异步写入客户端：写入的数据在客户端攒批后发送，返回的 future 在数据所在的批次写入完成后结束
+ */
 public interface AsyncWriteClient extends AutoCloseable {
 
-    void writePoint(final Point point);
+    CompletableFuture<Void> writePoint(final Point point);
+
+    CompletableFuture<Void> writePoints(final List<Point> points);
 
-    void writePoints(final List<Point> points);
+    CompletableFuture<Void> writeRecord(final Record record);
 
-    void writeRecord(final Record record);
+    CompletableFuture<Void> writeRecords(final List<Record> records);
 
-    void writeRecords(final List<Record> records);
+    <M> CompletableFuture<Void> writeMeasurement(final M measurement);
 
-    <M> void writeMeasurement(final M measurement);
+    <M> CompletableFuture<Void> writeMeasurements(final List<M> measurements);
 
-    <M> void writeMeasurements(final List<M> measurements);
+    CompletableFuture<Void> writeTable(final Table table);
 
-    void writeTable(final Table table);
+    /**
+     * 立即发送缓存的数据，并等待已发出的请求全部完成
+     */
+    void flush();
 
     @Override
     void close() throws Exception;
@@ -24,6 +24,8 @@ public interface IginXClient extends AutoCloseable {
 
     AsyncWriteClient getAsyncWriteClient();
 
+    AsyncWriteClient getAsyncWriteClient(WriteOptions writeOptions);
+
     QueryClient getQueryClient();
 
     DeleteClient getDeleteClient();
@@ -33,11 +33,23 @@ public final class IginXClientOptions {
 
     private final String password;
 
+    private final int connectionsPerNode;
+
+    private final boolean discoverNodes;
+
+    private final boolean framedTransport;
+
+    private final boolean compactProtocol;
+
     private IginXClientOptions(IginXClientOptions.Builder builder) {
         this.host = builder.host;
         this.port = builder.port;
         this.username = builder.username;
         this.password = builder.password;
+        this.connectionsPerNode = builder.connectionsPerNode;
+        this.discoverNodes = builder.discoverNodes;
+        this.framedTransport = builder.framedTransport;
+        this.compactProtocol = builder.compactProtocol;
     }
 
     public static IginXClientOptions.Builder builder() {
@@ -60,6 +72,22 @@ public final class IginXClientOptions {
         return password;
     }
 
+    public int getConnectionsPerNode() {
+        return connectionsPerNode;
+    }
+
+    public boolean isDiscoverNodes() {
+        return discoverNodes;
+    }
+
+    public boolean isFramedTransport() {
+        return framedTransport;
+    }
+
+    public boolean isCompactProtocol() {
+        return compactProtocol;
+    }
+
     public static class Builder {
 
         private String host;
@@ -70,6 +98,14 @@ public final class IginXClientOptions {
 
         private String password;
 
+        private int connectionsPerNode = 1;
+
+        private boolean discoverNodes = false;
+
+        private boolean framedTransport = false;
+
+        private boolean compactProtocol = false;
+
         private Builder() {
         }
 
@@ -110,6 +146,39 @@ public final class IginXClientOptions {
             return this;
         }
 
+        /**
+         * 与每个 IginX 节点建立的连接数，多个线程可以同时使用不同的连接发送请求
+         */
+        public IginXClientOptions.Builder connectionsPerNode(int connectionsPerNode) {
+            Arguments.checkPositive(connectionsPerNode, "connectionsPerNode");
+            this.connectionsPerNode = connectionsPerNode;
+            return this;
+        }
+
+        /**
+         * 是否通过集群信息发现其他 IginX 节点，并将请求分摊到全部节点上
+         */
+        public IginXClientOptions.Builder discoverNodes(boolean discoverNodes) {
+            this.discoverNodes = discoverNodes;
+            return this;
+        }
+
+        /**
+         * 服务端的 thriftServerType 为 threadedSelector 时需要开启
+         */
+        public IginXClientOptions.Builder framedTransport(boolean framedTransport) {
+            this.framedTransport = framedTransport;
+            return this;
+        }
+
+        /**
+         * 服务端的 thriftProtocol 为 compact 时需要开启
+         */
+        public IginXClientOptions.Builder compactProtocol(boolean compactProtocol) {
+            this.compactProtocol = compactProtocol;
+            return this;
+        }
+
         public IginXClientOptions build() {
             if (this.host == null || this.port == 0) {
                 throw new IllegalStateException("the host and port to connect to Iginx has to be defined.");
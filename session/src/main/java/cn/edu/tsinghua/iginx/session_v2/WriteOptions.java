@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iginx.session_v2;
+
+/**
+ * 异步写入的配置：数据在客户端攒批后发送，达到 batchSize 个数据点或等待 flushInterval 毫秒后发出一个请求，
+ * 最多同时有 maxInFlightRequests 个请求在不同的连接上执行，已缓存但未写入成功的数据点超过 bufferLimit 时写入调用阻塞
+ */
+public final class WriteOptions {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 2;
+
+    public static final int DEFAULT_BUFFER_LIMIT = 10000;
+
+    public static final WriteOptions DEFAULTS = WriteOptions.builder().build();
+
+    private final int batchSize;
+
+    private final long flushInterval;
+
+    private final int maxInFlightRequests;
+
+    private final int bufferLimit;
+
+    private WriteOptions(WriteOptions.Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.flushInterval = builder.flushInterval;
+        this.maxInFlightRequests = builder.maxInFlightRequests;
+        this.bufferLimit = builder.bufferLimit;
+    }
+
+    public static WriteOptions.Builder builder() {
+        return new WriteOptions.Builder();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    public int getBufferLimit() {
+        return bufferLimit;
+    }
+
+    public static class Builder {
+
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+        private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+
+        private int bufferLimit = DEFAULT_BUFFER_LIMIT;
+
+        private Builder() {
+        }
+
+        public WriteOptions.Builder batchSize(int batchSize) {
+            Arguments.checkPositive(batchSize, "batchSize");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public WriteOptions.Builder flushInterval(long flushInterval) {
+            Arguments.checkPositive(flushInterval, "flushInterval");
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public WriteOptions.Builder maxInFlightRequests(int maxInFlightRequests) {
+            Arguments.checkPositive(maxInFlightRequests, "maxInFlightRequests");
+            this.maxInFlightRequests = maxInFlightRequests;
+            return this;
+        }
+
+        public WriteOptions.Builder bufferLimit(int bufferLimit) {
+            Arguments.checkPositive(bufferLimit, "bufferLimit");
+            this.bufferLimit = bufferLimit;
+            return this;
+        }
+
+        public WriteOptions build() {
+            if (bufferLimit < batchSize) {
+                throw new IllegalStateException("bufferLimit should not be less than batchSize.");
+            }
+            return new WriteOptions(this);
+        }
+
+    }
+
+}
@@ -19,124 +19,342 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.session_v2.AsyncWriteClient;
+import cn.edu.tsinghua.iginx.session_v2.IginXClientOptions;
 import cn.edu.tsinghua.iginx.session_v2.WriteClient;
+import cn.edu.tsinghua.iginx.session_v2.WriteOptions;
+import cn.edu.tsinghua.iginx.session_v2.exception.IginXException;
 import cn.edu.tsinghua.iginx.session_v2.write.Point;
 import cn.edu.tsinghua.iginx.session_v2.write.Record;
 import cn.edu.tsinghua.iginx.session_v2.write.Table;
+import cn.edu.tsinghua.iginx.thrift.DataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
+/**
+ * 异步写入客户端：数据点与记录分别在客户端合并为按列和按行的批次，达到 batchSize 或等待 flushInterval 后发送。
+ * 每个请求在独立的连接上执行，最多同时执行 maxInFlightRequests 个请求，不同批次之间不保证写入顺序。
+ * 已缓存但未写入成功的数据点超过 bufferLimit 时，写入调用阻塞直到有请求完成
+ */
 public class AsyncWriteClientImpl extends AbstractFunctionClient implements AsyncWriteClient {
 
     private static final Logger logger = LoggerFactory.getLogger(AsyncWriteClientImpl.class);
 
-    private final WriteClient syncWriteClient; // 内部执行还是使用同步客户端来执行的
+    private final WriteOptions writeOptions;
 
     private final Collection<AutoCloseable> autoCloseables;
 
-    private final ExecutorService asyncWriteService;
-
     private final MeasurementMapper measurementMapper;
 
-    public AsyncWriteClientImpl(IginXClientImpl iginXClient, MeasurementMapper measurementMapper, Collection<AutoCloseable> autoCloseables) {
+    // 异步写入使用的独立连接池，每个节点的连接数与同时发送的请求数相同，避免与同一客户端上的其他请求互相争抢连接
+    private final IginXClientImpl connection;
+
+    private final BlockingQueue<WriteClient> idleWriteClients;
+
+    private final ExecutorService sendService;
+
+    private final ScheduledExecutorService flushService;
+
+    private final Semaphore bufferPermits;
+
+    private final Set<CompletableFuture<Void>> inFlightRequests = ConcurrentHashMap.newKeySet();
+
+    private Batch<Point> pointBatch;
+
+    private Batch<Record> recordBatch;
+
+    private volatile boolean isClosed = false;
+
+    public AsyncWriteClientImpl(IginXClientImpl iginXClient, MeasurementMapper measurementMapper, WriteOptions writeOptions,
+                                Collection<AutoCloseable> autoCloseables) {
         super(iginXClient);
 
+        this.writeOptions = writeOptions;
         this.autoCloseables = autoCloseables;
         this.measurementMapper = measurementMapper;
 
-        this.syncWriteClient = new WriteClientImpl(iginXClient, measurementMapper);
+        IginXClientOptions options = iginXClient.getOptions();
+        this.connection = new IginXClientImpl(IginXClientOptions.builder()
+            .host(options.getHost())
+            .port(options.getPort())
+            .authenticate(options.getUsername(), options.getPassword())
+            .connectionsPerNode(writeOptions.getMaxInFlightRequests())
+            .discoverNodes(options.isDiscoverNodes())
+            .framedTransport(options.isFramedTransport())
+            .compactProtocol(options.isCompactProtocol())
+            .build());
+        this.idleWriteClients = new ArrayBlockingQueue<>(writeOptions.getMaxInFlightRequests());
+        for (int i = 0; i < writeOptions.getMaxInFlightRequests(); i++) {
+            idleWriteClients.add(new WriteClientImpl(connection, measurementMapper));
+        }
 
-        this.asyncWriteService = Executors.newSingleThreadExecutor();
+        this.sendService = Executors.newFixedThreadPool(writeOptions.getMaxInFlightRequests());
+        this.flushService = Executors.newSingleThreadScheduledExecutor();
+        this.bufferPermits = new Semaphore(writeOptions.getBufferLimit());
         autoCloseables.add(this);
     }
 
     @Override
-    public void writePoint(Point point) {
-        writePoints(Collections.singletonList(point));
+    public CompletableFuture<Void> writePoint(Point point) {
+        return writePoints(Collections.singletonList(point));
     }
 
     @Override
-    public void writePoints(List<Point> points) {
-        asyncWriteService.execute(newAsyncWritePointsTask(points));
+    public CompletableFuture<Void> writePoints(List<Point> points) {
+        Map<String, DataType> dataTypeMap = new HashMap<>();
+        for (Point point : points) {
+            putDataType(dataTypeMap, point.getFullName(), point.getDataType());
+        }
+        int permits = acquire(points.size());
+        synchronized (this) {
+            checkIsClosed(permits);
+            if (pointBatch != null && pointBatch.conflictsWith(dataTypeMap)) {
+                sendPoints();
+            }
+            if (pointBatch == null) {
+                Batch<Point> newBatch = new Batch<>();
+                pointBatch = newBatch;
+                scheduleFlush(() -> {
+                    if (pointBatch == newBatch) {
+                        sendPoints();
+                    }
+                });
+            }
+            Batch<Point> batch = pointBatch;
+            batch.add(points, dataTypeMap, points.size(), permits);
+            if (batch.points >= writeOptions.getBatchSize()) {
+                sendPoints();
+            }
+            return batch.future;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> writeRecord(Record record) {
+        return writeRecords(Collections.singletonList(record));
     }
 
     @Override
-    public void writeRecord(Record record) {
-        writeRecords(Collections.singletonList(record));
+    public CompletableFuture<Void> writeRecords(List<Record> records) {
+        Map<String, DataType> dataTypeMap = new HashMap<>();
+        int points = 0;
+        for (Record record : records) {
+            for (int i = 0; i < record.getLength(); i++) {
+                putDataType(dataTypeMap, record.getFullName(i), record.getDataType(i));
+            }
+            points += record.getLength();
+        }
+        int permits = acquire(points);
+        synchronized (this) {
+            checkIsClosed(permits);
+            if (recordBatch != null && recordBatch.conflictsWith(dataTypeMap)) {
+                sendRecords();
+            }
+            if (recordBatch == null) {
+                Batch<Record> newBatch = new Batch<>();
+                recordBatch = newBatch;
+                scheduleFlush(() -> {
+                    if (recordBatch == newBatch) {
+                        sendRecords();
+                    }
+                });
+            }
+            Batch<Record> batch = recordBatch;
+            batch.add(records, dataTypeMap, points, permits);
+            if (batch.points >= writeOptions.getBatchSize()) {
+                sendRecords();
+            }
+            return batch.future;
+        }
     }
 
     @Override
-    public void writeRecords(List<Record> records) {
-        asyncWriteService.execute(newAsyncWriteRecordsTask(records));
+    public <M> CompletableFuture<Void> writeMeasurement(M measurement) {
+        return writeMeasurements(Collections.singletonList(measurement));
     }
 
     @Override
-    public <M> void writeMeasurement(M measurement) {
-        writeMeasurements(Collections.singletonList(measurement));
+    public <M> CompletableFuture<Void> writeMeasurements(List<M> measurements) {
+        return writeRecords(measurements.stream().map(measurementMapper::toRecord).collect(Collectors.toList()));
     }
 
     @Override
-    public <M> void writeMeasurements(List<M> measurements) {
-        asyncWriteService.execute(newAsyncWriteRecordsTask(measurements.stream().map(measurementMapper::toRecord).collect(Collectors.toList())));
+    public CompletableFuture<Void> writeTable(Table table) {
+        // 表本身已经是一个批次，直接发送
+        int permits = acquire(table.getLength() * table.getMeasurements().size());
+        synchronized (this) {
+            checkIsClosed(permits);
+            Batch<Table> batch = new Batch<>();
+            batch.add(Collections.singletonList(table), Collections.emptyMap(), 0, permits);
+            send(batch, (writeClient, tables) -> writeClient.writeTable(tables.get(0)));
+            return batch.future;
+        }
     }
 
     @Override
-    public void writeTable(Table table) {
-        asyncWriteService.execute(newAsyncWriteTableTask(table));
+    public void flush() {
+        synchronized (this) {
+            sendPoints();
+            sendRecords();
+        }
+        try {
+            CompletableFuture.allOf(inFlightRequests.toArray(new CompletableFuture[0])).join();
+        } catch (Exception e) {
+            // 失败已经通过各个批次的 future 通知调用方
+            logger.warn("some of async writes failed: ", e);
+        }
     }
 
     @Override
     public void close() throws Exception {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        }
         autoCloseables.remove(this);
-        asyncWriteService.shutdown();
-        if (!asyncWriteService.awaitTermination(10, TimeUnit.SECONDS)) {
-            asyncWriteService.shutdownNow();
+        flush();
+        flushService.shutdownNow();
+        sendService.shutdown();
+        if (!sendService.awaitTermination(10, TimeUnit.SECONDS)) {
+            sendService.shutdownNow();
+        }
+        try {
+            connection.close();
+        } catch (IginXException e) {
+            logger.warn("close async write connection failure: ", e);
         }
     }
 
-    private AsyncWriteTask newAsyncWritePointsTask(List<Point> points) {
-        return new AsyncWriteTask(points, null, null);
+    private static void putDataType(Map<String, DataType> dataTypeMap, String measurement, DataType dataType) {
+        if (dataTypeMap.getOrDefault(measurement, dataType) != dataType) {
+            throw new IllegalArgumentException("measurement " + measurement + " has multi data type, which is invalid.");
+        }
+        dataTypeMap.put(measurement, dataType);
     }
 
-    private AsyncWriteTask newAsyncWriteRecordsTask(List<Record> records) {
-        return new AsyncWriteTask(null, records, null);
+    /**
+     * 为缓存的数据点申请额度，超过 bufferLimit 的单次写入只申请 bufferLimit 个额度
+     */
+    private int acquire(int points) {
+        if (isClosed) {
+            throw new IginXException("Async write client has been closed.");
+        }
+        int permits = Math.min(points, writeOptions.getBufferLimit());
+        try {
+            bufferPermits.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IginXException("Interrupted while waiting for buffer space: ", e);
+        }
+        return permits;
     }
 
-    private AsyncWriteTask newAsyncWriteTableTask(Table table) {
-        return new AsyncWriteTask(null, null, table);
+    private void checkIsClosed(int permits) {
+        if (isClosed) {
+            bufferPermits.release(permits);
+            throw new IginXException("Async write client has been closed.");
+        }
     }
 
-    private class AsyncWriteTask implements Runnable {
+    /**
+     * 批次创建 flushInterval 毫秒后仍未发送时发送该批次
+     */
+    private void scheduleFlush(Runnable task) {
+        flushService.schedule(() -> {
+            synchronized (AsyncWriteClientImpl.this) {
+                task.run();
+            }
+        }, writeOptions.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    private void sendPoints() {
+        if (pointBatch != null) {
+            send(pointBatch, WriteClient::writePoints);
+            pointBatch = null;
+        }
+    }
+
+    private void sendRecords() {
+        if (recordBatch != null) {
+            send(recordBatch, WriteClient::writeRecords);
+            recordBatch = null;
+        }
+    }
+
+    private <T> void send(Batch<T> batch, BiConsumer<WriteClient, List<T>> action) {
+        inFlightRequests.add(batch.future);
+        sendService.execute(() -> {
+            WriteClient writeClient = null;
+            try {
+                writeClient = idleWriteClients.take();
+                action.accept(writeClient, batch.items);
+                batch.future.complete(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.future.completeExceptionally(e);
+            } catch (Exception e) {
+                logger.error("async write failure: ", e);
+                batch.future.completeExceptionally(e);
+            } finally {
+                if (writeClient != null) {
+                    idleWriteClients.add(writeClient);
+                }
+                bufferPermits.release(batch.permits);
+                inFlightRequests.remove(batch.future);
+            }
+        });
+    }
+
+    private static class Batch<T> {
+
+        final List<T> items = new ArrayList<>();
+
+        final Map<String, DataType> dataTypeMap = new HashMap<>();
 
-        final List<Point> points;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
 
-        final List<Record> records;
+        int points;
 
-        final Table table;
+        int permits;
 
-        AsyncWriteTask(List<Point> points, List<Record> records, Table table) {
-            this.points = points;
-            this.records = records;
-            this.table = table;
+        void add(List<T> items, Map<String, DataType> dataTypeMap, int points, int permits) {
+            this.items.addAll(items);
+            this.dataTypeMap.putAll(dataTypeMap);
+            this.points += points;
+            this.permits += permits;
         }
 
-        @Override
-        public void run() {
-            if (points != null) {
-                AsyncWriteClientImpl.this.syncWriteClient.writePoints(points);
-            } else if (records != null) {
-                AsyncWriteClientImpl.this.syncWriteClient.writeRecords(records);
-            } else if (table != null) {
-                AsyncWriteClientImpl.this.syncWriteClient.writeTable(table);
+        /**
+         * 同一序列在一个批次中只能有一种数据类型，冲突时需要先发送当前批次
+         */
+        boolean conflictsWith(Map<String, DataType> dataTypeMap) {
+            for (Map.Entry<String, DataType> entry : dataTypeMap.entrySet()) {
+                DataType dataType = this.dataTypeMap.get(entry.getKey());
+                if (dataType != null && dataType != entry.getValue()) {
+                    return true;
+                }
             }
+            return false;
         }
     }
 
@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.session_v2.Arguments;
 import cn.edu.tsinghua.iginx.session_v2.ClusterClient;
 import cn.edu.tsinghua.iginx.session_v2.domain.ClusterInfo;
@@ -46,18 +47,16 @@ public class ClusterClientImpl extends AbstractFunctionClient implements Cluster
 
     @Override
     public ClusterInfo getClusterInfo() throws IginXException {
-        GetClusterInfoReq req = new GetClusterInfoReq(sessionId);
+        GetClusterInfoReq req = new GetClusterInfoReq();
 
         GetClusterInfoResp resp;
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-
-            try {
-                resp = client.getClusterInfo(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("get cluster info failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().getClusterInfo(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("get cluster info failure: ", e);
         }
 
         return new ClusterInfo(resp.getIginxInfos(), resp.getStorageEngineInfos(), resp.getLocalMetaStorageInfo(), resp.getMetaStorageInfos());
@@ -76,33 +75,30 @@ public class ClusterClientImpl extends AbstractFunctionClient implements Cluster
 
         List<StorageEngine> storageEngines = storages.stream().map(ClusterClientImpl::toStorageEngine).collect(Collectors.toList());
 
-        AddStorageEnginesReq req = new AddStorageEnginesReq(sessionId, storageEngines);
+        AddStorageEnginesReq req = new AddStorageEnginesReq().setStorageEngines(storageEngines);
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.addStorageEngines(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("scale out storage failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().addStorageEngines(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("scale out storage failure: ", e);
         }
 
     }
 
     @Override
     public int getReplicaNum() throws IginXException {
-        GetReplicaNumReq req = new GetReplicaNumReq(sessionId);
+        GetReplicaNumReq req = new GetReplicaNumReq();
 
         GetReplicaNumResp resp;
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.getReplicaNum(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("get replica num failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().getReplicaNum(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("get replica num failure: ", e);
         }
         return resp.getReplicaNum();
     }
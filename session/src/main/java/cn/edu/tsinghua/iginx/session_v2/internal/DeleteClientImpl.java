@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.session_v2.Arguments;
 import cn.edu.tsinghua.iginx.session_v2.DeleteClient;
 import cn.edu.tsinghua.iginx.session_v2.exception.IginXException;
@@ -52,16 +53,14 @@ public class DeleteClientImpl extends AbstractFunctionClient implements DeleteCl
         Arguments.checkNotNull(measurements, "measurements");
         measurements.forEach(measurement -> Arguments.checkNotNull(measurement, "measurement"));
 
-        DeleteColumnsReq req = new DeleteColumnsReq(sessionId, MeasurementUtils.mergeAndSortMeasurements(new ArrayList<>(measurements)));
+        DeleteColumnsReq req = new DeleteColumnsReq().setPaths(MeasurementUtils.mergeAndSortMeasurements(new ArrayList<>(measurements)));
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.deleteColumns(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("delete measurements failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().deleteColumns(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("delete measurements failure: ", e);
         }
     }
 
@@ -83,16 +82,17 @@ public class DeleteClientImpl extends AbstractFunctionClient implements DeleteCl
         Arguments.checkNotNull(measurements, "measurements");
         measurements.forEach(measurement -> Arguments.checkNotNull(measurement, "measurement"));
 
-        DeleteDataInColumnsReq req = new DeleteDataInColumnsReq(sessionId, MeasurementUtils.mergeAndSortMeasurements(new ArrayList<>(measurements)), startTime, endTime);
+        DeleteDataInColumnsReq req = new DeleteDataInColumnsReq()
+            .setPaths(MeasurementUtils.mergeAndSortMeasurements(new ArrayList<>(measurements)))
+            .setStartTime(startTime)
+            .setEndTime(endTime);
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.deleteDataInColumns(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("delete measurements data failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().deleteDataInColumns(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("delete measurements data failure: ", e);
         }
     }
 
@@ -19,36 +19,25 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
+import cn.edu.tsinghua.iginx.session.ConnectionPool;
 import cn.edu.tsinghua.iginx.session_v2.*;
 import cn.edu.tsinghua.iginx.session_v2.exception.IginXException;
-import cn.edu.tsinghua.iginx.thrift.CloseSessionReq;
-import cn.edu.tsinghua.iginx.thrift.IService;
-import cn.edu.tsinghua.iginx.thrift.OpenSessionReq;
-import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.transport.TSocket;
-import org.apache.thrift.transport.TTransport;
-import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class IginXClientImpl implements IginXClient {
 
     private static final Logger logger = LoggerFactory.getLogger(IginXClientImpl.class);
 
-    private final IService.Iface client;
+    private final IginXClientOptions options;
 
-    private final TTransport transport;
-
-    private final Lock lock; // IService.Iface 的 lock，保证多个线程在使用 client 时候不会互相影响
-
-    private final long sessionId;
+    // 每条连接同一时刻只被一个请求使用，多个线程的请求分摊到不同的连接上
+    private final ConnectionPool pool;
 
     private boolean isClosed;
 
@@ -61,25 +50,17 @@ public class IginXClientImpl implements IginXClient {
     public IginXClientImpl(IginXClientOptions options) {
         Arguments.checkNotNull(options, "IginXClientOptions");
 
-        lock = new ReentrantLock();
-        transport = new TSocket(options.getHost(), options.getPort());
+        this.options = options;
         measurementMapper = new MeasurementMapper();
         resultMapper = new ResultMapper();
 
+        pool = new ConnectionPool(options.getHost(), options.getPort(), options.getUsername(), options.getPassword(),
+            options.getConnectionsPerNode(), options.isDiscoverNodes());
+        pool.setFramedTransport(options.isFramedTransport());
+        pool.setCompactProtocol(options.isCompactProtocol());
         try {
-            transport.open();
-            client = new IService.Client(new TBinaryProtocol(transport));
-        } catch (TTransportException e) {
-            throw new IginXException("Open socket error: ", e);
-        }
-
-        try {
-            OpenSessionReq req = new OpenSessionReq();
-            req.setUsername(options.getUsername());
-            req.setPassword(options.getPassword());
-            sessionId = client.openSession(req).getSessionId();
-
-        } catch (TException e) {
+            pool.open();
+        } catch (SessionException e) {
             throw new IginXException("Open session error: ", e);
         }
 
@@ -93,8 +74,14 @@ public class IginXClientImpl implements IginXClient {
 
     @Override
     public synchronized AsyncWriteClient getAsyncWriteClient() {
+        return getAsyncWriteClient(WriteOptions.DEFAULTS);
+    }
+
+    @Override
+    public synchronized AsyncWriteClient getAsyncWriteClient(WriteOptions writeOptions) {
         checkIsClosed();
-        return new AsyncWriteClientImpl(this, measurementMapper, autoCloseables);
+        Arguments.checkNotNull(writeOptions, "WriteOptions");
+        return new AsyncWriteClientImpl(this, measurementMapper, writeOptions, autoCloseables);
     }
 
     @Override
@@ -137,16 +124,12 @@ public class IginXClientImpl implements IginXClient {
         return isClosed;
     }
 
-    IService.Iface getClient() {
-        return client;
+    IginXClientOptions getOptions() {
+        return options;
     }
 
-    Lock getLock() {
-        return lock;
-    }
-
-    long getSessionId() {
-        return sessionId;
+    ConnectionPool getPool() {
+        return pool;
     }
 
     @Override
@@ -164,15 +147,9 @@ public class IginXClientImpl implements IginXClient {
             }
         });
 
-        CloseSessionReq req = new CloseSessionReq(sessionId);
         try {
-            client.closeSession(req);
-        } catch (TException e) {
-            throw new IginXException("Close session error: ", e);
+            pool.close();
         } finally {
-            if (transport != null) {
-                transport.close();
-            }
             isClosed = true;
         }
     }
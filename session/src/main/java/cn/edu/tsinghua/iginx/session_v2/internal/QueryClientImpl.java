@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.session_v2.QueryClient;
 import cn.edu.tsinghua.iginx.session_v2.exception.IginXException;
 import cn.edu.tsinghua.iginx.session_v2.query.AggregateQuery;
@@ -73,36 +74,41 @@ public class QueryClientImpl extends AbstractFunctionClient implements QueryClie
 
     private IginXTable simpleQuery(SimpleQuery query) {
         List<String> measurements = new ArrayList<>(query.getMeasurements());
-        QueryDataReq req = new QueryDataReq(sessionId, MeasurementUtils.mergeAndSortMeasurements(measurements), query.getStartTime(), query.getEndTime());
+        QueryDataReq req = new QueryDataReq()
+            .setPaths(MeasurementUtils.mergeAndSortMeasurements(measurements))
+            .setStartTime(query.getStartTime())
+            .setEndTime(query.getEndTime());
 
         QueryDataResp resp;
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.queryData(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("simple query failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().queryData(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("simple query failure: ", e);
         }
         return buildIginXTable(resp.getQueryDataSet(), resp.getPaths(), resp.getDataTypeList());
     }
 
     private IginXTable aggregateQuery(AggregateQuery query) throws IginXException {
         List<String> measurements = new ArrayList<>(query.getMeasurements());
-        AggregateQueryReq req = new AggregateQueryReq(sessionId, MeasurementUtils.mergeAndSortMeasurements(measurements), query.getStartTime(), query.getEndTime(), query.getAggregateType());
+        AggregateQueryReq req = new AggregateQueryReq()
+            .setPaths(MeasurementUtils.mergeAndSortMeasurements(measurements))
+            .setStartTime(query.getStartTime())
+            .setEndTime(query.getEndTime())
+            .setAggregateType(query.getAggregateType());
 
         AggregateQueryResp resp;
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.aggregateQuery(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("aggregate query failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().aggregateQuery(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("aggregate query failure: ", e);
         }
 
         // 构造结果集
@@ -123,34 +129,39 @@ public class QueryClientImpl extends AbstractFunctionClient implements QueryClie
 
     private IginXTable downsampleQuery(DownsampleQuery query) throws IginXException {
         List<String> measurements = new ArrayList<>(query.getMeasurements());
-        DownsampleQueryReq req = new DownsampleQueryReq(sessionId, MeasurementUtils.mergeAndSortMeasurements(measurements), query.getStartTime(), query.getEndTime(), query.getAggregateType(), query.getPrecision());
+        DownsampleQueryReq req = new DownsampleQueryReq()
+            .setPaths(MeasurementUtils.mergeAndSortMeasurements(measurements))
+            .setStartTime(query.getStartTime())
+            .setEndTime(query.getEndTime())
+            .setAggregateType(query.getAggregateType())
+            .setPrecision(query.getPrecision());
 
         DownsampleQueryResp resp;
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.downsampleQuery(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("downsample query failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().downsampleQuery(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("downsample query failure: ", e);
         }
         return buildIginXTable(resp.getQueryDataSet(), resp.getPaths(), resp.getDataTypeList());
     }
 
     private IginXTable lastQuery(LastQuery query) throws IginXException {
         List<String> measurements = new ArrayList<>(query.getMeasurements());
-        LastQueryReq req = new LastQueryReq(sessionId, MeasurementUtils.mergeAndSortMeasurements(measurements), query.getStartTime());
+        LastQueryReq req = new LastQueryReq()
+            .setPaths(MeasurementUtils.mergeAndSortMeasurements(measurements))
+            .setStartTime(query.getStartTime());
 
         LastQueryResp resp;
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.lastQuery(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("last query failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().lastQuery(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("last query failure: ", e);
         }
 
         return buildIginXTable(resp.getQueryDataSet(), resp.getPaths(), resp.getDataTypeList());
@@ -236,7 +247,7 @@ public class QueryClientImpl extends AbstractFunctionClient implements QueryClie
         for (int i = 0; i < dataSet.valuesList.size(); i++) {
             ByteBuffer valuesBuffer = dataSet.valuesList.get(i);
             ByteBuffer bitmapBuffer = dataSet.bitmapList.get(i);
-            Bitmap bitmap = new Bitmap(dataTypes.size(), bitmapBuffer.array());
+            Bitmap bitmap = new Bitmap(dataTypes.size(), ByteUtils.getBytesFromByteBuffer(bitmapBuffer));
             Map<String, Object> values = new HashMap<>();
             for (int j = 0; j < dataTypes.size(); j++) {
                 if (bitmap.get(j)) {
@@ -1,6 +1,7 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.session_v2.TransformClient;
 import cn.edu.tsinghua.iginx.session_v2.domain.Task;
 import cn.edu.tsinghua.iginx.session_v2.domain.Transform;
@@ -33,21 +34,22 @@ public class TransformClientImpl extends AbstractFunctionClient implements Trans
             taskInfoList.add(taskInfo);
         }
 
-        CommitTransformJobReq req = new CommitTransformJobReq(sessionId, taskInfoList, transform.getExportType());
+        CommitTransformJobReq req = new CommitTransformJobReq()
+            .setTaskList(taskInfoList)
+            .setExportType(transform.getExportType());
         if (transform.getExportType().equals(ExportType.File)) {
             req.setFileName(transform.getFileName());
         }
 
         CommitTransformJobResp resp;
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.commitTransformJob(req);
-                RpcUtils.verifySuccess(resp.getStatus());
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("commit transform job failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.call(connection -> connection.getClient().commitTransformJob(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.getStatus());
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("commit transform job failure: ", e);
         }
         return resp.getJobId();
     }
@@ -55,17 +57,16 @@ public class TransformClientImpl extends AbstractFunctionClient implements Trans
     @Override
     public JobState queryTransformJobStatus(long jobId) {
 
-        QueryTransformJobStatusReq req = new QueryTransformJobStatusReq(sessionId, jobId);
+        QueryTransformJobStatusReq req = new QueryTransformJobStatusReq().setJobId(jobId);
         QueryTransformJobStatusResp resp;
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.queryTransformJobStatus(req);
-                RpcUtils.verifySuccess(resp.getStatus());
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("query transform job status failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().queryTransformJobStatus(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.getStatus());
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("query transform job status failure: ", e);
         }
         return resp.getJobState();
     }
@@ -73,16 +74,14 @@ public class TransformClientImpl extends AbstractFunctionClient implements Trans
     @Override
     public void cancelTransformJob(long jobId) {
 
-        CancelTransformJobReq req = new CancelTransformJobReq(sessionId, jobId);
+        CancelTransformJobReq req = new CancelTransformJobReq().setJobId(jobId);
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.cancelTransformJob(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("cancel transform job failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().cancelTransformJob(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("cancel transform job failure: ", e);
         }
     }
 }
@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.session_v2.Arguments;
 import cn.edu.tsinghua.iginx.session_v2.UsersClient;
 import cn.edu.tsinghua.iginx.session_v2.domain.User;
@@ -52,16 +53,17 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
         Arguments.checkNotNull(user.getPassword(), "password");
         Arguments.checkNotNull(user.getAuths(), "auths");
 
-        AddUserReq req = new AddUserReq(sessionId, user.getUsername(), user.getPassword(), user.getAuths());
-
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.addUser(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("add user failure: ", e);
-            }
+        AddUserReq req = new AddUserReq()
+            .setUsername(user.getUsername())
+            .setPassword(user.getPassword())
+            .setAuths(user.getAuths());
+
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().addUser(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("add user failure: ", e);
         }
     }
 
@@ -70,7 +72,7 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
         Arguments.checkNotNull(user, "user");
         Arguments.checkNotNull(user.getUsername(), "username");
 
-        UpdateUserReq req = new UpdateUserReq(sessionId, user.getUsername());
+        UpdateUserReq req = new UpdateUserReq().setUsername(user.getUsername());
 
         if (user.getPassword() != null) {
             req.setPassword(req.getPassword());
@@ -79,14 +81,12 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
             req.setAuths(user.getAuths());
         }
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.updateUser(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("update user failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().updateUser(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("update user failure: ", e);
         }
     }
 
@@ -95,17 +95,15 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
         Arguments.checkNotNull(username, "username");
         Arguments.checkNotNull(newPassword, "newPassword");
 
-        UpdateUserReq req = new UpdateUserReq(sessionId, username);
+        UpdateUserReq req = new UpdateUserReq().setUsername(username);
         req.setPassword(newPassword);
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.updateUser(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("update user failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().updateUser(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("update user failure: ", e);
         }
     }
 
@@ -113,15 +111,13 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
     public void removeUser(String username) throws IginXException {
         Arguments.checkNotNull(username, "username");
 
-        DeleteUserReq req = new DeleteUserReq(sessionId, username);
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.deleteUser(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("Remove user failure: ", e);
-            }
+        DeleteUserReq req = new DeleteUserReq().setUsername(username);
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().deleteUser(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("Remove user failure: ", e);
         }
     }
 
@@ -129,19 +125,18 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
     public User findUserByName(String username) throws IginXException {
         Arguments.checkNotNull(username, "username");
 
-        GetUserReq req = new GetUserReq(sessionId);
+        GetUserReq req = new GetUserReq();
         req.setUsernames(Collections.singletonList(username));
 
         GetUserResp resp;
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.getUser(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("find user failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().getUser(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("find user failure: ", e);
         }
 
         if (resp.usernames == null || resp.usernames.isEmpty()) {
@@ -155,18 +150,17 @@ public class UsersClientImpl extends AbstractFunctionClient implements UsersClie
 
     @Override
     public List<User> findUsers() throws IginXException {
-        GetUserReq req = new GetUserReq(sessionId);
+        GetUserReq req = new GetUserReq();
 
         GetUserResp resp;
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                resp = client.getUser(req);
-                RpcUtils.verifySuccess(resp.status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("find users failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            resp = pool.callIdempotent(connection -> connection.getClient().getUser(req.setSessionId(connection.getSessionId())),
+                r -> r.status);
+            RpcUtils.verifySuccess(resp.status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("find users failure: ", e);
         }
 
         if (resp.usernames == null || resp.userTypes == null || resp.auths == null) {
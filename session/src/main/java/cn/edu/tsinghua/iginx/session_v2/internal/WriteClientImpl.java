@@ -19,6 +19,7 @@
 package cn.edu.tsinghua.iginx.session_v2.internal;
 
 import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
 import cn.edu.tsinghua.iginx.session_v2.WriteClient;
 import cn.edu.tsinghua.iginx.session_v2.exception.IginXException;
 import cn.edu.tsinghua.iginx.session_v2.write.Point;
@@ -221,7 +222,6 @@ public class WriteClientImpl extends AbstractFunctionClient implements WriteClie
         }
 
         InsertNonAlignedColumnRecordsReq req = new InsertNonAlignedColumnRecordsReq();
-        req.setSessionId(sessionId);
         req.setPaths(paths);
         req.setTimestamps(getByteArrayFromLongArray(timestamps));
         req.setValuesList(valueBufferList);
@@ -229,14 +229,12 @@ public class WriteClientImpl extends AbstractFunctionClient implements WriteClie
         req.setDataTypeList(dataTypeList);
         req.setTagsList(tagsList);
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.insertNonAlignedColumnRecords(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("insert data failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().insertNonAlignedColumnRecords(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("insert data failure: ", e);
         }
 
     }
@@ -257,7 +255,6 @@ public class WriteClientImpl extends AbstractFunctionClient implements WriteClie
         }
 
         InsertNonAlignedRowRecordsReq req = new InsertNonAlignedRowRecordsReq();
-        req.setSessionId(sessionId);
         req.setPaths(paths);
         req.setTimestamps(getByteArrayFromLongArray(timestamps));
         req.setValuesList(valueBufferList);
@@ -265,14 +262,12 @@ public class WriteClientImpl extends AbstractFunctionClient implements WriteClie
         req.setDataTypeList(dataTypeList);
         req.setTagsList(tagsList);
 
-        synchronized (iginXClient) {
-            iginXClient.checkIsClosed();
-            try {
-                Status status = client.insertNonAlignedRowRecords(req);
-                RpcUtils.verifySuccess(status);
-            } catch (TException | ExecutionException e) {
-                throw new IginXException("insert data failure: ", e);
-            }
+        iginXClient.checkIsClosed();
+        try {
+            Status status = pool.call(connection -> connection.getClient().insertNonAlignedRowRecords(req.setSessionId(connection.getSessionId())));
+            RpcUtils.verifySuccess(status);
+        } catch (SessionException | TException | ExecutionException e) {
+            throw new IginXException("insert data failure: ", e);
         }
 
     }
@@ -18,7 +18,7 @@
 from enum import Enum
 from .thrift.rpc.ttypes import SqlType, AggregateType, ExecuteSqlResp
 from .utils.bitmap import Bitmap
-from .utils.byte_utils import get_long_array, get_values_by_data_type, BytesParser
+from .utils.byte_utils import get_long_array, get_values_by_data_type, get_column_values, BytesParser
 
 
 
@@ -151,26 +151,36 @@ class StatementExecuteDataSet(object):
         NO_MORE = 2,
         UNKNOWN = 3
 
-    def __init__(self, session, query_id, columns, types, fetch_size, values_list, bitmap_list):
+    def __init__(self, session, query_id, columns, types, fetch_size, query_data_set, column_data_set):
         self.__session = session
         self.__query_id = query_id
         self.__columns = columns
         self.__types = types
         self.__fetch_size = fetch_size
-        self.__values_list = values_list
-        self.__bitmap_list = bitmap_list
         self.__state = StatementExecuteDataSet.State.UNKNOWN
+        self.__load(query_data_set, column_data_set)
+
+
+    def __load(self, query_data_set, column_data_set):
+        self.__values_list = None
+        self.__bitmap_list = None
+        self.__column_values = None
+        self.__size = 0
         self.__index = 0
+        if column_data_set:
+            self.__size = column_data_set.rowCount
+            self.__column_values = [get_column_values(values, bitmap, type, self.__size) for values, bitmap, type in
+                                    zip(column_data_set.valuesList, column_data_set.bitmapList, self.__types)]
+        elif query_data_set:
+            self.__values_list = query_data_set.valuesList
+            self.__bitmap_list = query_data_set.bitmapList
+            self.__size = len(self.__values_list)
 
 
     def fetch(self):
-        if self.__bitmap_list and self.__index != len(self.__bitmap_list):
+        if self.__index != self.__size:
             return
 
-        self.__bitmap_list = None
-        self.__values_list = None
-        self.__index = 0
-
         tp = self.__session._fetch(self.__query_id, self.__fetch_size)
 
         if tp[0]:
@@ -178,29 +188,28 @@ class StatementExecuteDataSet(object):
         else:
             self.__state = StatementExecuteDataSet.State.NO_MORE
 
-        if tp[1]:
-            self.__bitmap_list = tp[1].bitmapList
-            self.__values_list = tp[1].valuesList
+        self.__load(tp[1], tp[2])
 
 
     def has_more(self):
-        if self.__values_list and self.__index < len(self.__values_list):
+        if self.__index < self.__size:
             return True
 
-        self.__bitmap_list = None
-        self.__values_list = None
-        self.__index = 0
-
         if self.__state == StatementExecuteDataSet.State.HAS_MORE or self.__state == StatementExecuteDataSet.State.UNKNOWN:
             self.fetch()
 
-        return self.__values_list
+        return self.__index < self.__size
 
 
     def next(self):
         if not self.has_more():
             return None
 
+        if self.__column_values is not None:
+            values = [column[self.__index] for column in self.__column_values]
+            self.__index += 1
+            return values
+
         values_buffer = self.__values_list[self.__index]
         bitmap_buffer = self.__bitmap_list[self.__index]
         self.__index += 1
@@ -440,18 +440,19 @@ class Session(object):
 
 
     def execute_statement(self, statement, fetch_size=2147483647):
-        req = ExecuteStatementReq(sessionId=self.__session_id, statement=statement, fetchSize=fetch_size)
+        req = ExecuteStatementReq(sessionId=self.__session_id, statement=statement, fetchSize=fetch_size,
+                                  enableColumnDataSet=True)
         resp = self.__client.executeStatement(req)
         Session.verify_status(resp.status)
         return StatementExecuteDataSet(self, resp.queryId, resp.columns, resp.dataTypeList, fetch_size,
-                                       resp.queryDataSet.valuesList, resp.queryDataSet.bitmapList)
+                                       resp.queryDataSet, resp.columnDataSet)
 
 
     def _fetch(self, query_id, fetch_size):
         req = FetchResultsReq(sessionId=self.__session_id, queryId=query_id, fetchSize=fetch_size)
         resp = self.__client.fetchResults(req)
         Session.verify_status(resp.status)
-        return (resp.hasMoreResults, resp.queryDataSet)
+        return (resp.hasMoreResults, resp.queryDataSet, resp.columnDataSet)
 
     def _close_statement(self, query_id):
         req = CloseStatementReq(sessionId=self.__session_id, queryId=query_id)
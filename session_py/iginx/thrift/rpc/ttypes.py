@@ -4233,15 +4233,17 @@ class ExecuteStatementReq(object):
      - statement
      - fetchSize
      - timeout
+     - enableColumnDataSet
 
     """
 
 
-    def __init__(self, sessionId=None, statement=None, fetchSize=None, timeout=None,):
+    def __init__(self, sessionId=None, statement=None, fetchSize=None, timeout=None, enableColumnDataSet=None,):
         self.sessionId = sessionId
         self.statement = statement
         self.fetchSize = fetchSize
         self.timeout = timeout
+        self.enableColumnDataSet = enableColumnDataSet
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -4272,6 +4274,11 @@ class ExecuteStatementReq(object):
                     self.timeout = iprot.readI64()
                 else:
                     iprot.skip(ftype)
+            elif fid == 5:
+                if ftype == TType.BOOL:
+                    self.enableColumnDataSet = iprot.readBool()
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -4298,6 +4305,10 @@ class ExecuteStatementReq(object):
             oprot.writeFieldBegin('timeout', TType.I64, 4)
             oprot.writeI64(self.timeout)
             oprot.writeFieldEnd()
+        if self.enableColumnDataSet is not None:
+            oprot.writeFieldBegin('enableColumnDataSet', TType.BOOL, 5)
+            oprot.writeBool(self.enableColumnDataSet)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -4327,19 +4338,23 @@ class ExecuteStatementResp(object):
      - type
      - queryId
      - columns
+     - tagsList
      - dataTypeList
      - queryDataSet
+     - columnDataSet
 
     """
 
 
-    def __init__(self, status=None, type=None, queryId=None, columns=None, dataTypeList=None, queryDataSet=None,):
+    def __init__(self, status=None, type=None, queryId=None, columns=None, tagsList=None, dataTypeList=None, queryDataSet=None, columnDataSet=None,):
         self.status = status
         self.type = type
         self.queryId = queryId
         self.columns = columns
+        self.tagsList = tagsList
         self.dataTypeList = dataTypeList
         self.queryDataSet = queryDataSet
+        self.columnDataSet = columnDataSet
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -4377,6 +4392,22 @@ class ExecuteStatementResp(object):
                 else:
                     iprot.skip(ftype)
             elif fid == 5:
+                if ftype == TType.LIST:
+                    self.tagsList = []
+                    (_etype903, _size900) = iprot.readListBegin()
+                    for _i904 in range(_size900):
+                        _elem905 = {}
+                        (_ktype907, _vtype908, _size906) = iprot.readMapBegin()
+                        for _i910 in range(_size906):
+                            _key911 = iprot.readString().decode('utf-8') if sys.version_info[0] == 2 else iprot.readString()
+                            _val912 = iprot.readString().decode('utf-8') if sys.version_info[0] == 2 else iprot.readString()
+                            _elem905[_key911] = _val912
+                        iprot.readMapEnd()
+                        self.tagsList.append(_elem905)
+                    iprot.readListEnd()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 6:
                 if ftype == TType.LIST:
                     self.dataTypeList = []
                     (_etype439, _size436) = iprot.readListBegin()
@@ -4386,12 +4417,18 @@ class ExecuteStatementResp(object):
                     iprot.readListEnd()
                 else:
                     iprot.skip(ftype)
-            elif fid == 6:
+            elif fid == 7:
                 if ftype == TType.STRUCT:
                     self.queryDataSet = QueryDataSetV2()
                     self.queryDataSet.read(iprot)
                 else:
                     iprot.skip(ftype)
+            elif fid == 8:
+                if ftype == TType.STRUCT:
+                    self.columnDataSet = QueryDataSetV3()
+                    self.columnDataSet.read(iprot)
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -4421,17 +4458,32 @@ class ExecuteStatementResp(object):
                 oprot.writeString(iter442.encode('utf-8') if sys.version_info[0] == 2 else iter442)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
+        if self.tagsList is not None:
+            oprot.writeFieldBegin('tagsList', TType.LIST, 5)
+            oprot.writeListBegin(TType.MAP, len(self.tagsList))
+            for iter913 in self.tagsList:
+                oprot.writeMapBegin(TType.STRING, TType.STRING, len(iter913))
+                for kiter914, viter915 in iter913.items():
+                    oprot.writeString(kiter914.encode('utf-8') if sys.version_info[0] == 2 else kiter914)
+                    oprot.writeString(viter915.encode('utf-8') if sys.version_info[0] == 2 else viter915)
+                oprot.writeMapEnd()
+            oprot.writeListEnd()
+            oprot.writeFieldEnd()
         if self.dataTypeList is not None:
-            oprot.writeFieldBegin('dataTypeList', TType.LIST, 5)
+            oprot.writeFieldBegin('dataTypeList', TType.LIST, 6)
             oprot.writeListBegin(TType.I32, len(self.dataTypeList))
             for iter443 in self.dataTypeList:
                 oprot.writeI32(iter443)
             oprot.writeListEnd()
             oprot.writeFieldEnd()
         if self.queryDataSet is not None:
-            oprot.writeFieldBegin('queryDataSet', TType.STRUCT, 6)
+            oprot.writeFieldBegin('queryDataSet', TType.STRUCT, 7)
             self.queryDataSet.write(oprot)
             oprot.writeFieldEnd()
+        if self.columnDataSet is not None:
+            oprot.writeFieldBegin('columnDataSet', TType.STRUCT, 8)
+            self.columnDataSet.write(oprot)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -4542,6 +4594,107 @@ class QueryDataSetV2(object):
         return not (self == other)
 
 
+class QueryDataSetV3(object):
+    """
+    Attributes:
+     - rowCount
+     - valuesList
+     - bitmapList
+
+    """
+
+
+    def __init__(self, rowCount=None, valuesList=None, bitmapList=None,):
+        self.rowCount = rowCount
+        self.valuesList = valuesList
+        self.bitmapList = bitmapList
+
+    def read(self, iprot):
+        if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
+            iprot._fast_decode(self, iprot, [self.__class__, self.thrift_spec])
+            return
+        iprot.readStructBegin()
+        while True:
+            (fname, ftype, fid) = iprot.readFieldBegin()
+            if ftype == TType.STOP:
+                break
+            if fid == 1:
+                if ftype == TType.I32:
+                    self.rowCount = iprot.readI32()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 2:
+                if ftype == TType.LIST:
+                    self.valuesList = []
+                    (_etype919, _size916) = iprot.readListBegin()
+                    for _i920 in range(_size916):
+                        _elem921 = iprot.readBinary()
+                        self.valuesList.append(_elem921)
+                    iprot.readListEnd()
+                else:
+                    iprot.skip(ftype)
+            elif fid == 3:
+                if ftype == TType.LIST:
+                    self.bitmapList = []
+                    (_etype925, _size922) = iprot.readListBegin()
+                    for _i926 in range(_size922):
+                        _elem927 = iprot.readBinary()
+                        self.bitmapList.append(_elem927)
+                    iprot.readListEnd()
+                else:
+                    iprot.skip(ftype)
+            else:
+                iprot.skip(ftype)
+            iprot.readFieldEnd()
+        iprot.readStructEnd()
+
+    def write(self, oprot):
+        if oprot._fast_encode is not None and self.thrift_spec is not None:
+            oprot.trans.write(oprot._fast_encode(self, [self.__class__, self.thrift_spec]))
+            return
+        oprot.writeStructBegin('QueryDataSetV3')
+        if self.rowCount is not None:
+            oprot.writeFieldBegin('rowCount', TType.I32, 1)
+            oprot.writeI32(self.rowCount)
+            oprot.writeFieldEnd()
+        if self.valuesList is not None:
+            oprot.writeFieldBegin('valuesList', TType.LIST, 2)
+            oprot.writeListBegin(TType.STRING, len(self.valuesList))
+            for iter928 in self.valuesList:
+                oprot.writeBinary(iter928)
+            oprot.writeListEnd()
+            oprot.writeFieldEnd()
+        if self.bitmapList is not None:
+            oprot.writeFieldBegin('bitmapList', TType.LIST, 3)
+            oprot.writeListBegin(TType.STRING, len(self.bitmapList))
+            for iter929 in self.bitmapList:
+                oprot.writeBinary(iter929)
+            oprot.writeListEnd()
+            oprot.writeFieldEnd()
+        oprot.writeFieldStop()
+        oprot.writeStructEnd()
+
+    def validate(self):
+        if self.rowCount is None:
+            raise TProtocolException(message='Required field rowCount is unset!')
+        if self.valuesList is None:
+            raise TProtocolException(message='Required field valuesList is unset!')
+        if self.bitmapList is None:
+            raise TProtocolException(message='Required field bitmapList is unset!')
+        return
+
+    def __repr__(self):
+        L = ['%s=%r' % (key, value)
+             for key, value in self.__dict__.items()]
+        return '%s(%s)' % (self.__class__.__name__, ', '.join(L))
+
+    def __eq__(self, other):
+        return isinstance(other, self.__class__) and self.__dict__ == other.__dict__
+
+    def __ne__(self, other):
+        return not (self == other)
+
+
 class CloseStatementReq(object):
     """
     Attributes:
@@ -4714,14 +4867,16 @@ class FetchResultsResp(object):
      - status
      - hasMoreResults
      - queryDataSet
+     - columnDataSet
 
     """
 
 
-    def __init__(self, status=None, hasMoreResults=None, queryDataSet=None,):
+    def __init__(self, status=None, hasMoreResults=None, queryDataSet=None, columnDataSet=None,):
         self.status = status
         self.hasMoreResults = hasMoreResults
         self.queryDataSet = queryDataSet
+        self.columnDataSet = columnDataSet
 
     def read(self, iprot):
         if iprot._fast_decode is not None and isinstance(iprot.trans, TTransport.CReadableTransport) and self.thrift_spec is not None:
@@ -4749,6 +4904,12 @@ class FetchResultsResp(object):
                     self.queryDataSet.read(iprot)
                 else:
                     iprot.skip(ftype)
+            elif fid == 4:
+                if ftype == TType.STRUCT:
+                    self.columnDataSet = QueryDataSetV3()
+                    self.columnDataSet.read(iprot)
+                else:
+                    iprot.skip(ftype)
             else:
                 iprot.skip(ftype)
             iprot.readFieldEnd()
@@ -4771,6 +4932,10 @@ class FetchResultsResp(object):
             oprot.writeFieldBegin('queryDataSet', TType.STRUCT, 3)
             self.queryDataSet.write(oprot)
             oprot.writeFieldEnd()
+        if self.columnDataSet is not None:
+            oprot.writeFieldBegin('columnDataSet', TType.STRUCT, 4)
+            self.columnDataSet.write(oprot)
+            oprot.writeFieldEnd()
         oprot.writeFieldStop()
         oprot.writeStructEnd()
 
@@ -5097,6 +5262,7 @@ ExecuteStatementReq.thrift_spec = (
     (2, TType.STRING, 'statement', 'UTF8', None, ),  # 2
     (3, TType.I32, 'fetchSize', None, None, ),  # 3
     (4, TType.I64, 'timeout', None, None, ),  # 4
+    (5, TType.BOOL, 'enableColumnDataSet', None, None, ),  # 5
 )
 all_structs.append(ExecuteStatementResp)
 ExecuteStatementResp.thrift_spec = (
@@ -5105,8 +5271,10 @@ ExecuteStatementResp.thrift_spec = (
     (2, TType.I32, 'type', None, None, ),  # 2
     (3, TType.I64, 'queryId', None, None, ),  # 3
     (4, TType.LIST, 'columns', (TType.STRING, 'UTF8', False), None, ),  # 4
-    (5, TType.LIST, 'dataTypeList', (TType.I32, None, False), None, ),  # 5
-    (6, TType.STRUCT, 'queryDataSet', [QueryDataSetV2, None], None, ),  # 6
+    (5, TType.LIST, 'tagsList', (TType.MAP, (TType.STRING, 'UTF8', TType.STRING, 'UTF8', False), False), None, ),  # 5
+    (6, TType.LIST, 'dataTypeList', (TType.I32, None, False), None, ),  # 6
+    (7, TType.STRUCT, 'queryDataSet', [QueryDataSetV2, None], None, ),  # 7
+    (8, TType.STRUCT, 'columnDataSet', [QueryDataSetV3, None], None, ),  # 8
 )
 all_structs.append(QueryDataSetV2)
 QueryDataSetV2.thrift_spec = (
@@ -5114,6 +5282,13 @@ QueryDataSetV2.thrift_spec = (
     (1, TType.LIST, 'valuesList', (TType.STRING, 'BINARY', False), None, ),  # 1
     (2, TType.LIST, 'bitmapList', (TType.STRING, 'BINARY', False), None, ),  # 2
 )
+all_structs.append(QueryDataSetV3)
+QueryDataSetV3.thrift_spec = (
+    None,  # 0
+    (1, TType.I32, 'rowCount', None, None, ),  # 1
+    (2, TType.LIST, 'valuesList', (TType.STRING, 'BINARY', False), None, ),  # 2
+    (3, TType.LIST, 'bitmapList', (TType.STRING, 'BINARY', False), None, ),  # 3
+)
 all_structs.append(CloseStatementReq)
 CloseStatementReq.thrift_spec = (
     None,  # 0
@@ -5134,6 +5309,7 @@ FetchResultsResp.thrift_spec = (
     (1, TType.STRUCT, 'status', [Status, None], None, ),  # 1
     (2, TType.BOOL, 'hasMoreResults', None, None, ),  # 2
     (3, TType.STRUCT, 'queryDataSet', [QueryDataSetV2, None], None, ),  # 3
+    (4, TType.STRUCT, 'columnDataSet', [QueryDataSetV3, None], None, ),  # 4
 )
 fix_spec(all_structs)
 del all_structs
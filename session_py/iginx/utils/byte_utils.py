@@ -19,6 +19,7 @@
 import struct
 
 from ..thrift.rpc.ttypes import DataType
+from .bitmap import Bitmap
 
 
 def get_long_array(bytes):
@@ -133,6 +134,30 @@ def timestamps_to_bytes(values):
     return row_values_to_bytes(values, [DataType.LONG for i in range(len(values))])
 
 
+COLUMN_FORMATS = {
+    DataType.BOOLEAN: "?",
+    DataType.INTEGER: "i",
+    DataType.LONG: "q",
+    DataType.FLOAT: "f",
+    DataType.DOUBLE: "d",
+}
+
+
+def get_column_values(values_bytes, bitmap_bytes, type, row_count):
+    """解析按列编码的一列数据，值缓冲区中只包含非空值，位图中未标记的位置为 None"""
+    bitmap = Bitmap(row_count, bitmap_bytes)
+    positions = [i for i in range(row_count) if bitmap.get(i)]
+    if type in COLUMN_FORMATS:
+        non_null_values = struct.unpack(">" + str(len(positions)) + COLUMN_FORMATS[type], values_bytes)
+    else:
+        parser = BytesParser(values_bytes)
+        non_null_values = [parser.next(type) for _ in positions]
+    values = [None] * row_count
+    for position, value in zip(positions, non_null_values):
+        values[position] = value
+    return values
+
+
 class BytesParser(object):
 
     def __init__(self, bytes):
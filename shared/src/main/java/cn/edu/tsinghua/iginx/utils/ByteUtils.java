@@ -70,7 +70,7 @@ public class ByteUtils {
     public static Object[] getColumnValuesByDataType(List<ByteBuffer> valuesList, List<DataType> dataTypeList, List<ByteBuffer> bitmapList, int timestampsSize) {
         Object[] tempValues = new Object[valuesList.size()];
         for (int i = 0; i < valuesList.size(); i++) {
-            Bitmap bitmap = new Bitmap(timestampsSize, bitmapList.get(i).array());
+            Bitmap bitmap = new Bitmap(timestampsSize, getBytesFromByteBuffer(bitmapList.get(i)));
             int cnt = 0;
             for (int j = 0; j < timestampsSize; j++) {
                 if (bitmap.get(j)) {
@@ -124,7 +124,7 @@ public class ByteUtils {
     public static Object[] getRowValuesByDataType(List<ByteBuffer> valuesList, List<DataType> dataTypeList, List<ByteBuffer> bitmapList) {
         Object[] tempValues = new Object[valuesList.size()];
         for (int i = 0; i < valuesList.size(); i++) {
-            Bitmap bitmap = new Bitmap(dataTypeList.size(), bitmapList.get(i).array());
+            Bitmap bitmap = new Bitmap(dataTypeList.size(), getBytesFromByteBuffer(bitmapList.get(i)));
             List<Integer> indexes = new ArrayList<>();
             for (int j = 0; j < dataTypeList.size(); j++) {
                 if (bitmap.get(j)) {
@@ -170,8 +170,18 @@ public class ByteUtils {
         return buffer.array();
     }
 
+    /**
+     * 复制缓冲区中 position 到 limit 之间的字节，不改变缓冲区的 position。
+     * Thrift 在 framed transport 下读出的 binary 字段共享整个帧的底层数组，不能直接使用 array()
+     */
+    public static byte[] getBytesFromByteBuffer(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
     public static long[] getLongArrayFromByteBuffer(ByteBuffer buffer) {
-        long[] array = new long[buffer.array().length / 8];
+        long[] array = new long[buffer.remaining() / 8];
         for (int i = 0; i < array.length; i++) {
             array[i] = buffer.getLong();
         }
@@ -183,7 +193,7 @@ public class ByteUtils {
     }
 
     public static List<Long> getLongListFromByteBuffer(ByteBuffer buffer) {
-        int size = buffer.array().length / 8;
+        int size = buffer.remaining() / 8;
         List<Long> list = new ArrayList<>(size);
         for (int i = 0; i < size; i++) {
             list.add(buffer.getLong());
@@ -398,6 +408,23 @@ public class ByteUtils {
         return value;
     }
 
+    /**
+     * 解析按列编码的一列数据，值缓冲区中只包含非空值，位图中未标记的位置返回 null
+     */
+    public static Object[] getColumnValuesWithNullByDataType(ByteBuffer valuesBuffer, ByteBuffer bitmapBuffer, DataType dataType, int rowCount) {
+        byte[] bitmapBytes = new byte[bitmapBuffer.remaining()];
+        bitmapBuffer.duplicate().get(bitmapBytes);
+        Bitmap bitmap = new Bitmap(rowCount, bitmapBytes);
+        ByteBuffer buffer = valuesBuffer.duplicate();
+        Object[] values = new Object[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            if (bitmap.get(i)) {
+                values[i] = getValueFromByteBufferByDataType(buffer, dataType);
+            }
+        }
+        return values;
+    }
+
 
     public static ByteBuffer getByteBufferFromObjectByDataType(Object value, DataType dataType) {
         ByteBuffer buffer;
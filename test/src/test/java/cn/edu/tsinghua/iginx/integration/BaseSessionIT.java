@@ -53,7 +53,7 @@ public abstract class BaseSessionIT {
     //params for datatype test
     private static final String ranStr = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     private static final int STRING_LEN = 1000;
-    private static Session session;
+    protected static Session session;
     protected boolean isAbleToDelete;
     protected String storageEngineType;
     protected int defaultPort2;
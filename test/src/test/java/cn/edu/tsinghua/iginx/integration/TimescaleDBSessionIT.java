@@ -1,6 +1,17 @@
 package cn.edu.tsinghua.iginx.integration;
 
+import cn.edu.tsinghua.iginx.exceptions.ExecutionException;
+import cn.edu.tsinghua.iginx.exceptions.SessionException;
+import cn.edu.tsinghua.iginx.session.SessionQueryDataSet;
+import cn.edu.tsinghua.iginx.thrift.AggregateType;
+import cn.edu.tsinghua.iginx.thrift.DataType;
+import org.junit.Test;
+
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 
 public class TimescaleDBSessionIT extends BaseSessionIT {
 
@@ -14,4 +25,27 @@ public class TimescaleDBSessionIT extends BaseSessionIT {
         this.extraParams.put("password", "123456");
         this.extraParams.put("dbname", "timeseries");
     }
+
+    @Test
+    public void testDownsampleWithBias() throws SessionException, ExecutionException {
+        // timescaledb 以秒保存时间，写入整秒的数据；起始时间 1500 不是窗口长度的整数倍
+        List<String> paths = Collections.singletonList("sg1.bias.s");
+        long[] timestamps = new long[20];
+        Object[] values = new Object[20];
+        for (int i = 0; i < 20; i++) {
+            timestamps[i] = (i + 1) * 1000L;
+            values[i] = (long) (i + 1);
+        }
+        session.insertNonAlignedColumnRecords(paths, timestamps, new Object[]{values},
+            Collections.singletonList(DataType.LONG), null);
+
+        SessionQueryDataSet dataSet = session.downsampleQuery(paths, 1500L, 20500L, AggregateType.SUM, 3000L);
+        assertEquals(7, dataSet.getTimestamps().length);
+        for (int i = 0; i < 7; i++) {
+            // 窗口 [1500 + 3000i, 4500 + 3000i) 包含第 3i+2 到 3i+4 秒
+            assertEquals(1500L + 3000L * i, dataSet.getTimestamps()[i]);
+            long sum = i < 6 ? 9L * i + 9 : 20L;
+            assertEquals(sum, ((Number) dataSet.getValues().get(i).get(0)).longValue());
+        }
+    }
 }
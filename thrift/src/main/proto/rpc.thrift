@@ -56,7 +56,10 @@ enum SqlType {
     RegisterTask,
     DropTask,
     CommitTransformJob,
-    ShowJobStatus
+    ShowJobStatus,
+    KillQuery,
+    CreateContinuousQuery,
+    DropContinuousQuery
 }
 
 enum AuthType {
@@ -385,6 +388,7 @@ struct ExecuteStatementReq {
     2: required string statement
     3: optional i32 fetchSize
     4: optional i64 timeout
+    5: optional bool enableColumnDataSet
 }
 
 struct ExecuteStatementResp {
@@ -395,6 +399,7 @@ struct ExecuteStatementResp {
     5: optional list<map<string, string>> tagsList
     6: optional list<DataType> dataTypeList
     7: optional QueryDataSetV2 queryDataSet
+    8: optional QueryDataSetV3 columnDataSet
 }
 
 struct QueryDataSetV2 {
@@ -402,6 +407,13 @@ struct QueryDataSetV2 {
     2: required list<binary> bitmapList
 }
 
+// 按列组织的一批结果，每列一个连续的值缓冲区（只包含非空值）和一个长度为 rowCount 的位图
+struct QueryDataSetV3 {
+    1: required i32 rowCount
+    2: required list<binary> valuesList
+    3: required list<binary> bitmapList
+}
+
 struct CloseStatementReq {
     1: required i64 sessionId
     2: required i64 queryId
@@ -418,6 +430,7 @@ struct FetchResultsResp {
     1: required Status status
     2: required bool hasMoreResults
     3: optional QueryDataSetV2 queryDataSet
+    4: optional QueryDataSetV3 columnDataSet
 }
 
 struct TaskInfo {
@@ -461,6 +474,7 @@ struct RegisterTaskReq {
     3: required string filePath
     4: required string className
     5: required UDFType type;
+    6: optional bool vectorized
 }
 
 struct DropTaskReq {